@@ -20,7 +20,6 @@
 package edu.asu.FourRowSolitaire;
 
 import java.awt.Graphics;
-import java.awt.Image;
 import java.awt.Point;
 
 /**
@@ -162,15 +161,17 @@ public class AcePile extends CardStack
         return card.getSuit().equals(getSuit());
     }
     
+    /**
+     * Draws the top card, since it covers the others, with edges below it
+     * for the cards underneath.
+     */
     @Override
-    public void paint(Graphics g)
+    protected void paintCards(Graphics g)
     {
-        super.paint(g);
-        
-        for (int i = 0; i < length(); i++)
+        if (!isEmpty())
         {
-            Image image = getCardAtLocation(i).getImage();
-            g.drawImage(image, 0, 0, null);
+            paintEdges(g, length() - 1);
+            drawCard(g, peek(), 0, 0);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,236 @@
+package edu.asu.FourRowSolitaire;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A small file that is always replaced whole, written so that a crash at
+ * any point leaves either the old contents or the new ones, never a mix.
+ * <p>
+ * Each write makes a new generation. It is written to a temporary file next
+ * to the real one and forced to the disk, the real file is renamed to a
+ * backup, and the temporary file is renamed to the real one. Each generation
+ * holds a magic number, its generation number, its length and a CRC-32 of
+ * its contents, so reading can tell a whole generation from a broken one.
+ * {@link #read()} takes the newest whole generation of the three files, so
+ * if the newest was broken the one before it is used.
+ * <p>
+ * A file written before generations were kept, which is just the contents,
+ * is read as it is.
+ */
+public class AtomicFile
+{
+    private static final int MAGIC = 0x46525347; // "FRSG"
+    private static final int HEADER_SIZE = 16;   // magic, generation, length
+    private static final int TRAILER_SIZE = 4;   // CRC
+
+    private final File file;
+    private final File backup;
+    private final File temporary;
+
+    // the newest generation read or written, or -1 if not known yet
+    private long generation = -1;
+
+    private CrashPoint crashPoint = CrashPoint.NEVER;
+
+    /**
+     * Constructs an atomic file. Nothing is read or written until asked for.
+     *
+     * @param file the file
+     */
+    public AtomicFile(File file)
+    {
+        this.file = file;
+        this.backup = new File(file.getPath() + ".bak");
+        this.temporary = new File(file.getPath() + ".tmp");
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Reads the newest whole generation.
+     *
+     * @return the contents, or null if there is no whole generation
+     * @throws IOException if a file exists but cannot be read
+     */
+    public byte[] read() throws IOException
+    {
+        byte[] newest = null;
+        long newestGeneration = -1;
+
+        for (File candidate : new File[] { file, temporary, backup })
+        {
+            if (!candidate.exists())
+                continue;
+
+            ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(candidate.toPath()));
+
+            if (contents.remaining() < 4 || contents.getInt(0) != MAGIC)
+            {
+                // written before generations were kept
+                if (candidate == file && newest == null)
+                {
+                    newest = contents.array();
+                    newestGeneration = 0;
+                }
+
+                continue;
+            }
+
+            if (isWhole(contents) && contents.getLong(4) > newestGeneration)
+            {
+                newestGeneration = contents.getLong(4);
+                newest = new byte[contents.getInt(12)];
+                contents.position(HEADER_SIZE);
+                contents.get(newest);
+            }
+        }
+
+        generation = Math.max(generation, newestGeneration);
+        return newest;
+    }
+
+    /**
+     * Replaces the contents with a new generation, returning once it is on
+     * the disk.
+     *
+     * @param data the new contents
+     * @throws IOException if it cannot be written, in which case the file
+     *         reads as it did before
+     */
+    public void write(byte[] data) throws IOException
+    {
+        if (generation < 0)
+            read();
+
+        ByteBuffer contents = ByteBuffer.allocate(HEADER_SIZE + data.length + TRAILER_SIZE);
+        contents.putInt(MAGIC);
+        contents.putLong(generation + 1);
+        contents.putInt(data.length);
+        contents.put(data);
+        contents.putInt(crc(contents.array(), contents.position()));
+        contents.flip();
+
+        FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        try
+        {
+            crashPoint.write(channel, contents, 0);
+            channel.force(true);
+        }
+        finally
+        {
+            channel.close();
+        }
+
+        if (file.exists())
+        {
+            crashPoint.step();
+            move(file, backup);
+        }
+
+        crashPoint.step();
+        move(temporary, file);
+        forceDirectory(file);
+
+        generation++;
+    }
+
+    /**
+     * Deletes every generation.
+     */
+    public void delete()
+    {
+        file.delete();
+        temporary.delete();
+        backup.delete();
+    }
+
+    /**
+     * Makes the following writes crash after a number of bytes, for testing.
+     */
+    void setCrashPoint(CrashPoint crashPoint)
+    {
+        this.crashPoint = crashPoint;
+    }
+
+    /**
+     * Renames a file over another in one step, where the file system allows.
+     *
+     * @param from the file to rename
+     * @param to its new name, replacing any file there
+     * @throws IOException if it cannot be renamed
+     */
+    static void move(File from, File to) throws IOException
+    {
+        try
+        {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException ex)
+        {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Forces a rename in a file's directory to the disk. Not every platform
+     * can open a directory, and there it is left to the file system.
+     *
+     * @param file a file in the directory
+     */
+    static void forceDirectory(File file)
+    {
+        File directory = file.getAbsoluteFile().getParentFile();
+
+        try
+        {
+            FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+
+            try
+            {
+                channel.force(true);
+            }
+            finally
+            {
+                channel.close();
+            }
+        }
+        catch (IOException ex)
+        {
+            // the rename is still atomic, just not yet known to be durable
+        }
+    }
+
+    private static boolean isWhole(ByteBuffer contents)
+    {
+        if (contents.remaining() < HEADER_SIZE + TRAILER_SIZE)
+            return false;
+
+        int length = contents.getInt(12);
+
+        if (length < 0 || length != contents.remaining() - HEADER_SIZE - TRAILER_SIZE)
+            return false;
+
+        return contents.getInt(HEADER_SIZE + length) == crc(contents.array(), HEADER_SIZE + length);
+    }
+
+    private static int crc(byte[] bytes, int length)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,313 @@
+package edu.asu.FourRowSolitaire;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Sequencer;
+
+/**
+ * Plays the win songs without holding up the event thread.
+ * <p>
+ * Everything that touches MIDI runs in turn on one background thread. When
+ * the service starts it opens the sequencer, which loads the synthesizer's
+ * sound bank, and parses every song named in the {@link #MANIFEST} into a
+ * cache, so a win only has to hand a parsed song to an open sequencer.
+ * {@link #playWinSong()} and {@link #stopSong()} queue their work and return
+ * at once.
+ * <p>
+ * The time from asking for a song to the sequencer starting it is kept for
+ * tuning the win screen, and is available from {@link #getStartLatencyNanos()}.
+ */
+public final class AudioService
+{
+    /**
+     * The resource listing the win songs in {@code sounds/win/}, one file
+     * name per line, with blank lines and lines starting with # ignored.
+     */
+    public static final String MANIFEST = "sounds/win/songs.txt";
+
+    private static final String SONG_DIRECTORY = "sounds/win/";
+
+    private static AudioService instance;
+
+    private final ExecutorService thread;
+    private final Future<Sequencer> sequencer;
+    private final Future<List<Sequence>> songs;
+
+    private final Random random = new Random();
+
+    private volatile long startLatencyNanos = -1;
+
+    /**
+     * Constructs a service, opening the sequencer and loading the songs in
+     * the background.
+     *
+     * @param connected whether the sequencer plays through the default
+     *        synthesizer; one that is not can be opened without a sound device
+     */
+    AudioService(final boolean connected)
+    {
+        thread = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread audio = new Thread(r, "Audio");
+                audio.setDaemon(true);
+                return audio;
+            }
+        });
+
+        sequencer = thread.submit(new Callable<Sequencer>()
+        {
+            public Sequencer call() throws Exception
+            {
+                try
+                {
+                    Sequencer opened = MidiSystem.getSequencer(connected);
+                    opened.open();
+                    return opened;
+                }
+                catch (Exception ex)
+                {
+                    System.err.println("Error opening the MIDI sequencer.");
+                    throw ex;
+                }
+            }
+        });
+
+        songs = thread.submit(new Callable<List<Sequence>>()
+        {
+            public List<Sequence> call() throws Exception
+            {
+                return loadSongs();
+            }
+        });
+    }
+
+    /**
+     * Starts the service, if it has not been started already.
+     *
+     * @return the service
+     */
+    public static synchronized AudioService start()
+    {
+        if (instance == null)
+            instance = new AudioService(true);
+
+        return instance;
+    }
+
+    /**
+     * Returns the service, starting it if it has not been started.
+     *
+     * @return the service
+     */
+    public static AudioService getInstance()
+    {
+        return start();
+    }
+
+    /**
+     * Starts a random win song once the sequencer is open, from the
+     * beginning. Returns without waiting.
+     */
+    public void playWinSong()
+    {
+        final long requested = System.nanoTime();
+
+        thread.execute(new Runnable()
+        {
+            public void run()
+            {
+                Sequencer player = get(sequencer);
+                List<Sequence> loaded = get(songs);
+
+                if (player == null || loaded == null || loaded.isEmpty())
+                    return;
+
+                try
+                {
+                    player.stop();
+                    player.setSequence(loaded.get(random.nextInt(loaded.size())));
+                    player.setTickPosition(0);
+                    player.setLoopCount(0);
+                    player.start();
+                }
+                catch (Exception ex)
+                {
+                    System.err.println("Error opening win sound file.");
+                    return;
+                }
+
+                startLatencyNanos = System.nanoTime() - requested;
+            }
+        });
+    }
+
+    /**
+     * Stops the song playing, if there is one. Returns without waiting.
+     */
+    public void stopSong()
+    {
+        thread.execute(new Runnable()
+        {
+            public void run()
+            {
+                Sequencer player = get(sequencer);
+
+                if (player != null && player.isRunning())
+                    player.stop();
+            }
+        });
+    }
+
+    /**
+     * Returns whether a song is playing.
+     *
+     * @return true if the sequencer is open and running
+     */
+    public boolean isPlaying()
+    {
+        Sequencer player = sequencer.isDone() ? get(sequencer) : null;
+        return player != null && player.isRunning();
+    }
+
+    /**
+     * Returns the songs that were loaded, waiting for them if they are still
+     * loading.
+     *
+     * @return the parsed songs, in manifest order
+     */
+    public List<Sequence> getSongs()
+    {
+        List<Sequence> loaded = get(songs);
+        return loaded == null ? Collections.<Sequence>emptyList() : loaded;
+    }
+
+    /**
+     * Returns how long the last song took to start after it was asked for.
+     *
+     * @return the latency in nanoseconds, or -1 if no song has started
+     */
+    public long getStartLatencyNanos()
+    {
+        return startLatencyNanos;
+    }
+
+    /**
+     * Closes the sequencer and stops the background thread.
+     */
+    public void shutdown()
+    {
+        thread.execute(new Runnable()
+        {
+            public void run()
+            {
+                Sequencer player = get(sequencer);
+
+                if (player != null)
+                    player.close();
+            }
+        });
+
+        thread.shutdown();
+    }
+
+    /**
+     * Reads the song names from a manifest.
+     *
+     * @param manifest the manifest
+     * @return the file names, in order
+     * @throws IOException if the manifest cannot be read
+     */
+    static List<String> readManifest(InputStream manifest) throws IOException
+    {
+        List<String> names = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(manifest, "UTF-8"));
+
+        try
+        {
+            String line;
+
+            while ((line = reader.readLine()) != null)
+            {
+                line = line.trim();
+
+                if (!line.isEmpty() && !line.startsWith("#"))
+                    names.add(line);
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        return names;
+    }
+
+    private List<Sequence> loadSongs() throws IOException
+    {
+        ClassLoader loader = AudioService.class.getClassLoader();
+        InputStream manifest = loader.getResourceAsStream(MANIFEST);
+
+        if (manifest == null)
+            throw new IOException("Missing " + MANIFEST);
+
+        List<Sequence> loaded = new ArrayList<Sequence>();
+
+        for (String name : readManifest(manifest))
+        {
+            URL song = loader.getResource(SONG_DIRECTORY + name);
+
+            try
+            {
+                if (song == null)
+                    throw new IOException("Missing " + SONG_DIRECTORY + name);
+
+                loaded.add(MidiSystem.getSequence(song));
+            }
+            catch (Exception ex)
+            {
+                // play the others
+                System.err.println("Error opening win sound file " + name + ".");
+            }
+        }
+
+        return Collections.unmodifiableList(loaded);
+    }
+
+    /*
+     * The result of loading something, or null if it failed.
+     */
+    private static <T> T get(Future<T> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException ex)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package edu.asu.FourRowSolitaire;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import edu.asu.FourRowSolitaire.engine.Deals;
+import edu.asu.FourRowSolitaire.engine.GameState;
+import edu.asu.FourRowSolitaire.engine.Snapshot;
+
+/**
+ * The game being played, saved move by move so it can be put back on the
+ * board if the program stops without saving it.
+ * <p>
+ * The file is mapped into memory, so saving a move is a few stores into the
+ * mapping, which the operating system keeps even if the program is killed a
+ * moment later. It is two {@link #SLOT_SIZE} byte slots. Each slot starts
+ * with where the game was when the slot was begun: the deal number, draw
+ * count and difficulty and, if moves had already been made, a
+ * {@link Snapshot} of the board, with a generation number and a CRC-32 of
+ * all that. After that come the number of moves saved, the time on
+ * the game timer, and the moves themselves, four bytes each: the low half of
+ * their {@link edu.asu.FourRowSolitaire.engine.MoveJournal} entry, or
+ * {@link #UNDO} or {@link #REDO}.
+ * <p>
+ * A new game begins the slot not in use with just its deal number. When a
+ * slot has no room left, or a move from before it was begun is undone, the
+ * board begins the other one with the cards as they are now, which compacts
+ * the moves made so far into one snapshot; only once that slot is whole does
+ * its generation make it the one used. Ending the game clears both slots.
+ */
+public class AutosaveJournal
+{
+    /**
+     * Saved for a move undone.
+     */
+    public static final int UNDO = 0xFFFF;
+
+    /**
+     * Saved for a move redone.
+     */
+    public static final int REDO = 0xFFFE;
+
+    static final int SLOT_SIZE = 4096;
+    static final int FILE_SIZE = 2 * SLOT_SIZE;
+
+    private static final int MAGIC = 0x46524A4C; // "FRJL"
+
+    // where the game was when the slot was begun, covered by the CRC
+    private static final int GENERATION     = 4;
+    private static final int DEAL_NUMBER    = 8;
+    private static final int DRAW_COUNT     = 16;
+    private static final int DIFFICULTY     = 17;
+    private static final int HAS_SNAPSHOT   = 18;
+    private static final int SNAPSHOT       = 20;
+    private static final int CRC            = SNAPSHOT + Snapshot.SIZE + 1;
+    private static final int HEADER_SIZE    = CRC + 4;
+
+    // kept up to date as the game is played
+    private static final int COUNT   = HEADER_SIZE;
+    private static final int SECONDS = COUNT + 4;
+    private static final int ENTRIES = 128;
+
+    /**
+     * The most moves a slot holds before the game is compacted into the
+     * other.
+     */
+    public static final int CAPACITY = (SLOT_SIZE - ENTRIES) / 4;
+
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+    private int slot = -1; // offset of the slot in use, or -1 if none
+    private int generation;
+    private int count;
+
+    // moves in the slot that can be undone, and undone ones that can be redone
+    private int undoable;
+    private int redoable;
+
+    /**
+     * Opens a journal file, creating it if it does not exist.
+     *
+     * @param file the journal file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public AutosaveJournal(File file) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try
+        {
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        }
+        finally
+        {
+            channel.close();
+        }
+
+        for (int offset = 0; offset < FILE_SIZE; offset += SLOT_SIZE)
+        {
+            if (isWhole(offset) && (slot < 0 || buffer.getInt(offset + GENERATION) - generation > 0))
+            {
+                slot = offset;
+                generation = buffer.getInt(offset + GENERATION);
+            }
+        }
+
+        if (slot >= 0)
+        {
+            int saved = Math.max(0, Math.min(CAPACITY, buffer.getInt(slot + COUNT)));
+
+            for (int i = 0; i < saved; i++)
+                step(buffer.getInt(slot + ENTRIES + 4 * i));
+
+            count = saved;
+        }
+    }
+
+    /**
+     * Returns the game that was being played, if it was not ended.
+     *
+     * @return the game, or null if there is none
+     */
+    public Recovery recover()
+    {
+        if (slot < 0)
+            return null;
+
+        long dealNumber = buffer.getLong(slot + DEAL_NUMBER);
+        boolean dealt = buffer.get(slot + HAS_SNAPSHOT) == 0;
+        int seconds = buffer.getInt(slot + SECONDS);
+        GameState position;
+
+        if (dealt)
+        {
+            position = new GameState(buffer.get(slot + DRAW_COUNT), buffer.get(slot + DIFFICULTY));
+            Deals.deal(dealNumber, position, new int[GameState.DECK_SIZE]);
+        }
+        else
+        {
+            byte[] saved = new byte[Snapshot.SIZE];
+            ByteBuffer source = buffer.duplicate();
+            source.position(slot + SNAPSHOT);
+            source.get(saved);
+
+            try
+            {
+                position = Snapshot.decode(saved).getPosition();
+            }
+            catch (IllegalArgumentException ex)
+            {
+                return null;
+            }
+        }
+
+        int[] entries = new int[count];
+
+        for (int i = 0; i < count; i++)
+            entries[i] = buffer.getInt(slot + ENTRIES + 4 * i);
+
+        return new Recovery(dealNumber, dealt, new Snapshot(position, seconds), entries);
+    }
+
+    /**
+     * Begins saving a new game, dealt from its deal number.
+     *
+     * @param dealNumber the deal
+     * @param drawCount 1 or 3
+     * @param difficulty 1 - 3
+     */
+    public void begin(long dealNumber, int drawCount, int difficulty)
+    {
+        Arrays.fill(header.array(), (byte) 0);
+        header.putLong(DEAL_NUMBER, dealNumber);
+        header.put(DRAW_COUNT, (byte) drawCount);
+        header.put(DIFFICULTY, (byte) difficulty);
+
+        begin(0);
+    }
+
+    /**
+     * Begins saving a game from a snapshot, such as of a saved game loaded or
+     * of the board when the moves made so far are compacted.
+     *
+     * @param saved the game
+     * @param dealNumber the deal played, or 0 if not known
+     * @throws IllegalArgumentException if the snapshot cannot be encoded
+     */
+    public void begin(Snapshot saved, long dealNumber)
+    {
+        GameState position = saved.getPosition();
+
+        Arrays.fill(header.array(), (byte) 0);
+        header.putLong(DEAL_NUMBER, dealNumber);
+        header.put(DRAW_COUNT, (byte) position.getDrawCount());
+        header.put(DIFFICULTY, (byte) position.getDifficulty());
+        header.put(HAS_SNAPSHOT, (byte) 1);
+        header.position(SNAPSHOT);
+        header.put(saved.encode());
+
+        begin(saved.getSeconds());
+    }
+
+    /**
+     * Saves a move.
+     *
+     * @param entry the low half of the move's journal entry, or {@link #UNDO}
+     *        or {@link #REDO}
+     * @param seconds the time on the game timer
+     * @return false if the slot is full, or the move undone or redone was
+     *         made before it was begun, in which case nothing was saved and
+     *         the game should be begun again from the board
+     */
+    public boolean append(int entry, int seconds)
+    {
+        if (slot < 0 || count == CAPACITY || !step(entry))
+            return false;
+
+        buffer.putInt(slot + ENTRIES + 4 * count, entry);
+        buffer.putInt(slot + SECONDS, seconds);
+
+        // counted only once it is written
+        buffer.putInt(slot + COUNT, ++count);
+
+        return true;
+    }
+
+    /**
+     * Saves the time on the game timer.
+     *
+     * @param seconds the time on the game timer
+     */
+    public void setSeconds(int seconds)
+    {
+        if (slot >= 0)
+            buffer.putInt(slot + SECONDS, seconds);
+    }
+
+    /**
+     * Forgets the game, once it has been won, lost or saved.
+     */
+    public void end()
+    {
+        buffer.putInt(0, 0);
+        buffer.putInt(SLOT_SIZE, 0);
+
+        slot = -1;
+        count = 0;
+        undoable = 0;
+        redoable = 0;
+    }
+
+    /**
+     * Returns the number of moves saved since the game was last begun.
+     *
+     * @return the number of moves
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Writes the saved moves through to the disk, which the operating system
+     * otherwise does in its own time. This may be called from any thread.
+     */
+    public void force()
+    {
+        buffer.force();
+    }
+
+    private void begin(int seconds)
+    {
+        int next = slot == 0 ? SLOT_SIZE : 0;
+
+        header.putInt(0, MAGIC);
+        header.putInt(GENERATION, ++generation);
+        header.putInt(CRC, crc(header.array()));
+
+        buffer.putInt(next + COUNT, 0);
+        buffer.putInt(next + SECONDS, seconds);
+
+        ByteBuffer target = buffer.duplicate();
+        target.position(next);
+        header.rewind();
+        target.put(header);
+
+        slot = next;
+        count = 0;
+        undoable = 0;
+        redoable = 0;
+    }
+
+    /*
+     * Follows a move in the slot, unless it undoes or redoes one that is not.
+     */
+    private boolean step(int entry)
+    {
+        if (entry == UNDO)
+        {
+            if (undoable == 0)
+                return false;
+
+            undoable--;
+            redoable++;
+        }
+        else if (entry == REDO)
+        {
+            if (redoable == 0)
+                return false;
+
+            undoable++;
+            redoable--;
+        }
+        else
+        {
+            undoable++;
+            redoable = 0;
+        }
+
+        return true;
+    }
+
+    private boolean isWhole(int offset)
+    {
+        byte[] bytes = new byte[HEADER_SIZE];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        source.get(bytes);
+
+        return buffer.getInt(offset) == MAGIC && buffer.getInt(offset + CRC) == crc(bytes);
+    }
+
+    private static int crc(byte[] bytes)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, CRC);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A game read back from the journal.
+     */
+    public static final class Recovery
+    {
+        private final long dealNumber;
+        private final boolean dealt;
+        private final Snapshot start;
+        private final int[] entries;
+
+        Recovery(long dealNumber, boolean dealt, Snapshot start, int[] entries)
+        {
+            this.dealNumber = dealNumber;
+            this.dealt = dealt;
+            this.start = start;
+            this.entries = entries;
+        }
+
+        public long getDealNumber()
+        {
+            return dealNumber;
+        }
+
+        /**
+         * Tests if the game starts from its deal, rather than from a snapshot.
+         *
+         * @return true if the game starts from its deal
+         */
+        public boolean isDealt()
+        {
+            return dealt;
+        }
+
+        /**
+         * Returns the cards on the board before the saved moves, and the time
+         * on the game timer after them.
+         *
+         * @return the position the moves start from
+         */
+        public Snapshot getStart()
+        {
+            return start;
+        }
+
+        /**
+         * Returns the saved moves, in the order they were made.
+         *
+         * @return the low halves of the moves' journal entries, and
+         *         {@link AutosaveJournal#UNDO} and {@link AutosaveJournal#REDO}
+         */
+        public int[] getEntries()
+        {
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package edu.asu.FourRowSolitaire;
+
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+
+import javax.swing.JComponent;
+
+import edu.asu.FourRowSolitaire.engine.GameState;
+
+/**
+ * One component that draws every pile on the board from its CardStack, in
+ * place of adding the fourteen CardStacks to the board themselves. The
+ * CardStacks still hold the cards and the rules; they are just not shown, so
+ * Swing lays out and paints a single component instead of fourteen.
+ * <p>
+ * The renderer lays the piles out over itself with {@link SolitaireLayout},
+ * as if they were its children, so they scale with it. It finds the pile
+ * under the mouse from the pile bounds, and passes mouse events on to its
+ * listeners as if they came from that pile, with the point relative to the
+ * pile. A pile that is repainted repaints its area of the renderer.
+ *
+ * @see CardStack#setBoardRenderer(BoardRenderer, int)
+ */
+@SuppressWarnings("serial")
+public class BoardRenderer extends JComponent
+{
+    private final CardStack[] piles;
+
+    /**
+     * Constructs a renderer for the piles of a board.
+     *
+     * @param piles the piles, indexed by pile id (see GameState)
+     */
+    public BoardRenderer(CardStack[] piles)
+    {
+        this.piles = piles.clone();
+
+        for (int pile = 0; pile < GameState.NUM_PILES; pile++)
+        {
+            this.piles[pile].setBounds(SolitaireLayout.getPileBounds(pile));
+            this.piles[pile].setBoardRenderer(this, pile);
+        }
+
+        setOpaque(false);
+    }
+
+    @Override
+    public void doLayout()
+    {
+        SolitaireLayout.layoutPiles(piles, getWidth(), getHeight());
+    }
+
+    /**
+     * Returns the pile at a point on the board.
+     *
+     * @param p a point relative to this renderer
+     * @return the pile id, or -1 if there is no pile there
+     */
+    public int getPileAt(Point p)
+    {
+        for (int pile = 0; pile < GameState.NUM_PILES; pile++)
+            if (piles[pile].getBounds().contains(p))
+                return pile;
+
+        return -1;
+    }
+
+    /**
+     * Returns the topmost card at a point on the board.
+     *
+     * @param p a point relative to this renderer
+     * @return the card at the point, or null if there is none
+     */
+    public Card getCardAt(Point p)
+    {
+        int pile = getPileAt(p);
+
+        if (pile < 0)
+            return null;
+
+        return piles[pile].getCardAtLocation(new Point(p.x - piles[pile].getX(), p.y - piles[pile].getY()));
+    }
+
+    /**
+     * Adds a listener that receives the mouse events on each pile, with the
+     * pile as their source. Events off every pile are not passed on.
+     *
+     * @param listener the listener
+     */
+    public void addPileMouseListener(final MouseListener listener)
+    {
+        addMouseListener(new MouseAdapter()
+        {
+            public void mousePressed(MouseEvent e)
+            {
+                MouseEvent event = retarget(e);
+
+                if (event != null)
+                    listener.mousePressed(event);
+            }
+
+            public void mouseReleased(MouseEvent e)
+            {
+                MouseEvent event = retarget(e);
+
+                if (event != null)
+                    listener.mouseReleased(event);
+            }
+
+            public void mouseClicked(MouseEvent e)
+            {
+                MouseEvent event = retarget(e);
+
+                if (event != null)
+                    listener.mouseClicked(event);
+            }
+        });
+    }
+
+    /**
+     * Repaints the area of a pile.
+     *
+     * @param pile the pile id
+     */
+    void repaintPile(int pile)
+    {
+        CardStack r = piles[pile];
+        repaint(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    @Override
+    protected void paintComponent(Graphics g)
+    {
+        Rectangle clip = g.getClipBounds();
+
+        for (int pile = 0; pile < GameState.NUM_PILES; pile++)
+        {
+            Rectangle r = piles[pile].getBounds();
+
+            if (clip != null && !clip.intersects(r))
+                continue;
+
+            // clipped to the pile, the way the pile would be as a component
+            Graphics pileGraphics = g.create(r.x, r.y, r.width, r.height);
+
+            try
+            {
+                piles[pile].paintCards(pileGraphics);
+            }
+            finally
+            {
+                pileGraphics.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of a mouse event on this renderer as if it happened on
+     * the pile under it, or null if it is not on a pile.
+     */
+    private MouseEvent retarget(MouseEvent e)
+    {
+        int pile = getPileAt(e.getPoint());
+
+        if (pile < 0)
+            return null;
+
+        return new MouseEvent(piles[pile], e.getID(), e.getWhen(), e.getModifiersEx(),
+                              e.getX() - piles[pile].getX(), e.getY() - piles[pile].getY(),
+                              e.getXOnScreen(), e.getYOnScreen(),
+                              e.getClickCount(), e.isPopupTrigger(), e.getButton());
+    }
+}
@@ -21,10 +21,7 @@ package edu.asu.FourRowSolitaire;
 
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.net.URL;
 
-import javax.imageio.ImageIO;
 import javax.swing.JComponent;
 
 /**
@@ -54,14 +51,10 @@ public class Card extends JComponent implements Cloneable
     private int cardBackStyle = 3;
     
     /*
-     * BufferedImage representation of the card that is rendered to the output
-     * monitor. {@code cardBack}, {@code cardFront}, and {@code cardHighlighted}
-     * are String representations of the file path to the image resources.
+     * The image of the card that is rendered to the output monitor, as its
+     * slot in the CardImageCache and CardAtlas.
      */
-    private BufferedImage image;
-    private String cardBack;
-    private String cardFront;
-    private String cardHighlighted;
+    private int imageSlot;
     
     /*
      * Card states.
@@ -95,18 +88,11 @@ public class Card extends JComponent implements Cloneable
             // set image displayed when card is face down
             if (ChangeAppearance.isValidDeckNumber(cardBackStyle))
                 this.cardBackStyle = cardBackStyle;
-            
-            // initialize image path locations
-            cardBack        = "images/cardbacks/cardback" + cardBackStyle + ".png";
-            cardFront       = "images/cardfaces/"         + cardSuit.getPrefix() + cardNumber.getName() + ".png";
-            cardHighlighted = "images/highlightedfaces/"  + cardSuit.getPrefix() + cardNumber.getName() + "H.png";
         }
         else
         {
             cardSuit   = CardSuit.INVALID;
             cardNumber = CardNumber.INVALID;
-            cardFront  = "images/invalidcard.png";
-            cardBack   = "images/cardbacks/cardback3.png";
         }
         
         setFaceUp();
@@ -117,16 +103,7 @@ public class Card extends JComponent implements Cloneable
      */
     public void highlight()
     {
-        try
-        {
-            URL imageURL = this.getClass().getClassLoader().getResource(cardHighlighted);
-            if (imageURL != null) image = ImageIO.read(imageURL);
-        }
-        catch (IOException ex)
-        {
-            System.err.println("Error occurred when creating highlighted card face image.");
-        }
-        
+        imageSlot = CardImageCache.highlightedSlot(cardSuit, cardNumber);
         highlighted = true;
         repaint();
     }
@@ -156,16 +133,7 @@ public class Card extends JComponent implements Cloneable
     public void setFaceUp()
     {
         faceUp = true;
-        
-        try
-        {
-            URL imageURL = this.getClass().getClassLoader().getResource(cardFront);
-            if (imageURL != null) image = ImageIO.read(imageURL);
-        }
-        catch(IOException ex)
-        {
-            System.err.println("Error occurred when creating card face image.");
-        }
+        imageSlot = CardImageCache.faceSlot(cardSuit, cardNumber);
     }
     
     /**
@@ -174,16 +142,7 @@ public class Card extends JComponent implements Cloneable
     public void setFaceDown()
     {
         faceUp = false;
-        
-        try
-        {
-            URL imageURL = this.getClass().getClassLoader().getResource(cardBack);
-            if (imageURL != null) image = ImageIO.read(imageURL);
-        }
-        catch (IOException ex)
-        {
-            System.err.println("Error occurred when creating card back image.");
-        }
+        imageSlot = CardImageCache.backSlot(cardBackStyle);
     }
     
     /**
@@ -225,7 +184,33 @@ public class Card extends JComponent implements Cloneable
      */
     public BufferedImage getImage()
     {
-        return image;
+        return CardImageCache.getImage(imageSlot);
+    }
+
+    /**
+     * Draws this card from the CardAtlas.
+     *
+     * @param g the graphics context to draw with
+     * @param x left edge to draw at
+     * @param y top edge to draw at
+     */
+    public void draw(Graphics g, int x, int y)
+    {
+        CardAtlas.getInstance().draw(g, imageSlot, x, y);
+    }
+    
+    /**
+     * Draws this card from the CardAtlas at a size.
+     *
+     * @param g the graphics context to draw with
+     * @param x left edge to draw at
+     * @param y top edge to draw at
+     * @param width width to draw the card
+     * @param height height to draw the card
+     */
+    public void draw(Graphics g, int x, int y, int width, int height)
+    {
+        CardAtlas.getInstance().draw(g, imageSlot, x, y, width, height);
     }
     
     /**
@@ -292,7 +277,7 @@ public class Card extends JComponent implements Cloneable
     protected void paintComponent(Graphics g)
     {
         super.paintComponent(g);
-        g.drawImage(image, 0, 0, null);
+        draw(g, 0, 0);
     }
     
     @Override
@@ -0,0 +1,266 @@
+package edu.asu.FourRowSolitaire;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Every card image packed into one image, so the cards are drawn by copying
+ * rectangles out of a single surface that Java2D can keep in video memory,
+ * instead of from a hundred separate images.
+ * <p>
+ * The atlas is a grid of {@link #CELL_WIDTH} by {@link #CELL_HEIGHT} cells, one
+ * per {@link CardImageCache} slot in slot order, {@link #COLUMNS} cells to a
+ * row. Images smaller than a cell are drawn in its top left corner and leave
+ * the rest transparent.
+ * <p>
+ * The first run packs the atlas from the individual PNG resources and saves
+ * it in the user's home directory, so later runs read one PNG instead of
+ * looking up and decoding every card image. The saved file has the atlas
+ * version in its name, so a new version with different images ignores it.
+ */
+public final class CardAtlas
+{
+    public static final int CELL_WIDTH  = 72;
+    public static final int CELL_HEIGHT = 96;
+    public static final int COLUMNS     = 12;
+
+    /*
+     * Bump when the card images or the layout change.
+     */
+    private static final int VERSION = 1;
+
+    private static final int ROWS = (CardImageCache.NUM_SLOTS + COLUMNS - 1) / COLUMNS;
+
+    private static CardAtlas instance;
+
+    private final BufferedImage image;
+
+    private CardAtlas(BufferedImage packed)
+    {
+        image = toCompatibleImage(packed, Transparency.TRANSLUCENT);
+    }
+
+    /**
+     * Returns the atlas, reading or packing it the first time.
+     *
+     * @return the card atlas
+     */
+    public static synchronized CardAtlas getInstance()
+    {
+        if (instance == null)
+        {
+            File file = getFile();
+            BufferedImage packed = read(file);
+
+            if (packed == null)
+            {
+                packed = pack();
+                write(packed, file);
+            }
+
+            instance = new CardAtlas(packed);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Forgets the atlas and its scaled copies, so the next
+     * {@link #getInstance()} reads or packs it again.
+     */
+    static synchronized void reset()
+    {
+        instance = null;
+        ScaledImageCache.clear();
+    }
+
+    /**
+     * Draws the image in a {@link CardImageCache} slot.
+     *
+     * @param g the graphics context to draw with
+     * @param slot the slot of the image
+     * @param dx left edge to draw at
+     * @param dy top edge to draw at
+     */
+    public void draw(Graphics g, int slot, int dx, int dy)
+    {
+        draw(g, slot, dx, dy, CELL_WIDTH, CELL_HEIGHT);
+    }
+
+    /**
+     * Draws the image in a {@link CardImageCache} slot at a size. Any size
+     * other than one device pixel per atlas pixel is drawn from a copy of the
+     * atlas scaled to that size, so the card is copied rather than scaled
+     * while painting. On a HiDPI screen the size is in device pixels, so the
+     * cards stay sharp.
+     *
+     * @param g the graphics context to draw with
+     * @param slot the slot of the image
+     * @param dx left edge to draw at
+     * @param dy top edge to draw at
+     * @param width width to draw the card
+     * @param height height to draw the card
+     */
+    public void draw(Graphics g, int slot, int dx, int dy, int width, int height)
+    {
+        double deviceScale = g instanceof Graphics2D ? ((Graphics2D) g).getTransform().getScaleX() : 1;
+        int cellWidth = (int) Math.round(width * deviceScale);
+        int cellHeight = (int) Math.round(height * deviceScale);
+
+        BufferedImage cells = image;
+
+        if (cellWidth != CELL_WIDTH || cellHeight != CELL_HEIGHT)
+            cells = getScaled(cellWidth, cellHeight);
+
+        int sx = slot % COLUMNS * cellWidth;
+        int sy = slot / COLUMNS * cellHeight;
+
+        g.drawImage(cells, dx, dy, dx + width, dy + height,
+                    sx, sy, sx + cellWidth, sy + cellHeight, null);
+    }
+
+    /**
+     * Returns the packed image.
+     *
+     * @return the atlas image
+     */
+    public BufferedImage getImage()
+    {
+        return image;
+    }
+
+    /**
+     * Packs the atlas from the individual card images.
+     */
+    static BufferedImage pack()
+    {
+        BufferedImage packed = new BufferedImage(COLUMNS * CELL_WIDTH, ROWS * CELL_HEIGHT,
+                                                 BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = packed.createGraphics();
+
+        for (int slot = 0; slot < CardImageCache.NUM_SLOTS; slot++)
+        {
+            BufferedImage card = CardImageCache.getImage(slot);
+
+            if (card != null)
+                g.drawImage(card, slot % COLUMNS * CELL_WIDTH, slot / COLUMNS * CELL_HEIGHT, null);
+        }
+
+        g.dispose();
+        return packed;
+    }
+
+    /**
+     * Returns the atlas with cells of another size, scaling it the first time
+     * each size is asked for. Each cell is scaled on its own, so no cell
+     * blends into its neighbours.
+     */
+    private BufferedImage getScaled(final int cellWidth, final int cellHeight)
+    {
+        return ScaledImageCache.get("card atlas", COLUMNS * cellWidth, ROWS * cellHeight,
+                new ScaledImageCache.Producer()
+        {
+            public BufferedImage produce(int width, int height)
+            {
+                BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = scaled.createGraphics();
+
+                for (int slot = 0; slot < CardImageCache.NUM_SLOTS; slot++)
+                {
+                    BufferedImage cell = image.getSubimage(slot % COLUMNS * CELL_WIDTH, slot / COLUMNS * CELL_HEIGHT,
+                                                           CELL_WIDTH, CELL_HEIGHT);
+
+                    g.drawImage(ScaledImageCache.scale(cell, cellWidth, cellHeight),
+                                slot % COLUMNS * cellWidth, slot / COLUMNS * cellHeight, null);
+                }
+
+                g.dispose();
+                return toCompatibleImage(scaled, Transparency.TRANSLUCENT);
+            }
+        });
+    }
+
+    static File getFile()
+    {
+        return new File(System.getProperty("user.home") + System.getProperty("file.separator") +
+                        "frs-card-atlas-" + VERSION + ".png");
+    }
+
+    /**
+     * Reads a saved atlas, or returns null if there is none or it does not
+     * have the expected size.
+     */
+    private static BufferedImage read(File file)
+    {
+        if (!file.isFile())
+            return null;
+
+        try
+        {
+            BufferedImage packed = ImageIO.read(file);
+
+            if (packed != null && packed.getWidth() == COLUMNS * CELL_WIDTH
+                    && packed.getHeight() == ROWS * CELL_HEIGHT)
+                return packed;
+        }
+        catch (IOException ex)
+        {
+            System.err.println("Error occurred when reading the card atlas; packing it again.");
+        }
+
+        return null;
+    }
+
+    /**
+     * Saves the atlas for the next run. A reader never sees a partly written
+     * file, because it is written beside the real one and then renamed.
+     */
+    private static void write(BufferedImage packed, File file)
+    {
+        File temp = new File(file.getPath() + ".tmp");
+
+        try
+        {
+            if (ImageIO.write(packed, "png", temp) && !temp.renameTo(file))
+            {
+                file.delete();
+                temp.renameTo(file);
+            }
+        }
+        catch (IOException ex)
+        {
+            System.err.println("Error occurred when saving the card atlas.");
+        }
+        finally
+        {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Copies an image into one laid out the way the screen is, so drawing it
+     * needs no conversion and it can be cached in video memory.
+     */
+    static BufferedImage toCompatibleImage(BufferedImage source, int transparency)
+    {
+        if (GraphicsEnvironment.isHeadless())
+            return source;
+
+        BufferedImage compatible = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration()
+                .createCompatibleImage(source.getWidth(), source.getHeight(), transparency);
+
+        Graphics2D g = compatible.createGraphics();
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+
+        return compatible;
+    }
+}
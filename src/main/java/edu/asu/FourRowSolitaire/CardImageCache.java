@@ -0,0 +1,232 @@
+package edu.asu.FourRowSolitaire;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Decoded card images shared by every Card in the process. Each image (a
+ * face, a highlighted face, a card back style or the invalid card) is read
+ * from its PNG resource the first time it is asked for and kept from then
+ * on. Cards are drawn from a {@link CardAtlas} packed from these images.
+ * <p>
+ * The images are shared and must not be drawn on. The cache counts its hits
+ * and misses and the time spent decoding, for tuning start up and drawing.
+ * It is safe to use from any thread; two threads missing the same image at
+ * once may both decode it, and either copy is kept.
+ *
+ * @see Card
+ */
+public final class CardImageCache
+{
+    /*
+     * Slots: faces by suit and value (0 - 51), highlighted faces (52 - 103),
+     * card backs by style (104 onwards), then the invalid card. CardAtlas
+     * lays out its cells in the same order.
+     */
+    private static final int FACES       = 0;
+    private static final int HIGHLIGHTED = 52;
+    private static final int BACKS       = 104;
+    private static final int INVALID     = BACKS + ChangeAppearance.NUM_DECKS;
+
+    static final int NUM_SLOTS = INVALID + 1;
+
+    private static final AtomicReferenceArray<BufferedImage> images =
+            new AtomicReferenceArray<BufferedImage>(NUM_SLOTS);
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong decodeNanos = new AtomicLong();
+
+    private CardImageCache() { /* Intentionally Empty */ }
+
+    /**
+     * Returns the face of a card.
+     *
+     * @param suit the suit of the card
+     * @param number the face value of the card
+     * @return the card's face, or the invalid card image for an invalid card
+     */
+    public static BufferedImage getFace(CardSuit suit, CardNumber number)
+    {
+        return getImage(faceSlot(suit, number));
+    }
+
+    /**
+     * Returns the highlighted face of a card.
+     *
+     * @param suit the suit of the card
+     * @param number the face value of the card
+     * @return the card's highlighted face, or the invalid card image for an
+     * invalid card
+     */
+    public static BufferedImage getHighlighted(CardSuit suit, CardNumber number)
+    {
+        return getImage(highlightedSlot(suit, number));
+    }
+
+    /**
+     * Returns a card back.
+     *
+     * @param style the card back style (1 - {@link ChangeAppearance#NUM_DECKS})
+     * @return the card back image
+     */
+    public static BufferedImage getBack(int style)
+    {
+        return getImage(backSlot(style));
+    }
+
+    /**
+     * Returns the image shown for a card that is not valid.
+     *
+     * @return the invalid card image
+     */
+    public static BufferedImage getInvalid()
+    {
+        return getImage(INVALID);
+    }
+
+    /**
+     * Decodes every image a deck with the specified back style needs that is
+     * not cached yet.
+     *
+     * @param style the card back style
+     */
+    public static void preload(int style)
+    {
+        getBack(style);
+
+        for (CardSuit suit : CardSuit.values())
+        {
+            for (CardNumber number : CardNumber.values())
+            {
+                if (Card.isValidSuit(suit) && Card.isValidNumber(number))
+                {
+                    getFace(suit, number);
+                    getHighlighted(suit, number);
+                }
+            }
+        }
+    }
+
+    public static long getHits()
+    {
+        return hits.get();
+    }
+
+    public static long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Returns the share of requests answered without decoding.
+     *
+     * @return the hit rate from 0 to 1, or 0 if nothing has been requested
+     */
+    public static double getHitRate()
+    {
+        long hit = hits.get();
+        long total = hit + misses.get();
+
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * Returns the total time spent decoding images.
+     *
+     * @return decoding time in nanoseconds
+     */
+    public static long getDecodeNanos()
+    {
+        return decodeNanos.get();
+    }
+
+    /*
+     * Slot numbers, shared with CardAtlas. Invalid cards and back styles get
+     * the invalid card and the default back.
+     */
+
+    static int faceSlot(CardSuit suit, CardNumber number)
+    {
+        if (!Card.isValidSuit(suit) || !Card.isValidNumber(number))
+            return INVALID;
+
+        return FACES + suit.ordinal() * 13 + number.getValue() - 1;
+    }
+
+    static int highlightedSlot(CardSuit suit, CardNumber number)
+    {
+        if (!Card.isValidSuit(suit) || !Card.isValidNumber(number))
+            return INVALID;
+
+        return HIGHLIGHTED + suit.ordinal() * 13 + number.getValue() - 1;
+    }
+
+    static int backSlot(int style)
+    {
+        return BACKS + (ChangeAppearance.isValidDeckNumber(style) ? style : 3) - 1;
+    }
+
+    /**
+     * Returns the image in a slot, decoding it if it is not cached yet.
+     */
+    static BufferedImage getImage(int slot)
+    {
+        BufferedImage image = images.get(slot);
+
+        if (image != null)
+        {
+            hits.incrementAndGet();
+            return image;
+        }
+
+        misses.incrementAndGet();
+        image = decode(getPath(slot));
+
+        if (image != null && !images.compareAndSet(slot, null, image))
+            image = images.get(slot);
+
+        return image;
+    }
+
+    private static String getPath(int slot)
+    {
+        if (slot == INVALID)
+            return "images/invalidcard.png";
+        else if (slot >= BACKS)
+            return "images/cardbacks/cardback" + (slot - BACKS + 1) + ".png";
+
+        int index = slot % 52;
+        String name = CardSuit.values()[index / 13].getPrefix() + CardNumber.values()[index % 13].getName();
+
+        if (slot >= HIGHLIGHTED)
+            return "images/highlightedfaces/" + name + "H.png";
+        else
+            return "images/cardfaces/" + name + ".png";
+    }
+
+    private static BufferedImage decode(String path)
+    {
+        long start = System.nanoTime();
+
+        try
+        {
+            URL imageURL = CardImageCache.class.getClassLoader().getResource(path);
+            return imageURL == null ? null : ImageIO.read(imageURL);
+        }
+        catch (IOException ex)
+        {
+            System.err.println("Error occurred when reading card image " + path + ".");
+            return null;
+        }
+        finally
+        {
+            decodeNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+}
@@ -19,9 +19,10 @@
 
 package edu.asu.FourRowSolitaire;
 
+import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.Image;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.util.EmptyStackException;
 import java.util.Vector;
 
@@ -34,6 +35,10 @@ import javax.swing.JLayeredPane;
  * <p>
  * CardStack subclasses the JLayeredPane allowing cards in the card stack to 
  * appear stacked on the screen by overlaying the cards on top of each other.
+ * The cards are drawn by {@link #paintCards(Graphics)} rather than added as
+ * child components, so each one is painted once. When the board is drawn by
+ * a {@link BoardRenderer} the CardStack is not shown itself, and the renderer
+ * calls {@code paintCards} and repaints the pile for it.
  *
  * @author Matt Stephen
  */
@@ -43,18 +48,45 @@ public class CardStack extends JLayeredPane
     /*
      * The number of pixels in the vertical direction between each card. Each
      * card in the CardStack is painted {@code OFFSET_PIXELS} pixels below the
-     * card before it.
+     * card before it. Like the card size, it is multiplied by the scale the
+     * board is drawn at.
      */
     private static final int OFFSET_PIXELS = 25;
     
     /*
-     * The dimensions of a Card in pixels when it is painted onto the screen.
+     * The dimensions of a Card in pixels when it is painted onto the screen
+     * at the normal scale.
      */
     private static final int CARD_WIDTH  = 72;
     private static final int CARD_HEIGHT = 96;
     
+    /*
+     * Piles that draw only their top card show how many cards are under it
+     * with up to MAX_EDGES card edges below it, one for each EDGE_CARDS cards
+     * or part of that. Each edge is a light and a dark line.
+     */
+    private static final int MAX_EDGES  = 3;
+    private static final int EDGE_CARDS = 8;
+    
     protected Vector<Card> cards;
     
+    /*
+     * The scale this CardStack is drawn at, set when the board is laid out.
+     */
+    private double scale = 1;
+
+    /*
+     * Told about every card pushed and popped, along with {@code pile}.
+     */
+    private CardStackListener listener;
+    private int pile;
+
+    /*
+     * Draws this CardStack in its place on the board, if it is not shown
+     * itself.
+     */
+    private BoardRenderer renderer;
+    
     /**
      * Constructs a new CardStack.
      */
@@ -74,8 +106,9 @@ public class CardStack extends JLayeredPane
         if (card != null)
         {
             cards.add(card);
-            card.setBounds(0, 0, CARD_WIDTH, CARD_HEIGHT);
-            add(card, 0);
+
+            if (listener != null)
+                listener.cardPushed(pile, card.getFullNumber());
         }
         
         return card;
@@ -112,12 +145,40 @@ public class CardStack extends JLayeredPane
             throw new EmptyStackException();
         
         Card card = peek();
-        this.remove(card);
         cards.remove(cards.size() - 1);
+
+        if (listener != null)
+            listener.cardPopped(pile);
         
         return card;
     }
     
+    /**
+     * Sets the listener told about every card pushed onto and popped off this
+     * CardStack.
+     *
+     * @param listener the listener, or null for none
+     * @param pile the id passed to the listener for this CardStack
+     */
+    public void setCardStackListener(CardStackListener listener, int pile)
+    {
+        this.listener = listener;
+        this.pile = pile;
+    }
+
+    /**
+     * Sets the renderer that draws this CardStack on the board in place of
+     * the CardStack itself.
+     *
+     * @param renderer the renderer, or null if this CardStack is shown itself
+     * @param pile the id of this CardStack on the board (see GameState)
+     */
+    public void setBoardRenderer(BoardRenderer renderer, int pile)
+    {
+        this.renderer = renderer;
+        this.pile = pile;
+    }
+
     /**
      * Looks at the Card at the top of this CardStack without removing it from
      * the CardStack.
@@ -187,10 +248,10 @@ public class CardStack extends JLayeredPane
             int y = (int) p.getY();
             
             // top card is selected
-            if (y > OFFSET_PIXELS * (cards.size() - 1))
+            if (y > getOffset() * (cards.size() - 1))
                 index = cards.size() - 1;
             else  // card below top card selected
-                index = y / OFFSET_PIXELS;
+                index = y / getOffset();
             
             if (isValidCard(index))
                 return cards.get(index);
@@ -199,6 +260,107 @@ public class CardStack extends JLayeredPane
         return null;
     }
     
+    /**
+     * Returns the area the Card at the specified index is drawn in, when the
+     * cards are spread out the way {@link #paintCards(Graphics)} draws them.
+     * 
+     * @param index the index of the Card
+     * @return the bounds of the Card relative to this CardStack
+     */
+    public Rectangle getCardBounds(int index)
+    {
+        return new Rectangle(0, index * getOffset(), getCardWidth(), getCardHeight());
+    }
+    
+    /**
+     * Sets the scale this CardStack is drawn at, where 1 is the normal size.
+     * 
+     * @param scale the scale
+     */
+    public void setScale(double scale)
+    {
+        this.scale = scale;
+    }
+    
+    /**
+     * Returns the scale this CardStack is drawn at.
+     * 
+     * @return the scale, where 1 is the normal size
+     */
+    public double getScale()
+    {
+        return scale;
+    }
+    
+    /**
+     * Returns the width of a card at a scale.
+     * 
+     * @param scale the scale, where 1 is the normal size
+     * @return the card width in pixels
+     */
+    public static int getCardWidth(double scale)
+    {
+        return (int) Math.round(CARD_WIDTH * scale);
+    }
+    
+    /**
+     * Returns the height of a card at a scale.
+     * 
+     * @param scale the scale, where 1 is the normal size
+     * @return the card height in pixels
+     */
+    public static int getCardHeight(double scale)
+    {
+        return (int) Math.round(CARD_HEIGHT * scale);
+    }
+    
+    /**
+     * Returns the most pixels the card edges take up below a pile of cards at
+     * a scale.
+     * 
+     * @param scale the scale, where 1 is the normal size
+     * @return the height of the edges in pixels
+     */
+    public static int getEdgeHeight(double scale)
+    {
+        return MAX_EDGES * 2 * getEdgeLine(scale);
+    }
+    
+    protected final int getCardWidth()
+    {
+        return getCardWidth(scale);
+    }
+    
+    protected final int getCardHeight()
+    {
+        return getCardHeight(scale);
+    }
+    
+    /**
+     * Returns a length at the normal scale multiplied by the scale this
+     * CardStack is drawn at.
+     * 
+     * @param pixels the length at the normal scale
+     * @return the length at this CardStack's scale
+     */
+    protected final int scaled(int pixels)
+    {
+        return (int) Math.round(pixels * scale);
+    }
+    
+    /**
+     * Draws a card at the size of the cards in this CardStack.
+     * 
+     * @param g the graphics context to draw with
+     * @param card the card
+     * @param x left edge to draw at
+     * @param y top edge to draw at
+     */
+    protected final void drawCard(Graphics g, Card card, int x, int y)
+    {
+        card.draw(g, x, y, getCardWidth(), getCardHeight());
+    }
+    
     /**
      * Creates and returns a sub-stack of this CardStack containing all of
      * the cards above the specified card (including the specified card). If
@@ -399,8 +561,8 @@ public class CardStack extends JLayeredPane
      */
     private boolean isValidClick(Point p)
     {
-        final double TOP_CARD_HEIGHT    = cards.lastElement().getBounds().getHeight();
-        final double OTHER_CARDS_HEIGHT = OFFSET_PIXELS * (cards.size() - 1);
+        final double TOP_CARD_HEIGHT    = getCardHeight();
+        final double OTHER_CARDS_HEIGHT = getOffset() * (cards.size() - 1);
         final double CARD_STACK_HEIGHT  = TOP_CARD_HEIGHT + OTHER_CARDS_HEIGHT;
         
         if (!isEmpty() && (int) p.getY() > CARD_STACK_HEIGHT)
@@ -409,18 +571,70 @@ public class CardStack extends JLayeredPane
             return true;
     }
     
-    @Override
-    public void paint(Graphics g)
+    /**
+     * Draws the cards of this CardStack with its top left corner at the
+     * origin.
+     * 
+     * @param g the graphics context to draw with
+     */
+    protected void paintCards(Graphics g)
     {
-        super.paint(g);
+        for (int i = 0; i < cards.size(); i++)
+        {
+            drawCard(g, cards.get(i), 0, i * getOffset());
+        }
+    }
+    
+    /**
+     * Draws the edges of the cards under a pile's top card, below where the
+     * top card is drawn at the origin. Drawing them costs the same however
+     * many cards there are.
+     * 
+     * @param g the graphics context to draw with
+     * @param cardsBelow the number of cards under the top card
+     */
+    protected final void paintEdges(Graphics g, int cardsBelow)
+    {
+        int edges = Math.min(MAX_EDGES, (cardsBelow + EDGE_CARDS - 1) / EDGE_CARDS);
+        int line = getEdgeLine(scale);
         
-        if (!isEmpty())
+        for (int i = 0; i < edges; i++)
         {
-            for (int i = 0; i < cards.size(); i++)
-            {
-                Image image = cards.get(i).getImage();
-                g.drawImage(image, 0, i * OFFSET_PIXELS, null);
-            }
+            int y = getCardHeight() + i * 2 * line;
+            
+            g.setColor(Color.LIGHT_GRAY);
+            g.fillRect(1, y, getCardWidth() - 2, line);
+            g.setColor(Color.DARK_GRAY);
+            g.fillRect(1, y + line, getCardWidth() - 2, line);
         }
     }
+    
+    private int getOffset()
+    {
+        return scaled(OFFSET_PIXELS);
+    }
+    
+    /*
+     * The thickness of each line of a card edge.
+     */
+    private static int getEdgeLine(double scale)
+    {
+        return Math.max(1, (int) Math.round(scale));
+    }
+    
+    @Override
+    public void paint(Graphics g)
+    {
+        super.paint(g);
+        paintCards(g);
+    }
+    
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height)
+    {
+        if (renderer != null)
+            renderer.repaintPile(pile);
+        else
+            super.repaint(tm, x, y, width, height);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package edu.asu.FourRowSolitaire;
+
+/**
+ * Receives every card pushed onto and popped off a CardStack, so another
+ * view of the board (such as a {@code GameState}) can follow it one card at
+ * a time.
+ */
+public interface CardStackListener
+{
+    /**
+     * Called after a card has been pushed onto a CardStack.
+     *
+     * @param pile the pile id the CardStack was registered with
+     * @param card the card's full number (1-52)
+     */
+    void cardPushed(int pile, int card);
+
+    /**
+     * Called after the top card has been popped off a CardStack.
+     *
+     * @param pile the pile id the CardStack was registered with
+     */
+    void cardPopped(int pile);
+}
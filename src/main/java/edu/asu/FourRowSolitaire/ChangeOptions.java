@@ -45,6 +45,10 @@ public class ChangeOptions extends JDialog implements ActionListener
     private int animation = 0; //0 = off, 1 = on
     private JCheckBox winSoundsCheck = new JCheckBox("Win Sounds");
     private int sounds = 0; //0 = off, 1 = on
+    private JCheckBox cardSoundsCheck = new JCheckBox("Card Sounds");
+    private int cardSounds = 0; //0 = off, 1 = on
+    private JCheckBox winnableDealsCheck = new JCheckBox("Only deal games that are known to be winnable");
+    private int winnableDeals = 0; //0 = off, 1 = on
 
     private int difficulty = 2; //1 = easy, 2 = medium, 3 = hard
 
@@ -56,10 +60,11 @@ public class ChangeOptions extends JDialog implements ActionListener
 
     private boolean exited = true;
     
-    public ChangeOptions(JFrame parent, int currentDraw, int timer, int animation, int sounds, int difficulty)
+    public ChangeOptions(JFrame parent, int currentDraw, int timer, int animation, int sounds, int cardSounds,
+                         int difficulty, int winnableDeals)
     {
         setTitle("Options");
-        setSize(340,190);
+        setSize(340,245);
         setDefaultCloseOperation(JDialog.HIDE_ON_CLOSE);
         setModalityType(JDialog.ModalityType.APPLICATION_MODAL);
         setLocationRelativeTo(parent);
@@ -68,7 +73,9 @@ public class ChangeOptions extends JDialog implements ActionListener
         this.timer = timer;
         this.animation = animation;
         this.sounds = sounds;
+        this.cardSounds = cardSounds;
         this.difficulty = difficulty;
+        this.winnableDeals = winnableDeals;
         setup();
 
         setVisible(true);
@@ -103,8 +110,9 @@ public class ChangeOptions extends JDialog implements ActionListener
         checkBoxPanel.add(timerCheck);
         checkBoxPanel.add(winAnimationCheck);
         checkBoxPanel.add(winSoundsCheck);
+        checkBoxPanel.add(cardSoundsCheck);
 
-        checkBoxPanel.setMaximumSize(new Dimension(120,80));
+        checkBoxPanel.setMaximumSize(new Dimension(120,105));
         checkBoxPanel.setMinimumSize(checkBoxPanel.getMaximumSize());
         checkBoxPanel.setPreferredSize(checkBoxPanel.getMaximumSize());
 
@@ -135,9 +143,34 @@ public class ChangeOptions extends JDialog implements ActionListener
             winSoundsCheck.setSelected(false);
         }
 
+        if(cardSounds == 1)
+        {
+            cardSoundsCheck.setSelected(true);
+        }
+        else
+        {
+            cardSoundsCheck.setSelected(false);
+        }
+
+        if(winnableDeals == 1)
+        {
+            winnableDealsCheck.setSelected(true);
+        }
+        else
+        {
+            winnableDealsCheck.setSelected(false);
+        }
+
+        JPanel winnableDealsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        winnableDealsPanel.add(winnableDealsCheck);
+
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         buttonPanel.add(ok);
 
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(winnableDealsPanel, BorderLayout.NORTH);
+        southPanel.add(buttonPanel, BorderLayout.SOUTH);
+
         ButtonGroup difficulties = new ButtonGroup();
         difficulties.add(easy);
         difficulties.add(medium);
@@ -170,7 +203,7 @@ public class ChangeOptions extends JDialog implements ActionListener
         p1.add(drawPanel, BorderLayout.WEST);
         p1.add(checkBoxPanel, BorderLayout.EAST);
         p1.add(difficultyPanel, BorderLayout.CENTER);
-        p1.add(buttonPanel, BorderLayout.SOUTH);
+        p1.add(southPanel, BorderLayout.SOUTH);
 
         add(p1);
 
@@ -179,6 +212,8 @@ public class ChangeOptions extends JDialog implements ActionListener
         timerCheck.addActionListener(this);
         winAnimationCheck.addActionListener(this);
         winSoundsCheck.addActionListener(this);
+        cardSoundsCheck.addActionListener(this);
+        winnableDealsCheck.addActionListener(this);
         easy.addActionListener(this);
         medium.addActionListener(this);
         hard.addActionListener(this);
@@ -226,6 +261,26 @@ public class ChangeOptions extends JDialog implements ActionListener
         return -1;
     }
 
+    public int getCardSounds()
+    {
+        if(!exited)
+        {
+            return cardSounds;
+        }
+
+        return -1;
+    }
+
+    public int getWinnableDeals()
+    {
+        if(!exited)
+        {
+            return winnableDeals;
+        }
+
+        return -1;
+    }
+
     public int getDifficulty()
     {
         return difficulty;
@@ -283,6 +338,28 @@ public class ChangeOptions extends JDialog implements ActionListener
                 sounds = 0;
             }
         }
+        else if(e.getSource() == cardSoundsCheck)
+        {
+            if(cardSoundsCheck.isSelected())
+            {
+                cardSounds = 1;
+            }
+            else
+            {
+                cardSounds = 0;
+            }
+        }
+        else if(e.getSource() == winnableDealsCheck)
+        {
+            if(winnableDealsCheck.isSelected())
+            {
+                winnableDeals = 1;
+            }
+            else
+            {
+                winnableDeals = 0;
+            }
+        }
 
         else if(e.getSource() == easy)
         {
@@ -0,0 +1,71 @@
+package edu.asu.FourRowSolitaire;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Where {@link AtomicFile} and {@link GameHistory} write through, so that a
+ * test can stop them part way, as if the program had been killed. A crash
+ * point lets a number of bytes through and then fails; renaming or cutting a
+ * file counts as one byte. What was let through stays written.
+ */
+final class CrashPoint
+{
+    /**
+     * Lets every write through.
+     */
+    static final CrashPoint NEVER = new CrashPoint(-1);
+
+    private long remaining;
+
+    /**
+     * Constructs a crash point.
+     *
+     * @param bytes the bytes to let through before failing, or -1 to never
+     *        fail
+     */
+    CrashPoint(long bytes)
+    {
+        remaining = bytes;
+    }
+
+    /**
+     * Writes the rest of a buffer to a file.
+     *
+     * @param channel the file
+     * @param buffer what to write, from its position to its limit
+     * @param position where in the file to write it
+     * @throws IOException if the write fails, or the crash point is reached
+     */
+    void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+    {
+        boolean crash = remaining >= 0 && buffer.remaining() > remaining;
+
+        if (crash)
+            buffer.limit(buffer.position() + (int) remaining);
+
+        if (remaining >= 0)
+            remaining -= buffer.remaining();
+
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+
+        if (crash)
+            throw new IOException("Crashed while writing");
+    }
+
+    /**
+     * Counts a rename or a cut before it is made.
+     *
+     * @throws IOException if the crash point is reached
+     */
+    void step() throws IOException
+    {
+        if (remaining == 0)
+            throw new IOException("Crashed before a rename");
+
+        if (remaining > 0)
+            remaining--;
+    }
+}
@@ -0,0 +1,225 @@
+package edu.asu.FourRowSolitaire;
+
+import java.io.File;
+
+import edu.asu.FourRowSolitaire.engine.BatchAnalysis;
+import edu.asu.FourRowSolitaire.engine.DealIndex;
+import edu.asu.FourRowSolitaire.engine.Solver;
+
+/**
+ * Class: DealAnalyzer
+ *
+ * Description: Command line entry point that decides which numbered deals can
+ * be won, without opening any windows, and prints win rate tables for every
+ * draw count and difficulty. Run it with
+ *
+ * java -cp FourRowSolitaire.jar edu.asu.FourRowSolitaire.DealAnalyzer
+ *      --first 1 --last 100000 --out deals.csv
+ *
+ * and the options below. Running the same command again after it was stopped
+ * carries on from its last checkpoint.
+ */
+public class DealAnalyzer
+{
+    private static final String USAGE =
+        "Usage: DealAnalyzer --first N --last N --out FILE [options]\n" +
+        "  --draw 1,3             draw counts to search (default 1,3)\n" +
+        "  --difficulty 1,2,3     difficulties to search (default 1,2,3)\n" +
+        "  --format csv|binary    output format (default csv)\n" +
+        "  --threads N            search threads (default: all processors)\n" +
+        "  --parallel N           search one deal at a time with N threads, in place of --threads\n" +
+        "  --max-nodes N          positions searched before a deal is unknown (default 1000000)\n" +
+        "  --checkpoint FILE      checkpoint file (default: FILE.checkpoint)\n" +
+        "  --index FILE           also record results in a deal index, such as ~/frs-deals.idx;\n" +
+        "                         needs every draw count and difficulty, starting at its next deal\n";
+
+    private static final String[] DIFFICULTIES = { "Easy", "Medium", "Hard" };
+
+    public static void main(String[] args)
+    {
+        long first = 0, last = 0;
+        File out = null;
+        BatchAnalysis analysis;
+        File indexFile = null;
+        int[] drawCounts = { 1, 3 };
+        int[] difficulties = { 1, 2, 3 };
+
+        try
+        {
+            for(int i = 0; i < args.length; i += 2)
+            {
+                if(i + 1 >= args.length)
+                {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+
+                if(args[i].equals("--first"))
+                {
+                    first = Long.parseLong(args[i + 1]);
+                }
+                else if(args[i].equals("--last"))
+                {
+                    last = Long.parseLong(args[i + 1]);
+                }
+                else if(args[i].equals("--out"))
+                {
+                    out = new File(args[i + 1]);
+                }
+            }
+
+            if(out == null)
+            {
+                throw new IllegalArgumentException("No output file given");
+            }
+
+            analysis = new BatchAnalysis(first, last, out);
+
+            for(int i = 0; i < args.length; i += 2)
+            {
+                String value = args[i + 1];
+
+                if(args[i].equals("--draw"))
+                {
+                    drawCounts = parseList(value);
+
+                    for(int drawCount : drawCounts)
+                    {
+                        if(drawCount != 1 && drawCount != 3)
+                        {
+                            throw new IllegalArgumentException("Invalid draw count " + drawCount);
+                        }
+                    }
+
+                    analysis.setDrawCounts(drawCounts);
+                }
+                else if(args[i].equals("--difficulty"))
+                {
+                    difficulties = parseList(value);
+
+                    for(int difficulty : difficulties)
+                    {
+                        if(difficulty < 1 || difficulty > 3)
+                        {
+                            throw new IllegalArgumentException("Invalid difficulty " + difficulty);
+                        }
+                    }
+
+                    analysis.setDifficulties(difficulties);
+                }
+                else if(args[i].equals("--format"))
+                {
+                    if(value.equals("binary"))
+                    {
+                        analysis.setFormat(BatchAnalysis.BINARY);
+                    }
+                    else if(!value.equals("csv"))
+                    {
+                        throw new IllegalArgumentException("Unknown format " + value);
+                    }
+                }
+                else if(args[i].equals("--threads"))
+                {
+                    analysis.setThreads(Integer.parseInt(value));
+                }
+                else if(args[i].equals("--parallel"))
+                {
+                    analysis.setParallelism(Integer.parseInt(value));
+                }
+                else if(args[i].equals("--max-nodes"))
+                {
+                    analysis.setMaxNodes(Long.parseLong(value));
+                }
+                else if(args[i].equals("--checkpoint"))
+                {
+                    analysis.setCheckpoint(new File(value));
+                }
+                else if(args[i].equals("--index"))
+                {
+                    indexFile = new File(value);
+                }
+                else if(!args[i].equals("--first") && !args[i].equals("--last") && !args[i].equals("--out"))
+                {
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        }
+        catch(IllegalArgumentException ex)
+        {
+            System.err.println(ex.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        analysis.setProgress(System.err);
+
+        long start = System.currentTimeMillis();
+
+        try
+        {
+            DealIndex index = indexFile == null ? null : new DealIndex(indexFile, true);
+            analysis.setIndex(index);
+            analysis.run();
+
+            if(index != null)
+            {
+                index.close();
+            }
+        }
+        catch(Exception ex)
+        {
+            ex.printStackTrace();
+            System.exit(1);
+        }
+
+        System.err.println("Finished in " + (System.currentTimeMillis() - start) / 1000.0 + " seconds");
+        printTable(analysis, drawCounts, difficulties);
+    }
+
+    /**
+     * Prints the share of decided deals that can be won for each draw count
+     * and difficulty. Deals the search gave up on are counted separately.
+     */
+    private static void printTable(BatchAnalysis analysis, int[] drawCounts, int[] difficulties)
+    {
+        StringBuilder header = new StringBuilder(String.format("%-8s", ""));
+        for(int difficulty : difficulties)
+        {
+            header.append(String.format("%28s", DIFFICULTIES[difficulty - 1]));
+        }
+
+        System.out.println("Winnable deals (% of decided deals, with the number undecided)");
+        System.out.println(header);
+
+        for(int drawCount : drawCounts)
+        {
+            StringBuilder line = new StringBuilder(String.format("%-8s", "Draw " + drawCount));
+
+            for(int difficulty : difficulties)
+            {
+                long won = analysis.getCount(drawCount, difficulty, Solver.WINNABLE);
+                long lost = analysis.getCount(drawCount, difficulty, Solver.UNWINNABLE);
+                long unknown = analysis.getCount(drawCount, difficulty, Solver.UNKNOWN);
+                double percent = won + lost == 0 ? 0 : 100.0 * won / (won + lost);
+
+                line.append(String.format("%28s", String.format("%.2f%% of %d, %d unknown",
+                        percent, won + lost, unknown)));
+            }
+
+            System.out.println(line);
+        }
+    }
+
+    private static int[] parseList(String value)
+    {
+        String[] parts = value.split(",");
+        int[] values = new int[parts.length];
+
+        for(int i = 0; i < parts.length; i++)
+        {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+
+        return values;
+    }
+}
@@ -20,12 +20,13 @@
 package edu.asu.FourRowSolitaire;
 
 import java.awt.Graphics;
-import java.awt.Image;
 import java.awt.Point;
 import java.util.LinkedList;
 
 import javax.swing.JOptionPane;
 
+import edu.asu.FourRowSolitaire.engine.Rules;
+
 /**
  * This class represents the DealDeck, which is a stack of cards. This deck 
  * manages the cards that are left over after the board initially deals out
@@ -45,17 +46,6 @@ import javax.swing.JOptionPane;
 @SuppressWarnings("serial")
 public class DealDeck extends CardStack
 {
-    private static final int DRAW_ONE_THROUGH_LIMIT   = 2;
-    private static final int DRAW_THREE_THROUGH_LIMIT = 3;
-    
-    /*
-     * The number of deck throughs for each difficulty. Three card drawing adds
-     * one more through to each difficulty level.
-     */
-    private static final int EASY_THROUGH_LIMIT   = 3;
-    private static final int MEDIUM_THROUGH_LIMIT = 2;
-    private static final int HARD_THROUGH_LIMIT   = 1;
-    
     private DiscardPile discardPile;
     private int numTimesThroughDeck;
     private int drawCount;
@@ -289,9 +279,9 @@ public class DealDeck extends CardStack
         discardPile.setDrawCount(drawCount);
 
         if (this.drawCount == 3)
-            deckThroughLimit = DRAW_THREE_THROUGH_LIMIT;
+            deckThroughLimit = Rules.DRAW_THREE_THROUGH_LIMIT;
         else
-            deckThroughLimit = DRAW_ONE_THROUGH_LIMIT;
+            deckThroughLimit = Rules.DRAW_ONE_THROUGH_LIMIT;
     }
     
     /**
@@ -301,16 +291,7 @@ public class DealDeck extends CardStack
      */
     public void setDifficulty(int difficulty)
     {
-        if (difficulty == 1)
-            deckThroughLimit = EASY_THROUGH_LIMIT;
-        else if (difficulty == 2)
-            deckThroughLimit = MEDIUM_THROUGH_LIMIT;
-        else  // if (difficulty == 3)
-            deckThroughLimit = HARD_THROUGH_LIMIT;
-        
-        // draw three has an extra deck through on top of the single card setting
-        if (drawCount == 3)
-            deckThroughLimit++;
+        deckThroughLimit = Rules.deckThroughLimit(drawCount, difficulty);
     }
     
     /**
@@ -323,18 +304,17 @@ public class DealDeck extends CardStack
         return isRedealable;
     }
     
+    /**
+     * Draws the top card, since it covers the others, with edges below it
+     * for the cards underneath.
+     */
     @Override
-    public void paint(Graphics g)
+    protected void paintCards(Graphics g)
     {
-        super.paint(g);
-        
-        if(!isEmpty())
+        if (!isEmpty())
         {
-            for(int i = 0; i < length(); i++)
-            {
-                Image image = getCardAtLocation(i).getImage();
-                g.drawImage(image, 0, 0, null);
-            }
+            paintEdges(g, length() - 1);
+            drawCard(g, peek(), 0, 0);
         }
     }
 }
\ No newline at end of file
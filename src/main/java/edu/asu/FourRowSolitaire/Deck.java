@@ -19,8 +19,10 @@
 
 package edu.asu.FourRowSolitaire;
 
-import java.util.Collections;
 import java.util.LinkedList;
+import java.util.Random;
+
+import edu.asu.FourRowSolitaire.engine.Deals;
 
 /**
  * This class represents a deck of {@link Card} objects.
@@ -40,17 +42,45 @@ public class Deck
      */
     private int deckStyle;
     
+    /*
+     * The number of the deal this deck was shuffled for (see {@link Deals}).
+     */
+    private long dealNumber;
+    
+    private static final Random random = new Random();
+    
     /**
-     * Constructs a new deck.
+     * Constructs a new deck shuffled for a randomly chosen deal number.
      * 
-     * @param cards linked list of {@link Card}s that will make up the deck
+     * @param deckStyle the card back to display
      */
     public Deck(int deckStyle)
+    {
+        this(deckStyle, Deals.randomDealNumber(random));
+    }
+    
+    /**
+     * Constructs a new deck shuffled for the specified deal number. The same
+     * deal number always produces the same deck.
+     * 
+     * @param deckStyle the card back to display
+     * @param dealNumber the deal number
+     */
+    public Deck(int deckStyle, long dealNumber)
     {
         this.deckStyle = deckStyle;
+        this.dealNumber = dealNumber;
+        
+        Card[] byOrdinal = new Card[53];
+        for (Card card : createStandardDeck(deckStyle))
+            byOrdinal[card.getFullNumber()] = card;
+        
+        int[] ordinals = new int[52];
+        Deals.shuffle(dealNumber, ordinals);
         
-        cards = createStandardDeck(deckStyle);
-        Collections.shuffle(cards);
+        cards = new LinkedList<Card>();
+        for (int ordinal : ordinals)
+            cards.add(byOrdinal[ordinal]);
     }
     
     /**
@@ -119,6 +149,16 @@ public class Deck
         return new Card(cardSuit, cardNumber, deckStyle, fullCardNumber);
     }
     
+    /**
+     * Returns the number of the deal this deck was shuffled for.
+     * 
+     * @return the deal number
+     */
+    public long getDealNumber()
+    {
+        return dealNumber;
+    }
+    
     /**
      * Returns a linked list of cards contained in this deck.
      * 
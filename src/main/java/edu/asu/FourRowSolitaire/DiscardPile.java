@@ -20,7 +20,6 @@
 package edu.asu.FourRowSolitaire;
 
 import java.awt.Graphics;
-import java.awt.Image;
 import java.awt.Point;
 
 /**
@@ -272,49 +271,39 @@ public class DiscardPile extends CardStack
         super.push(card);
     }
     
+    /**
+     * Draws the visible cards: the top card, or for draw three the cards left
+     * from the last draw fanned out over the card under them. Edges below
+     * show the cards underneath.
+     */
     @Override
-    public void paint(Graphics g)
+    protected void paintCards(Graphics g)
     {
-        super.paint(g);
+        if (isEmpty())
+            return;
         
-        // draw one card
-        if (!isEmpty() && drawCount == 1)
+        // draw one card, or draw three with nothing left from the last draw
+        if (drawCount != 3 || cardsLeftFromDraw == 0)
         {
-            for (int i = 0; i < length(); i++)
-            {
-                Image image = getCardAtLocation(i).getImage();
-                g.drawImage(image, 0, 0, null);
-            }
+            paintEdges(g, length() - 1);
+            drawCard(g, peek(), 0, 0);
+            return;
         }
+        
         // draw three cards
-        else if (!isEmpty() && drawCount == 3)
+        int bottom = Math.max(length() - cardsLeftFromDraw, 0);
+        
+        paintEdges(g, bottom);
+        drawCard(g, getCardAtLocation(bottom), 0, 0);
+        
+        for (int i = bottom + 1; i < length(); i++)
         {
-            if (cardsLeftFromDraw > 0)
-            {
-                for (int i = 0; i < length() - cardsLeftFromDraw + 1; i++)
-                {
-                    Image image = getCardAtLocation(i).getImage();
-                    g.drawImage(image, 0, 0, null);
-                }
-                
-                for (int i = length() - cardsLeftFromDraw + 1; i < length(); i++)
-                {
-                    Image image = getCardAtLocation(i).getImage();
-                    
-                    if ((cardsLeftFromDraw == 3 && i == length() - 2) || (cardsLeftFromDraw == 2 && i == length() - 1))
-                        g.drawImage(image, OFFSET_PIXELS, 0, null);
-                    else if (cardsLeftFromDraw == 3 && i == length() - 1)
-                        g.drawImage(image, OFFSET_PIXELS * 2, 0, null);
-                }
-            }
-            else
-            {
-                for (int i = 0; i < length(); i++)
-                {
-                    Image image = getCardAtLocation(i).getImage();
-                    g.drawImage(image, 0, 0, null);
-                }
-            }
+            Card card = getCardAtLocation(i);
+            
+            if ((cardsLeftFromDraw == 3 && i == length() - 2) || (cardsLeftFromDraw == 2 && i == length() - 1))
+                drawCard(g, card, scaled(OFFSET_PIXELS), 0);
+            else if (cardsLeftFromDraw == 3 && i == length() - 1)
+                drawCard(g, card, scaled(OFFSET_PIXELS * 2), 0);
         }
     }
 }
\ No newline at end of file
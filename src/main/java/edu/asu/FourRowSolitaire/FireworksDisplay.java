@@ -20,38 +20,79 @@
 package edu.asu.FourRowSolitaire;
 
 import java.awt.*;
-import java.awt.event.*;
-import javax.swing.*;
+import java.awt.image.BufferStrategy;
 import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Class: FireworksDisplay
  * 
  * Description: The FireworksDisplay class manages the win animation for Four Row Solitaire.
  * 
+ * The show is a number of sets of rockets, more in each set, fired from the
+ * bottom corners. The rockets and their sparks are a {@link ParticleSystem},
+ * moved on in fixed steps of 1/60 second by an animation thread that draws
+ * each frame straight into a BufferStrategy, so the show runs at 60 frames a
+ * second without going through Swing's painting, and allocates nothing while
+ * it plays but the Graphics each frame is drawn with.
+ * 
+ * A FrameGovernor watches how long each frame takes to draw and picks a
+ * quality level to keep up with: lower levels burst rockets into fewer
+ * sparks, with shorter trails, and stop fading them. The frame rate is shown
+ * in the corner.
+ * 
  * @author Matt Stephen
  */
-public class FireworksDisplay extends JPanel implements ActionListener
+public class FireworksDisplay extends Canvas
 {
     public final int NUM_FIREWORKS;
     public final int FIREWORKS_SIZE;
     public static final int SET_DELAY = 10;
     public static final int FIREWORKS_TIME = 30;
 
-    private int[] x;;
+    //Seconds each set of rockets lasts, and how long the rockets fly before bursting
+    private static final float SET_TIME = FIREWORKS_TIME / 10f;
+    private static final float FLIGHT_TIME = 2 * SET_TIME / 3;
+    private static final int NUM_SETS = 26;
+
+    private static final int FRAMES_PER_SECOND = 60;
+    private static final float STEP = 1f / FRAMES_PER_SECOND;
+    private static final long STEP_NANOS = 1000000000L / FRAMES_PER_SECOND;
+
+    //Steps run to catch up after a stall, before giving up on the lost time
+    private static final int MAX_CATCH_UP_STEPS = 5;
+
+    //What each quality level draws, from the lowest up
+    private static final float[] SPARK_SHARE = {0.1f, 0.25f, 0.5f, 0.75f, 1};
+    private static final float[] TRAIL = {0, 0.01f, 0.02f, 0.03f, ParticleSystem.DEFAULT_TRAIL};
+    private static final boolean[] FADE = {false, false, true, true, true};
+
+    //Where each rocket bursts, from its own side and from the bottom
+    private int[] x;
     private int[] y;
-    private Color[] colors;
+    private int[] colors;
+
+    private final ParticleSystem particles;
+    private final FrameGovernor governor = new FrameGovernor(FRAMES_PER_SECOND, SPARK_SHARE.length);
 
-    private int[][] xx; //For firework burst
-    private int[][] yy; //For firework burst
+    //Remade only when the frame rate changes, once a second at most
+    private int shownFps = -1;
+    private String fpsText = "";
 
-    private int num = 0;
     private int numSets = 0;
-    private int startValue = 0;
+    private float setTime = 0;
 
-    private Timer timer = new Timer(100, this);
     private Random random = new Random();
 
+    //The particles and the show are moved on by the animation thread and
+    //restarted and painted by the event thread
+    private final Object lock = new Object();
+
+    //The animation thread runs while its generation is the current one, so
+    //one left over from a stop and a quick restart ends itself
+    private volatile boolean running;
+    private int generation;
+
     public FireworksDisplay(int num, int size)
     {
         NUM_FIREWORKS = num;
@@ -59,715 +100,356 @@ public class FireworksDisplay extends JPanel implements ActionListener
 
         x = new int[NUM_FIREWORKS];
         y = new int[NUM_FIREWORKS];
-        colors = new Color[NUM_FIREWORKS];
+        colors = new int[NUM_FIREWORKS];
 
-        xx = new int[NUM_FIREWORKS][FIREWORKS_SIZE];
-        yy = new int[NUM_FIREWORKS][FIREWORKS_SIZE];
+        particles = new ParticleSystem(NUM_FIREWORKS * (FIREWORKS_SIZE + 1), FIREWORKS_SIZE, random);
 
         setBackground(Color.BLACK);
+        setIgnoreRepaint(true);
+        setFocusable(false);
     }
 
     public void restartDisplay()
     {
-        timer.stop();
-
-        num = 0;
-
-        for(int i = 0; i < x.length; i++)
+        synchronized(lock)
         {
-            x[i] = (int)(Math.random() * 300) + 300;
-
-            for(int j = 0; j < FIREWORKS_SIZE; j++)
+            for(int i = 0; i < NUM_FIREWORKS; i++)
             {
-                int xOffset = random.nextInt(151);
-		double signCheck = Math.random();
-
-		if(signCheck <= .5)
-		{
-                    xx[i][j] = -xOffset;
-                }
-		else
-		{
-                    xx[i][j] = xOffset;
-		}
+                x[i] = random.nextInt(300) + 300;
+                y[i] = random.nextInt(200) + 300;
+                colors[i] = random.nextInt(ParticleSystem.PALETTE.length);
             }
+
+            particles.clear();
+            numSets = 0;
+            setTime = 0;
         }
 
-        for(int i = 0; i < y.length; i++)
+        if(isDisplayable())
         {
-            y[i] = (int)(Math.random() * 200) + 300;
+            startAnimation();
+        }
+    }
 
-            for(int j = 0; j < FIREWORKS_SIZE; j++)
-            {
-                int yOffset = random.nextInt(151);
-		double signCheck = Math.random();
-
-		if(signCheck <= .5)
-		{
-                    yy[i][j] = -yOffset;
-		}
-		else
-		{
-                    yy[i][j] = yOffset;
-		}
-            }
+    public Color randomColor()
+    {
+        return ParticleSystem.PALETTE[random.nextInt(ParticleSystem.PALETTE.length)];
+    }
+
+    /**
+     * Returns whether every set has been fired and every spark has burnt out.
+     *
+     * @return true once the show is over
+     */
+    public boolean isFinished()
+    {
+        synchronized(lock)
+        {
+            return numSets >= NUM_SETS && particles.getCount() == 0;
         }
+    }
 
-	for(int i = 0; i < colors.length; i++)
-	{
-            colors[i] = randomColor();
-	}
+    public void addNotify()
+    {
+        super.addNotify();
+        createBufferStrategy(2);
+        startAnimation();
+    }
 
-        timer.start();
+    public void removeNotify()
+    {
+        stopAnimation();
+        super.removeNotify();
     }
 
-    public Color randomColor()
+    public void update(Graphics g)
     {
-        double rand = Math.random();
+        paint(g);
+    }
 
-        if(rand <= .1)
+    public void paint(Graphics g)
+    {
+        //The animation thread draws the next frame soon enough, so the event
+        //thread does not wait for it to finish this one
+        if(running)
         {
-            return Color.RED;
+            return;
         }
-        else if(rand <= .2)
+
+        //Only when the window is uncovered after the show, or before the first frame
+        synchronized(lock)
         {
-            return Color.BLUE;
+            if(getBufferStrategy() == null)
+            {
+                drawFrame(g);
+            }
+            else
+            {
+                render();
+            }
         }
-        else if(rand <= .3)
+    }
+
+    /**
+     * Moves the show on by one time step, firing the next set of rockets when
+     * the last one is over.
+     */
+    void step()
+    {
+        if(numSets < NUM_SETS && setTime <= 0)
         {
-            return Color.YELLOW;
+            launchSet(numSets);
+            numSets++;
+            setTime += SET_TIME;
         }
-        else if(rand <= .4)
+
+        setTime -= STEP;
+        particles.update(STEP);
+    }
+
+    private void launchSet(int set)
+    {
+        int first = random.nextInt(NUM_FIREWORKS / 2);
+        int last;
+
+        if(set < 5)
         {
-            return Color.GREEN;
+            last = first + 2;
         }
-        else if(rand <= .5)
+        else if(set < 10)
         {
-            return Color.ORANGE;
+            last = first + 3;
         }
-        else if(rand <= .6)
+        else if(set < 15)
         {
-            return Color.CYAN;
+            last = first + 4;
         }
-        else if(rand <= .7)
+        else if(set < 20)
         {
-            return Color.MAGENTA;
+            last = first + 5;
         }
-        else if(rand <= .8)
+        else if(set < 25)
         {
-            return Color.PINK;
+            last = first + 10;
         }
-        else if(rand <= .9)
+        //Finale
+        else
         {
-            return Color.WHITE;
+            last = NUM_FIREWORKS;
         }
-        else
+
+        int width = getWidth();
+        int height = getHeight();
+
+        for(int i = first; i < Math.min(last, NUM_FIREWORKS); i++)
         {
-            return new Color(153,50,205);
+            //Fire from left side
+            if(i % 2 == 0)
+            {
+                particles.launch(0, height, x[i], height - y[i], FLIGHT_TIME, colors[i]);
+            }
+            //Fire from right side
+            else
+            {
+                particles.launch(width, height, width - x[i], height - y[i], FLIGHT_TIME, colors[i]);
+            }
         }
     }
 
-    public void paint(Graphics g)
+    private void drawFrame(Graphics g)
     {
-        super.paint(g);
-        
         g.setColor(Color.BLACK);
         g.fillRect(0,0,getWidth(),getHeight());
 
         g.setColor(Color.RED);
         g.drawString("You Win! -- Click to Close.",340,550);
 
-        //Longer set one
-        if(numSets < 5)
+        particles.draw(g);
+
+        if(governor.getFps() != shownFps)
         {
-            for(int i = startValue; i < startValue + 2; i++)
-            {
-                if(num < 2 * FIREWORKS_TIME / 3)
-                {
-                    int x0 = 0;
-                    int y0 = getHeight() - (num * y[i] / (2 * FIREWORKS_TIME / 3));
-
-                    //Fire from left side
-                    if(i%2 == 0)
-                    {
-                        x0 = num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-                    //Fire from right side
-                    else
-                    {
-                        x0 = getWidth() - num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-
-                    g.setColor(colors[i]);
-                    g.drawRect(x0, y0, 5, 5);
-                }
-                else
-                {
-                    num -= Math.ceil(2 * FIREWORKS_TIME / 3.0);
-
-                    for(int j = 0; j < FIREWORKS_SIZE; j++)
-                    {
-                        g.setColor(colors[i]);
-
-                        if(i%2 == 0)
-                        {
-                            g.drawLine(x[i], getHeight() - y[i], x[i] + (num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(x[i] + (num * xx[i][j] / 10), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-                        else
-                        {
-                            g.drawLine(getWidth() - x[i], getHeight() - y[i], getWidth() - (x[i] + num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(getWidth() - (x[i] + (num * xx[i][j] / 10)), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-
-                    }
-
-                    num += Math.ceil(2 * FIREWORKS_TIME / 3.0);
-                }
-            }
+            shownFps = governor.getFps();
+            fpsText = shownFps + " fps";
         }
-        //Longer set two
-        else if(numSets < 10)
+
+        g.setColor(Color.GRAY);
+        g.drawString(fpsText,10,20);
+    }
+
+    /**
+     * Returns the quality level the show is drawn at.
+     *
+     * @return the level, from 0 (lowest) up
+     */
+    public int getQualityLevel()
+    {
+        synchronized(lock)
         {
-            for(int i = startValue; i < startValue + 3; i++)
-            {
-                if(num < 2 * FIREWORKS_TIME / 3)
-                {
-                    int x0 = 0;
-                    int y0 = getHeight() - (num * y[i] / (2 * FIREWORKS_TIME / 3));
-
-                    //Fire from left side
-                    if(i%2 == 0)
-                    {
-                        x0 = num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-                    //Fire from right side
-                    else
-                    {
-                        x0 = getWidth() - num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-
-                    g.setColor(colors[i]);
-                    g.drawRect(x0, y0, 5, 5);
-                }
-                else
-                {
-                    num -= Math.ceil(2 * FIREWORKS_TIME / 3.0);
-
-                    for(int j = 0; j < FIREWORKS_SIZE; j++)
-                    {
-                        g.setColor(colors[i]);
-
-                        if(i%2 == 0)
-                        {
-                            g.drawLine(x[i], getHeight() - y[i], x[i] + (num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(x[i] + (num * xx[i][j] / 10), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-                        else
-                        {
-                            g.drawLine(getWidth() - x[i], getHeight() - y[i], getWidth() - (x[i] + num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(getWidth() - (x[i] + (num * xx[i][j] / 10)), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-
-                    }
-
-                    num += Math.ceil(2 * FIREWORKS_TIME / 3.0);
-                }
-            }
+            return governor.getLevel();
         }
-        //Longer set three
-        else if(numSets < 15)
+    }
+
+    /**
+     * Returns the frames shown in the last whole second.
+     *
+     * @return the frame rate
+     */
+    public int getFps()
+    {
+        synchronized(lock)
         {
-            for(int i = startValue; i < startValue + 4; i++)
-            {
-                if(num < 2 * FIREWORKS_TIME / 3)
-                {
-                    int x0 = 0;
-                    int y0 = getHeight() - (num * y[i] / (2 * FIREWORKS_TIME / 3));
-
-                    //Fire from left side
-                    if(i%2 == 0)
-                    {
-                        x0 = num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-                    //Fire from right side
-                    else
-                    {
-                        x0 = getWidth() - num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-
-                    g.setColor(colors[i]);
-                    g.drawRect(x0, y0, 5, 5);
-                }
-                else
-                {
-                    num -= Math.ceil(2 * FIREWORKS_TIME / 3.0);
-
-                    for(int j = 0; j < FIREWORKS_SIZE; j++)
-                    {
-                        g.setColor(colors[i]);
-
-                        if(i%2 == 0)
-                        {
-                            g.drawLine(x[i], getHeight() - y[i], x[i] + (num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(x[i] + (num * xx[i][j] / 10), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-                        else
-                        {
-                            g.drawLine(getWidth() - x[i], getHeight() - y[i], getWidth() - (x[i] + num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(getWidth() - (x[i] + (num * xx[i][j] / 10)), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-
-                    }
-
-                    num += Math.ceil(2 * FIREWORKS_TIME / 3.0);
-                }
-            }
+            return governor.getFps();
         }
-        //Longer set four
-        else if(numSets < 20)
+    }
+
+    /**
+     * Records how long a frame took to draw, and sets the particles to the
+     * quality level the governor picks from it.
+     *
+     * @param renderNanos the time the frame took to step and draw
+     * @param shown when the frame was shown, from {@link System#nanoTime()}
+     */
+    void frameDone(long renderNanos, long shown)
+    {
+        governor.frameShown(shown);
+
+        if(governor.frameRendered(renderNanos))
         {
-            for(int i = startValue; i < startValue + 5; i++)
-            {
-                if(num < 2 * FIREWORKS_TIME / 3)
-                {
-                    int x0 = 0;
-                    int y0 = getHeight() - (num * y[i] / (2 * FIREWORKS_TIME / 3));
-
-                    //Fire from left side
-                    if(i%2 == 0)
-                    {
-                        x0 = num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-                    //Fire from right side
-                    else
-                    {
-                        x0 = getWidth() - num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-
-                    g.setColor(colors[i]);
-                    g.drawRect(x0, y0, 5, 5);
-                }
-                else
-                {
-                    num -= Math.ceil(2 * FIREWORKS_TIME / 3.0);
-
-                    for(int j = 0; j < FIREWORKS_SIZE; j++)
-                    {
-                        g.setColor(colors[i]);
-
-                        if(i%2 == 0)
-                        {
-                            g.drawLine(x[i], getHeight() - y[i], x[i] + (num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(x[i] + (num * xx[i][j] / 10), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-                        else
-                        {
-                            g.drawLine(getWidth() - x[i], getHeight() - y[i], getWidth() - (x[i] + num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(getWidth() - (x[i] + (num * xx[i][j] / 10)), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-
-                    }
-
-                    num += Math.ceil(2 * FIREWORKS_TIME / 3.0);
-                }
-            }
+            int level = governor.getLevel();
+
+            particles.setSparkShare(SPARK_SHARE[level]);
+            particles.setTrail(TRAIL[level]);
+            particles.setFade(FADE[level]);
         }
-        //Longer set five
-        else if(numSets < 25)
+    }
+
+    /*
+     * Draws a frame into the back buffer and shows it, drawing it again if the
+     * buffer was lost meanwhile. Returns when the frame was drawn, before it
+     * was shown, so the wait for the screen in show() is not counted as
+     * drawing time.
+     */
+    private long render()
+    {
+        BufferStrategy strategy = getBufferStrategy();
+        long drawn;
+
+        do
         {
-            for(int i = startValue; i < startValue + 10; i++)
+            do
             {
-                if(num < 2 * FIREWORKS_TIME / 3)
+                Graphics g = strategy.getDrawGraphics();
+
+                try
                 {
-                    int x0 = 0;
-                    int y0 = getHeight() - (num * y[i] / (2 * FIREWORKS_TIME / 3));
-
-                    //Fire from left side
-                    if(i%2 == 0)
-                    {
-                        x0 = num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-                    //Fire from right side
-                    else
-                    {
-                        x0 = getWidth() - num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-
-                    g.setColor(colors[i]);
-                    g.drawRect(x0, y0, 5, 5);
+                    drawFrame(g);
                 }
-                else
+                finally
                 {
-                    num -= Math.ceil(2 * FIREWORKS_TIME / 3.0);
-
-                    for(int j = 0; j < FIREWORKS_SIZE; j++)
-                    {
-                        g.setColor(colors[i]);
-
-                        if(i%2 == 0)
-                        {
-                            g.drawLine(x[i], getHeight() - y[i], x[i] + (num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(x[i] + (num * xx[i][j] / 10), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-                        else
-                        {
-                            g.drawLine(getWidth() - x[i], getHeight() - y[i], getWidth() - (x[i] + num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(getWidth() - (x[i] + (num * xx[i][j] / 10)), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-
-                    }
-
-                    num += Math.ceil(2 * FIREWORKS_TIME / 3.0);
+                    g.dispose();
                 }
             }
+            while(strategy.contentsRestored());
+
+            drawn = System.nanoTime();
+            strategy.show();
         }
-        //Longer set six (finale)
-        else if(numSets < 26)
+        while(strategy.contentsLost());
+
+        Toolkit.getDefaultToolkit().sync();
+        return drawn;
+    }
+
+    private void startAnimation()
+    {
+        final int current;
+
+        synchronized(lock)
         {
-            for(int i = startValue; i < x.length; i++)
+            if(running)
             {
-                if(num < 2 * FIREWORKS_TIME / 3)
-                {
-                    int x0 = 0;
-                    int y0 = getHeight() - (num * y[i] / (2 * FIREWORKS_TIME / 3));
-
-                    //Fire from left side
-                    if(i%2 == 0)
-                    {
-                        x0 = num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-                    //Fire from right side
-                    else
-                    {
-                        x0 = getWidth() - num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-
-                    g.setColor(colors[i]);
-                    g.drawRect(x0, y0, 5, 5);
-                }
-                else
-                {
-                    num -= Math.ceil(2 * FIREWORKS_TIME / 3.0);
-
-                    for(int j = 0; j < FIREWORKS_SIZE; j++)
-                    {
-                        g.setColor(colors[i]);
-
-                        if(i%2 == 0)
-                        {
-                            g.drawLine(x[i], getHeight() - y[i], x[i] + (num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(x[i] + (num * xx[i][j] / 10), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-                        else
-                        {
-                            g.drawLine(getWidth() - x[i], getHeight() - y[i], getWidth() - (x[i] + num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(getWidth() - (x[i] + (num * xx[i][j] / 10)), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-
-                    }
-
-                    num += Math.ceil(2 * FIREWORKS_TIME / 3.0);
-                }
+                return;
             }
+
+            running = true;
+            current = ++generation;
         }
 
-        //Shorter sets
-        /*//Set one
-        if(num <= FIREWORKS_TIME)
+        Thread animator = new Thread(new Runnable()
         {
-            for(int i = 0; i < Math.ceil(NUM_FIREWORKS / 16.0); i++)
+            public void run()
             {
-                if(num < 2 * FIREWORKS_TIME / 3)
-                {
-                    int x0 = 0;
-                    int y0 = getHeight() - (num * y[i] / (2 * FIREWORKS_TIME / 3));
-
-                    //Fire from left side
-                    if(i%2 == 0)
-                    {
-                        x0 = num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-                    //Fire from right side
-                    else
-                    {
-                        x0 = getWidth() - num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-
-                    g.setColor(colors[i]);
-                    g.drawRect(x0, y0, 5, 5);
-                }
-                else
-                {
-                    num -= Math.ceil(2 * FIREWORKS_TIME / 3.0);
-
-                    for(int j = 0; j < FIREWORKS_SIZE; j++)
-                    {
-                        g.setColor(colors[i]);
-
-                        if(i%2 == 0)
-                        {
-                            g.drawLine(x[i], getHeight() - y[i], x[i] + (num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(x[i] + (num * xx[i][j] / 10), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-                        else
-                        {
-                            g.drawLine(getWidth() - x[i], getHeight() - y[i], getWidth() - (x[i] + num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(getWidth() - (x[i] + (num * xx[i][j] / 10)), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-                        
-                    }
-
-                    num += Math.ceil(2 * FIREWORKS_TIME / 3.0);
-                }
+                animate(current);
             }
-        }
-        //Set two
-        else if(num > (FIREWORKS_TIME + SET_DELAY) && num <= (2 * FIREWORKS_TIME + SET_DELAY))
-        {
-            num -= (FIREWORKS_TIME + SET_DELAY);
+        }, "Fireworks");
 
-            for(int i = (int)Math.ceil(NUM_FIREWORKS / 16.0); i < Math.ceil(NUM_FIREWORKS / 8.0); i++)
-            {
-                if(num < 2 * FIREWORKS_TIME / 3)
-                {
-                    int x0 = 0;
-                    int y0 = getHeight() - (num * y[i] / (2 * FIREWORKS_TIME / 3));
-
-                    //Fire from left side
-                    if(i%2 == 0)
-                    {
-                        x0 = num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-                    //Fire from right side
-                    else
-                    {
-                        x0 = getWidth() - num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-
-                    g.setColor(colors[i]);
-                    g.drawRect(x0, y0, 5, 5);
-                }
-                else
-                {
-                    num -= Math.ceil(2 * FIREWORKS_TIME / 3.0);
-
-                    for(int j = 0; j < FIREWORKS_SIZE; j++)
-                    {
-                        g.setColor(colors[i]);
-
-                        if(i%2 == 0)
-                        {
-                            g.drawLine(x[i], getHeight() - y[i], x[i] + (num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(x[i] + (num * xx[i][j] / 10), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-                        else
-                        {
-                            g.drawLine(getWidth() - x[i], getHeight() - y[i], getWidth() - (x[i] + num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(getWidth() - (x[i] + (num * xx[i][j] / 10)), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-
-                    }
-
-                    num += Math.ceil(2 * FIREWORKS_TIME / 3.0);
-                }
-            }
+        animator.setDaemon(true);
+        animator.start();
+    }
 
-            num += (FIREWORKS_TIME + SET_DELAY);
-        }
-        //Set three
-        else if(num > (2 * FIREWORKS_TIME + 2 * SET_DELAY) && num <= (3 * FIREWORKS_TIME + 2 * SET_DELAY))
+    /*
+     * Once this returns the animation thread draws no more frames, since it
+     * checks that it is still running under the same lock it draws under.
+     */
+    private void stopAnimation()
+    {
+        synchronized(lock)
         {
-            num -= (2 * FIREWORKS_TIME + 2 * SET_DELAY);
+            running = false;
+        }
+    }
 
-            for(int i = (int)Math.ceil(NUM_FIREWORKS / 8.0); i < Math.ceil(NUM_FIREWORKS / 4.0); i++)
-            {
-                if(num < 2 * FIREWORKS_TIME / 3)
-                {
-                    int x0 = 0;
-                    int y0 = getHeight() - (num * y[i] / (2 * FIREWORKS_TIME / 3));
-
-                    //Fire from left side
-                    if(i%2 == 0)
-                    {
-                        x0 = num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-                    //Fire from right side
-                    else
-                    {
-                        x0 = getWidth() - num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-
-                    g.setColor(colors[i]);
-                    g.drawRect(x0, y0, 5, 5);
-                }
-                else
-                {
-                    num -= Math.ceil(2 * FIREWORKS_TIME / 3.0);
-
-                    for(int j = 0; j < FIREWORKS_SIZE; j++)
-                    {
-                        g.setColor(colors[i]);
-
-                        if(i%2 == 0)
-                        {
-                            g.drawLine(x[i], getHeight() - y[i], x[i] + (num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(x[i] + (num * xx[i][j] / 10), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-                        else
-                        {
-                            g.drawLine(getWidth() - x[i], getHeight() - y[i], getWidth() - (x[i] + num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(getWidth() - (x[i] + (num * xx[i][j] / 10)), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-
-                    }
-
-                    num += Math.ceil(2 * FIREWORKS_TIME / 3.0);
-                }
-            }
+    /*
+     * The animation loop: runs as many fixed steps as the time since the last
+     * frame calls for, draws a frame, and waits for the next one, until the
+     * show is over or the display is taken down.
+     */
+    private void animate(int current)
+    {
+        long next = System.nanoTime();
+        long lag = 0;
+        long previous = next;
 
-            num += (2 * FIREWORKS_TIME + 2 * SET_DELAY);
-        }
-        //Set four
-        else if(num > (3 * FIREWORKS_TIME + 3 * SET_DELAY) && num <= (4 * FIREWORKS_TIME + 3 * SET_DELAY))
+        while(true)
         {
-            num -= (3 * FIREWORKS_TIME + 3 * SET_DELAY);
+            long now = System.nanoTime();
+            lag = Math.min(lag + now - previous, MAX_CATCH_UP_STEPS * STEP_NANOS);
+            previous = now;
 
-            for(int i = (int)Math.ceil(NUM_FIREWORKS / 4.0); i < Math.ceil(NUM_FIREWORKS / 2.0); i++)
+            synchronized(lock)
             {
-                if(num < 2 * FIREWORKS_TIME / 3)
+                if(!running || generation != current)
                 {
-                    int x0 = 0;
-                    int y0 = getHeight() - (num * y[i] / (2 * FIREWORKS_TIME / 3));
-
-                    //Fire from left side
-                    if(i%2 == 0)
-                    {
-                        x0 = num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-                    //Fire from right side
-                    else
-                    {
-                        x0 = getWidth() - num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-
-                    g.setColor(colors[i]);
-                    g.drawRect(x0, y0, 5, 5);
+                    return;
                 }
-                else
+
+                while(lag >= STEP_NANOS)
                 {
-                    num -= Math.ceil(2 * FIREWORKS_TIME / 3.0);
-
-                    for(int j = 0; j < FIREWORKS_SIZE; j++)
-                    {
-                        g.setColor(colors[i]);
-
-                        if(i%2 == 0)
-                        {
-                            g.drawLine(x[i], getHeight() - y[i], x[i] + (num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(x[i] + (num * xx[i][j] / 10), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-                        else
-                        {
-                            g.drawLine(getWidth() - x[i], getHeight() - y[i], getWidth() - (x[i] + num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(getWidth() - (x[i] + (num * xx[i][j] / 10)), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-
-                    }
-
-                    num += Math.ceil(2 * FIREWORKS_TIME / 3.0);
+                    step();
+                    lag -= STEP_NANOS;
                 }
-            }
 
-            num += (3 * FIREWORKS_TIME + 3 * SET_DELAY);
-        }
-        //Set five (finale)
-        else
-        {
-            num -= (4 * FIREWORKS_TIME + 4 * SET_DELAY);
+                long drawn = render();
+                frameDone(drawn - now, System.nanoTime());
 
-            for(int i = (int)Math.ceil(NUM_FIREWORKS / 2.0); i < NUM_FIREWORKS; i++)
-            {
-                if(num < 2 * FIREWORKS_TIME / 3)
+                if(numSets >= NUM_SETS && particles.getCount() == 0)
                 {
-                    int x0 = 0;
-                    int y0 = getHeight() - (num * y[i] / (2 * FIREWORKS_TIME / 3));
-
-                    //Fire from left side
-                    if(i%2 == 0)
-                    {
-                        x0 = num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-                    //Fire from right side
-                    else
-                    {
-                        x0 = getWidth() - num * x[i] / (2 * FIREWORKS_TIME / 3);
-                    }
-
-                    g.setColor(colors[i]);
-                    g.drawRect(x0, y0, 5, 5);
-                }
-                else
-                {
-                    num -= Math.ceil(2 * FIREWORKS_TIME / 3.0);
-
-                    for(int j = 0; j < FIREWORKS_SIZE; j++)
-                    {
-                        g.setColor(colors[i]);
-
-                        if(i%2 == 0)
-                        {
-                            g.drawLine(x[i], getHeight() - y[i], x[i] + (num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(x[i] + (num * xx[i][j] / 10), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-                        else
-                        {
-                            g.drawLine(getWidth() - x[i], getHeight() - y[i], getWidth() - (x[i] + num * xx[i][j] / (NUM_FIREWORKS / 3)), getHeight() - (y[i] + (num * yy[i][j] / (NUM_FIREWORKS / 3))));
-                            //g.drawRect(getWidth() - (x[i] + (num * xx[i][j] / 10)), getHeight() - (y[i] + (num * yy[i][j] / 10)), 5, 5);
-                        }
-
-                    }
-
-                    num += Math.ceil(2 * FIREWORKS_TIME / 3.0);
+                    running = false;
                 }
             }
 
-            num += (4 * FIREWORKS_TIME + 4 * SET_DELAY);
-        }*/
-    }
+            next += STEP_NANOS;
+            long wait = next - System.nanoTime();
 
-    public void actionPerformed(ActionEvent e)
-    {
-        if(e.getSource() == timer)
-        {
-            if(num >= FIREWORKS_TIME)
+            if(wait > 0)
             {
-                num = 0;
-                numSets++;
-
-                startValue = random.nextInt(x.length / 2);
-            }
-
-            num++;
-            
-            if(numSets >= 26)
-            {
-                timer.stop();
+                LockSupport.parkNanos(wait);
             }
             else
             {
-                repaint();
+                //Behind, so start timing again from now rather than rush to catch up
+                next = System.nanoTime();
             }
-
-            //Shorter sets
-            /*num++;
-
-            if(num > 5 * FIREWORKS_TIME + 4 * SET_DELAY)
-            {
-                timer.stop();
-            }
-
-            repaint();*/
         }
     }
-}
\ No newline at end of file
+}
@@ -20,14 +20,22 @@
 package edu.asu.FourRowSolitaire;
 
 import java.awt.Desktop;
+import java.awt.GraphicsEnvironment;
 import java.awt.event.*;
 import java.io.*;
 import java.net.URI;
 import java.net.URL;
-import java.util.LinkedList;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
 
 import javax.swing.*;
 
+import edu.asu.FourRowSolitaire.engine.Deals;
+import edu.asu.FourRowSolitaire.engine.GameState;
+import edu.asu.FourRowSolitaire.engine.Snapshot;
+
 /**
  * Class: FourRowSolitaire
  * 
@@ -45,7 +53,11 @@ public class FourRowSolitaire extends SolitaireBoard implements ActionListener
     private JMenu helpMenu = new JMenu("Help");
 
     private JMenuItem newGame = new JMenuItem("New Game");
+    private JMenuItem selectGame = new JMenuItem("Select Game...");
+    private JMenuItem saveGame = new JMenuItem("Save Game As...");
+    private JMenuItem loadGame = new JMenuItem("Load Game...");
     private JMenuItem undo = new JMenuItem("Undo Last Move");
+    private JMenuItem redo = new JMenuItem("Redo Move");
     private JMenuItem hint = new JMenuItem("Hint");
     private JMenuItem statistics = new JMenuItem("Statistics");
     private JMenuItem options = new JMenuItem("Options");
@@ -61,8 +73,12 @@ public class FourRowSolitaire extends SolitaireBoard implements ActionListener
         //checkForUpdate();
 
         game.add(newGame);
+        game.add(selectGame);
+        game.add(saveGame);
+        game.add(loadGame);
         game.addSeparator();
         game.add(undo);
+        game.add(redo);
         game.add(hint);
         game.addSeparator();
         game.add(statistics);
@@ -72,7 +88,11 @@ public class FourRowSolitaire extends SolitaireBoard implements ActionListener
         game.add(exit);
 
         newGame.addActionListener(this);
+        selectGame.addActionListener(this);
+        saveGame.addActionListener(this);
+        loadGame.addActionListener(this);
         undo.addActionListener(this);
+        redo.addActionListener(this);
         hint.addActionListener(this);
         statistics.addActionListener(this);
         options.addActionListener(this);
@@ -94,8 +114,16 @@ public class FourRowSolitaire extends SolitaireBoard implements ActionListener
 
         newGame.setMnemonic('N');
         newGame.setAccelerator(KeyStroke.getKeyStroke("F2"));
+        selectGame.setMnemonic('g');
+        selectGame.setAccelerator(KeyStroke.getKeyStroke("F3"));
+        saveGame.setMnemonic('e');
+        saveGame.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, InputEvent.CTRL_DOWN_MASK));
+        loadGame.setMnemonic('l');
+        loadGame.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_O, InputEvent.CTRL_DOWN_MASK));
         undo.setMnemonic('u');
         undo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, KeyEvent.CTRL_MASK));
+        redo.setMnemonic('r');
+        redo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
         hint.setMnemonic('h');
         hint.setAccelerator(KeyStroke.getKeyStroke('h'));
         statistics.setMnemonic('s');
@@ -111,6 +139,10 @@ public class FourRowSolitaire extends SolitaireBoard implements ActionListener
         about.setMnemonic('a');
 
         loadData();
+
+        //Show the board once the images it draws first are decoded
+        ImagePreloader.awaitImages();
+        setVisible(true);
     }
 
     private void checkForUpdate()
@@ -135,143 +167,342 @@ public class FourRowSolitaire extends SolitaireBoard implements ActionListener
 
     private void loadData()
     {
-        String fileLocation = System.getProperty("user.home") + System.getProperty("file.separator");
-        int count = 0, temp = 0, correctedStatistics = -2;
-        int newDrawCount = 1, timerStatus = 0, deckNumber = 3, backgroundNumber = 2;
-        int saved = 0, winAnimation = 0, winSounds = 0, drawCount = 1, deckThroughs = 1;
-        int difficulty = 2, newDifficulty = 2;
-        
+        final String fileLocation = System.getProperty("user.home") + System.getProperty("file.separator");
+        SavedData data;
+
+        //Read on the persistence thread, after any writes still waiting. This
+        //runs on the main thread before the window is shown, so the event
+        //thread is free to complete the future.
         try
         {
-            File file = new File(fileLocation + "frs-statistics.dat");
-            file.createNewFile();
-            DataInputStream input = new DataInputStream(new FileInputStream(file));
+            data = PersistenceService.getInstance().submit(new Callable<SavedData>()
+            {
+                public SavedData call()
+                {
+                    return SavedData.read(fileLocation, getOptionsFile(), getSavedGameFile());
+                }
+            }).get();
+        }
+        catch(Exception ex)
+        {
+            ex.printStackTrace();
+            data = new SavedData();
+        }
+
+        super.setDeckNumber(data.deckNumber);
+        super.setBackgroundNumber(data.backgroundNumber);
+        ImagePreloader.preloadBackground(data.backgroundNumber);
+        super.setTimerStatus(data.timerStatus);
+        super.setNewDrawCount(data.newDrawCount);
+        super.setWinAnimationStatus(data.winAnimation);
+        super.setWinSoundsStatus(data.winSounds);
+        super.setCardSoundsStatus(data.cardSounds);
+
+        //Open the sequencer and load the songs now, rather than when the game is won
+        if(data.winSounds == 1)
+        {
+            AudioService.start();
+        }
+
+        super.setDrawCount(data.drawCount);
+        super.setDeckThroughs(data.deckThroughs);
+        super.setDifficulty(data.difficulty);
+        super.setNewDifficulty(data.newDifficulty);
+        super.setWinnableDealsStatus(data.winnableDeals);
+        super.setGameSaved(data.saved == 1);
 
-            if(input.available() > 0)
+        //A game that was being played when the program stopped comes first
+        if(!super.recoverGame())
+        {
+            if(data.saved == 1)
             {
-                correctedStatistics = input.readInt();
-                count++;
-            }
+                super.setDealNumber(data.dealNumber);
 
-            if(correctedStatistics == -2)
+                if(data.game == null)
+                {
+                    System.err.println("Problem Loading Saved Game (Damaged or Unknown Format)... Starting New Game");
+                    super.createBoard(null);
+                }
+                else
+                {
+                    super.createBoard(data.game);
+                }
+            }
+            else
             {
-                //No statistics file found
+                super.createBoard(null);
             }
-            else if(correctedStatistics == -1)
+        }
+
+        //Give the options their own file; the old statistics file is
+        //converted to the game history when it is next opened
+        if(!data.optionsFound)
+        {
+            super.saveOptions();
+        }
+    }
+
+    /**
+     * The options and saved game read when the game starts.
+     */
+    private static class SavedData
+    {
+        private int newDrawCount = 1, timerStatus = 0, deckNumber = 3, backgroundNumber = 2;
+        private int saved = 0, winAnimation = 0, winSounds = 0, drawCount = 1, deckThroughs = 1;
+        private int difficulty = 2, newDifficulty = 2;
+        private long dealNumber = 0;
+        private int winnableDeals = 0;
+        private int cardSounds = 0;
+        private boolean optionsFound;
+
+        //The saved game, or null if it could not be read
+        private Snapshot game;
+
+        private static SavedData read(String fileLocation, AtomicFile optionsFile, AtomicFile savedGameFile)
+        {
+            SavedData data = new SavedData();
+            int count = 0, temp = 0;
+
+            File statisticsFile = new File(fileLocation + "frs-statistics.dat");
+
+            try
             {
-                //Statistics file is formatted to the new style of saving statistics
-                while((input.available() > 0) && count < 49)
+                byte[] options = optionsFile.read();
+                data.optionsFound = options != null;
+
+                if(data.optionsFound)
                 {
-                    temp = input.readInt();
-                    switch(count)
+                    DataInputStream input = new DataInputStream(new ByteArrayInputStream(options));
+
+                    data.drawCount = input.readInt();
+                    data.newDrawCount = input.readInt();
+                    data.deckNumber = input.readInt();
+                    data.backgroundNumber = input.readInt();
+                    data.timerStatus = input.readInt();
+                    data.winAnimation = input.readInt();
+                    data.winSounds = input.readInt();
+                    data.deckThroughs = input.readInt();
+                    data.difficulty = input.readInt();
+                    data.newDifficulty = input.readInt();
+                    data.saved = input.readInt();
+                    data.dealNumber = input.readLong();
+                    data.winnableDeals = input.readInt();
+
+                    //Options saved before card sounds were added end here
+                    if(input.available() >= 4)
                     {
-                        case 37: drawCount = temp; break;
-                        case 38: newDrawCount = temp; break;
-                        case 39: deckNumber = temp; break;
-                        case 40: backgroundNumber = temp; break;
-                        case 41: timerStatus = temp; break;
-                        case 42: winAnimation = temp; break;
-                        case 43: winSounds = temp; break;
-                        case 44: deckThroughs = temp; break;
-                        case 45: difficulty = temp; break;
-                        case 46: newDifficulty = temp; break;
-                        case 47: saved = temp; break;
-
-                        default: ; break;
+                        data.cardSounds = input.readInt();
                     }
-
+                }
+                else if(statisticsFile.length() > 0 && !GameHistory.isHistory(statisticsFile))
+                {
+                    //Options saved with the statistics, before they had a file of their own
+                    DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(statisticsFile)));
+                    int correctedStatistics = input.readInt();
                     count++;
+
+                    if(correctedStatistics == -1)
+                    {
+                        //Statistics file is formatted to the new style of saving statistics
+                        while((input.available() > 0) && count < 48)
+                        {
+                            temp = input.readInt();
+                            switch(count)
+                            {
+                                case 37: data.drawCount = temp; break;
+                                case 38: data.newDrawCount = temp; break;
+                                case 39: data.deckNumber = temp; break;
+                                case 40: data.backgroundNumber = temp; break;
+                                case 41: data.timerStatus = temp; break;
+                                case 42: data.winAnimation = temp; break;
+                                case 43: data.winSounds = temp; break;
+                                case 44: data.deckThroughs = temp; break;
+                                case 45: data.difficulty = temp; break;
+                                case 46: data.newDifficulty = temp; break;
+                                case 47: data.saved = temp; break;
+
+                                default: ; break;
+                            }
+
+                            count++;
+                        }
+
+                        if(input.available() >= 8)
+                        {
+                            data.dealNumber = input.readLong();
+                        }
+
+                        if(input.available() >= 4)
+                        {
+                            data.winnableDeals = input.readInt();
+                        }
+                    }
+                    else
+                    {
+                        //Statistics file is formatted to the old style of saving statistics
+                        while((input.available() > 0) && count < 14)
+                        {
+                            temp = input.readInt();
+                            switch(count)
+                            {
+                                case 5: data.newDrawCount = temp; break;
+                                case 6: data.timerStatus = temp; break;
+                                case 7: data.deckNumber = temp; break;
+                                case 8: data.backgroundNumber = temp; break;
+                                case 9: data.saved = temp; break;
+                                case 10: data.winAnimation = temp; break;
+                                case 11: data.winSounds = temp; break;
+                                case 12: data.drawCount = temp; break;
+                                case 13: data.deckThroughs = temp; break;
+
+                                default: ; break;
+                            }
+
+                            count++;
+                        }
+                    }
+
+                    input.close();
                 }
             }
-            else
+            catch(Exception ex)
             {
-                //Statistics file is formatted to the old style of saving statistics
-                while((input.available() > 0) && count < 14)
+                System.out.println(ex);
+            }
+
+            if(data.saved == 1)
+            {
+                try
                 {
-                    temp = input.readInt();
-                    switch(count)
+                    byte[] saved = savedGameFile.read();
+
+                    if(Snapshot.isSnapshot(saved))
                     {
-                        case 5: newDrawCount = temp; break;
-                        case 6: timerStatus = temp; break;
-                        case 7: deckNumber = temp; break;
-                        case 8: backgroundNumber = temp; break;
-                        case 9: saved = temp; break;
-                        case 10: winAnimation = temp; break;
-                        case 11: winSounds = temp; break;
-                        case 12: drawCount = temp; break;
-                        case 13: deckThroughs = temp; break;
-
-                        default: ; break;
+                        data.game = Snapshot.decode(saved);
                     }
+                    else if(saved != null && saved.length == 4 * (GameState.DECK_SIZE + GameState.NUM_PILES))
+                    {
+                        //Saved before snapshots, as an int for each card and pile end
+                        int[] ordinals = new int[saved.length / 4];
+                        ByteBuffer.wrap(saved).asIntBuffer().get(ordinals);
 
-                    count++;
+                        GameState position = new GameState(data.drawCount, data.difficulty);
+                        position.load(ordinals);
+                        position.setDeckThroughs(data.deckThroughs);
+
+                        data.game = new Snapshot(position, 0);
+                    }
+                }
+                catch(Exception ex)
+                {
+                    ex.printStackTrace();
                 }
             }
 
-            input.close();
+            return data;
         }
-        catch(Exception ex)
+    }
+
+    public static void main(String[] args)
+    {
+        ImagePreloader preloader = ImagePreloader.start();
+
+        StartupSplash splash = null;
+
+        if(!GraphicsEnvironment.isHeadless())
         {
-            System.out.println(ex);
+            splash = new StartupSplash(preloader);
         }
 
-        super.setDeckNumber(deckNumber);
-        super.setBackgroundNumber(backgroundNumber);
-        super.setTimerStatus(timerStatus);
-        super.setNewDrawCount(newDrawCount);
-        super.setWinAnimationStatus(winAnimation);
-        super.setWinSoundsStatus(winSounds);
-        super.setDrawCount(drawCount);
-        super.setDeckThroughs(deckThroughs);
-        super.setDifficulty(difficulty);
-        super.setNewDifficulty(newDifficulty);
-
-        if(saved == 1)
+        new FourRowSolitaire();
+
+        if(splash != null)
         {
-            LinkedList<Integer> cards = new LinkedList<Integer>();
-            
-            try
-            {
-                File file = new File(fileLocation + "frs-savedgame.dat");
-                file.createNewFile();
-                DataInputStream input = new DataInputStream(new FileInputStream(file));
+            splash.dispose();
+        }
+    }
 
-                while(input.available() > 0)
-                {
-                    cards.add(input.readInt());
-                }
-                
-                if(cards.size() == 66)
-                {
-                    super.createBoard(cards);
-                }
-                else
-                {
-                    System.err.println("Problem Loading Saved Game (More or Less Than 52 Cards Stored)... Starting New Game");
-                    super.createBoard(null);
-                }
-            }
-            catch(Exception ex)
-            {
-                ex.printStackTrace();
-                System.err.println("Problem Loading Saved Game (Unknown Error)... Starting New Game");
-                super.createBoard(null);
-            }
+    private void showStatistics(GameStatistics[] statistics)
+    {
+        JTextArea display = new JTextArea();
+        display.append(formatStatistics("Easy", statistics[GameHistory.getMode(1, 1)],
+                statistics[GameHistory.getMode(3, 1)]) +
+        "===================================================================\n");
+        display.append(formatStatistics("Medium", statistics[GameHistory.getMode(1, 2)],
+                statistics[GameHistory.getMode(3, 2)]) +
+        "===================================================================\n");
+        display.append(formatStatistics("Hard", statistics[GameHistory.getMode(1, 3)],
+                statistics[GameHistory.getMode(3, 3)]));
+
+        display.setOpaque(false);
+        display.setBorder(null);
+        display.setFont(UIManager.getFont("Label.font"));
+
+        Object[] buttons = {"Close", "Reset"};
+        int check = JOptionPane.showOptionDialog(this, display, "Statistics", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE,
+                null, buttons, buttons[0]);
+
+        if(check == 1)
+        {
+            //Reset stats
+            super.resetStats();
         }
-        else
+    }
+
+    private void chooseSavedGame(List<SaveSlots.Slot> slots)
+    {
+        if(slots.isEmpty())
         {
-            super.createBoard(null);
+            JOptionPane.showMessageDialog(this, "There are no saved games.", "Load Game",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
         }
 
-        if(correctedStatistics != -1)
+        Object[] choices = slots.toArray();
+        Object choice = JOptionPane.showInputDialog(this, "Choose a saved game:", "Load Game",
+                JOptionPane.QUESTION_MESSAGE, null, choices, choices[choices.length - 1]);
+
+        if(choice == null)
         {
-            super.saveOptions();
+            return;
+        }
+
+        int check = JOptionPane.showConfirmDialog(this, "Quitting the current game will result in a loss.\n" +
+                "Do you wish to continue?", "Continue?", JOptionPane.OK_CANCEL_OPTION);
+
+        if(check != JOptionPane.YES_OPTION)
+        {
+            return;
+        }
+
+        SaveSlots.Slot slot = (SaveSlots.Slot)choice;
+
+        try
+        {
+            slot.getSnapshot();
         }
+        catch(IllegalArgumentException ex)
+        {
+            JOptionPane.showMessageDialog(this, "\"" + slot.getName() + "\" could not be loaded.", "Load Game",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        recordGame(GAME_LOST);
+        super.loadGame(slot);
     }
 
-    public static void main(String[] args)
+    private static String formatStatistics(String difficulty, GameStatistics one, GameStatistics three)
     {
-        new FourRowSolitaire();
+        return "One-Card Draw (" + difficulty + ")\t\tThree-Card Draw (" + difficulty + ")\n" +
+        "Games Played: " + one.getGamesPlayed() + "\t\tGames Played: " + three.getGamesPlayed() +
+        "\nGames Won: " + one.getGamesWon() + "\t\t\tGames Won: " + three.getGamesWon() + "\n" +
+        "Win Percentage: " + one.getWinPercentage() + "%\t\tWin Percentage: " + three.getWinPercentage() +
+        "%\n\nBest Streak: " + one.getBestStreak() + "\t\t\tBest Streak: " + three.getBestStreak() + "\n" +
+        "Worst Streak: " + one.getWorstStreak() + "\t\tWorst Streak: " + three.getWorstStreak() + "\n" +
+        "Current Streak: " + one.getCurrentStreak() + "\t\tCurrent Streak: " + three.getCurrentStreak() + "\n" +
+        "Best Time: " + (one.getBestTime() / 60) + " m, " + (one.getBestTime() % 60) + " s" + "\t\t" +
+        "Best Time: " + (three.getBestTime() / 60) + " m, " + (three.getBestTime() % 60) + " s" + "\n";
     }
 
     public void actionPerformed(ActionEvent e)
@@ -283,8 +514,8 @@ public class FourRowSolitaire extends SolitaireBoard implements ActionListener
 
             if(check == JOptionPane.YES_OPTION)
             {
-                super.newGame(0);
                 recordGame(GAME_LOST);
+                super.newGame(0);
             }
             else
             {
@@ -292,224 +523,111 @@ public class FourRowSolitaire extends SolitaireBoard implements ActionListener
                 return;
             }
         }
-        else if(e.getSource() == undo)
-        {
-            super.undoMove();
-        }
-        else if(e.getSource() == hint)
+        else if(e.getSource() == selectGame)
         {
-            super.getHint();
-        }
-        else if(e.getSource() == statistics)
-        {
-            String fileLocation = System.getProperty("user.home") + System.getProperty("file.separator") +
-                    "frs-statistics.dat";
+            String input = JOptionPane.showInputDialog(this, "Enter a game number:", "Select Game",
+                    JOptionPane.QUESTION_MESSAGE);
 
-            int count = 0, temp = 0;
-            int bestTime1e = 0, bestTime1m = 0, bestTime1h = 0,
-                bestTime3e = 0, bestTime3m = 0, bestTime3h = 0;
-            int gamesPlayed1e = 0, gamesWon1e = 0, winStreak1e = 0, lossStreak1e = 0,
-            currentStreak1e = 0;
-            int gamesPlayed1m = 0, gamesWon1m = 0, winStreak1m = 0, lossStreak1m = 0,
-            currentStreak1m = 0;
-            int gamesPlayed1h = 0, gamesWon1h = 0, winStreak1h = 0, lossStreak1h = 0,
-            currentStreak1h = 0;
-            int gamesPlayed3e = 0, gamesWon3e = 0, winStreak3e = 0, lossStreak3e = 0,
-            currentStreak3e = 0;
-            int gamesPlayed3m = 0, gamesWon3m = 0, winStreak3m = 0, lossStreak3m = 0,
-            currentStreak3m = 0;
-            int gamesPlayed3h = 0, gamesWon3h = 0, winStreak3h = 0, lossStreak3h = 0,
-            currentStreak3h = 0;
-
-            try
+            if(input == null)
             {
-                File file = new File(fileLocation);
-                file.createNewFile();
-                DataInputStream input = new DataInputStream(new FileInputStream(file));
-
-                while((input.available() > 0) && count < 37)
-                {
-                    temp = input.readInt();
-                    switch(count)
-                    {
-                        //case 0 is the format checker
-                        case 1: gamesPlayed1e = temp; break;
-                        case 2: gamesWon1e = temp; break;
-                        case 3: winStreak1e = temp; break;
-                        case 4: lossStreak1e = temp; break;
-                        case 5: currentStreak1e = temp; break;
-                        case 6: bestTime1e = temp; break;
-    
-                        case 7: gamesPlayed1m = temp; break;
-                        case 8: gamesWon1m = temp; break;
-                        case 9: winStreak1m = temp; break;
-                        case 10: lossStreak1m = temp; break;
-                        case 11: currentStreak1m = temp; break;
-                        case 12: bestTime1m = temp; break;
-    
-                        case 13: gamesPlayed1h = temp; break;
-                        case 14: gamesWon1h = temp; break;
-                        case 15: winStreak1h = temp; break;
-                        case 16: lossStreak1h = temp; break;
-                        case 17: currentStreak1h = temp; break;
-                        case 18: bestTime1h = temp; break;
-    
-                        case 19: gamesPlayed3e = temp; break;
-                        case 20: gamesWon3e = temp; break;
-                        case 21: winStreak3e = temp; break;
-                        case 22: lossStreak3e = temp; break;
-                        case 23: currentStreak3e = temp; break;
-                        case 24: bestTime3e = temp; break;
-    
-                        case 25: gamesPlayed3m = temp; break;
-                        case 26: gamesWon3m = temp; break;
-                        case 27: winStreak3m = temp; break;
-                        case 28: lossStreak3m = temp; break;
-                        case 29: currentStreak3m = temp; break;
-                        case 30: bestTime3m = temp; break;
-    
-                        case 31: gamesPlayed3h = temp; break;
-                        case 32: gamesWon3h = temp; break;
-                        case 33: winStreak3h = temp; break;
-                        case 34: lossStreak3h = temp; break;
-                        case 35: currentStreak3h = temp; break;
-                        case 36: bestTime3h = temp; break;
-
-                        default: ; break;
-                    }
-
-                    count++;
-                }
-
-                input.close();
-            }
-            catch(Exception ex)
-            {
-                System.out.println(ex);
+                return;
             }
 
-            int winPercentage1e;
-            int winPercentage1m;
-            int winPercentage1h;
-            int winPercentage3e;
-            int winPercentage3m;
-            int winPercentage3h;
-
-            if(gamesPlayed1e == 0)
-            {
-                winPercentage1e = 0;
-            }
-            else
-            {
-                winPercentage1e = 100 * gamesWon1e / gamesPlayed1e;
-            }
+            long number;
 
-            if(gamesPlayed1m == 0)
+            try
             {
-                winPercentage1m = 0;
+                number = Long.parseLong(input.trim());
             }
-            else
+            catch(NumberFormatException ex)
             {
-                winPercentage1m = 100 * gamesWon1m / gamesPlayed1m;
+                number = 0;
             }
 
-            if(gamesPlayed1h == 0)
-            {
-                winPercentage1h = 0;
-            }
-            else
+            if(number < Deals.FIRST_DEAL)
             {
-                winPercentage1h = 100 * gamesWon1h / gamesPlayed1h;
+                JOptionPane.showMessageDialog(this, "\"" + input + "\" is not a valid game number.",
+                        "Select Game", JOptionPane.ERROR_MESSAGE);
+                return;
             }
 
-            if(gamesPlayed3e == 0)
-            {
-                winPercentage3e = 0;
-            }
-            else
-            {
-                winPercentage3e = 100 * gamesWon3e / gamesPlayed3e;
-            }
+            int check = JOptionPane.showConfirmDialog(this, "Quitting the current game will result in a loss.\n" +
+                    "Do you wish to continue?", "Continue?", JOptionPane.OK_CANCEL_OPTION);
 
-            if(gamesPlayed3m == 0)
-            {
-                winPercentage3m = 0;
-            }
-            else
+            if(check == JOptionPane.YES_OPTION)
             {
-                winPercentage3m = 100 * gamesWon3m / gamesPlayed3m;
+                recordGame(GAME_LOST);
+                super.newGame(0, number);
             }
+        }
+        else if(e.getSource() == saveGame)
+        {
+            String name = JOptionPane.showInputDialog(this, "Save the game as:", "Save Game",
+                    JOptionPane.QUESTION_MESSAGE);
 
-            if(gamesPlayed3h == 0)
-            {
-                winPercentage3h = 0;
-            }
-            else
+            if(name != null && !name.trim().isEmpty())
             {
-                winPercentage3h = 100 * gamesWon3h / gamesPlayed3h;
+                super.saveToSlot(name.trim());
             }
-
-            JTextArea display = new JTextArea();
-            display.append("One-Card Draw (Easy)\t\tThree-Card Draw (Easy)\n" +
-            "Games Played: " + gamesPlayed1e + "\t\tGames Played: " + gamesPlayed3e +
-            "\nGames Won: " + gamesWon1e + "\t\t\tGames Won: " + gamesWon3e + "\n" +
-            "Win Percentage: " + winPercentage1e + "%\t\tWin Percentage: " + winPercentage3e +
-            "%\n\nBest Streak: " + winStreak1e + "\t\t\tBest Streak: " + winStreak3e + "\n" +
-            "Worst Streak: " + lossStreak1e + "\t\tWorst Streak: " + lossStreak3e + "\n" +
-            "Current Streak: " + currentStreak1e + "\t\tCurrent Streak: " + currentStreak3e + "\n" +
-            "Best Time: " + (bestTime1e / 60) + " m, " + (bestTime1e % 60) + " s" + "\t\t" + 
-            "Best Time: " + (bestTime3e / 60) + " m, " + (bestTime3e % 60) + " s" + "\n" + 
-            "===================================================================\n");
-
-            display.append("One-Card Draw (Medium)\t\tThree-Card Draw (Medium)\n" +
-            "Games Played: " + gamesPlayed1m + "\t\tGames Played: " + gamesPlayed3m +
-            "\nGames Won: " + gamesWon1m + "\t\t\tGames Won: " + gamesWon3m + "\n" +
-            "Win Percentage: " + winPercentage1m + "%\t\tWin Percentage: " + winPercentage3m +
-            "%\n\nBest Streak: " + winStreak1m + "\t\t\tBest Streak: " + winStreak3m + "\n" +
-            "Worst Streak: " + lossStreak1m + "\t\tWorst Streak: " + lossStreak3m + "\n" +
-            "Current Streak: " + currentStreak1m + "\t\tCurrent Streak: " + currentStreak3m + "\n" +
-            "Best Time: " + (bestTime1m / 60) + " m, " + (bestTime1m % 60) + " s" + "\t\t" + 
-            "Best Time: " + (bestTime3m / 60) + " m, " + (bestTime3m % 60) + " s" + "\n" + 
-            "===================================================================\n");
-
-            display.append("One-Card Draw (Hard)\t\tThree-Card Draw (Hard)\n" +
-            "Games Played: " + gamesPlayed1h + "\t\tGames Played: " + gamesPlayed3h +
-            "\nGames Won: " + gamesWon1h + "\t\t\tGames Won: " + gamesWon3h + "\n" +
-            "Win Percentage: " + winPercentage1h + "%\t\tWin Percentage: " + winPercentage3h +
-            "%\n\nBest Streak: " + winStreak1h + "\t\t\tBest Streak: " + winStreak3h + "\n" +
-            "Worst Streak: " + lossStreak1h + "\t\tWorst Streak: " + lossStreak3h + "\n" +
-            "Current Streak: " + currentStreak1h + "\t\tCurrent Streak: " + currentStreak3h + "\n" +
-            "Best Time: " + (bestTime1h / 60) + " m, " + (bestTime1h % 60) + " s" + "\t\t" + 
-            "Best Time: " + (bestTime3h / 60) + " m, " + (bestTime3h % 60) + " s" + "\n");
-            
-
-            display.setOpaque(false);
-            display.setBorder(null);
-            display.setFont(UIManager.getFont("Label.font"));
-
-            Object[] buttons = {"Close", "Reset"};
-            int check = JOptionPane.showOptionDialog(this, display, "Statistics", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE,
-                    null, buttons, buttons[0]);
-
-            if(check == 1)
+        }
+        else if(e.getSource() == loadGame)
+        {
+            //Choose once the slots are read, rather than wait for them
+            super.loadSaveSlots().whenComplete(new BiConsumer<List<SaveSlots.Slot>, Throwable>()
             {
-                //Reset stats
-                super.resetStats();
-            }
-            else
+                public void accept(List<SaveSlots.Slot> slots, Throwable failure)
+                {
+                    if(failure != null)
+                    {
+                        showFailure("The saved games could not be read.", failure);
+                    }
+                    else
+                    {
+                        chooseSavedGame(slots);
+                    }
+                }
+            });
+        }
+        else if(e.getSource() == undo)
+        {
+            super.undoMove();
+        }
+        else if(e.getSource() == redo)
+        {
+            super.redoMove();
+        }
+        else if(e.getSource() == hint)
+        {
+            super.getHint();
+        }
+        else if(e.getSource() == statistics)
+        {
+            //Show the statistics once they are read, rather than wait for them
+            super.loadStatistics().whenComplete(new BiConsumer<GameStatistics[], Throwable>()
             {
-                //Close
-                return;
-            }
+                public void accept(GameStatistics[] statistics, Throwable failure)
+                {
+                    if(failure != null)
+                    {
+                        showFailure("The statistics could not be read.", failure);
+                    }
+                    else
+                    {
+                        showStatistics(statistics);
+                    }
+                }
+            });
         }
         else if(e.getSource() == options)
         {
-            ChangeOptions co = new ChangeOptions(this, super.getNewDrawCount(), super.getTimerNextGameStatus(), super.getWinAnimationStatus(), super.getWinSoundsStatus(), super.getNewDifficulty());
+            ChangeOptions co = new ChangeOptions(this, super.getNewDrawCount(), super.getTimerNextGameStatus(), super.getWinAnimationStatus(), super.getWinSoundsStatus(), super.getCardSoundsStatus(), super.getNewDifficulty(), super.getWinnableDealsStatus());
             int drawCount = co.getDrawCount();
             int timerStatus = co.getTimer();
             int animationStatus = co.getAnimation();
             int soundsStatus = co.getSounds();
+            int cardSoundsStatus = co.getCardSounds();
             int difficulty = co.getDifficulty();
+            int winnableDeals = co.getWinnableDeals();
 
             if(drawCount != -1)
             {
@@ -517,7 +635,9 @@ public class FourRowSolitaire extends SolitaireBoard implements ActionListener
                 super.setTimerStatus(timerStatus);
                 super.setWinAnimationStatus(animationStatus);
                 super.setWinSoundsStatus(soundsStatus);
+                super.setCardSoundsStatus(cardSoundsStatus);
                 super.setNewDifficulty(difficulty);
+                super.setWinnableDealsStatus(winnableDeals);
             }
 
             super.saveOptions();
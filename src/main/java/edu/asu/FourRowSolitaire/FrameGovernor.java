@@ -0,0 +1,155 @@
+package edu.asu.FourRowSolitaire;
+
+/**
+ * Picks a quality level for an animation from how long its frames take to
+ * render, to hold a target frame rate on slow machines without giving up
+ * quality on fast ones.
+ * <p>
+ * The render time of each frame is smoothed, and once it has settled at a
+ * level the governor steps the level down if frames take more than
+ * {@link #HIGH_LOAD} of the frame time, or up if they take less than
+ * {@link #LOW_LOAD}. It steps down after a few frames but up only after a
+ * second in which every frame had time to spare, so a machine that can just
+ * keep up does not swing between levels. It also counts the frames shown
+ * each second.
+ */
+public class FrameGovernor
+{
+    /**
+     * The share of the frame time rendering may take before the level drops.
+     */
+    public static final double HIGH_LOAD = 0.75;
+
+    /**
+     * The share of the frame time under which the level rises.
+     */
+    public static final double LOW_LOAD = 0.35;
+
+    private static final int FRAMES_BEFORE_DROP = 8;
+    private static final int FRAMES_BEFORE_RISE = 60;
+
+    // each frame moves the smoothed render time 1/SMOOTHING of the way
+    private static final int SMOOTHING = 8;
+
+    private static final long SECOND = 1000000000L;
+
+    private final long frameNanos;
+    private final int maxLevel;
+
+    private int level;
+    private int framesAtLevel;
+    private int spareFrames;
+    private double renderNanos = -1;
+
+    private long fpsStart = -1;
+    private int framesThisSecond;
+    private int fps;
+
+    /**
+     * Constructs a governor that starts at the highest level.
+     *
+     * @param framesPerSecond the frame rate to hold
+     * @param levels the number of quality levels, numbered from 0 (lowest)
+     */
+    public FrameGovernor(int framesPerSecond, int levels)
+    {
+        frameNanos = SECOND / framesPerSecond;
+        maxLevel = levels - 1;
+        level = maxLevel;
+    }
+
+    /**
+     * Records how long a frame took to render.
+     *
+     * @param nanos the render time in nanoseconds
+     * @return true if the level changed
+     */
+    public boolean frameRendered(long nanos)
+    {
+        if (renderNanos < 0)
+            renderNanos = nanos;
+        else
+            renderNanos += (nanos - renderNanos) / SMOOTHING;
+
+        framesAtLevel++;
+
+        if (renderNanos < frameNanos * LOW_LOAD)
+            spareFrames++;
+        else
+            spareFrames = 0;
+
+        if (level > 0 && framesAtLevel >= FRAMES_BEFORE_DROP && renderNanos > frameNanos * HIGH_LOAD)
+        {
+            setLevel(level - 1);
+            return true;
+        }
+
+        if (level < maxLevel && spareFrames >= FRAMES_BEFORE_RISE)
+        {
+            setLevel(level + 1);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Records that a frame was shown, for counting the frames each second.
+     *
+     * @param now the time it was shown, from {@link System#nanoTime()}
+     */
+    public void frameShown(long now)
+    {
+        if (fpsStart < 0)
+            fpsStart = now;
+
+        framesThisSecond++;
+
+        if (now - fpsStart >= SECOND)
+        {
+            fps = (int) (framesThisSecond * SECOND / (now - fpsStart));
+            framesThisSecond = 0;
+            fpsStart = now;
+        }
+    }
+
+    /**
+     * Returns the quality level to render at.
+     *
+     * @return the level, from 0 (lowest) up
+     */
+    public int getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * Returns the frames shown in the last whole second.
+     *
+     * @return the frame rate, or 0 before a second has passed
+     */
+    public int getFps()
+    {
+        return fps;
+    }
+
+    /**
+     * Returns the smoothed render time of a frame.
+     *
+     * @return the render time in nanoseconds
+     */
+    public long getRenderNanos()
+    {
+        return (long) Math.max(renderNanos, 0);
+    }
+
+    private void setLevel(int newLevel)
+    {
+        level = newLevel;
+        framesAtLevel = 0;
+        spareFrames = 0;
+
+        // judge the new level on its own frames
+        renderNanos = -1;
+    }
+}
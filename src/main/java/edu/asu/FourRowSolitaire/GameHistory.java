@@ -0,0 +1,473 @@
+package edu.asu.FourRowSolitaire;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Every game played, kept in a file that only grows, with the totals for
+ * each mode kept up to date in its header.
+ * <p>
+ * The file is a {@link #HEADER_SIZE} byte header followed by one
+ * {@link GameRecord#SIZE} byte record per game, oldest first. The header is
+ * two slots, each holding a magic number, the version, the number of games
+ * its totals include, a generation number, the {@link GameStatistics} of
+ * each of the {@link #MODES} modes, in the order draw one easy, medium, hard,
+ * then draw three easy, medium, hard, and a CRC-32 of all that. Recording a
+ * game appends its record with one write and forces it to the disk, then
+ * writes the header into the older slot and forces that, so nothing else in
+ * the file is ever rewritten and a crash part way through a header leaves
+ * the other slot whole.
+ * <p>
+ * Opening the file uses the newest whole slot, drops any record that was not
+ * written whole, and adds the games the header is missing to its totals. If
+ * neither slot is whole, the totals are worked out again from the records.
+ * Resetting, and converting a file in the old format, write a new file and
+ * rename it over the old one. The format used before the history was kept
+ * only held the totals, which are kept when it is converted.
+ */
+public class GameHistory implements Closeable
+{
+    public static final int MODES = 6;
+
+    private static final int SLOT_SIZE = 256;
+    public static final int HEADER_SIZE = 2 * SLOT_SIZE;
+
+    private static final int MAGIC = 0x46525348; // "FRSH"
+    private static final int VERSION = 1;
+    private static final int SLOT_CRC = 16 + MODES * GameStatistics.SIZE;
+
+    // the old format: -1, then six ints for each mode, then the options
+    private static final int OLD_FORMAT = -1;
+    private static final int OLD_MODE_INTS = 6;
+
+    private final File path;
+    private RandomAccessFile file;
+    private FileChannel channel;
+
+    private final GameStatistics[] statistics = new GameStatistics[MODES];
+    private int games;
+    private int generation;
+
+    private final ByteBuffer header = ByteBuffer.allocate(SLOT_SIZE);
+    private final ByteBuffer record = ByteBuffer.allocate(GameRecord.SIZE);
+
+    private CrashPoint crashPoint = CrashPoint.NEVER;
+
+    /**
+     * Opens a history file, creating it if it does not exist and converting
+     * it if it is in the old format.
+     *
+     * @param path the history file
+     * @throws IOException if the file cannot be opened
+     */
+    public GameHistory(File path) throws IOException
+    {
+        this.path = path;
+
+        if (path.length() > 0 && !isHistory(path))
+            replace(path, readOldFormat(path), Collections.<GameRecord>emptyList(), CrashPoint.NEVER);
+
+        open();
+    }
+
+    /**
+     * Returns the mode a game is played in.
+     *
+     * @param drawCount 1 or 3
+     * @param difficulty 1 - 3
+     * @return the mode, from 0 to {@link #MODES} - 1
+     */
+    public static int getMode(int drawCount, int difficulty)
+    {
+        return (drawCount == 3 ? 3 : 0) + Math.max(0, Math.min(2, difficulty - 1));
+    }
+
+    /**
+     * Adds a game to the end of the history and to its mode's totals,
+     * returning once both are on the disk.
+     *
+     * @param game the game
+     * @throws IOException if it cannot be written
+     */
+    public synchronized void record(GameRecord game) throws IOException
+    {
+        record.clear();
+        game.write(record);
+        record.flip();
+
+        crashPoint.write(channel, record, HEADER_SIZE + (long) games * GameRecord.SIZE);
+        channel.force(false);
+
+        statistics[game.getMode()].add(game);
+        games++;
+
+        writeHeader();
+    }
+
+    /**
+     * Returns the totals of the games played in a mode.
+     *
+     * @param drawCount 1 or 3
+     * @param difficulty 1 - 3
+     * @return a copy of the totals
+     */
+    public synchronized GameStatistics getStatistics(int drawCount, int difficulty)
+    {
+        return statistics[getMode(drawCount, difficulty)].copy();
+    }
+
+    /**
+     * Returns the number of games recorded, not counting any carried over
+     * from the old format.
+     *
+     * @return the number of records
+     */
+    public synchronized int getGameCount()
+    {
+        return games;
+    }
+
+    /**
+     * Reads every game recorded.
+     *
+     * @return the games, oldest first
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized List<GameRecord> getGames() throws IOException
+    {
+        List<GameRecord> list = new ArrayList<GameRecord>(games);
+        ByteBuffer buffer = ByteBuffer.allocate(games * GameRecord.SIZE);
+
+        readFully(buffer, HEADER_SIZE);
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+            list.add(GameRecord.read(buffer));
+
+        return list;
+    }
+
+    /**
+     * Forgets every game and sets every total back to zero.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void reset() throws IOException
+    {
+        GameStatistics[] zero = new GameStatistics[MODES];
+
+        for (int mode = 0; mode < MODES; mode++)
+            zero[mode] = new GameStatistics();
+
+        file.close();
+
+        try
+        {
+            replace(path, zero, Collections.<GameRecord>emptyList(), crashPoint);
+        }
+        finally
+        {
+            open();
+        }
+    }
+
+    public synchronized void close() throws IOException
+    {
+        file.close();
+    }
+
+    /**
+     * Tests if a file is a game history, rather than in the old format.
+     *
+     * @param path the file
+     * @return true if either header slot starts with the history's magic
+     *         number
+     * @throws IOException if the file cannot be read
+     */
+    static boolean isHistory(File path) throws IOException
+    {
+        byte[] start = new byte[(int) Math.min(path.length(), HEADER_SIZE)];
+        DataInputStream input = new DataInputStream(new FileInputStream(path));
+
+        try
+        {
+            input.readFully(start);
+        }
+        finally
+        {
+            input.close();
+        }
+
+        ByteBuffer bytes = ByteBuffer.wrap(start);
+
+        return (bytes.limit() >= 4 && bytes.getInt(0) == MAGIC) ||
+               (bytes.limit() >= SLOT_SIZE + 4 && bytes.getInt(SLOT_SIZE) == MAGIC);
+    }
+
+    /**
+     * Makes the following writes crash after a number of bytes, for testing.
+     */
+    synchronized void setCrashPoint(CrashPoint crashPoint)
+    {
+        this.crashPoint = crashPoint;
+    }
+
+    private void open() throws IOException
+    {
+        file = new RandomAccessFile(path, "rw");
+        channel = file.getChannel();
+
+        try
+        {
+            readHeader();
+            catchUp();
+        }
+        catch (IOException ex)
+        {
+            file.close();
+            throw ex;
+        }
+    }
+
+    /*
+     * Takes the totals from the newest whole slot, or starts from nothing if
+     * neither is whole.
+     */
+    private void readHeader() throws IOException
+    {
+        boolean found = false;
+
+        for (int slot = 0; slot < 2; slot++)
+        {
+            if (channel.size() < (slot + 1) * SLOT_SIZE)
+                break;
+
+            header.clear();
+            readFully(header, slot * SLOT_SIZE);
+
+            if (isWholeSlot(header) && (!found || header.getInt(12) > generation))
+            {
+                found = true;
+                games = header.getInt(8);
+                generation = header.getInt(12);
+                header.position(16);
+
+                for (int mode = 0; mode < MODES; mode++)
+                    statistics[mode] = GameStatistics.read(header);
+            }
+        }
+
+        if (!found)
+        {
+            if (channel.size() > 0)
+                System.err.println("The header of " + path + " was damaged; adding up the games again");
+
+            games = 0;
+            generation = -1;
+
+            for (int mode = 0; mode < MODES; mode++)
+                statistics[mode] = new GameStatistics();
+        }
+    }
+
+    /*
+     * Drops records not written whole, and adds the games appended after the
+     * header was last written.
+     */
+    private void catchUp() throws IOException
+    {
+        long size = channel.size();
+        int stored = (int) Math.max(0, (size - HEADER_SIZE) / GameRecord.SIZE);
+
+        // the records the header counts reached the disk before it did, so
+        // if there are fewer the file was cut short, and the totals keep the
+        // games that were lost
+        int whole = Math.min(games, stored);
+
+        for (; whole < stored; whole++)
+        {
+            record.clear();
+            readFully(record, HEADER_SIZE + (long) whole * GameRecord.SIZE);
+            record.flip();
+
+            if (!GameRecord.isWhole(record))
+                break;
+
+            GameRecord game = GameRecord.read(record);
+            statistics[game.getMode()].add(game);
+        }
+
+        if (size > HEADER_SIZE + (long) whole * GameRecord.SIZE)
+            channel.truncate(HEADER_SIZE + (long) whole * GameRecord.SIZE);
+
+        if (whole != games || generation < 1)
+        {
+            games = whole;
+
+            // both slots, so that a new file has two whole ones
+            writeHeader();
+            writeHeader();
+        }
+    }
+
+    /*
+     * Writes the header into the older slot.
+     */
+    private void writeHeader() throws IOException
+    {
+        generation++;
+
+        header.clear();
+        fillSlot(header, games, generation, statistics);
+        header.flip();
+
+        crashPoint.write(channel, header, (generation & 1) * SLOT_SIZE);
+        channel.force(false);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException();
+        }
+    }
+
+    private static void fillSlot(ByteBuffer slot, int games, int generation, GameStatistics[] statistics)
+    {
+        int start = slot.position();
+
+        slot.putInt(MAGIC);
+        slot.putInt(VERSION);
+        slot.putInt(games);
+        slot.putInt(generation);
+
+        for (int mode = 0; mode < MODES; mode++)
+            statistics[mode].write(slot);
+
+        slot.putInt(crc(slot.array(), start, SLOT_CRC));
+
+        while (slot.position() < start + SLOT_SIZE)
+            slot.put((byte) 0);
+    }
+
+    private static boolean isWholeSlot(ByteBuffer slot)
+    {
+        return slot.getInt(0) == MAGIC && slot.getInt(4) == VERSION &&
+               slot.getInt(SLOT_CRC) == crc(slot.array(), 0, SLOT_CRC);
+    }
+
+    private static int crc(byte[] bytes, int start, int length)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, start, length);
+        return (int) crc.getValue();
+    }
+
+    /*
+     * Writes a new history with the given totals and records, forces it to
+     * the disk, and renames it over the file.
+     */
+    private static void replace(File path, GameStatistics[] totals, List<GameRecord> records,
+                                CrashPoint crashPoint) throws IOException
+    {
+        File replacement = new File(path.getPath() + ".new");
+        ByteBuffer contents = ByteBuffer.allocate(HEADER_SIZE + records.size() * GameRecord.SIZE);
+
+        fillSlot(contents, records.size(), 0, totals);
+        fillSlot(contents, records.size(), 1, totals);
+
+        for (GameRecord game : records)
+            game.write(contents);
+
+        contents.flip();
+
+        FileChannel channel = FileChannel.open(replacement.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        try
+        {
+            crashPoint.write(channel, contents, 0);
+            channel.force(true);
+        }
+        finally
+        {
+            channel.close();
+        }
+
+        crashPoint.step();
+        AtomicFile.move(replacement, path);
+        AtomicFile.forceDirectory(path);
+    }
+
+    /**
+     * Reads the totals from a file in the old format. That is either -1
+     * followed by played, won, best streak, worst streak, current streak and
+     * best time for each mode, or, in the oldest files, the first five of
+     * those for draw one medium alone.
+     *
+     * @param path the old file
+     * @return the totals of each mode
+     * @throws IOException if the file cannot be read
+     */
+    static GameStatistics[] readOldFormat(File path) throws IOException
+    {
+        int[] ints = new int[1 + MODES * OLD_MODE_INTS];
+        int count = 0;
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+
+        try
+        {
+            while (count < ints.length)
+            {
+                ints[count] = input.readInt();
+                count++;
+            }
+        }
+        catch (EOFException ex)
+        {
+            // a short file just has fewer totals
+        }
+        finally
+        {
+            input.close();
+        }
+
+        GameStatistics[] totals = new GameStatistics[MODES];
+
+        for (int mode = 0; mode < MODES; mode++)
+            totals[mode] = new GameStatistics();
+
+        if (count > 0 && ints[0] == OLD_FORMAT)
+        {
+            for (int mode = 0; mode < MODES; mode++)
+            {
+                int at = 1 + mode * OLD_MODE_INTS;
+
+                totals[mode] = new GameStatistics(ints[at], ints[at + 1], ints[at + 4], ints[at + 2],
+                                                  ints[at + 3], ints[at + 5]);
+            }
+        }
+        else if (count > 0)
+        {
+            totals[getMode(1, 2)] = new GameStatistics(ints[0], ints[1], ints[4], ints[2], ints[3], 0);
+        }
+
+        return totals;
+    }
+}
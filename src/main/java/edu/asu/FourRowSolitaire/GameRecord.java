@@ -0,0 +1,165 @@
+package edu.asu.FourRowSolitaire;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * One finished game as it is kept in the {@link GameHistory}: which deal was
+ * played in which mode, whether it was won, how long it took and when it
+ * ended.
+ * <p>
+ * A record is stored in {@link #SIZE} bytes: the deal number and the time it
+ * ended as {@code long}s, the seconds and moves taken as {@code int}s, then
+ * one byte each for the draw count, the difficulty and the result, then a
+ * zero byte and a CRC-32 of the bytes before it, so a record that was only
+ * partly written can be told from a whole one.
+ */
+public final class GameRecord
+{
+    public static final int SIZE = 32;
+
+    private static final int CRC_OFFSET = SIZE - 4;
+
+    private final long dealNumber;
+    private final int drawCount;
+    private final int difficulty;
+    private final boolean won;
+    private final int seconds;
+    private final int moves;
+    private final long timestamp;
+
+    /**
+     * Constructs a record of a game.
+     *
+     * @param dealNumber the deal played, or 0 if not known
+     * @param drawCount 1 or 3
+     * @param difficulty 1 - 3
+     * @param won true if the game was won, false if it was lost
+     * @param seconds the time on the game timer when it ended
+     * @param moves the moves made, not counting those undone
+     * @param timestamp when the game ended, from
+     *        {@link System#currentTimeMillis()}
+     */
+    public GameRecord(long dealNumber, int drawCount, int difficulty, boolean won, int seconds, int moves,
+                      long timestamp)
+    {
+        this.dealNumber = dealNumber;
+        this.drawCount = drawCount;
+        this.difficulty = difficulty;
+        this.won = won;
+        this.seconds = seconds;
+        this.moves = moves;
+        this.timestamp = timestamp;
+    }
+
+    public long getDealNumber()
+    {
+        return dealNumber;
+    }
+
+    public int getDrawCount()
+    {
+        return drawCount;
+    }
+
+    public int getDifficulty()
+    {
+        return difficulty;
+    }
+
+    public boolean isWon()
+    {
+        return won;
+    }
+
+    public int getSeconds()
+    {
+        return seconds;
+    }
+
+    public int getMoves()
+    {
+        return moves;
+    }
+
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * Returns the mode the game was played in, in the order draw one easy,
+     * medium, hard, then draw three easy, medium, hard.
+     *
+     * @return the mode, from 0 to {@link GameHistory#MODES} - 1
+     */
+    public int getMode()
+    {
+        return GameHistory.getMode(drawCount, difficulty);
+    }
+
+    /**
+     * Writes the record at the buffer's position, moving the position past
+     * it.
+     *
+     * @param buffer where to write it, with {@link #SIZE} bytes remaining
+     */
+    void write(ByteBuffer buffer)
+    {
+        int start = buffer.position();
+
+        buffer.putLong(dealNumber);
+        buffer.putLong(timestamp);
+        buffer.putInt(seconds);
+        buffer.putInt(moves);
+        buffer.put((byte) drawCount);
+        buffer.put((byte) difficulty);
+        buffer.put((byte) (won ? 1 : 0));
+        buffer.put((byte) 0);
+        buffer.putInt(crc(buffer, start));
+    }
+
+    /**
+     * Tests if the record at the buffer's position was written whole.
+     *
+     * @param buffer the record, with {@link #SIZE} bytes remaining
+     * @return true if its CRC matches
+     */
+    static boolean isWhole(ByteBuffer buffer)
+    {
+        return buffer.getInt(buffer.position() + CRC_OFFSET) == crc(buffer, buffer.position());
+    }
+
+    /**
+     * Reads a record from the buffer's position, moving the position past it.
+     *
+     * @param buffer where to read it, with {@link #SIZE} bytes remaining
+     * @return the record
+     */
+    static GameRecord read(ByteBuffer buffer)
+    {
+        int start = buffer.position();
+
+        long dealNumber = buffer.getLong();
+        long timestamp = buffer.getLong();
+        int seconds = buffer.getInt();
+        int moves = buffer.getInt();
+        int drawCount = buffer.get();
+        int difficulty = buffer.get();
+        boolean won = buffer.get() != 0;
+
+        buffer.position(start + SIZE);
+
+        return new GameRecord(dealNumber, drawCount, difficulty, won, seconds, moves, timestamp);
+    }
+
+    private static int crc(ByteBuffer buffer, int start)
+    {
+        CRC32 crc = new CRC32();
+
+        for (int i = start; i < start + CRC_OFFSET; i++)
+            crc.update(buffer.get(i));
+
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,158 @@
+package edu.asu.FourRowSolitaire;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The totals of the games played in one mode: games played and won, the
+ * streaks and the best time. They are worked out from the games one at a
+ * time by {@link #add(GameRecord)}, which is the only place the rules for
+ * streaks and best times live.
+ * <p>
+ * Streaks count up for wins and down for losses, so the current streak is
+ * positive after a win and negative after a loss, and the worst streak is
+ * the most negative the current streak has been.
+ */
+public final class GameStatistics
+{
+    /**
+     * The bytes {@link #write(ByteBuffer)} takes: six {@code int}s.
+     */
+    public static final int SIZE = 6 * 4;
+
+    private int gamesPlayed;
+    private int gamesWon;
+    private int currentStreak;
+    private int bestStreak;
+    private int worstStreak;
+    private int bestTime;
+
+    /**
+     * Constructs the totals of no games.
+     */
+    public GameStatistics()
+    {
+    }
+
+    /**
+     * Constructs totals carried over from somewhere else, such as the old
+     * statistics file.
+     */
+    GameStatistics(int gamesPlayed, int gamesWon, int currentStreak, int bestStreak, int worstStreak, int bestTime)
+    {
+        this.gamesPlayed = gamesPlayed;
+        this.gamesWon = gamesWon;
+        this.currentStreak = currentStreak;
+        this.bestStreak = bestStreak;
+        this.worstStreak = worstStreak;
+        this.bestTime = bestTime;
+    }
+
+    /**
+     * Adds a game to the totals.
+     *
+     * @param game the game
+     */
+    public void add(GameRecord game)
+    {
+        gamesPlayed++;
+
+        if (game.isWon())
+        {
+            gamesWon++;
+            currentStreak = currentStreak >= 0 ? currentStreak + 1 : 1;
+            bestStreak = Math.max(bestStreak, currentStreak);
+
+            // a game played with the timer off has no time
+            if (game.getSeconds() > 0 && (bestTime == 0 || game.getSeconds() < bestTime))
+                bestTime = game.getSeconds();
+        }
+        else
+        {
+            currentStreak = currentStreak <= 0 ? currentStreak - 1 : -1;
+            worstStreak = Math.min(worstStreak, currentStreak);
+        }
+    }
+
+    public int getGamesPlayed()
+    {
+        return gamesPlayed;
+    }
+
+    public int getGamesWon()
+    {
+        return gamesWon;
+    }
+
+    /**
+     * Returns the share of games won.
+     *
+     * @return the percentage, rounded down, or 0 if no games were played
+     */
+    public int getWinPercentage()
+    {
+        return gamesPlayed == 0 ? 0 : (int) (100L * gamesWon / gamesPlayed);
+    }
+
+    public int getCurrentStreak()
+    {
+        return currentStreak;
+    }
+
+    public int getBestStreak()
+    {
+        return bestStreak;
+    }
+
+    public int getWorstStreak()
+    {
+        return worstStreak;
+    }
+
+    /**
+     * Returns the shortest time a game was won in.
+     *
+     * @return the time in seconds, or 0 if no game was won with the timer on
+     */
+    public int getBestTime()
+    {
+        return bestTime;
+    }
+
+    /**
+     * Returns a copy of the totals, which later games do not change.
+     *
+     * @return the copy
+     */
+    GameStatistics copy()
+    {
+        return new GameStatistics(gamesPlayed, gamesWon, currentStreak, bestStreak, worstStreak, bestTime);
+    }
+
+    /**
+     * Writes the totals at the buffer's position, moving the position past
+     * them.
+     *
+     * @param buffer where to write them, with {@link #SIZE} bytes remaining
+     */
+    void write(ByteBuffer buffer)
+    {
+        buffer.putInt(gamesPlayed);
+        buffer.putInt(gamesWon);
+        buffer.putInt(currentStreak);
+        buffer.putInt(bestStreak);
+        buffer.putInt(worstStreak);
+        buffer.putInt(bestTime);
+    }
+
+    /**
+     * Reads totals from the buffer's position, moving the position past them.
+     *
+     * @param buffer where to read them, with {@link #SIZE} bytes remaining
+     * @return the totals
+     */
+    static GameStatistics read(ByteBuffer buffer)
+    {
+        return new GameStatistics(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                                  buffer.getInt(), buffer.getInt());
+    }
+}
@@ -0,0 +1,360 @@
+package edu.asu.FourRowSolitaire;
+
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Decodes the images the board draws first on a pool of worker threads while
+ * the game reads its settings and builds the board, so start up does not wait
+ * for each image in turn.
+ * <p>
+ * On the first run every card image is decoded in parallel and then packed
+ * into the {@link CardAtlas}; later runs only read the saved atlas. The
+ * selected background is decoded as soon as the settings name it. The board
+ * calls {@link #awaitImages()} before it is shown, and {@link StartupSplash}
+ * shows the progress until then.
+ * <p>
+ * The time from start up to the first frame of the board is printed for
+ * tuning cold starts, but only when {@code -Dfrs.startupTiming} is set.
+ */
+public final class ImagePreloader
+{
+    private static ImagePreloader instance;
+
+    // -Dfrs.startupTiming=true prints how long start up took
+    private static final boolean PRINT_TIMING = Boolean.getBoolean("frs.startupTiming");
+
+    /*
+     * Backgrounds by number, decoding or decoded. Used by SolitairePanel
+     * whether or not the preloader was started.
+     */
+    private static final ConcurrentHashMap<Integer, Future<Image>> backgrounds =
+            new ConcurrentHashMap<Integer, Future<Image>>();
+
+    private final ExecutorService pool;
+
+    private final long startNanos = System.nanoTime();
+    private volatile long firstFrameMillis = -1;
+
+    private final AtomicInteger done = new AtomicInteger();
+    private final int total;
+
+    private final Future<?> atlas;
+    private volatile Future<Image> background;
+
+    private ImagePreloader()
+    {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        pool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "Image preloader " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        if (CardAtlas.getFile().isFile())
+        {
+            // the atlas and the background
+            total = 2;
+            atlas = pool.submit(new Runnable()
+            {
+                public void run()
+                {
+                    CardAtlas.getInstance();
+                    done.incrementAndGet();
+                }
+            });
+        }
+        else
+        {
+            // every card image, packing the atlas and the background
+            total = CardImageCache.NUM_SLOTS + 2;
+            atlas = packAtlas();
+        }
+    }
+
+    /**
+     * Starts preloading the card images, if it has not been started yet.
+     *
+     * @return the preloader
+     */
+    public static synchronized ImagePreloader start()
+    {
+        if (instance == null)
+            instance = new ImagePreloader();
+
+        return instance;
+    }
+
+    /**
+     * Returns the preloader, or null if it was not started.
+     *
+     * @return the preloader
+     */
+    public static synchronized ImagePreloader getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Starts decoding a background, if the preloader was started.
+     *
+     * @param number the background number
+     */
+    public static void preloadBackground(int number)
+    {
+        ImagePreloader preloader = getInstance();
+
+        if (preloader == null || preloader.background != null)
+            return;
+
+        FutureTask<Image> task = new FutureTask<Image>(new BackgroundDecoder(number, preloader));
+        Future<Image> existing = backgrounds.putIfAbsent(number, task);
+
+        if (existing == null)
+        {
+            preloader.pool.execute(task);
+            preloader.background = task;
+        }
+        else
+        {
+            preloader.background = existing;
+            preloader.done.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns a background, waiting for it if it is being preloaded and
+     * decoding it on this thread if it is not.
+     *
+     * @param number the background number
+     * @return the background image, or null if there is no such background
+     */
+    public static Image getBackground(int number)
+    {
+        Future<Image> image = backgrounds.get(number);
+
+        if (image == null)
+        {
+            FutureTask<Image> task = new FutureTask<Image>(new BackgroundDecoder(number, null));
+            image = backgrounds.putIfAbsent(number, task);
+
+            if (image == null)
+            {
+                task.run();
+                image = task;
+            }
+        }
+
+        return get(image);
+    }
+
+    /**
+     * Waits until the atlas and the selected background are ready, if the
+     * preloader was started.
+     */
+    public static void awaitImages()
+    {
+        ImagePreloader preloader = getInstance();
+
+        if (preloader == null)
+            return;
+
+        get(preloader.atlas);
+
+        if (preloader.background != null)
+            get(preloader.background);
+    }
+
+    /**
+     * Records that the board was drawn for the first time, and prints how
+     * long start up took if the frs.startupTiming system property is set.
+     * Later calls do nothing.
+     */
+    public static void frameShown()
+    {
+        ImagePreloader preloader = getInstance();
+
+        if (preloader == null || preloader.firstFrameMillis >= 0)
+            return;
+
+        preloader.firstFrameMillis = (System.nanoTime() - preloader.startNanos) / 1000000;
+
+        if (!PRINT_TIMING)
+            return;
+
+        long sinceLaunch = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+
+        System.out.println("Time to first frame: " + sinceLaunch + " ms since launch, " +
+                           preloader.firstFrameMillis + " ms since the preloader started (" +
+                           CardImageCache.getMisses() + " card images decoded in " +
+                           CardImageCache.getDecodeNanos() / 1000000 + " ms of worker time)");
+    }
+
+    /**
+     * Returns the number of images decoded or packed so far.
+     *
+     * @return the number of finished steps
+     */
+    public int getProgress()
+    {
+        return Math.min(done.get(), total);
+    }
+
+    /**
+     * Returns the number of steps needed before the board can be shown.
+     *
+     * @return the number of steps
+     */
+    public int getTotal()
+    {
+        return total;
+    }
+
+    /**
+     * Returns the time from the preloader starting to the first frame of the
+     * board.
+     *
+     * @return the time in milliseconds, or -1 if the board has not been drawn
+     */
+    public long getTimeToFirstFrame()
+    {
+        return firstFrameMillis;
+    }
+
+    /**
+     * Decodes every card image in parallel, then packs the atlas from them
+     * once the last one is done.
+     */
+    private Future<?> packAtlas()
+    {
+        final CountDownLatch decoded = new CountDownLatch(CardImageCache.NUM_SLOTS);
+
+        for (int slot = 0; slot < CardImageCache.NUM_SLOTS; slot++)
+        {
+            final int s = slot;
+
+            pool.execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        CardImageCache.getImage(s);
+                        done.incrementAndGet();
+                    }
+                    finally
+                    {
+                        decoded.countDown();
+                    }
+                }
+            });
+        }
+
+        // queued behind every decode, so the workers it waits for have started
+        return pool.submit(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    decoded.await();
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                CardAtlas.getInstance();
+                done.incrementAndGet();
+            }
+        });
+    }
+
+    private static <T> T get(Future<T> future)
+    {
+        boolean interrupted = false;
+
+        try
+        {
+            while (true)
+            {
+                try
+                {
+                    return future.get();
+                }
+                catch (InterruptedException ex)
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        catch (ExecutionException ex)
+        {
+            throw new IllegalStateException("Error occurred when preloading images.", ex.getCause());
+        }
+        finally
+        {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class BackgroundDecoder implements Callable<Image>
+    {
+        private final int number;
+        private final ImagePreloader preloader;
+
+        BackgroundDecoder(int number, ImagePreloader preloader)
+        {
+            this.number = number;
+            this.preloader = preloader;
+        }
+
+        public Image call()
+        {
+            try
+            {
+                URL imageURL = getClass().getClassLoader().getResource("images/backgrounds/background" + number + ".jpg");
+
+                if (imageURL == null)
+                    return null;
+
+                BufferedImage image = ImageIO.read(imageURL);
+                return image == null ? null : CardAtlas.toCompatibleImage(image, Transparency.OPAQUE);
+            }
+            catch (IOException ex)
+            {
+                System.err.println("Error occurred when reading background " + number + ".");
+                return null;
+            }
+            finally
+            {
+                if (preloader != null)
+                    preloader.done.incrementAndGet();
+            }
+        }
+    }
+}
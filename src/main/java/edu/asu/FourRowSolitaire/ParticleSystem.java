@@ -0,0 +1,295 @@
+package edu.asu.FourRowSolitaire;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.Random;
+
+/**
+ * The rockets and sparks of the win animation, kept as parallel arrays of
+ * primitives in a pool of fixed size. Nothing is allocated after the pool is
+ * made: a launch or a burst fills the next free slots, and a particle that
+ * burns out is replaced by the last one in use, so the particles in use are
+ * always the first {@link #getCount()} slots.
+ * <p>
+ * A rocket flies in a straight line until its life runs out, then bursts
+ * into sparks of its color. Sparks fall under gravity, slow with drag and
+ * fade to black as they burn out. Positions are in pixels and times in
+ * seconds, and {@link #update(float)} is meant to be called with a fixed time
+ * step.
+ */
+public final class ParticleSystem
+{
+    /**
+     * The colors particles can be, by color index. These are shared so that
+     * drawing never makes a Color.
+     */
+    public static final Color[] PALETTE = {
+        Color.RED, Color.BLUE, Color.YELLOW, Color.GREEN, Color.ORANGE,
+        Color.CYAN, Color.MAGENTA, Color.PINK, Color.WHITE, new Color(153, 50, 205)
+    };
+
+    private static final byte ROCKET = 0;
+    private static final byte SPARK = 1;
+
+    private static final float GRAVITY = 90;        // pixels per second per second
+    private static final float DRAG = 0.9f;         // speed kept each second
+    private static final float MAX_SPARK_SPEED = 160;
+    private static final float MIN_SPARK_LIFE = 1.0f;
+    private static final float MAX_SPARK_LIFE = 1.8f;
+    private static final float FADE_TIME = 0.6f;    // sparks fade over their last FADE_TIME seconds
+    private static final int ROCKET_SIZE = 5;
+
+    /**
+     * The seconds of movement drawn behind a spark, unless set otherwise.
+     */
+    public static final float DEFAULT_TRAIL = 0.04f;
+
+    /*
+     * Each color faded toward the black background in steps, the last being
+     * the color itself. These are opaque, since drawing a translucent line
+     * allocates a mask on every call.
+     */
+    private static final int FADE_LEVELS = 8;
+    private static final Color[][] FADED = new Color[PALETTE.length][FADE_LEVELS];
+
+    static
+    {
+        for (int c = 0; c < PALETTE.length; c++)
+            for (int level = 0; level < FADE_LEVELS; level++)
+            {
+                Color color = PALETTE[c];
+                int brightness = level + 1;
+
+                FADED[c][level] = new Color(color.getRed() * brightness / FADE_LEVELS,
+                                            color.getGreen() * brightness / FADE_LEVELS,
+                                            color.getBlue() * brightness / FADE_LEVELS);
+            }
+    }
+
+    private final int capacity;
+    private final int sparksPerBurst;
+
+    private final float[] x;
+    private final float[] y;
+    private final float[] vx;
+    private final float[] vy;
+    private final float[] life;
+    private final byte[] color;
+    private final byte[] kind;
+
+    private int count;
+
+    private final Random random;
+
+    // how much of the full effect to draw, set by the animation to keep up
+    private float sparkShare = 1;
+    private float trail = DEFAULT_TRAIL;
+    private boolean fade = true;
+
+    /**
+     * Constructs an empty particle system.
+     *
+     * @param capacity the most particles alive at once
+     * @param sparksPerBurst the number of sparks each rocket bursts into
+     * @param random where burst directions and spark lives come from
+     */
+    public ParticleSystem(int capacity, int sparksPerBurst, Random random)
+    {
+        this.capacity = capacity;
+        this.sparksPerBurst = sparksPerBurst;
+        this.random = random;
+
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        life = new float[capacity];
+        color = new byte[capacity];
+        kind = new byte[capacity];
+    }
+
+    /**
+     * Launches a rocket that bursts when it reaches a point.
+     *
+     * @param fromX where it starts
+     * @param fromY where it starts
+     * @param toX where it bursts
+     * @param toY where it bursts
+     * @param flightTime how long it takes to get there, in seconds
+     * @param colorIndex the index of its color in {@link #PALETTE}
+     * @return false if the pool is full, so it was not launched
+     */
+    public boolean launch(float fromX, float fromY, float toX, float toY, float flightTime, int colorIndex)
+    {
+        if (count == capacity)
+            return false;
+
+        add(ROCKET, fromX, fromY, (toX - fromX) / flightTime, (toY - fromY) / flightTime, flightTime, colorIndex);
+        return true;
+    }
+
+    /**
+     * Moves every particle on by a time step, bursting the rockets that
+     * arrive and removing the sparks that burn out.
+     *
+     * @param dt the time step in seconds
+     */
+    public void update(float dt)
+    {
+        float drag = 1 - (1 - DRAG) * dt;
+
+        // backwards, so that the particle moved into a removed one's slot
+        // and the sparks of a burst, which go on the end, are not updated twice
+        for (int i = count - 1; i >= 0; i--)
+        {
+            if (kind[i] == SPARK)
+            {
+                vx[i] *= drag;
+                vy[i] = vy[i] * drag + GRAVITY * dt;
+            }
+
+            x[i] += vx[i] * dt;
+            y[i] += vy[i] * dt;
+            life[i] -= dt;
+
+            if (life[i] <= 0)
+            {
+                if (kind[i] == ROCKET)
+                    burst(i);
+
+                remove(i);
+            }
+        }
+    }
+
+    /**
+     * Draws every particle.
+     *
+     * @param g the graphics context to draw with
+     */
+    public void draw(Graphics g)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            int px = (int) x[i];
+            int py = (int) y[i];
+
+            if (kind[i] == ROCKET)
+            {
+                g.setColor(PALETTE[color[i]]);
+                g.drawRect(px, py, ROCKET_SIZE, ROCKET_SIZE);
+            }
+            else
+            {
+                int level = FADE_LEVELS - 1;
+
+                if (fade)
+                    level = Math.min(level, (int) (life[i] / FADE_TIME * FADE_LEVELS));
+
+                g.setColor(FADED[color[i]][level]);
+                g.drawLine(px, py, (int) (x[i] - vx[i] * trail), (int) (y[i] - vy[i] * trail));
+            }
+        }
+    }
+
+    /**
+     * Removes every particle.
+     */
+    public void clear()
+    {
+        count = 0;
+    }
+
+    /**
+     * Returns the number of particles alive.
+     *
+     * @return the number of rockets and sparks
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Sets the share of its sparks each rocket bursts into from now on.
+     *
+     * @param share from 0 to 1
+     */
+    public void setSparkShare(float share)
+    {
+        sparkShare = share;
+    }
+
+    /**
+     * Sets the length of the trail drawn behind each spark.
+     *
+     * @param seconds the seconds of movement drawn, or 0 to draw a point
+     */
+    public void setTrail(float seconds)
+    {
+        trail = seconds;
+    }
+
+    /**
+     * Sets whether sparks fade as they burn out, or keep their color.
+     *
+     * @param fade true to fade sparks
+     */
+    public void setFade(boolean fade)
+    {
+        this.fade = fade;
+    }
+
+    /**
+     * Fills free slots with sparks flying out from a rocket in every
+     * direction, as many as there is room for.
+     */
+    private void burst(int rocket)
+    {
+        int sparks = Math.round(sparksPerBurst * sparkShare);
+
+        for (int j = 0; j < sparks && count < capacity; j++)
+        {
+            // uniform over a disc, so the burst is not bunched in the middle
+            double angle = random.nextDouble() * 2 * Math.PI;
+            float speed = MAX_SPARK_SPEED * (float) Math.sqrt(random.nextDouble());
+            float sparkLife = MIN_SPARK_LIFE + random.nextFloat() * (MAX_SPARK_LIFE - MIN_SPARK_LIFE);
+
+            add(SPARK, x[rocket], y[rocket], speed * (float) Math.cos(angle), speed * (float) Math.sin(angle),
+                sparkLife, color[rocket]);
+        }
+    }
+
+    private void add(byte type, float px, float py, float dx, float dy, float time, int colorIndex)
+    {
+        x[count] = px;
+        y[count] = py;
+        vx[count] = dx;
+        vy[count] = dy;
+        life[count] = time;
+        color[count] = (byte) colorIndex;
+        kind[count] = type;
+        count++;
+    }
+
+    /*
+     * Moves the last particle into a slot, freeing the last slot.
+     */
+    private void remove(int i)
+    {
+        int last = --count;
+
+        x[i] = x[last];
+        y[i] = y[last];
+        vx[i] = vx[last];
+        vy[i] = vy[last];
+        life[i] = life[last];
+        color[i] = color[last];
+        kind[i] = kind[last];
+    }
+}
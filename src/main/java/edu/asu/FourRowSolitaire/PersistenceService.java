@@ -0,0 +1,243 @@
+package edu.asu.FourRowSolitaire;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Does the game's file reading and writing on one background thread, so the
+ * event thread never waits on the disk.
+ * <p>
+ * Work runs in the order it is handed in, one piece at a time, so there is
+ * only ever one writer. A write is given a key naming what it writes, and
+ * replaces any write with the same key that has not started yet, so a burst
+ * of changes to the same file is written once, with the last of them.
+ * Whoever handed in a write that was replaced is told it is done when the
+ * one replacing it is.
+ * <p>
+ * The futures returned are completed on the event thread, so whatever is
+ * chained onto them can touch the window.
+ */
+public final class PersistenceService
+{
+    /**
+     * A piece of writing.
+     */
+    public interface Write
+    {
+        void run() throws Exception;
+    }
+
+    private static PersistenceService instance;
+
+    private final ExecutorService thread;
+
+    // writes waiting to start, by key
+    private final Map<String, PendingWrite> pending = new HashMap<String, PendingWrite>();
+    private int coalesced;
+
+    /**
+     * Constructs a service with its own thread.
+     */
+    PersistenceService()
+    {
+        thread = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread persistence = new Thread(r, "Persistence");
+                persistence.setDaemon(true);
+                return persistence;
+            }
+        });
+    }
+
+    /**
+     * Starts the service, if it has not been started already.
+     *
+     * @return the service
+     */
+    public static synchronized PersistenceService start()
+    {
+        if (instance == null)
+            instance = new PersistenceService();
+
+        return instance;
+    }
+
+    /**
+     * Returns the service, starting it if it has not been started.
+     *
+     * @return the service
+     */
+    public static PersistenceService getInstance()
+    {
+        return start();
+    }
+
+    /**
+     * Runs a task after the work already handed in. Returns without waiting.
+     *
+     * @param task the task
+     * @return its result, completed on the event thread
+     */
+    public <T> CompletableFuture<T> submit(final Callable<T> task)
+    {
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+
+        thread.execute(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    complete(result, task.call(), null);
+                }
+                catch (Exception ex)
+                {
+                    complete(result, null, ex);
+                }
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Runs a write after the work already handed in, unless a later write
+     * with the same key is handed in before it starts, in which case only
+     * that one runs. Returns without waiting.
+     *
+     * @param key what the write writes, such as the name of its file
+     * @param write the write
+     * @return completed on the event thread once this write, or the one that
+     *         replaced it, is done
+     */
+    public CompletableFuture<Void> write(final String key, Write write)
+    {
+        CompletableFuture<Void> done = new CompletableFuture<Void>();
+
+        synchronized (pending)
+        {
+            PendingWrite queued = pending.get(key);
+
+            if (queued != null)
+            {
+                queued.write = write;
+                queued.waiting.add(done);
+                coalesced++;
+                return done;
+            }
+
+            queued = new PendingWrite(write);
+            queued.waiting.add(done);
+            pending.put(key, queued);
+        }
+
+        thread.execute(new Runnable()
+        {
+            public void run()
+            {
+                PendingWrite started;
+
+                synchronized (pending)
+                {
+                    started = pending.remove(key);
+                }
+
+                Exception failure = null;
+
+                try
+                {
+                    started.write.run();
+                }
+                catch (Exception ex)
+                {
+                    failure = ex;
+                }
+
+                for (CompletableFuture<Void> waiting : started.waiting)
+                    complete(waiting, null, failure);
+            }
+        });
+
+        return done;
+    }
+
+    /**
+     * Waits until all the work handed in so far is done. This is for when
+     * the program is about to exit; the event thread should not otherwise
+     * wait for the disk.
+     */
+    public void flush()
+    {
+        try
+        {
+            thread.submit(new Runnable()
+            {
+                public void run()
+                {
+                }
+            }).get();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException ex)
+        {
+            //The empty task cannot fail
+        }
+    }
+
+    /**
+     * Returns the number of writes replaced by later ones before they
+     * started.
+     *
+     * @return the writes saved
+     */
+    public int getCoalescedCount()
+    {
+        synchronized (pending)
+        {
+            return coalesced;
+        }
+    }
+
+    /*
+     * Completes a future on the event thread.
+     */
+    private static <T> void complete(final CompletableFuture<T> future, final T value, final Exception failure)
+    {
+        SwingUtilities.invokeLater(new Runnable()
+        {
+            public void run()
+            {
+                if (failure == null)
+                    future.complete(value);
+                else
+                    future.completeExceptionally(failure);
+            }
+        });
+    }
+
+    private static final class PendingWrite
+    {
+        private Write write;
+        private final List<CompletableFuture<Void>> waiting = new ArrayList<CompletableFuture<Void>>();
+
+        PendingWrite(Write write)
+        {
+            this.write = write;
+        }
+    }
+}
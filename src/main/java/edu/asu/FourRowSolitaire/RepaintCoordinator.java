@@ -0,0 +1,168 @@
+package edu.asu.FourRowSolitaire;
+
+import java.awt.Component;
+import java.awt.Rectangle;
+
+import javax.swing.SwingUtilities;
+
+import edu.asu.FourRowSolitaire.engine.GameState;
+
+/**
+ * Collects the areas of the board that a move changes and repaints them
+ * together, instead of repainting the whole board after every move.
+ * <p>
+ * Each card pushed onto or popped off a pile marks the area of that card, and
+ * cards that change in place (such as when a selection is highlighted) are
+ * marked with {@link #cardsChanged(int, int)}. The first area marked while
+ * handling an event schedules a flush for after it. The flush repaints the
+ * union of every area marked since the last one with a single
+ * {@code repaint(Rectangle)}, so a move costs one repaint of the cards it
+ * touched.
+ * <p>
+ * Areas are in the coordinates of the board panel, where each pile is at its
+ * bounds as laid out by {@link SolitaireLayout}. Only the cards in columns
+ * are spread out; the other piles are marked as a whole.
+ */
+public class RepaintCoordinator implements CardStackListener
+{
+    private final Component board;
+    private final CardStack[] piles;
+
+    private Rectangle dirty;
+    private boolean flushScheduled;
+
+    private final Runnable flush = new Runnable()
+    {
+        public void run()
+        {
+            flush();
+        }
+    };
+
+    private long repaints;
+    private long repaintedPixels;
+
+    /**
+     * Constructs a coordinator that repaints a board.
+     *
+     * @param board the board panel
+     * @param piles the piles on the board, indexed by pile id (see GameState)
+     */
+    public RepaintCoordinator(Component board, CardStack[] piles)
+    {
+        this.board = board;
+        this.piles = piles.clone();
+    }
+
+    public void cardPushed(int pile, int card)
+    {
+        markCard(pile, piles[pile].length() - 1);
+    }
+
+    public void cardPopped(int pile)
+    {
+        // the popped card was just above the new top card
+        markCard(pile, piles[pile].length());
+    }
+
+    /**
+     * Marks cards whose images changed without moving, from a card up to the
+     * top of its pile.
+     *
+     * @param pile the pile id
+     * @param fromIndex the index of the lowest card that changed
+     */
+    public void cardsChanged(int pile, int fromIndex)
+    {
+        for (int i = Math.max(fromIndex, 0); i < piles[pile].length(); i++)
+            markCard(pile, i);
+    }
+
+    /**
+     * Marks the whole area of a pile.
+     *
+     * @param pile the pile id
+     */
+    public void pileChanged(int pile)
+    {
+        mark(piles[pile].getBounds());
+    }
+
+    /**
+     * Repaints everything marked since the last flush now, rather than after
+     * the current event.
+     */
+    public synchronized void flush()
+    {
+        flushScheduled = false;
+
+        if (dirty == null)
+            return;
+
+        Rectangle r = dirty;
+        dirty = null;
+
+        repaints++;
+        repaintedPixels += (long) r.width * r.height;
+
+        board.repaint(r.x, r.y, r.width, r.height);
+    }
+
+    /**
+     * Returns the area waiting for the next flush.
+     *
+     * @return the dirty area, or null if nothing is marked
+     */
+    public synchronized Rectangle getDirtyArea()
+    {
+        return dirty == null ? null : new Rectangle(dirty);
+    }
+
+    /**
+     * Returns the number of repaints issued.
+     *
+     * @return the number of flushes that repainted something
+     */
+    public long getRepaintCount()
+    {
+        return repaints;
+    }
+
+    /**
+     * Returns the total area repainted, for comparing with repainting the
+     * whole board.
+     *
+     * @return the number of pixels repainted by all flushes
+     */
+    public long getRepaintedPixels()
+    {
+        return repaintedPixels;
+    }
+
+    private void markCard(int pile, int index)
+    {
+        if (!GameState.isColumn(pile))
+        {
+            mark(piles[pile].getBounds());
+            return;
+        }
+
+        Rectangle card = piles[pile].getCardBounds(index);
+        card.translate(piles[pile].getX(), piles[pile].getY());
+        mark(card);
+    }
+
+    private synchronized void mark(Rectangle r)
+    {
+        if (dirty == null)
+            dirty = new Rectangle(r);
+        else
+            dirty.add(r);
+
+        if (!flushScheduled)
+        {
+            flushScheduled = true;
+            SwingUtilities.invokeLater(flush);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package edu.asu.FourRowSolitaire;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.asu.FourRowSolitaire.engine.Snapshot;
+
+/**
+ * Games saved under names chosen by the player, any number of them, kept in
+ * one {@link AtomicFile}.
+ * <p>
+ * The file is a version number and the number of slots, then an index with
+ * each slot's name, deal number and the time it was saved, in the order
+ * they were saved, then each slot's {@link Snapshot} in the same order. The
+ * whole file is read the first time it is needed and kept, so loading a slot
+ * is a lookup and a {@link Snapshot#SIZE} byte decode. Saving or deleting a
+ * slot writes the file again, which is a few kilobytes for dozens of slots.
+ */
+public class SaveSlots
+{
+    private static final int VERSION = 1;
+
+    private final AtomicFile file;
+
+    // by name, in the order saved; null until read
+    private Map<String, Slot> slots;
+
+    /**
+     * Constructs the save slots kept in a file. Nothing is read until asked
+     * for.
+     *
+     * @param file the file
+     */
+    public SaveSlots(File file)
+    {
+        this.file = new AtomicFile(file);
+    }
+
+    /**
+     * Returns every slot, in the order saved.
+     *
+     * @return the slots
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized List<Slot> getSlots() throws IOException
+    {
+        return new ArrayList<Slot>(read().values());
+    }
+
+    /**
+     * Returns a slot by name.
+     *
+     * @param name the slot's name
+     * @return the slot, or null if there is none by that name
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized Slot get(String name) throws IOException
+    {
+        return read().get(name);
+    }
+
+    /**
+     * Saves a slot, replacing any with the same name, returning once it is
+     * on the disk.
+     *
+     * @param slot the slot
+     * @throws IOException if it cannot be written
+     */
+    public synchronized void put(Slot slot) throws IOException
+    {
+        read().remove(slot.getName());
+        slots.put(slot.getName(), slot);
+        write();
+    }
+
+    /**
+     * Deletes a slot.
+     *
+     * @param name the slot's name
+     * @return false if there was no slot by that name
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized boolean remove(String name) throws IOException
+    {
+        if (read().remove(name) == null)
+            return false;
+
+        write();
+        return true;
+    }
+
+    private Map<String, Slot> read() throws IOException
+    {
+        if (slots != null)
+            return slots;
+
+        Map<String, Slot> read = new LinkedHashMap<String, Slot>();
+        byte[] bytes = file.read();
+
+        if (bytes != null)
+        {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+
+            if (input.readInt() != VERSION)
+                throw new IOException("Save slots of an unknown version");
+
+            int count = input.readInt();
+            String[] names = new String[count];
+            long[] dealNumbers = new long[count];
+            long[] timestamps = new long[count];
+
+            for (int i = 0; i < count; i++)
+            {
+                names[i] = input.readUTF();
+                dealNumbers[i] = input.readLong();
+                timestamps[i] = input.readLong();
+            }
+
+            for (int i = 0; i < count; i++)
+            {
+                byte[] snapshot = new byte[Snapshot.SIZE];
+                input.readFully(snapshot);
+                read.put(names[i], new Slot(names[i], dealNumbers[i], timestamps[i], snapshot));
+            }
+        }
+
+        slots = read;
+        return slots;
+    }
+
+    private void write() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+
+        output.writeInt(VERSION);
+        output.writeInt(slots.size());
+
+        for (Slot slot : slots.values())
+        {
+            output.writeUTF(slot.getName());
+            output.writeLong(slot.getDealNumber());
+            output.writeLong(slot.getTimestamp());
+        }
+
+        for (Slot slot : slots.values())
+            output.write(slot.snapshot);
+
+        file.write(bytes.toByteArray());
+    }
+
+    /**
+     * A saved game and its name.
+     */
+    public static final class Slot
+    {
+        private final String name;
+        private final long dealNumber;
+        private final long timestamp;
+        private final byte[] snapshot;
+
+        /**
+         * Constructs a slot.
+         *
+         * @param name the name shown to the player
+         * @param dealNumber the deal played, or 0 if not known
+         * @param timestamp when it was saved, from
+         *        {@link System#currentTimeMillis()}
+         * @param snapshot the game, from {@link Snapshot#encode()}
+         */
+        public Slot(String name, long dealNumber, long timestamp, byte[] snapshot)
+        {
+            if (!Snapshot.isSnapshot(snapshot))
+                throw new IllegalArgumentException("Not a snapshot");
+
+            this.name = name;
+            this.dealNumber = dealNumber;
+            this.timestamp = timestamp;
+            this.snapshot = snapshot.clone();
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public long getDealNumber()
+        {
+            return dealNumber;
+        }
+
+        public long getTimestamp()
+        {
+            return timestamp;
+        }
+
+        /**
+         * Unpacks the saved game.
+         *
+         * @return the game
+         * @throws IllegalArgumentException if the snapshot is damaged
+         */
+        public Snapshot getSnapshot()
+        {
+            return Snapshot.decode(snapshot);
+        }
+
+        @Override
+        public String toString()
+        {
+            return dealNumber == 0 ? name : name + " (Game #" + dealNumber + ")";
+        }
+    }
+}
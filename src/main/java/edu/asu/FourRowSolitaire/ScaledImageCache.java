@@ -0,0 +1,274 @@
+package edu.asu.FourRowSolitaire;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Scaled copies of images, made once for each size they are drawn at and
+ * kept until they are the least recently used and the cache is full. The
+ * board asks for its card atlas and background at the size of the current
+ * scale step, so resizing the window rescales them only when the step
+ * changes, and painting never scales an image on the fly.
+ * <p>
+ * Images are scaled with bicubic interpolation, halving the image first while
+ * it is more than twice the size wanted, so shrinking stays smooth. The cache
+ * is limited by the number of pixels it holds rather than the number of
+ * images, since a scaled atlas for a large HiDPI window is many times the
+ * size of one for a small window. The image used last is always kept.
+ * <p>
+ * An image is produced outside the cache's lock, so looking up other images
+ * does not wait behind it. Threads asking for a size that is being produced
+ * wait for that one image rather than producing it again.
+ */
+public final class ScaledImageCache
+{
+    /**
+     * Produces an image at a given size, for the cache to keep.
+     */
+    public interface Producer
+    {
+        /**
+         * Returns the image scaled to a size.
+         *
+         * @param width the width in pixels
+         * @param height the height in pixels
+         * @return the scaled image
+         */
+        BufferedImage produce(int width, int height);
+    }
+
+    /*
+     * About 64 MB of 32 bit pixels.
+     */
+    private static final long DEFAULT_MAX_PIXELS = 16L * 1024 * 1024;
+
+    private static final LinkedHashMap<String, BufferedImage> images =
+            new LinkedHashMap<String, BufferedImage>(16, 0.75f, true);
+
+    // being produced, by key
+    private static final Map<String, FutureTask<BufferedImage>> producing =
+            new HashMap<String, FutureTask<BufferedImage>>();
+
+    private static long maxPixels = DEFAULT_MAX_PIXELS;
+    private static long pixels;
+
+    private static long hits;
+    private static long misses;
+
+    private ScaledImageCache() { /* Intentionally Empty */ }
+
+    /**
+     * Returns an image at a size, producing it if it is not cached.
+     *
+     * @param name a name for the image that is the same at every size
+     * @param width the width in pixels
+     * @param height the height in pixels
+     * @param producer makes the image if it is not cached
+     * @return the image at the size
+     */
+    public static BufferedImage get(String name, final int width, final int height,
+                                    final Producer producer)
+    {
+        String key = name + "@" + width + "x" + height;
+        FutureTask<BufferedImage> task;
+        boolean owner = false;
+
+        synchronized (ScaledImageCache.class)
+        {
+            BufferedImage image = images.get(key);
+
+            if (image != null)
+            {
+                hits++;
+                return image;
+            }
+
+            task = producing.get(key);
+
+            if (task == null)
+            {
+                misses++;
+                owner = true;
+                task = new FutureTask<BufferedImage>(new Callable<BufferedImage>()
+                {
+                    public BufferedImage call()
+                    {
+                        return producer.produce(width, height);
+                    }
+                });
+                producing.put(key, task);
+            }
+        }
+
+        if (owner)
+        {
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                finish(key, task);
+            }
+        }
+
+        return get(task);
+    }
+
+    /**
+     * Returns a copy of an image scaled to a size with high quality
+     * interpolation.
+     *
+     * @param source the image to scale
+     * @param width the width in pixels
+     * @param height the height in pixels
+     * @return the scaled image
+     */
+    public static BufferedImage scale(BufferedImage source, int width, int height)
+    {
+        BufferedImage image = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+
+        do
+        {
+            // halve while more than twice the size wanted
+            w = w > width * 2 ? w / 2 : width;
+            h = h > height * 2 ? h / 2 : height;
+
+            BufferedImage step = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = step.createGraphics();
+
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, w, h, null);
+            g.dispose();
+
+            image = step;
+        }
+        while (w != width || h != height);
+
+        return image;
+    }
+
+    /**
+     * Sets the most pixels the cache holds, dropping the least recently used
+     * images if it holds more.
+     *
+     * @param max the number of pixels
+     */
+    public static synchronized void setMaxPixels(long max)
+    {
+        maxPixels = max;
+        evict();
+    }
+
+    /**
+     * Drops every image.
+     */
+    public static synchronized void clear()
+    {
+        images.clear();
+        pixels = 0;
+    }
+
+    public static synchronized int getSize()
+    {
+        return images.size();
+    }
+
+    public static synchronized long getPixels()
+    {
+        return pixels;
+    }
+
+    public static synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public static synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    private static synchronized void finish(String key, FutureTask<BufferedImage> task)
+    {
+        producing.remove(key);
+
+        if (task.isCancelled())
+            return;
+
+        try
+        {
+            BufferedImage image = task.get();
+
+            images.put(key, image);
+            pixels += size(image);
+            evict();
+        }
+        catch (Exception ex)
+        {
+            // the producer failed; get reports it to each thread waiting
+        }
+    }
+
+    private static BufferedImage get(FutureTask<BufferedImage> task)
+    {
+        boolean interrupted = false;
+
+        try
+        {
+            while (true)
+            {
+                try
+                {
+                    return task.get();
+                }
+                catch (InterruptedException ex)
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        catch (ExecutionException ex)
+        {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+
+            if (ex.getCause() instanceof Error)
+                throw (Error) ex.getCause();
+
+            throw new IllegalStateException(ex.getCause());
+        }
+        finally
+        {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void evict()
+    {
+        Iterator<Map.Entry<String, BufferedImage>> eldest = images.entrySet().iterator();
+
+        while (pixels > maxPixels && images.size() > 1)
+        {
+            pixels -= size(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private static long size(BufferedImage image)
+    {
+        return (long) image.getWidth() * image.getHeight();
+    }
+}
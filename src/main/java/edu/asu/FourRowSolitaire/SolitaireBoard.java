@@ -22,11 +22,30 @@ package edu.asu.FourRowSolitaire;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
 
 import javax.swing.*;
 import javax.swing.event.MouseInputAdapter;
 
+import edu.asu.FourRowSolitaire.engine.DealIndex;
+import edu.asu.FourRowSolitaire.engine.DealIndexer;
+import edu.asu.FourRowSolitaire.engine.Deals;
+import edu.asu.FourRowSolitaire.engine.GameState;
+import edu.asu.FourRowSolitaire.engine.Move;
+import edu.asu.FourRowSolitaire.engine.MoveGenerator;
+import edu.asu.FourRowSolitaire.engine.MoveJournal;
+import edu.asu.FourRowSolitaire.engine.Snapshot;
+import edu.asu.FourRowSolitaire.engine.Solver;
+
 /**
  * Class: SolitaireBoard
  *
@@ -42,6 +61,23 @@ public class SolitaireBoard extends JFrame
     public static final int DO_NOTHING = 3;
     public static final int GAME_SAVED = 4;
 
+    //Positions the solver may search when no hints are left (about a second)
+    private static final long HINT_SOLVER_NODES = 200000;
+
+    //How often moves saved to the autosave journal are forced to the disk
+    private static final int AUTOSAVE_FORCE_MILLIS = 2000;
+
+    //Runs those searches off the event dispatch thread
+    private static final ExecutorService hintSolver = Executors.newSingleThreadExecutor(new ThreadFactory()
+    {
+        public Thread newThread(Runnable r)
+        {
+            Thread thread = new Thread(r, "Hint solver");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     private int drawCount = 1; //can be 1 or 3
     
     //To store new option selection for next new game, otherwise the count would 
@@ -52,6 +88,15 @@ public class SolitaireBoard extends JFrame
     private int deckNumber = 3;
     private Deck deck = new Deck(deckNumber); //Create default-backed deck (auto shuffles)
 
+    //Number of the deal being played, 0 if not known (see Deals)
+    private long dealNumber = 0;
+    private Random random = new Random();
+
+    //Deals known to be winnable, filled in by a background indexer while open
+    private int winnableDealsStatus = 0; //0 = off, 1 = on
+    private DealIndex dealIndex;
+    private Thread dealIndexer;
+
     //The four columns for the main playing field
     private Column[] columns = new Column[4];
 
@@ -79,14 +124,47 @@ public class SolitaireBoard extends JFrame
 
     private int winAnimationStatus = 0;
     private int winSoundsStatus = 0;
+    private int cardSoundsStatus = 0;
 
     private int difficulty = 2; //1 = easy, 2 = medium, 3 = hard
     private int newDifficulty = difficulty;
 
-    private LinkedList<CardStack> sourceList = new LinkedList<CardStack>();
-    private LinkedList<CardStack> destinationList = new LinkedList<CardStack>();
-    private LinkedList<Integer> numCards = new LinkedList<Integer>();
-    private LinkedList<Integer> numCardsInDiscardView = new LinkedList<Integer>();
+    //The board as a GameState, kept up to date card by card, and its legal moves
+    private GameState position;
+    private MoveGenerator moveGenerator;
+
+    //Moves made this game, for undo and redo
+    private MoveJournal journal = new MoveJournal();
+
+    //The game being played, saved move by move in case the program stops
+    //without saving it (see recoverGame)
+    private AutosaveJournal autosave;
+    private PersistenceService.Write forceAutosave;
+    private boolean autosaveChanged; //Moves saved since the journal was last forced
+    private Timer autosaveTimer;
+
+    //Every game played, opened the first time a game is recorded or the
+    //statistics are shown, and only used on the persistence thread
+    private GameHistory history;
+
+    //Games saved under names, read the first time they are needed, and only
+    //used on the persistence thread
+    private SaveSlots saveSlots;
+
+    //The options and the game saved on closing, only used on the persistence thread
+    private AtomicFile optionsFile;
+    private AtomicFile savedGameFile;
+
+    //Whether the options last written say there is a saved game
+    private boolean gameSaved;
+
+    //Draw the whole board with one BoardRenderer instead of a component per
+    //pile (run with -Dfrs.boardRenderer=true)
+    private boolean useBoardRenderer = Boolean.getBoolean("frs.boardRenderer");
+    private BoardRenderer boardRenderer;
+
+    //Repaints only the cards that moves change
+    private RepaintCoordinator repaints;
 
     public SolitaireBoard()
     {
@@ -94,15 +172,19 @@ public class SolitaireBoard extends JFrame
         setSize(800,700);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setResizable(false);
+        //The board scales to the window, down to half its normal size
+        setMinimumSize(new Dimension(440,380));
         setIconImage(new ImageIcon(getClass().getClassLoader().getResource("images/logo.png")).getImage());
 
-        setVisible(true);
-
         addWindowListener(wl);
     }
 
-    public void createBoard(LinkedList<Integer> cards)
+    /**
+     * Lays out the board and deals a new game, or puts a saved game on it.
+     *
+     * @param saved the saved game, or null to deal a new one
+     */
+    public void createBoard(Snapshot saved)
     {
         mainPanel = new SolitairePanel();
         mainPanel.setLayout(new SolitaireLayout());
@@ -110,6 +192,13 @@ public class SolitaireBoard extends JFrame
         deck = new Deck(deckNumber);
         mainPanel.changeBackground(backgroundNumber);
 
+        if(saved == null)
+        {
+            dealNumber = deck.getDealNumber();
+        }
+
+        updateTitle();
+
         for(int i = 0; i < 4; i++)
         {
             columns[i] = new Column();
@@ -117,11 +206,6 @@ public class SolitaireBoard extends JFrame
             //columns[i].addMouseMotionListener(ml);
         }
 
-        mainPanel.add(columns[0], SolitaireLayout.COLUMN_ONE);
-        mainPanel.add(columns[1], SolitaireLayout.COLUMN_TWO);
-        mainPanel.add(columns[2], SolitaireLayout.COLUMN_THREE);
-        mainPanel.add(columns[3], SolitaireLayout.COLUMN_FOUR);
-
         for(int i = 0; i < 4; i++)
         {
             cells[i] = new SingleCell();
@@ -129,19 +213,11 @@ public class SolitaireBoard extends JFrame
             //cells[i].addMouseMotionListener(ml);
         }
 
-        mainPanel.add(cells[0], SolitaireLayout.CELL_ONE);
-        mainPanel.add(cells[1], SolitaireLayout.CELL_TWO);
-        mainPanel.add(cells[2], SolitaireLayout.CELL_THREE);
-        mainPanel.add(cells[3], SolitaireLayout.CELL_FOUR);
-
         dealDeck.addMouseListener(ml);
         //dealDeck.addMouseMotionListener(ml);
         discardPile.addMouseListener(ml);
         //discardPile.addMouseMotionListener(ml);
 
-        mainPanel.add(dealDeck, SolitaireLayout.DECK);
-        mainPanel.add(discardPile, SolitaireLayout.DISCARD_PILE);
-
         for(int i = 0; i < 4; i++)
         {
             switch(i)
@@ -158,10 +234,52 @@ public class SolitaireBoard extends JFrame
             //acePiles[i].addMouseMotionListener(ml);
         }
 
-        mainPanel.add(acePiles[0], SolitaireLayout.SPADES_ACE_PILE);
-        mainPanel.add(acePiles[1], SolitaireLayout.CLUBS_ACE_PILE);
-        mainPanel.add(acePiles[2], SolitaireLayout.DIAMONDS_ACE_PILE);
-        mainPanel.add(acePiles[3], SolitaireLayout.HEARTS_ACE_PILE);
+        CardStack[] piles = new CardStack[GameState.NUM_PILES];
+
+        for(int pile = 0; pile < GameState.NUM_PILES; pile++)
+        {
+            piles[pile] = getPile(pile);
+        }
+
+        repaints = new RepaintCoordinator(mainPanel, piles);
+
+        if(useBoardRenderer)
+        {
+            boardRenderer = new BoardRenderer(piles);
+            boardRenderer.addPileMouseListener(ml);
+            mainPanel.add(boardRenderer, SolitaireLayout.BOARD);
+        }
+        else
+        {
+            mainPanel.add(columns[0], SolitaireLayout.COLUMN_ONE);
+            mainPanel.add(columns[1], SolitaireLayout.COLUMN_TWO);
+            mainPanel.add(columns[2], SolitaireLayout.COLUMN_THREE);
+            mainPanel.add(columns[3], SolitaireLayout.COLUMN_FOUR);
+
+            mainPanel.add(cells[0], SolitaireLayout.CELL_ONE);
+            mainPanel.add(cells[1], SolitaireLayout.CELL_TWO);
+            mainPanel.add(cells[2], SolitaireLayout.CELL_THREE);
+            mainPanel.add(cells[3], SolitaireLayout.CELL_FOUR);
+
+            mainPanel.add(dealDeck, SolitaireLayout.DECK);
+            mainPanel.add(discardPile, SolitaireLayout.DISCARD_PILE);
+
+            mainPanel.add(acePiles[0], SolitaireLayout.SPADES_ACE_PILE);
+            mainPanel.add(acePiles[1], SolitaireLayout.CLUBS_ACE_PILE);
+            mainPanel.add(acePiles[2], SolitaireLayout.DIAMONDS_ACE_PILE);
+            mainPanel.add(acePiles[3], SolitaireLayout.HEARTS_ACE_PILE);
+        }
+
+        //Follow the board in a GameState for the move generator
+        position = new GameState(drawCount, difficulty);
+        moveGenerator = new MoveGenerator(position);
+
+        PositionListener positionListener = new PositionListener();
+
+        for(int pile = 0; pile < GameState.NUM_PILES; pile++)
+        {
+            getPile(pile).setCardStackListener(positionListener, pile);
+        }
 
         statusBar.add(timerLabel);
 
@@ -170,14 +288,16 @@ public class SolitaireBoard extends JFrame
         p1.add(statusBar, BorderLayout.SOUTH);
         add(p1);
 
-        if(cards != null)
+        if(saved != null)
         {
-            dealOutCustomBoard(cards);
+            dealOutCustomBoard(saved);
         }
         else
         {
             dealOutBoard();
         }
+
+        startAutosave(saved == null);
     }
 
     private void dealOutBoard()
@@ -239,96 +359,44 @@ public class SolitaireBoard extends JFrame
         mainPanel.revalidate();
     }
 
-    private void dealOutCustomBoard(LinkedList<Integer> numbers)
+    private void dealOutCustomBoard(Snapshot saved)
     {
-        LinkedList<Card> cards = deck.createCustomDeck(numbers);
+        GameState position = saved.getPosition();
+        Card[] cards = new Card[GameState.DECK_SIZE + 1];
 
-        int pileNumber = 0;
-        int cardNumber = -1;
-
-        for(int i = 0; i < numbers.size(); i++)
+        for(Card card : deck.createStandardDeck(deckNumber))
         {
-            if(numbers.get(i) > 0)
-            {
-                cardNumber++;
-            }
-            else
-            {
-                pileNumber++;
-                continue;
-            }
+            cards[card.getFullNumber()] = card;
+        }
 
-            if(pileNumber == 0)
-            {
-                cells[0].push(cards.get(cardNumber));
-            }
-            else if(pileNumber == 1)
-            {
-                cells[1].push(cards.get(cardNumber));
-            }
-            else if(pileNumber == 2)
-            {
-                cells[2].push(cards.get(cardNumber));
-            }
-            else if(pileNumber == 3)
-            {
-                cells[3].push(cards.get(cardNumber));
-            }
+        drawCount = position.getDrawCount();
+        difficulty = position.getDifficulty();
+        dealDeck.setDrawCount(drawCount);
+        dealDeck.setDifficulty(difficulty);
 
-            else if(pileNumber == 4)
-            {
-                columns[0].push(cards.get(cardNumber));
-            }
-            else if(pileNumber == 5)
-            {
-                columns[1].push(cards.get(cardNumber));
-            }
-            else if(pileNumber == 6)
-            {
-                columns[2].push(cards.get(cardNumber));
-            }
-            else if(pileNumber == 7)
+        for(int pile = 0; pile < GameState.NUM_PILES; pile++)
+        {
+            for(int i = 0; i < position.size(pile); i++)
             {
-                columns[3].push(cards.get(cardNumber));
-            }
+                Card card = cards[position.cardAt(pile, i)];
 
-            else if(pileNumber == 8)
-            {
-                acePiles[0].push(cards.get(cardNumber));
-            }
-            else if(pileNumber == 9)
-            {
-                acePiles[1].push(cards.get(cardNumber));
-            }
-            else if(pileNumber == 10)
-            {
-                acePiles[2].push(cards.get(cardNumber));
-            }
-            else if(pileNumber == 11)
-            {
-                acePiles[3].push(cards.get(cardNumber));
-            }
+                if(pile == GameState.DEAL_DECK)
+                {
+                    card.setFaceDown();
+                }
 
-            else if(pileNumber == 12)
-            {
-                Card card = cards.get(cardNumber);
-                card.setFaceDown();
-                dealDeck.push(card);
-            }
-            else if(pileNumber == 13)
-            {
-                discardPile.push(cards.get(cardNumber));
+                getPile(pile).push(card);
             }
         }
 
-        dealDeck.setDrawCount(drawCount);
-        dealDeck.setDifficulty(difficulty);
-        timerCount = 0;
+        dealDeck.setDeckThroughs(position.getDeckThroughs());
+        discardPile.setView(position.getDiscardView());
+        timerCount = saved.getSeconds();
 
         if(timerToRunNextGame == 1)
         {
             timer.stop();
-            timerLabel.setText("Time: 0");
+            timerLabel.setText("Time: " + timerCount);
 
             timerToRun = true;
         }
@@ -392,6 +460,26 @@ public class SolitaireBoard extends JFrame
     }
 
     public void newGame(int winOrLoss)
+    {
+        long winnableDeal = 0;
+
+        if(winnableDealsStatus == 1 && dealIndex != null)
+        {
+            winnableDeal = dealIndex.findWinnable(random, newDrawCount, newDifficulty);
+        }
+
+        //Until the indexer has found a winnable deal, any deal will do
+        if(winnableDeal == 0)
+        {
+            newGame(winOrLoss, Deals.randomDealNumber(random));
+        }
+        else
+        {
+            newGame(winOrLoss, winnableDeal);
+        }
+    }
+
+    public void newGame(int winOrLoss, long dealNumber)
     {
         //If the game was won, the win was already reported
         if(winOrLoss != GAME_WON && winOrLoss != DO_NOTHING)
@@ -410,16 +498,16 @@ public class SolitaireBoard extends JFrame
             }
         }
 
-        deck = new Deck(deckNumber);
+        deck = new Deck(deckNumber, dealNumber);
+        this.dealNumber = dealNumber;
+        updateTitle();
 
         clearBoard(); //Remove cards from ace piles
         dealDeck.reset(); //Set numTimesThroughDeck back to 1
         dealOutBoard();
 
-        sourceList.clear();
-        destinationList.clear();
-        numCards.clear();
-        numCardsInDiscardView.clear();
+        journal.clear();
+        startAutosave(true);
     }
 
     public void resetStats()
@@ -432,604 +520,490 @@ public class SolitaireBoard extends JFrame
         recordGame(DO_NOTHING);
     }
 
+    /**
+     * Records the game as won or lost, resets the statistics, or just saves
+     * the options, saving the current game as well for {@link #GAME_SAVED}.
+     * What is to be written is taken from the board now, and written in the
+     * background by the {@link PersistenceService}.
+     */
     protected void recordGame(int winOrLoss)
     {
-        int count = 0, temp = 0;
-        int bestTime1e = 0, bestTime1m = 0, bestTime1h = 0,
-            bestTime3e = 0, bestTime3m = 0, bestTime3h = 0;
-        int gamesPlayed1e = 0, gamesWon1e = 0, winStreak1e = 0, lossStreak1e = 0,
-            currentStreak1e = 0;
-        int gamesPlayed1m = 0, gamesWon1m = 0, winStreak1m = 0, lossStreak1m = 0,
-            currentStreak1m = 0;
-        int gamesPlayed1h = 0, gamesWon1h = 0, winStreak1h = 0, lossStreak1h = 0,
-            currentStreak1h = 0;
-        int gamesPlayed3e = 0, gamesWon3e = 0, winStreak3e = 0, lossStreak3e = 0,
-            currentStreak3e = 0;
-        int gamesPlayed3m = 0, gamesWon3m = 0, winStreak3m = 0, lossStreak3m = 0,
-            currentStreak3m = 0;
-        int gamesPlayed3h = 0, gamesWon3h = 0, winStreak3h = 0, lossStreak3h = 0,
-            currentStreak3h = 0;
-
-        String fileLocation = System.getProperty("user.home") + System.getProperty("file.separator");
-        File file = new File(fileLocation + "frs-statistics.dat");
+        //Once won, lost or saved, there is nothing to recover
+        if(winOrLoss == GAME_WON || winOrLoss == GAME_LOST || winOrLoss == GAME_SAVED)
+        {
+            endAutosave();
+        }
 
-        try
+        PersistenceService persistence = PersistenceService.getInstance();
+
+        if(winOrLoss == GAME_WON || winOrLoss == GAME_LOST)
         {
-            file.createNewFile();
+            final GameRecord game = new GameRecord(dealNumber, drawCount, difficulty, winOrLoss == GAME_WON,
+                    timerCount, journal.size(), System.currentTimeMillis());
+
+            reportFailure(persistence.submit(new Callable<Void>()
+            {
+                public Void call() throws IOException
+                {
+                    getHistory().record(game);
+                    return null;
+                }
+            }), "The game could not be added to the statistics.");
         }
-        catch(Exception ex)
+        else if(winOrLoss == RESET_STATS)
         {
-            System.out.println(ex);
+            reportFailure(persistence.submit(new Callable<Void>()
+            {
+                public Void call() throws IOException
+                {
+                    getHistory().reset();
+                    return null;
+                }
+            }), "The statistics could not be reset.");
         }
 
         try
         {
-            DataInputStream input = new DataInputStream(new FileInputStream(file));
+            ByteArrayOutputStream optionBytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(optionBytes);
+
+            output.writeInt(drawCount);
+            output.writeInt(newDrawCount);
+            output.writeInt(deckNumber);
+            output.writeInt(backgroundNumber);
+            output.writeInt(timerToRunNextGame);
+
+            output.writeInt(winAnimationStatus); //Finish saving options
+            output.writeInt(winSoundsStatus);
+            output.writeInt(dealDeck.getDeckThroughs());
+            output.writeInt(difficulty);
+            output.writeInt(newDifficulty);
+
+            byte[] snapshot = null;
 
-            if(input.available() > 0)
+            if(winOrLoss == GAME_SAVED)
             {
-                temp = input.readInt();
-                count++;
+                try
+                {
+                    snapshot = new Snapshot(getGameState(), timerCount).encode();
+                }
+                catch(IllegalArgumentException ex)
+                {
+                    //A card was being held off the board
+                    System.out.println(ex);
+                }
             }
 
-            if(temp != -1)
+            //Only saving, or ending the game, changes the saved game
+            final boolean deleteSaved = winOrLoss == GAME_WON || winOrLoss == GAME_LOST ||
+                    (winOrLoss == GAME_SAVED && snapshot == null);
+
+            if(snapshot != null)
+            {
+                gameSaved = true;
+            }
+            else if(deleteSaved)
             {
-                gamesPlayed1m = temp;
+                gameSaved = false;
+            }
 
-                while((input.available() > 0) && count < 5)
-                {
-                    temp = input.readInt();
-                    switch(count)
-                    {
-                        //case 0 is the format checker
-                        case 1: gamesWon1m = temp; break;
-                        case 2: winStreak1m = temp; break;
-                        case 3: lossStreak1m = temp; break;
-                        case 4: currentStreak1m = temp; break;
+            output.writeInt(gameSaved ? 1 : 0); //Saved
+            output.writeLong(dealNumber);
+            output.writeInt(winnableDealsStatus);
+            output.writeInt(cardSoundsStatus);
 
-                        default: ; break;
-                    }
+            final byte[] options = optionBytes.toByteArray();
+            final byte[] savedGame = snapshot;
 
-                    count++;
-                }
-            }
-            else
+            //Only the latest options need writing, if several are waiting
+            reportFailure(persistence.write("options", new PersistenceService.Write()
             {
-                while((input.available() > 0) && count < 37)
+                public void run() throws IOException
                 {
-                    temp = input.readInt();
-                    switch(count)
+                    //The game first, so the options never say there is a saved
+                    //game that has not been written
+                    if(savedGame != null)
                     {
-                        //case 0 is the format checker
-                        case 1: gamesPlayed1e = temp; break;
-                        case 2: gamesWon1e = temp; break;
-                        case 3: winStreak1e = temp; break;
-                        case 4: lossStreak1e = temp; break;
-                        case 5: currentStreak1e = temp; break;
-                        case 6: bestTime1e = temp; break;
-
-                        case 7: gamesPlayed1m = temp; break;
-                        case 8: gamesWon1m = temp; break;
-                        case 9: winStreak1m = temp; break;
-                        case 10: lossStreak1m = temp; break;
-                        case 11: currentStreak1m = temp; break;
-                        case 12: bestTime1m = temp; break;
-
-                        case 13: gamesPlayed1h = temp; break;
-                        case 14: gamesWon1h = temp; break;
-                        case 15: winStreak1h = temp; break;
-                        case 16: lossStreak1h = temp; break;
-                        case 17: currentStreak1h = temp; break;
-                        case 18: bestTime1h = temp; break;
-
-                        case 19: gamesPlayed3e = temp; break;
-                        case 20: gamesWon3e = temp; break;
-                        case 21: winStreak3e = temp; break;
-                        case 22: lossStreak3e = temp; break;
-                        case 23: currentStreak3e = temp; break;
-                        case 24: bestTime3e = temp; break;
-
-                        case 25: gamesPlayed3m = temp; break;
-                        case 26: gamesWon3m = temp; break;
-                        case 27: winStreak3m = temp; break;
-                        case 28: lossStreak3m = temp; break;
-                        case 29: currentStreak3m = temp; break;
-                        case 30: bestTime3m = temp; break;
-
-                        case 31: gamesPlayed3h = temp; break;
-                        case 32: gamesWon3h = temp; break;
-                        case 33: winStreak3h = temp; break;
-                        case 34: lossStreak3h = temp; break;
-                        case 35: currentStreak3h = temp; break;
-                        case 36: bestTime3h = temp; break;
-
-                        default: ; break;
+                        getSavedGameFile().write(savedGame);
+                    }
+                    else if(deleteSaved)
+                    {
+                        getSavedGameFile().delete();
                     }
 
-                    count++;
+                    getOptionsFile().write(options);
                 }
+            }), "The options could not be saved.");
+        }
+        catch(IOException ex)
+        {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the totals of the games played in each mode, in the background.
+     *
+     * @return the totals by {@link GameHistory#getMode(int, int)}, completed
+     *         on the event thread, or completed exceptionally if the history
+     *         cannot be read
+     */
+    public CompletableFuture<GameStatistics[]> loadStatistics()
+    {
+        return PersistenceService.getInstance().submit(new Callable<GameStatistics[]>()
+        {
+            public GameStatistics[] call() throws IOException
+            {
+                GameStatistics[] statistics = new GameStatistics[GameHistory.MODES];
+
+                for(int mode = 0; mode < GameHistory.MODES; mode++)
+                {
+                    statistics[mode] = getHistory().getStatistics(mode < 3 ? 1 : 3, mode % 3 + 1);
+                }
+
+                return statistics;
             }
+        });
+    }
 
-            input.close();
-        }
-        catch(Exception ex)
+    //Only called on the persistence thread
+    private GameHistory getHistory() throws IOException
+    {
+        if(history == null)
         {
-            System.out.println(ex);
+            history = new GameHistory(new File(System.getProperty("user.home") +
+                    System.getProperty("file.separator") + "frs-statistics.dat"));
         }
-        
-        try
+
+        return history;
+    }
+
+    /**
+     * Saves the game being played under a name, replacing any saved under
+     * the same name, in the background.
+     *
+     * @param name the name of the save slot
+     */
+    public void saveToSlot(String name)
+    {
+        final SaveSlots.Slot slot = new SaveSlots.Slot(name, dealNumber, System.currentTimeMillis(),
+                new Snapshot(getGameState(), timerCount).encode());
+
+        reportFailure(PersistenceService.getInstance().submit(new Callable<Void>()
         {
-            DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+            public Void call() throws IOException
+            {
+                getSaveSlots().put(slot);
+                return null;
+            }
+        }), "\"" + name + "\" could not be saved.");
+    }
 
-            if(winOrLoss == GAME_WON)
+    /**
+     * Reads the index of the save slots, in the background. The slots hold
+     * their games, so loading one does not touch the disk again.
+     *
+     * @return the slots in the order saved, completed on the event thread,
+     *         or completed exceptionally if they cannot be read
+     */
+    public CompletableFuture<List<SaveSlots.Slot>> loadSaveSlots()
+    {
+        return PersistenceService.getInstance().submit(new Callable<List<SaveSlots.Slot>>()
+        {
+            public List<SaveSlots.Slot> call() throws IOException
             {
-                if(drawCount == 3)
+                return getSaveSlots().getSlots();
+            }
+        });
+    }
+
+    /**
+     * Tells the player that work done in the background failed. Only called
+     * on the event thread, where the persistence service completes its work.
+     *
+     * @param message what could not be done
+     * @param failure why
+     */
+    public void showFailure(String message, Throwable failure)
+    {
+        String reason = failure.getMessage() == null ? failure.toString() : failure.getMessage();
+
+        JOptionPane.showMessageDialog(this, message + "\n" + reason, "Four Row Solitaire",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
+    //Shows the failure, if the background work fails
+    private void reportFailure(CompletableFuture<?> work, final String message)
+    {
+        work.whenComplete(new BiConsumer<Object, Throwable>()
+        {
+            public void accept(Object result, Throwable failure)
+            {
+                if(failure != null)
                 {
-                    if(difficulty == 1)
-                    {
-                        gamesPlayed3e++;
-                        gamesWon3e++;
+                    showFailure(message, failure);
+                }
+            }
+        });
+    }
 
-                        if(currentStreak3e >= 0)
-                        {
-                            currentStreak3e++;
-                        }
-                        else
-                        {
-                            currentStreak3e = 1;
-                        }
+    /**
+     * Puts a game from a save slot on the board in place of the game being
+     * played, which should be recorded first.
+     *
+     * @param slot the save slot
+     * @throws IllegalArgumentException if the slot's game is damaged, in
+     *         which case the board is left as it was
+     */
+    public void loadGame(SaveSlots.Slot slot)
+    {
+        Snapshot saved = slot.getSnapshot();
 
-                        if(winStreak3e < currentStreak3e)
-                        {
-                            winStreak3e = currentStreak3e;
-                        }
-                        
-                        if (timerCount < bestTime3e || bestTime3e == 0)
-                        {
-                            bestTime3e = timerCount;
-                        }
-                    }
-                    else if(difficulty == 2)
-                    {
-                        gamesPlayed3m++;
-                        gamesWon3m++;
+        dealNumber = slot.getDealNumber();
+        updateTitle();
 
-                        if(currentStreak3m >= 0)
-                        {
-                            currentStreak3m++;
-                        }
-                        else
-                        {
-                            currentStreak3m = 1;
-                        }
+        clearBoard();
+        dealDeck.reset();
+        dealOutCustomBoard(saved);
 
-                        if(winStreak3m < currentStreak3m)
-                        {
-                            winStreak3m = currentStreak3m;
-                        }
-                        
-                        if (timerCount < bestTime3m || bestTime3m == 0)
-                        {
-                            bestTime3m = timerCount;
-                        }
-                    }
-                    else
-                    {
-                        gamesPlayed3h++;
-                        gamesWon3h++;
+        journal.clear();
+        startAutosave(false);
+    }
 
-                        if(currentStreak3h >= 0)
-                        {
-                            currentStreak3h++;
-                        }
-                        else
-                        {
-                            currentStreak3h = 1;
-                        }
+    /**
+     * Sets whether there is a saved game, as read from the options when the
+     * program starts.
+     */
+    protected void setGameSaved(boolean saved)
+    {
+        gameSaved = saved;
+    }
 
-                        if(winStreak3h < currentStreak3h)
-                        {
-                            winStreak3h = currentStreak3h;
-                        }
-                        
-                        if (timerCount < bestTime3h || bestTime3h == 0)
-                        {
-                            bestTime3h = timerCount;
-                        }
-                    }
-                }
-                else //if(drawCount == 1)
-                {
-                    if(difficulty == 1)
-                    {
-                        gamesPlayed1e++;
-                        gamesWon1e++;
+    //Only called on the persistence thread
+    protected AtomicFile getOptionsFile()
+    {
+        if(optionsFile == null)
+        {
+            optionsFile = new AtomicFile(new File(System.getProperty("user.home") +
+                    System.getProperty("file.separator") + "frs-options.dat"));
+        }
 
-                        if(currentStreak1e >= 0)
-                        {
-                            currentStreak1e++;
-                        }
-                        else
-                        {
-                            currentStreak1e = 1;
-                        }
+        return optionsFile;
+    }
 
-                        if(winStreak1e < currentStreak1e)
-                        {
-                            winStreak1e = currentStreak1e;
-                        }
-                        
-                        if (timerCount < bestTime1e || bestTime1e == 0)
-                        {
-                            bestTime1e = timerCount;
-                        }
-                    }
-                    else if(difficulty == 2)
-                    {
-                        gamesPlayed1m++;
-                        gamesWon1m++;
+    //Only called on the persistence thread
+    protected AtomicFile getSavedGameFile()
+    {
+        if(savedGameFile == null)
+        {
+            savedGameFile = new AtomicFile(new File(System.getProperty("user.home") +
+                    System.getProperty("file.separator") + "frs-savedgame.dat"));
+        }
 
-                        if(currentStreak1m >= 0)
-                        {
-                            currentStreak1m++;
-                        }
-                        else
-                        {
-                            currentStreak1m = 1;
-                        }
+        return savedGameFile;
+    }
 
-                        if(winStreak1m < currentStreak1m)
-                        {
-                            winStreak1m = currentStreak1m;
-                        }
-                        
-                        if (timerCount < bestTime1m || bestTime1m == 0)
-                        {
-                            bestTime1m = timerCount;
-                        }
-                    }
-                    else
-                    {
-                        gamesPlayed1h++;
-                        gamesWon1h++;
+    //Only called on the persistence thread
+    private SaveSlots getSaveSlots()
+    {
+        if(saveSlots == null)
+        {
+            saveSlots = new SaveSlots(new File(System.getProperty("user.home") +
+                    System.getProperty("file.separator") + "frs-saves.dat"));
+        }
 
-                        if(currentStreak1h >= 0)
-                        {
-                            currentStreak1h++;
-                        }
-                        else
-                        {
-                            currentStreak1h = 1;
-                        }
+        return saveSlots;
+    }
 
-                        if(winStreak1h < currentStreak1h)
-                        {
-                            winStreak1h = currentStreak1h;
-                        }
-                        
-                        if (timerCount < bestTime1h || bestTime3h == 0)
-                        {
-                            bestTime1h = timerCount;
-                        }
-                    }
-                }
-            }
-            else if(winOrLoss == RESET_STATS)
+    /**
+     * Opens the autosave journal and, if a game was being played when the
+     * program last stopped without saving it, puts that game back on the
+     * board: the position it started from is dealt from its deal number, or
+     * loaded from the snapshot taken when its moves were last compacted, and
+     * the moves made since are made again, so they can still be undone. The
+     * journal begins again from a snapshot of that position.
+     * Otherwise the board is left to be created as usual.
+     *
+     * @return true if a game was recovered and the board created
+     */
+    public boolean recoverGame()
+    {
+        try
+        {
+            autosave = new AutosaveJournal(new File(System.getProperty("user.home") +
+                    System.getProperty("file.separator") + "frs-autosave.dat"));
+        }
+        catch(IOException ex)
+        {
+            System.out.println(ex);
+            return false;
+        }
+
+        forceAutosave = new PersistenceService.Write()
+        {
+            public void run()
             {
-                gamesWon1e = 0;
-                gamesPlayed1e = 0;
-                currentStreak1e = 0;
-                winStreak1e = 0;
-                lossStreak1e = 0;
-                bestTime1e = 0;
-
-                gamesWon1m = 0;
-                gamesPlayed1m = 0;
-                currentStreak1m = 0;
-                winStreak1m = 0;
-                lossStreak1m = 0;
-                bestTime1m = 0;
-
-                gamesWon1h = 0;
-                gamesPlayed1h = 0;
-                currentStreak1h = 0;
-                winStreak1h = 0;
-                lossStreak1h = 0;
-                bestTime1h = 0;
-
-                gamesWon3e = 0;
-                gamesPlayed3e = 0;
-                currentStreak3e = 0;
-                winStreak3e = 0;
-                lossStreak3e = 0;
-                bestTime3e = 0;
-
-                gamesWon3m = 0;
-                gamesPlayed3m = 0;
-                currentStreak3m = 0;
-                winStreak3m = 0;
-                lossStreak3m = 0;
-                bestTime3m = 0;
-
-                gamesWon3h = 0;
-                gamesPlayed3h = 0;
-                currentStreak3h = 0;
-                winStreak3h = 0;
-                lossStreak3h = 0;
-                bestTime3h = 0;
+                autosave.force();
             }
-            else if(winOrLoss == DO_NOTHING || winOrLoss == GAME_SAVED)
+        };
+
+        autosaveTimer = new Timer(AUTOSAVE_FORCE_MILLIS, new ActionListener()
+        {
+            public void actionPerformed(ActionEvent e)
             {
-                //just updating options
+                forceAutosave();
             }
-            else
-            {
-                if(drawCount == 3)
-                {
-                    if(difficulty == 1)
-                    {
-                        gamesPlayed3e++;
-
-                        if(currentStreak3e <= 0)
-                        {
-                            currentStreak3e--;
-                        }
-                        else
-                        {
-                            currentStreak3e = -1;
-                        }
+        });
+        autosaveTimer.start();
 
-                        if(lossStreak3e > currentStreak3e)
-                        {
-                            lossStreak3e = currentStreak3e;
-                        }
-                    }
-                    else if(difficulty == 2)
-                    {
-                        gamesPlayed3m++;
+        AutosaveJournal.Recovery game = autosave.recover();
 
-                        if(currentStreak3m <= 0)
-                        {
-                            currentStreak3m--;
-                        }
-                        else
-                        {
-                            currentStreak3m = -1;
-                        }
-
-                        if(lossStreak3m > currentStreak3m)
-                        {
-                            lossStreak3m = currentStreak3m;
-                        }
-                    }
-                    else
-                    {
-                        gamesPlayed3h++;
+        if(game == null)
+        {
+            return false;
+        }
 
-                        if(currentStreak3h <= 0)
-                        {
-                            currentStreak3h--;
-                        }
-                        else
-                        {
-                            currentStreak3h = -1;
-                        }
+        setDealNumber(game.getDealNumber());
+        createBoard(game.getStart());
 
-                        if(lossStreak3h > currentStreak3h)
-                        {
-                            lossStreak3h = currentStreak3h;
-                        }
-                    }
-                }
-                else //if(drawCount == 1)
-                {
-                    if(difficulty == 1)
-                    {
-                        gamesPlayed1e++;
+        //Moves from the first one that cannot be made onwards are dropped
+        int[] entries = game.getEntries();
+        int replayed = 0;
 
-                        if(currentStreak1e <= 0)
-                        {
-                            currentStreak1e--;
-                        }
-                        else
-                        {
-                            currentStreak1e = -1;
-                        }
+        while(replayed < entries.length && replayMove(entries[replayed]))
+        {
+            replayed++;
+        }
 
-                        if(lossStreak1e > currentStreak1e)
-                        {
-                            lossStreak1e = currentStreak1e;
-                        }
-                    }
-                    else if(difficulty == 2)
-                    {
-                        gamesPlayed1m++;
+        return true;
+    }
 
-                        if(currentStreak1m <= 0)
-                        {
-                            currentStreak1m--;
-                        }
-                        else
-                        {
-                            currentStreak1m = -1;
-                        }
+    /**
+     * Makes a move read back from the autosave journal, unless it is not a
+     * legal move in the position on the board, as when the end of the journal
+     * did not reach the disk or was damaged. The journal's check value only
+     * covers its header, so each move is checked against the rules here.
+     *
+     * @return true if the move was made
+     */
+    private boolean replayMove(int entry)
+    {
+        if(entry == AutosaveJournal.UNDO || entry == AutosaveJournal.REDO)
+        {
+            if(entry == AutosaveJournal.UNDO ? !journal.canUndo() : !journal.canRedo())
+            {
+                return false;
+            }
 
-                        if(lossStreak1m > currentStreak1m)
-                        {
-                            lossStreak1m = currentStreak1m;
-                        }
-                    }
-                    else
-                    {
-                        gamesPlayed1h++;
+            if(entry == AutosaveJournal.UNDO)
+            {
+                undoMove();
+            }
+            else
+            {
+                redoMove();
+            }
 
-                        if(currentStreak1h <= 0)
-                        {
-                            currentStreak1h--;
-                        }
-                        else
-                        {
-                            currentStreak1h = -1;
-                        }
+            return true;
+        }
 
-                        if(lossStreak1h > currentStreak1h)
-                        {
-                            lossStreak1h = currentStreak1h;
-                        }
-                    }
-                }
-            }
-            
-            output.writeInt(-1); //New format indicator
-
-            output.writeInt(gamesPlayed1e);
-            output.writeInt(gamesWon1e);
-            output.writeInt(winStreak1e);
-            output.writeInt(lossStreak1e);
-            output.writeInt(currentStreak1e);
-            output.writeInt(bestTime1e);
-
-            output.writeInt(gamesPlayed1m);
-            output.writeInt(gamesWon1m);
-            output.writeInt(winStreak1m);
-            output.writeInt(lossStreak1m);
-            output.writeInt(currentStreak1m);
-            output.writeInt(bestTime1m);
-
-            output.writeInt(gamesPlayed1h);
-            output.writeInt(gamesWon1h);
-            output.writeInt(winStreak1h);
-            output.writeInt(lossStreak1h);
-            output.writeInt(currentStreak1h);
-            output.writeInt(bestTime1h);
-
-            output.writeInt(gamesPlayed3e);
-            output.writeInt(gamesWon3e);
-            output.writeInt(winStreak3e);
-            output.writeInt(lossStreak3e);
-            output.writeInt(currentStreak3e);
-            output.writeInt(bestTime3e);
-
-            output.writeInt(gamesPlayed3m);
-            output.writeInt(gamesWon3m);
-            output.writeInt(winStreak3m);
-            output.writeInt(lossStreak3m);
-            output.writeInt(currentStreak3m);
-            output.writeInt(bestTime3m);
-
-            output.writeInt(gamesPlayed3h);
-            output.writeInt(gamesWon3h);
-            output.writeInt(winStreak3h);
-            output.writeInt(lossStreak3h);
-            output.writeInt(currentStreak3h);
-            output.writeInt(bestTime3h);
-            
-            output.writeInt(drawCount);
-            output.writeInt(newDrawCount);
-            output.writeInt(deckNumber);
-            output.writeInt(backgroundNumber);
-            output.writeInt(timerToRunNextGame);
+        int move = MoveJournal.getMove(entry);
+        int from = Move.from(move);
+        int to = Move.to(move);
 
-            output.writeInt(winAnimationStatus); //Finish saving options
-            output.writeInt(winSoundsStatus);
-            output.writeInt(dealDeck.getDeckThroughs());
-            output.writeInt(difficulty);
-            output.writeInt(newDifficulty);
+        if(from >= GameState.NUM_PILES || to >= GameState.NUM_PILES)
+        {
+            return false;
+        }
 
-            File savedFile = new File(fileLocation + "frs-savedgame.dat");
-            DataOutputStream saved = new DataOutputStream(new FileOutputStream(savedFile));
+        getLegalMoves(); //Brings the position and its deck throughs up to date
 
-            if(winOrLoss == GAME_SAVED)
+        if(from == GameState.DEAL_DECK)
+        {
+            if(to != GameState.DISCARD_PILE || !position.canDraw())
             {
-                output.writeInt(1); //Saved
-
-                for(int i = 0; i < cells.length; i++)
-                {
-                    if(!cells[i].isEmpty())
-                    {
-                        saved.writeInt(cells[i].peek().getFullNumber());
-                        saved.writeInt(-1);
-                    }
-                    else
-                    {
-                        saved.writeInt(-1);
-                    }
-                }
+                return false;
+            }
+        }
+        else if(!position.isValidMove(from, Move.count(move), to))
+        {
+            return false;
+        }
 
-                for(int i = 0; i < columns.length; i++)
-                {
-                    if(!columns[i].isEmpty())
-                    {
-                        for(int j = 0; j < columns[i].length(); j++)
-                        {
-                            saved.writeInt(columns[i].getCardAtLocation(j).getFullNumber());
-                        }
+        applyMove(move);
+        addMove(entry & 0xFFFFFFFFL);
 
-                        saved.writeInt(-1);
-                    }
-                    else
-                    {
-                        saved.writeInt(-1);
-                    }
-                }
+        return true;
+    }
 
-                for(int i = 0; i < acePiles.length; i++)
-                {
-                    if(!acePiles[i].isEmpty())
-                    {
-                        for(int j = 0; j < acePiles[i].length(); j++)
-                        {
-                            saved.writeInt(acePiles[i].getCardAtLocation(j).getFullNumber());
-                        }
+    /**
+     * Begins saving the game just put on the board to the autosave journal.
+     *
+     * @param dealt true if the board is the deal as dealt
+     */
+    private void startAutosave(boolean dealt)
+    {
+        if(autosave == null)
+        {
+            return;
+        }
 
-                        saved.writeInt(-1);
-                    }
-                    else
-                    {
-                        saved.writeInt(-1);
-                    }
-                }
+        if(dealt && dealNumber != 0)
+        {
+            autosave.begin(dealNumber, drawCount, difficulty);
+        }
+        else
+        {
+            autosave.begin(new Snapshot(getGameState(), timerCount), dealNumber);
+        }
 
-                if(!dealDeck.isEmpty())
-                {
-                    for(int j = 0; j < dealDeck.length(); j++)
-                    {
-                        saved.writeInt(dealDeck.getCardAtLocation(j).getFullNumber());
-                    }
+        autosaveChanged = false;
+        PersistenceService.getInstance().write("autosave", forceAutosave);
+    }
 
-                    saved.writeInt(-1);
-                }
-                else
-                {
-                    saved.writeInt(-1);
-                }
+    /**
+     * Saves a move, undo or redo to the autosave journal. The operating system
+     * keeps the journal's memory if the program stops, so the move costs only
+     * a few stores into it; it reaches the disk, in case the power goes, when
+     * the journal is next forced.
+     */
+    private void autosaveMove(int entry)
+    {
+        if(autosave == null)
+        {
+            return;
+        }
 
-                if(!discardPile.isEmpty())
-                {
-                    for(int j = 0; j < discardPile.length(); j++)
-                    {
-                        saved.writeInt(discardPile.getCardAtLocation(j).getFullNumber());
-                    }
+        if(!autosave.append(entry, timerCount))
+        {
+            //No room, or it undoes a move from before the last snapshot; the
+            //board already shows it, so take a new snapshot instead
+            autosave.begin(new Snapshot(getGameState(), timerCount), dealNumber);
+        }
 
-                    saved.writeInt(-1);
-                }
-                else
-                {
-                    saved.writeInt(-1);
-                }
-            }
-            else
-            {
-                output.writeInt(0); //Not saved
-                savedFile.delete();
-            }
+        autosaveChanged = true;
+    }
 
-            output.close();
-            saved.close();
+    /**
+     * Forces the moves saved since the last time to the disk in the
+     * background. Called every few seconds, and when the window is put away.
+     */
+    private void forceAutosave()
+    {
+        if(autosave != null && autosaveChanged)
+        {
+            autosaveChanged = false;
+            PersistenceService.getInstance().write("autosave", forceAutosave);
         }
-        catch(Exception ex)
+    }
+
+    private void endAutosave()
+    {
+        if(autosave != null)
         {
-            ex.printStackTrace();
+            autosave.end();
+            autosaveChanged = false;
+            PersistenceService.getInstance().write("autosave", forceAutosave);
         }
     }
 
@@ -1131,37 +1105,149 @@ public class SolitaireBoard extends JFrame
 
         if(timerInt != 0 && timerInt != 1)
         {
-            timerToRunNextGame = 0;
+            timerToRunNextGame = 0;
+        }
+    }
+
+    public int getWinAnimationStatus()
+    {
+        return winAnimationStatus;
+    }
+
+    public void setWinAnimationStatus(int animation)
+    {
+        winAnimationStatus = animation;
+
+        if(winAnimationStatus != 0 && winAnimationStatus != 1)
+        {
+            winAnimationStatus = 0;
+        }
+    }
+
+    public int getWinSoundsStatus()
+    {
+        return winSoundsStatus;
+    }
+
+    public void setWinSoundsStatus(int sounds)
+    {
+        winSoundsStatus = sounds;
+
+        if(winSoundsStatus != 0 && winSoundsStatus != 1)
+        {
+            winSoundsStatus = 0;
+        }
+    }
+
+    public int getCardSoundsStatus()
+    {
+        return cardSoundsStatus;
+    }
+
+    public void setCardSoundsStatus(int sounds)
+    {
+        cardSoundsStatus = sounds;
+
+        if(cardSoundsStatus != 0 && cardSoundsStatus != 1)
+        {
+            cardSoundsStatus = 0;
+        }
+
+        //Starts the mixer the first time they are turned on
+        SoundEffects.setEnabled(cardSoundsStatus == 1);
+    }
+
+    public int getWinnableDealsStatus()
+    {
+        return winnableDealsStatus;
+    }
+
+    public void setWinnableDealsStatus(int winnableDeals)
+    {
+        winnableDealsStatus = winnableDeals;
+
+        if(winnableDealsStatus != 0 && winnableDealsStatus != 1)
+        {
+            winnableDealsStatus = 0;
+        }
+
+        if(winnableDealsStatus == 1)
+        {
+            openDealIndex();
+        }
+        else
+        {
+            stopDealIndexer();
         }
     }
 
-    public int getWinAnimationStatus()
+    /**
+     * Stops the background indexer, waiting for it so the index never has
+     * two of them writing to it. The solver checks for the interrupt every
+     * thousand or so positions, so this is quick.
+     */
+    private void stopDealIndexer()
     {
-        return winAnimationStatus;
-    }
+        if(dealIndexer == null)
+        {
+            return;
+        }
 
-    public void setWinAnimationStatus(int animation)
-    {
-        winAnimationStatus = animation;
+        dealIndexer.interrupt();
+        boolean interrupted = false;
 
-        if(winAnimationStatus != 0 && winAnimationStatus != 1)
+        while(dealIndexer.isAlive())
         {
-            winAnimationStatus = 0;
+            try
+            {
+                dealIndexer.join();
+            }
+            catch(InterruptedException ex)
+            {
+                interrupted = true;
+            }
         }
-    }
 
-    public int getWinSoundsStatus()
-    {
-        return winSoundsStatus;
+        dealIndexer = null;
+
+        if(interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    public void setWinSoundsStatus(int sounds)
+    /**
+     * Opens the deal index in the user's home directory and starts adding to
+     * it in the background. If another window is already adding to it, the
+     * index is only read.
+     */
+    private void openDealIndex()
     {
-        winSoundsStatus = sounds;
+        File file = new File(System.getProperty("user.home") + System.getProperty("file.separator") +
+                "frs-deals.idx");
 
-        if(winSoundsStatus != 0 && winSoundsStatus != 1)
+        try
         {
-            winSoundsStatus = 0;
+            if(dealIndex == null)
+            {
+                try
+                {
+                    dealIndex = new DealIndex(file, true);
+                }
+                catch(IOException ex)
+                {
+                    dealIndex = new DealIndex(file, false);
+                }
+            }
+
+            if(dealIndexer == null && dealIndex.isWritable())
+            {
+                dealIndexer = DealIndexer.start(dealIndex);
+            }
+        }
+        catch(IOException ex)
+        {
+            ex.printStackTrace();
         }
     }
 
@@ -1204,282 +1290,239 @@ public class SolitaireBoard extends JFrame
         dealDeck.setDeckThroughs(deckThroughs);
     }
 
-    public synchronized void undoMove()
+    public long getDealNumber()
     {
-        if(!sourceList.isEmpty())
-        {
-            //if player is holding on to a card
-            if(sourceList.size() > destinationList.size())
-            {
-                CardStack tempSource = sourceList.getLast();
-                sourceList.removeLast();
+        return dealNumber;
+    }
 
-                int num = numCards.getLast();
-                numCards.removeLast();
+    public void setDealNumber(long dealNumber)
+    {
+        this.dealNumber = dealNumber < Deals.FIRST_DEAL ? 0 : dealNumber;
+    }
 
-                int numDiscard = numCardsInDiscardView.getLast();
-                numCardsInDiscardView.removeLast();
+    private void updateTitle()
+    {
+        if(dealNumber == 0)
+        {
+            setTitle("Four Row Solitaire");
+        }
+        else
+        {
+            setTitle("Four Row Solitaire - Game #" + dealNumber);
+        }
+    }
 
-                if(num == 1)
-                {
-                    discardPile.setView(numDiscard);
-                    tempSource.peek().unhighlight();
-                    
-                    ml.clickedCard = null;
-                    ml.hasSelected = false;
-                    ml.singleCardSelected = false;
-                    ml.temp = null;
-                }
-                else
-                {
-                    for(int i = 0; i < num; i++)
-                    {
-                        tempSource.getCardAtLocation(tempSource.length() - i - 1).unhighlight();
-                    }
+    /**
+     * Returns a headless copy of the current position. Pile ids follow the
+     * saved game order (cells, columns, ace piles, deal deck, discard pile).
+     */
+    public GameState getGameState()
+    {
+        GameState state = new GameState(drawCount, difficulty);
 
-                    ml.clickedCard = null;
-                    ml.hasSelected = false;
-                    ml.temp = null;
-                }
+        for(int pile = 0; pile < GameState.NUM_PILES; pile++)
+        {
+            CardStack stack = getPile(pile);
 
-                tempSource.repaint();
-            }
-            else if(!(sourceList.getLast() instanceof DealDeck))
+            for(int i = 0; i < stack.length(); i++)
             {
-                CardStack tempSource = sourceList.getLast();
-                CardStack tempDest = destinationList.getLast();
-                int num = numCards.getLast();
-                int numDiscard = numCardsInDiscardView.getLast();
+                state.push(pile, stack.getCardAtLocation(i).getFullNumber());
+            }
+        }
 
-                sourceList.removeLast();
-                destinationList.removeLast();
-                numCards.removeLast();
-                numCardsInDiscardView.removeLast();
+        state.setDeckThroughs(dealDeck.getDeckThroughs());
+        state.setDiscardView(discardPile.getNumViewableCards());
 
-                if(num == 1)
-                {
-                    tempSource.push(tempDest.pop());
-                }
-                else
-                {
-                    CardStack temp = tempDest.getStack(num);
-                    tempSource.push(temp);
-                    
-                    for (int i = 0; i < num; i++)
-                        tempDest.pop();
-                }
+        return state;
+    }
 
-                discardPile.setView(numDiscard);
-                tempSource.repaint();
-                tempDest.repaint();
-            }
-            //The last draw from the deck didn't reset the discard pile to make it an empty pile
-            else if(sourceList.getLast() instanceof DealDeck && !destinationList.getLast().isEmpty())
-            {
-                int num = numCards.getLast();
-                int numDiscard = numCardsInDiscardView.getLast();
+    protected CardStack getPile(int pile)
+    {
+        if(GameState.isCell(pile))
+        {
+            return cells[pile - GameState.FIRST_CELL];
+        }
+        else if(GameState.isColumn(pile))
+        {
+            return columns[pile - GameState.FIRST_COLUMN];
+        }
+        else if(GameState.isAcePile(pile))
+        {
+            return acePiles[pile - GameState.FIRST_ACE_PILE];
+        }
+        else if(pile == GameState.DEAL_DECK)
+        {
+            return dealDeck;
+        }
+        else
+        {
+            return discardPile;
+        }
+    }
 
-                sourceList.removeLast();
-                destinationList.removeLast();
-                numCards.removeLast();
-                numCardsInDiscardView.removeLast();
+    public synchronized void undoMove()
+    {
+        //If player is holding on to a card, put it back first
+        if(ml.hasSelected)
+        {
+            ml.cancelSelection();
+            return;
+        }
 
-                for(int i = 0; i < num; i++)
-                {
-                    Card card = discardPile.undoPop();
-                    card.setFaceDown();
-                    dealDeck.push(card);
-                }
+        if(!journal.canUndo())
+        {
+            return;
+        }
 
-                discardPile.setView(numDiscard);
-                dealDeck.repaint();
-                discardPile.repaint();
-            }
-            //Last move was a reset on the discard pile
-            else if(sourceList.getLast() instanceof DealDeck)
+        long entry = journal.undo();
+        int move = MoveJournal.getMove(entry);
+        int num = Move.count(move);
+
+        if(Move.from(move) != GameState.DEAL_DECK)
+        {
+            transferCards(getPile(Move.to(move)), num, getPile(Move.from(move)));
+        }
+        //Last move was a reset on the discard pile
+        else if(MoveJournal.getDeckThroughDelta(entry) != 0)
+        {
+            dealDeck.undoPop();
+        }
+        else
+        {
+            for(int i = 0; i < num; i++)
             {
-                dealDeck.undoPop();
+                Card card = discardPile.undoPop();
+                card.setFaceDown();
+                dealDeck.push(card);
+            }
+        }
 
-                int numDiscard = numCardsInDiscardView.getLast();
-                discardPile.setView(numDiscard);
+        discardPile.setView(MoveJournal.getDiscardView(entry));
+        autosaveMove(AutosaveJournal.UNDO);
+    }
 
-                discardPile.repaint();
-                discardPile.revalidate();
-                dealDeck.repaint();
+    public synchronized void redoMove()
+    {
+        if(ml.hasSelected)
+        {
+            ml.cancelSelection();
+        }
 
-                sourceList.removeLast();
-                destinationList.removeLast();
-                numCards.removeLast();
-                numCardsInDiscardView.removeLast();
-            }
+        if(!journal.canRedo())
+        {
+            return;
+        }
+
+        int move = MoveJournal.getMove(journal.redo());
+
+        applyMove(move);
+        autosaveMove(AutosaveJournal.REDO);
+
+        if(GameState.isAcePile(Move.to(move)) && getPile(Move.to(move)).peek().getNumber() == CardNumber.KING)
+        {
+            ml.checkWin();
         }
     }
 
-    @SuppressWarnings("fallthrough")
-    public void getHint()
+    /**
+     * Makes a move from the journal again.
+     */
+    private void applyMove(int move)
     {
-        CardStack source = new CardStack();
-        CardStack destination = new CardStack();
-        CardStack temp = new CardStack();
+        if(Move.from(move) == GameState.DEAL_DECK)
+        {
+            dealDeck.pop();
+        }
+        else
+        {
+            transferCards(getPile(Move.from(move)), Move.count(move), getPile(Move.to(move)));
+        }
+    }
 
-        LinkedList<String> hints = new LinkedList<String>();
-        String sourceString = "";
+    /**
+     * Records a move made, for undo and in the autosave journal.
+     */
+    private void addMove(long entry)
+    {
+        journal.add(entry);
+        autosaveMove((int) entry);
+    }
+
+    /**
+     * Moves the top cards of one pile onto another, keeping their order.
+     */
+    private void transferCards(CardStack source, int num, CardStack destination)
+    {
+        CardStack stack = new CardStack();
 
-        for(int i = 0; i < 9; i++)
+        for(int i = 0; i < num; i++)
         {
-            switch(i)
-            {
-                case 0: ;
-                case 1: ;
-                case 2: ;
-                case 3:
-                {
-                    source = columns[i];
-                    sourceString = "Column " + (i + 1);
-                } break;
-                case 4: ;
-                case 5: ;
-                case 6: ;
-                case 7:
-                {
-                    source = cells[i - 4];
-                    sourceString = "Cell " + (i - 3);
-                } break;
-                case 8:
-                {
-                    source = discardPile;
-                    sourceString = "the Discard Pile";
-                } break;
+            Card card = source.pop();
+            card.unhighlight();
 
-                default: ; break;
-            }
+            stack.push(card);
+        }
+
+        destination.push(stack);
+    }
 
-            if(source != null && !source.isEmpty())
+    /**
+     * Returns the pile id (see GameState) of one of the board's piles.
+     */
+    protected int getPileId(CardStack stack)
+    {
+        for(int pile = 0; pile < GameState.NUM_PILES; pile++)
+        {
+            if(getPile(pile) == stack)
             {
-                temp = source.getAvailableCards();
-                String destinationString = "";
+                return pile;
+            }
+        }
 
-                for(int j = 0; j < 8; j++)
-                {
-                    switch(j)
-                    {
-                        case 0: ;
-                        case 1: ;
-                        case 2: ;
-                        case 3:
-                        {
-                            destination = columns[j];
-                            destinationString = "Column " + (j + 1);
-                        } break;
-                        case 4: ;
-                        case 5: ;
-                        case 6: ;
-                        case 7:
-                        {
-                            destination = acePiles[j - 4];
-                            destinationString = "its Ace Pile";
-                        } break;
+        return -1;
+    }
 
-                        default: ; break;
-                    }
+    public void getHint()
+    {
+        MoveGenerator legalMoves = getLegalMoves();
+        int[] moves = new int[legalMoves.size()];
+        System.arraycopy(legalMoves.getMoves(), 0, moves, 0, moves.length);
+        Arrays.sort(moves); //Pile order, so the hints come out the same way each time
 
-                    if(destination != null && !destination.isEmpty() && destination != source
-                            && !(destination instanceof SingleCell))
-                    {
-                        for(int k = temp.length() - 1; k >= 0; k--)
-                        {
-                            Card card = temp.getCardAtLocation(k);
-
-                            if(((destination instanceof AcePile) && card.getSuit().equals(((AcePile)destination).getSuit())
-                                    && card.getNumber().getValue() == (destination.peek().getNumber().getValue() + 1) && k == 0) ||
-                                    (!(destination instanceof AcePile) && card.getColor() != destination.peek().getColor()
-                                    && card.getNumber().getValue() == destination.peek().getNumber().getValue() - 1))
-                            {
-                                String hintString = "Move the ";
-
-                                if(card.getNumber().getValue() == 11)
-                                {
-                                    hintString += "Jack";
-                                }
-                                else if(card.getNumber().getValue() == 12)
-                                {
-                                    hintString += "Queen";
-                                }
-                                else if(card.getNumber().getValue() == 13)
-                                {
-                                    hintString += "King";
-                                }
-                                else if(card.getNumber().getValue() == 1)
-                                {
-                                    hintString += "Ace";
-                                }
-                                else
-                                {
-                                    hintString += card.getNumber().getValue();
-                                }
-
-                                hintString += " of " + card.getSuit() + " in " + sourceString + " to the ";
-
-                                if(destination.peek().getNumber().getValue() == 11)
-                                {
-                                    hintString += "Jack";
-                                }
-                                else if(destination.peek().getNumber().getValue() == 12)
-                                {
-                                    hintString += "Queen";
-                                }
-                                else if(destination.peek().getNumber().getValue() == 13)
-                                {
-                                    hintString += "King";
-                                }
-                                else if(destination.peek().getNumber().getValue() == 1)
-                                {
-                                    hintString += "Ace";
-                                }
-                                else
-                                {
-                                    hintString += destination.peek().getNumber().getValue();
-                                }
-
-                                hintString += " of " + destination.peek().getSuit() + " in " + destinationString;
-
-                                hints.add(hintString);
-                                break; //Once a move is found from a source to destination, stop looking for more
-                            }
-                        }
-                    }
-                    else if(destination != null && destination != source && (destination instanceof Column)
-                            && destination.isEmpty() && source.getBottom().getNumber().getValue() != 13)
-                    {
-                        for(int k = 0; k < temp.length(); k++)
-                        {
-                            Card card = temp.getCardAtLocation(k);
+        LinkedList<String> hints = new LinkedList<String>();
 
-                            if(card.getNumber().getValue() == 13)
-                            {
-                                String hintString = "Move the King of " + card.getSuit() + " in " + sourceString
-                                        + " to the empty " + destinationString;
+        for(int move : moves)
+        {
+            int from = Move.from(move);
+            int to = Move.to(move);
 
-                                hints.add(hintString);
-                                break; //Once a move is found from a source to destination, stop looking for more
-                            }
-                        }
-                    }
-                    else if(destination != null && destination != source && (destination instanceof AcePile)
-                            && destination.isEmpty())
-                    {
-                        Card card = temp.peek();
+            //Cards in the Cells are covered by the hints below; cards are not taken off the Ace Piles
+            if(Move.isDraw(move) || GameState.isCell(to) || GameState.isAcePile(from))
+            {
+                continue;
+            }
 
-                        if(card.getNumber().getValue() == 1 && card.getSuit().equals(((AcePile)destination).getSuit()))
-                        {
-                            String hintString = "Move the Ace of " + card.getSuit() + " in " + sourceString
-                                    + " to " + destinationString;
+            CardStack source = getPile(from);
+            CardStack destination = getPile(to);
+            Card card = source.getCardAtLocation(source.length() - Move.count(move));
+            String sourceString = Move.pileName(from);
 
-                            hints.add(hintString);
-                            break; //Once a move is found from a source to destination, stop looking for more
-                        }
-                    }
-                }
+            if(GameState.isAcePile(to) && destination.isEmpty())
+            {
+                hints.add("Move the Ace of " + card.getSuit() + " in " + sourceString + " to its Ace Pile");
+            }
+            else if(destination.isEmpty())
+            {
+                hints.add("Move the King of " + card.getSuit() + " in " + sourceString + " to the empty "
+                        + Move.pileName(to));
+            }
+            else
+            {
+                String destinationString = GameState.isAcePile(to) ? "its Ace Pile" : Move.pileName(to);
+
+                hints.add("Move the " + getCardName(card) + " of " + card.getSuit() + " in " + sourceString
+                        + " to the " + getCardName(destination.peek()) + " of " + destination.peek().getSuit()
+                        + " in " + destinationString);
             }
         }
 
@@ -1505,8 +1548,91 @@ public class SolitaireBoard extends JFrame
         }
         else
         {
-            JOptionPane.showMessageDialog(this, "There are no moves on the field.\n" +
-                    "Either deal more cards or start a new game", "Hints", JOptionPane.INFORMATION_MESSAGE);
+            //The search can take a second, so the answer is shown when it is done
+            final GameState stuck = getGameState();
+
+            hintSolver.execute(new Runnable()
+            {
+                public void run()
+                {
+                    final int result = new Solver(HINT_SOLVER_NODES).solve(stuck);
+
+                    SwingUtilities.invokeLater(new Runnable()
+                    {
+                        public void run()
+                        {
+                            showNoMoves(result);
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    private void showNoMoves(int result)
+    {
+        String outlook;
+
+        switch(result)
+        {
+            case Solver.WINNABLE:
+                outlook = "This game can still be won.";
+                break;
+            case Solver.UNWINNABLE:
+                outlook = "This game can no longer be won.";
+                break;
+            default:
+                outlook = "It could not be determined if this game can still be won.";
+        }
+
+        JOptionPane.showMessageDialog(this, "There are no moves on the field.\n" +
+                "Either deal more cards or start a new game\n\n" + outlook, "Hints", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private String getCardName(Card card)
+    {
+        switch(card.getNumber().getValue())
+        {
+            case 1: return "Ace";
+            case 11: return "Jack";
+            case 12: return "Queen";
+            case 13: return "King";
+
+            default: return String.valueOf(card.getNumber().getValue());
+        }
+    }
+
+    /**
+     * Returns the legal moves in the current position. They are kept up to
+     * date as cards are pushed and popped, so this only costs as much as the
+     * piles changed since the last call.
+     */
+    public MoveGenerator getLegalMoves()
+    {
+        //The draw count and difficulty only change between games
+        if(position.getDrawCount() != drawCount || position.getDifficulty() != difficulty)
+        {
+            position = getGameState();
+            moveGenerator = new MoveGenerator(position);
+        }
+
+        position.setDeckThroughs(dealDeck.getDeckThroughs());
+
+        return moveGenerator;
+    }
+
+    private class PositionListener implements CardStackListener
+    {
+        public void cardPushed(int pile, int card)
+        {
+            position.push(pile, card);
+            repaints.cardPushed(pile, card);
+        }
+
+        public void cardPopped(int pile)
+        {
+            position.pop(pile);
+            repaints.cardPopped(pile);
         }
     }
 
@@ -1523,6 +1649,37 @@ public class SolitaireBoard extends JFrame
         private Card tempCard; //For right clicking discard pile view
         private boolean rightClicked = false; //To prevent clicking cards from the right click view
 
+        private int selectedDiscardView; //Viewable discard pile cards when the selection was made
+
+        /**
+         * Records a completed move of the selected cards for undo.
+         */
+        private void recordMove(int num, CardStack destination)
+        {
+            int move = Move.encode(getPileId(source), num, getPileId(destination));
+            addMove(MoveJournal.entry(move, selectedDiscardView, 0));
+
+            SoundEffects.play(SoundEffects.MOVE);
+        }
+
+        /**
+         * Puts back the cards the player is holding on to.
+         */
+        private void cancelSelection()
+        {
+            for(int i = 0; i < temp.length(); i++)
+            {
+                source.getCardAtLocation(source.length() - i - 1).unhighlight();
+            }
+
+            repaints.cardsChanged(getPileId(source), source.length() - temp.length());
+
+            clickedCard = null;
+            hasSelected = false;
+            singleCardSelected = false;
+            temp = null;
+        }
+
         private void checkWin()
         {
             for(int i = 0; i < 4; i++)
@@ -1534,6 +1691,7 @@ public class SolitaireBoard extends JFrame
             }
             
             timer.stop();
+            endAutosave();
             
             if(winAnimationStatus != 0 || winSoundsStatus != 0)
             {
@@ -1548,7 +1706,6 @@ public class SolitaireBoard extends JFrame
                 if(discardPile.getNumViewableCards() == 1 || (discardPile.getNumViewableCards() == 0 && !discardPile.isEmpty()))
                 {
                     tempCard = discardPile.pop();
-                    discardPile.repaint();
                     rightClicked = true;
                 }
             }
@@ -1559,7 +1716,6 @@ public class SolitaireBoard extends JFrame
             if(e.getButton() == MouseEvent.BUTTON3 && tempCard != null)
             {
                 discardPile.push(tempCard);
-                discardPile.repaint();
                 rightClicked = false;
                 tempCard = null;
             }
@@ -1586,33 +1742,31 @@ public class SolitaireBoard extends JFrame
                         Card card = source.pop();
                         card.unhighlight();
                         acePiles[0].push(card);
-                        destinationList.add(acePiles[0]);
+                        recordMove(1, acePiles[0]);
                     }
                     else if(source.peek().getSuit().equals(CardSuit.CLUBS))
                     {
                         Card card = source.pop();
                         card.unhighlight();
                         acePiles[1].push(card);
-                        destinationList.add(acePiles[1]);
+                        recordMove(1, acePiles[1]);
                     }
                     else if(source.peek().getSuit().equals(CardSuit.DIAMONDS))
                     {
                         Card card = source.pop();
                         card.unhighlight();
                         acePiles[2].push(card);
-                        destinationList.add(acePiles[2]);
+                        recordMove(1, acePiles[2]);
                     }
                     else //if(source.peek().getSuit() == CardSuit.HEARTS))
                     {
                         Card card = source.pop();
                         card.unhighlight();
                         acePiles[3].push(card);
-                        destinationList.add(acePiles[3]);
+                        recordMove(1, acePiles[3]);
                     }
 
                     hasSelected = false;
-                    source.repaint();
-                    repaint();
                     return;
                 }
 
@@ -1625,12 +1779,9 @@ public class SolitaireBoard extends JFrame
                         card.unhighlight();
                         acePiles[i].push(card);
                         
-                        destinationList.add(acePiles[i]);
+                        recordMove(1, acePiles[i]);
                         hasSelected = false;
 
-                        source.repaint();
-                        repaint();
-
                         if(card.getNumber() == CardNumber.KING)
                         {
                             checkWin();
@@ -1648,19 +1799,15 @@ public class SolitaireBoard extends JFrame
                         card.unhighlight();
                         cells[i].push(card);
 
-                        destinationList.add(cells[i]);
+                        recordMove(1, cells[i]);
                         hasSelected = false;
-
-                        source.repaint();
-                        repaint();
                         return;
                     }
                 }
 
                 source.peek().unhighlight();
-
-                source.repaint();
-                repaint();
+                repaints.cardsChanged(getPileId(source), source.length() - 1);
+                SoundEffects.play(SoundEffects.INVALID);
                 return;
             }
             else if(e.getClickCount() == 2 && hasSelected)
@@ -1673,75 +1820,60 @@ public class SolitaireBoard extends JFrame
                     {
                         source.getCardAtLocation(source.length() - i - 1).unhighlight();
                     }
-                }
 
-                sourceList.removeLast();
-                numCardsInDiscardView.removeLast();
-                numCards.removeLast();
+                    repaints.cardsChanged(getPileId(source), source.length() - temp.length());
+                }
             }
 
             else if(!hasSelected && e.getClickCount() == 1 || (e.getSource() instanceof DealDeck))
             {
-                source = (CardStack)e.getSource();
-
-                if(source instanceof DealDeck)
+                if(e.getSource() instanceof DealDeck)
                 {
                     if(hasSelected)
                     {
-                        hasSelected = false;
+                        cancelSelection();
+                    }
 
-                        if(temp.length() > 0)
-                        {
-                            for(int i = 0; i < temp.length(); i++)
-                            {
-                                sourceList.getLast().getCardAtLocation(sourceList.getLast().length() - i - 1).unhighlight();
-                            }
-                        }
-                        else
-                        {
-                            sourceList.getLast().peek().unhighlight();
-                        }
+                    int numDiscard = discardPile.getNumViewableCards();
+                    int numInDeck = dealDeck.length();
+                    int deckThroughs = dealDeck.getDeckThroughs();
 
-                        sourceList.getLast().repaint();
-                        repaint();
-                        sourceList.removeLast();
-                        numCardsInDiscardView.removeLast();
-                        numCards.removeLast();
-                    }
+                    dealDeck.pop();
 
-                    numCardsInDiscardView.add(discardPile.getNumViewableCards());
-                    clickedCard = source.pop();
+                    //Cards dealt, or the deck was reset but the player hasn't used up the times through the deck
+                    if(dealDeck.length() < numInDeck || dealDeck.getDeckThroughs() != deckThroughs)
+                    {
+                        int move = Move.encode(GameState.DEAL_DECK, Math.max(numInDeck - dealDeck.length(), 0),
+                                GameState.DISCARD_PILE);
+                        addMove(MoveJournal.entry(move, numDiscard, dealDeck.getDeckThroughs() - deckThroughs));
+                    }
 
-                    if(clickedCard != null)
+                    if(dealDeck.length() < numInDeck)
                     {
-                        sourceList.add(dealDeck);
-                        destinationList.add(discardPile);
-                        numCards.add(discardPile.getNumViewableCards());
+                        SoundEffects.play(SoundEffects.DEAL);
                     }
-                    else if(dealDeck.hasDealsLeft())//The deck was reset but the player hasn't used up the times through the deck
+                    else if(dealDeck.length() > numInDeck)
                     {
-                        sourceList.add(dealDeck);
-                        destinationList.add(discardPile);
-                        numCards.add(0);
+                        //The discard pile was turned back over onto the deck
+                        SoundEffects.play(SoundEffects.FLIP);
                     }
                     else
                     {
-                        numCardsInDiscardView.removeLast();
+                        SoundEffects.play(SoundEffects.INVALID);
                     }
 
                     return;
                 }
 
-                numCardsInDiscardView.add(discardPile.getNumViewableCards());
+                source = (CardStack)e.getSource();
+                selectedDiscardView = discardPile.getNumViewableCards();
                 clickedCard = source.getCardAtLocation(e.getPoint());
                 
                 if(clickedCard != null)
                 {
                     hasSelected = true;
                     temp = source.getStack(clickedCard);
-
-                    sourceList.add(source);
-                    numCards.add(temp.length());
+                    repaints.cardsChanged(getPileId(source), source.length() - temp.length());
 
                     if(temp.length() > 1)
                     {
@@ -1754,7 +1886,6 @@ public class SolitaireBoard extends JFrame
                 }
                 else
                 {
-                    numCardsInDiscardView.removeLast();
                     hasSelected = false;
                     return;
                 }
@@ -1772,12 +1903,11 @@ public class SolitaireBoard extends JFrame
                         card.unhighlight();
                         destination.push(card);
 
-                        //If move is valid, add destination info for undo
-                        destinationList.add(destination);
+                        //If move is valid, record it for undo
+                        recordMove(1, destination);
                         
                         if(destination instanceof AcePile && clickedCard.getNumber() == CardNumber.KING)
                         {
-                            repaint();
                             checkWin();
                         }
                     }
@@ -1786,11 +1916,8 @@ public class SolitaireBoard extends JFrame
                         //Not needed with highlighting version
                         //source.addCard(clickedCard);
                         source.peek().unhighlight();
-                        
-                        //Upon invalid move, remove undo information for cards
-                        sourceList.removeLast();
-                        numCards.removeLast();
-                        numCardsInDiscardView.removeLast();
+                        repaints.cardsChanged(getPileId(source), source.length() - 1);
+                        SoundEffects.play(SoundEffects.INVALID);
                     }
                 }
                 else
@@ -1809,8 +1936,8 @@ public class SolitaireBoard extends JFrame
 
                         destination.push(stack);
 
-                        //If move is valid, add destination info for undo
-                        destinationList.add(destination);
+                        //If move is valid, record it for undo
+                        recordMove(temp.length(), destination);
                     }
                     else
                     {
@@ -1819,10 +1946,8 @@ public class SolitaireBoard extends JFrame
                             source.getCardAtLocation(source.length() - i - 1).unhighlight();
                         }
 
-                        //Upon invalid move, remove undo information for cards
-                        sourceList.removeLast();
-                        numCards.removeLast();
-                        numCardsInDiscardView.removeLast();
+                        repaints.cardsChanged(getPileId(source), source.length() - temp.length());
+                        SoundEffects.play(SoundEffects.INVALID);
                     }
                 }
 
@@ -1831,8 +1956,6 @@ public class SolitaireBoard extends JFrame
                 temp = null;
                 clickedCard = null;
             }
-
-            repaint();
         }
     }
 
@@ -1844,6 +1967,11 @@ public class SolitaireBoard extends JFrame
             {
                 timerCount++;
                 timerLabel.setText("Time: " + timerCount);
+
+                if(autosave != null)
+                {
+                    autosave.setSeconds(timerCount);
+                }
                 statusBar.repaint();
             }
         }
@@ -1851,6 +1979,16 @@ public class SolitaireBoard extends JFrame
 
     public class MyWindowListener extends WindowAdapter
     {
+        public void windowDeactivated(WindowEvent e)
+        {
+            forceAutosave();
+        }
+
+        public void windowIconified(WindowEvent e)
+        {
+            forceAutosave();
+        }
+
         public void windowClosing(WindowEvent e)
         {
             int save = JOptionPane.showConfirmDialog(SolitaireBoard.this, "Closing without saving will result " +
@@ -1859,13 +1997,15 @@ public class SolitaireBoard extends JFrame
             if(save == JOptionPane.YES_OPTION)
             {
                 recordGame(SolitaireBoard.GAME_SAVED);
-                System.exit(0);
             }
             else //if(save == JOptionPane.NO_OPTION)
             {
                 recordGame(SolitaireBoard.GAME_LOST);
-                System.exit(0);
             }
+
+            //Finish writing before the persistence thread is stopped
+            PersistenceService.getInstance().flush();
+            System.exit(0);
         }
     }
 }
\ No newline at end of file
@@ -21,6 +21,8 @@ package edu.asu.FourRowSolitaire;
 
 import java.awt.*;
 
+import edu.asu.FourRowSolitaire.engine.GameState;
+
 /**
  * Class: SolitaireLayout
  *
@@ -48,6 +50,44 @@ public class SolitaireLayout implements LayoutManager
     public static final String CELL_THREE = "Cell Three";
     public static final String CELL_FOUR = "Cell Four";
 
+    //A BoardRenderer, which covers the whole board and draws every pile itself
+    public static final String BOARD = "Board";
+
+    //The size of the board at the normal scale, which the backgrounds are made for
+    public static final int BASE_WIDTH = 800;
+    public static final int BASE_HEIGHT = 622;
+
+    //The board is scaled in steps of 1/SCALE_STEPS, so that the scaled card
+    //images are only made again when the window size crosses a step
+    private static final int SCALE_STEPS = 8;
+    private static final double MIN_SCALE = 0.5;
+    private static final double MAX_SCALE = 4;
+
+    //The height of a column at the normal scale, more than the board shows
+    private static final int COLUMN_HEIGHT = 800;
+
+    //Where the top left corner of each pile goes at the normal scale, by pile id (see GameState)
+    private static final Point[] PILE_ORIGINS = new Point[GameState.NUM_PILES];
+
+    static
+    {
+        int[] left = {81, 164, 247, 330};
+
+        for(int i = 0; i < 4; i++)
+        {
+            PILE_ORIGINS[GameState.FIRST_CELL + i] = new Point(left[i], 3);
+            PILE_ORIGINS[GameState.FIRST_COLUMN + i] = new Point(left[i], 115);
+        }
+
+        PILE_ORIGINS[GameState.FIRST_ACE_PILE] = new Point(568, 3);
+        PILE_ORIGINS[GameState.FIRST_ACE_PILE + 1] = new Point(650, 3);
+        PILE_ORIGINS[GameState.FIRST_ACE_PILE + 2] = new Point(568, 110);
+        PILE_ORIGINS[GameState.FIRST_ACE_PILE + 3] = new Point(650, 110);
+
+        PILE_ORIGINS[GameState.DEAL_DECK] = new Point(568, 318);
+        PILE_ORIGINS[GameState.DISCARD_PILE] = new Point(650, 318);
+    }
+
     private Component colOne;
     private Component colTwo;
     private Component colThree;
@@ -66,6 +106,8 @@ public class SolitaireLayout implements LayoutManager
     private Component cellThree;
     private Component cellFour;
 
+    private Component board;
+
     public SolitaireLayout() {}
 
     public void addLayoutComponent(String name,Component comp)
@@ -129,6 +171,11 @@ public class SolitaireLayout implements LayoutManager
         {
             cellFour = comp;
         }
+
+        else if(name.equals(BOARD))
+        {
+            board = comp;
+        }
     }
 
     public void removeLayoutComponent(Component comp)
@@ -192,6 +239,11 @@ public class SolitaireLayout implements LayoutManager
         {
             cellFour = null;
         }
+
+        else if(board == comp)
+        {
+            board = null;
+        }
     }
 
     public Dimension preferredLayoutSize(Container parent)
@@ -204,68 +256,167 @@ public class SolitaireLayout implements LayoutManager
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    /**
+     * Returns where a pile goes on a board at the normal scale.
+     *
+     * @param pile the pile id (see GameState)
+     * @return the bounds of the pile
+     */
+    public static Rectangle getPileBounds(int pile)
+    {
+        return getPileBounds(pile, 1, 0);
+    }
+
+    /**
+     * Returns where a pile goes on a board at a scale.
+     *
+     * @param pile the pile id (see GameState)
+     * @param scale the scale of the board, where 1 is the normal size
+     * @param left the left edge of the board
+     * @return the bounds of the pile
+     */
+    public static Rectangle getPileBounds(int pile, double scale, int left)
+    {
+        Point origin = PILE_ORIGINS[pile];
+        int height;
+
+        if(GameState.isColumn(pile))
+        {
+            height = (int) Math.round(COLUMN_HEIGHT * scale);
+        }
+        else if(GameState.isCell(pile))
+        {
+            height = CardStack.getCardHeight(scale);
+        }
+        else
+        {
+            //Room below the piles that draw only their top card for its edges
+            height = CardStack.getCardHeight(scale) + CardStack.getEdgeHeight(scale);
+        }
+
+        return new Rectangle(left + (int) Math.round(origin.x * scale), (int) Math.round(origin.y * scale),
+                             CardStack.getCardWidth(scale), height);
+    }
+
+    /**
+     * Returns the scale a board is drawn at to fit an area: the largest that
+     * fits, to the nearest step.
+     *
+     * @param width the width of the area
+     * @param height the height of the area
+     * @return the scale, where 1 is the normal size
+     */
+    public static double getScale(int width, int height)
+    {
+        double fit = Math.min((double) width / BASE_WIDTH, (double) height / BASE_HEIGHT);
+        double scale = Math.round(fit * SCALE_STEPS) / (double) SCALE_STEPS;
+
+        return Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+    }
+
+    /**
+     * Lays out every pile of a board in an area, centered across it.
+     *
+     * @param piles the piles, indexed by pile id (see GameState)
+     * @param width the width of the area
+     * @param height the height of the area
+     */
+    public static void layoutPiles(CardStack[] piles, int width, int height)
+    {
+        double scale = getScale(width, height);
+        int left = getLeft(width, scale);
+
+        for(int pile = 0; pile < GameState.NUM_PILES; pile++)
+        {
+            place(piles[pile], pile, scale, left);
+        }
+    }
+
     public void layoutContainer(Container parent)
     {
         Component comp;
+        double scale = getScale(parent.getWidth(), parent.getHeight());
+        int left = getLeft(parent.getWidth(), scale);
 
         if((comp = colOne) != null)
         {
-        comp.setBounds(81,115,72,800);
+        place(comp, GameState.FIRST_COLUMN, scale, left);
         }
         if((comp = colTwo) != null)
         {
-        comp.setBounds(164,115,72,800);
+        place(comp, GameState.FIRST_COLUMN + 1, scale, left);
         }
         if((comp = colThree) != null)
         {
-        comp.setBounds(247,115,72,800);
+        place(comp, GameState.FIRST_COLUMN + 2, scale, left);
         }
         if((comp = colFour) != null)
         {
-        comp.setBounds(330,115,72,800);
+        place(comp, GameState.FIRST_COLUMN + 3, scale, left);
         }
 
         if((comp = aceSpades) != null)
         {
-        comp.setBounds(568,3,72,96);
+        place(comp, GameState.FIRST_ACE_PILE, scale, left);
         }
         if((comp = aceClubs) != null)
         {
-        comp.setBounds(650,3,72,96);
+        place(comp, GameState.FIRST_ACE_PILE + 1, scale, left);
         }
         if((comp = aceDiamonds) != null)
         {
-        comp.setBounds(568,110,72,96);
+        place(comp, GameState.FIRST_ACE_PILE + 2, scale, left);
         }
         if((comp = aceHearts) != null)
         {
-        comp.setBounds(650,110,72,96);
+        place(comp, GameState.FIRST_ACE_PILE + 3, scale, left);
         }
 
         if((comp = discardPile) != null)
         {
-        comp.setBounds(650,318,72,96);
+        place(comp, GameState.DISCARD_PILE, scale, left);
         }
         if((comp = deck) != null)
         {
-        comp.setBounds(568,318,72,96);
+        place(comp, GameState.DEAL_DECK, scale, left);
         }
 
         if((comp = cellOne) != null)
         {
-        comp.setBounds(81,3,72,96);
+        place(comp, GameState.FIRST_CELL, scale, left);
         }
         if((comp = cellTwo) != null)
         {
-        comp.setBounds(164,3,72,96);
+        place(comp, GameState.FIRST_CELL + 1, scale, left);
         }
         if((comp = cellThree) != null)
         {
-        comp.setBounds(247,3,72,96);
+        place(comp, GameState.FIRST_CELL + 2, scale, left);
         }
         if((comp = cellFour) != null)
         {
-        comp.setBounds(330,3,72,96);
+        place(comp, GameState.FIRST_CELL + 3, scale, left);
+        }
+
+        if((comp = board) != null)
+        {
+        comp.setBounds(0, 0, parent.getWidth(), parent.getHeight());
+        }
+    }
+
+    //Left edge of a board centered across an area
+    private static int getLeft(int width, double scale)
+    {
+        return Math.max(0, (width - (int) Math.round(BASE_WIDTH * scale)) / 2);
+    }
+
+    private static void place(Component comp, int pile, double scale, int left)
+    {
+        comp.setBounds(getPileBounds(pile, scale, left));
+
+        if(comp instanceof CardStack)
+        {
+            ((CardStack) comp).setScale(scale);
         }
     }
 }
\ No newline at end of file
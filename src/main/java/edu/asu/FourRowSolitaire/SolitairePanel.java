@@ -20,7 +20,7 @@
 package edu.asu.FourRowSolitaire;
 
 import java.awt.*;
-import java.net.URL;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
 
 /**
@@ -35,33 +35,66 @@ public class SolitairePanel extends JPanel
     private int backgroundNumber = 2;
     private Image background;
 
-    public SolitairePanel()
+    public void changeBackground(int back)
     {
-        URL imageURL = this.getClass().getClassLoader().getResource("images/backgrounds/background" + backgroundNumber + ".jpg");
+        backgroundNumber = back;
+        background = ImagePreloader.getBackground(back);
 
-        if (imageURL != null)
-        {
-            background = new ImageIcon(imageURL).getImage();
-        }
+        repaint();
     }
 
-    public void changeBackground(int back)
+    protected void paintComponent(Graphics g)
     {
-        backgroundNumber = back;
-        
-        URL imageURL = this.getClass().getClassLoader().getResource("images/backgrounds/background" + back + ".jpg");
+        super.paintComponent(g);
 
-        if (imageURL != null)
+        //Decoded on first use, unless a background has been chosen already
+        if (background == null)
         {
-            background = new ImageIcon(imageURL).getImage();
+            background = ImagePreloader.getBackground(backgroundNumber);
         }
 
-        repaint();
+        drawBackground(g);
+        ImagePreloader.frameShown();
     }
 
-    protected void paintComponent(Graphics g)
+    /**
+     * Draws the background over the whole panel. A panel no bigger than the
+     * background on a normal screen gets the background as it is; otherwise
+     * it is scaled to cover the panel, in steps so that resizing the window
+     * only scales it again now and then, at the screen's resolution.
+     */
+    private void drawBackground(Graphics g)
     {
-        super.paintComponent(g);
-        g.drawImage(background,0,0,null);
+        double cover = Math.max((double) getWidth() / SolitaireLayout.BASE_WIDTH,
+                                (double) getHeight() / SolitaireLayout.BASE_HEIGHT);
+        double scale = Math.max(1, Math.ceil(cover * 8) / 8);
+        double deviceScale = 1;
+
+        if(g instanceof Graphics2D)
+        {
+            deviceScale = ((Graphics2D) g).getTransform().getScaleX();
+        }
+
+        if((scale == 1 && deviceScale == 1) || !(background instanceof BufferedImage))
+        {
+            g.drawImage(background,0,0,null);
+            return;
+        }
+
+        final BufferedImage source = (BufferedImage) background;
+        int width = (int) Math.round(SolitaireLayout.BASE_WIDTH * scale);
+        int height = (int) Math.round(SolitaireLayout.BASE_HEIGHT * scale);
+
+        BufferedImage scaled = ScaledImageCache.get("background " + backgroundNumber,
+                (int) Math.round(width * deviceScale), (int) Math.round(height * deviceScale),
+                new ScaledImageCache.Producer()
+        {
+            public BufferedImage produce(int w, int h)
+            {
+                return CardAtlas.toCompatibleImage(ScaledImageCache.scale(source, w, h), Transparency.OPAQUE);
+            }
+        });
+
+        g.drawImage(scaled,0,0,width,height,null);
     }
 }
\ No newline at end of file
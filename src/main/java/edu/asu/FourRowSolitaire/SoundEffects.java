@@ -0,0 +1,434 @@
+package edu.asu.FourRowSolitaire;
+
+import java.util.Random;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Plays the short sounds of moving cards through a small software mixer, so
+ * any number of them can overlap and each starts within a few milliseconds.
+ * <p>
+ * The sounds are made in code when the mixer starts. A mixer thread keeps one
+ * line open, and writes it a few milliseconds of sound at a time, the voices
+ * playing mixed together. Once the last voice has finished, the mixer lets the
+ * line play out, stops it and waits for the next sound. {@link #play(int)}
+ * only puts the sound in a queue the mixer reads before each chunk, so the
+ * event thread never opens a line or allocates anything. When every voice is
+ * busy, a new sound takes the voice that is nearest its end.
+ * <p>
+ * Nothing plays unless the sounds have been turned on with
+ * {@link #setEnabled(boolean)}, which starts the mixer the first time.
+ * <p>
+ * The time from {@link #play(int)} to the sound reaching the speaker, which
+ * counts the chunks already waiting in the line, is measured for each sound.
+ */
+public final class SoundEffects
+{
+    public static final int MOVE = 0;
+    public static final int FLIP = 1;
+    public static final int DEAL = 2;
+    public static final int INVALID = 3;
+
+    private static final int NUM_EFFECTS = 4;
+
+    private static final float SAMPLE_RATE = 44100;
+
+    /*
+     * Frames mixed at a time, and frames the line holds: about 3 ms and 12 ms.
+     */
+    private static final int CHUNK_FRAMES = 128;
+    private static final int LINE_FRAMES = 4 * CHUNK_FRAMES;
+
+    private static final int MAX_VOICES = 16;
+    private static final int MAX_REQUESTS = 32;
+
+    private static volatile SoundEffects instance;
+    private static volatile boolean enabled;
+
+    private final short[][] samples = new short[NUM_EFFECTS][];
+
+    // the voice playing each effect, or -1 if free, and how far it has got
+    private final int[] voiceEffect = new int[MAX_VOICES];
+    private final int[] voicePosition = new int[MAX_VOICES];
+
+    // sounds asked for since the last chunk, in order
+    private final int[] requestEffect = new int[MAX_REQUESTS];
+    private final long[] requestTime = new long[MAX_REQUESTS];
+    private int requests;
+
+    private final int[] mix = new int[CHUNK_FRAMES];
+
+    private volatile long lastLatencyNanos = -1;
+    private volatile long maxLatencyNanos = -1;
+
+    SoundEffects()
+    {
+        for (int voice = 0; voice < MAX_VOICES; voice++)
+            voiceEffect[voice] = -1;
+
+        Random random = new Random(7);
+
+        samples[MOVE] = noise(random, 0.035, 0.45, 0.008, 0.6);
+        samples[FLIP] = noise(random, 0.025, 0.30, 0.004, 0.2);
+        samples[DEAL] = noise(random, 0.090, 0.25, 0.030, 0.8);
+        samples[INVALID] = tones(0.140, 0.20, 220, 165);
+    }
+
+    /**
+     * Starts the mixer on a background thread, if it has not been started.
+     *
+     * @return the mixer
+     */
+    public static synchronized SoundEffects start()
+    {
+        if (instance == null)
+        {
+            instance = new SoundEffects();
+
+            Thread mixer = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    instance.run();
+                }
+            }, "Sound effects");
+
+            mixer.setDaemon(true);
+            mixer.setPriority(Thread.MAX_PRIORITY);
+            mixer.start();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Turns the sounds on or off, starting the mixer the first time they are
+     * turned on. While they are off the mixer waits without touching the
+     * line.
+     *
+     * @param on true to play sounds
+     */
+    public static void setEnabled(boolean on)
+    {
+        enabled = on;
+
+        if (on)
+            start();
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Plays a sound, if the sounds are on and the mixer has been started.
+     *
+     * @param effect the sound: {@link #MOVE}, {@link #FLIP}, {@link #DEAL} or
+     *        {@link #INVALID}
+     */
+    public static void play(int effect)
+    {
+        SoundEffects mixer = instance;
+
+        if (enabled && mixer != null)
+            mixer.request(effect);
+    }
+
+    /**
+     * Returns the mixer, if it has been started.
+     *
+     * @return the mixer, or null
+     */
+    public static SoundEffects getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Queues a sound for the next chunk. If sounds are asked for faster than
+     * the mixer takes them, the extra ones are dropped.
+     *
+     * @param effect the sound
+     */
+    void request(int effect)
+    {
+        synchronized (requestEffect)
+        {
+            if (requests == MAX_REQUESTS)
+                return;
+
+            requestEffect[requests] = effect;
+            requestTime[requests] = System.nanoTime();
+            requests++;
+
+            requestEffect.notify();
+        }
+    }
+
+    /**
+     * Tests if there is nothing to mix: no sound playing or asked for.
+     *
+     * @return true if the next chunk would be silent
+     */
+    boolean isIdle()
+    {
+        synchronized (requestEffect)
+        {
+            return requests == 0 && getActiveVoices() == 0;
+        }
+    }
+
+    /**
+     * Waits until a sound is asked for.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    void awaitRequest() throws InterruptedException
+    {
+        synchronized (requestEffect)
+        {
+            while (requests == 0)
+                requestEffect.wait();
+        }
+    }
+
+    /**
+     * Mixes the next chunk of sound, starting the sounds asked for since the
+     * last one.
+     *
+     * @param out where to put the chunk, as 16 bit little endian samples
+     * @param queuedFrames the frames already waiting to be played ahead of
+     *        this chunk
+     * @return the number of bytes in the chunk
+     */
+    int mixChunk(byte[] out, int queuedFrames)
+    {
+        synchronized (requestEffect)
+        {
+            long ahead = (long) (queuedFrames * 1000000000L / SAMPLE_RATE);
+            long now = System.nanoTime();
+
+            for (int i = 0; i < requests; i++)
+            {
+                startVoice(requestEffect[i]);
+
+                long latency = now - requestTime[i] + ahead;
+                lastLatencyNanos = latency;
+                maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+            }
+
+            requests = 0;
+        }
+
+        for (int i = 0; i < CHUNK_FRAMES; i++)
+            mix[i] = 0;
+
+        for (int voice = 0; voice < MAX_VOICES; voice++)
+        {
+            if (voiceEffect[voice] < 0)
+                continue;
+
+            short[] sound = samples[voiceEffect[voice]];
+            int position = voicePosition[voice];
+            int frames = Math.min(CHUNK_FRAMES, sound.length - position);
+
+            for (int i = 0; i < frames; i++)
+                mix[i] += sound[position + i];
+
+            voicePosition[voice] = position + frames;
+
+            if (voicePosition[voice] >= sound.length)
+                voiceEffect[voice] = -1;
+        }
+
+        for (int i = 0; i < CHUNK_FRAMES; i++)
+        {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+
+            out[2 * i] = (byte) sample;
+            out[2 * i + 1] = (byte) (sample >> 8);
+        }
+
+        return 2 * CHUNK_FRAMES;
+    }
+
+    /**
+     * Returns the number of sounds playing.
+     *
+     * @return the voices in use
+     */
+    int getActiveVoices()
+    {
+        int active = 0;
+
+        for (int voice = 0; voice < MAX_VOICES; voice++)
+            if (voiceEffect[voice] >= 0)
+                active++;
+
+        return active;
+    }
+
+    /**
+     * Returns how long the last sound took from being asked for to reaching
+     * the speaker.
+     *
+     * @return the latency in nanoseconds, or -1 if no sound has played
+     */
+    public long getLastStartLatencyNanos()
+    {
+        return lastLatencyNanos;
+    }
+
+    /**
+     * Returns the longest any sound took from being asked for to reaching the
+     * speaker.
+     *
+     * @return the latency in nanoseconds, or -1 if no sound has played
+     */
+    public long getMaxStartLatencyNanos()
+    {
+        return maxLatencyNanos;
+    }
+
+    /**
+     * Returns the bytes in each chunk.
+     *
+     * @return the chunk size
+     */
+    static int getChunkBytes()
+    {
+        return 2 * CHUNK_FRAMES;
+    }
+
+    /*
+     * The mixer thread: opens the line, then writes it one chunk after
+     * another. Writing blocks while the line is full, which keeps the mixer
+     * a line's length ahead of the speaker. With nothing to play it stops the
+     * line and sleeps until a sound is asked for.
+     */
+    private void run()
+    {
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+        SourceDataLine line;
+
+        try
+        {
+            line = AudioSystem.getSourceDataLine(format);
+            line.open(format, 2 * LINE_FRAMES);
+            line.start();
+        }
+        catch (Exception ex)
+        {
+            System.err.println("Error opening the sound effects line.");
+
+            // play nothing, rather than queue sounds no one will mix
+            synchronized (SoundEffects.class)
+            {
+                if (instance == this)
+                    instance = null;
+            }
+
+            return;
+        }
+
+        byte[] chunk = new byte[getChunkBytes()];
+
+        while (true)
+        {
+            if (isIdle())
+            {
+                line.drain();
+                line.stop();
+
+                try
+                {
+                    awaitRequest();
+                }
+                catch (InterruptedException ex)
+                {
+                    line.close();
+                    return;
+                }
+
+                line.start();
+            }
+
+            int queued = (line.getBufferSize() - line.available()) / 2;
+            int length = mixChunk(chunk, queued);
+
+            line.write(chunk, 0, length);
+        }
+    }
+
+    private void startVoice(int effect)
+    {
+        int chosen = 0;
+        int furthest = -1;
+
+        for (int voice = 0; voice < MAX_VOICES; voice++)
+        {
+            if (voiceEffect[voice] < 0)
+            {
+                chosen = voice;
+                break;
+            }
+
+            // all busy so far: take the one nearest its end
+            int left = samples[voiceEffect[voice]].length - voicePosition[voice];
+
+            if (furthest < 0 || left < furthest)
+            {
+                furthest = left;
+                chosen = voice;
+            }
+        }
+
+        voiceEffect[chosen] = effect;
+        voicePosition[chosen] = 0;
+    }
+
+    /*
+     * A burst of noise, softened by averaging each sample with the last, that
+     * rises over the attack and dies away after it.
+     */
+    private static short[] noise(Random random, double seconds, double volume, double attack, double smoothing)
+    {
+        short[] sound = new short[(int) (seconds * SAMPLE_RATE)];
+        double last = 0;
+
+        for (int i = 0; i < sound.length; i++)
+        {
+            double t = i / SAMPLE_RATE;
+            double envelope = t < attack ? t / attack : Math.exp(-(t - attack) / (seconds / 5));
+
+            last = smoothing * last + (1 - smoothing) * (random.nextDouble() * 2 - 1);
+            sound[i] = (short) (last * envelope * volume * Short.MAX_VALUE);
+        }
+
+        return sound;
+    }
+
+    /*
+     * Two falling tones, one after the other.
+     */
+    private static short[] tones(double seconds, double volume, double first, double second)
+    {
+        short[] sound = new short[(int) (seconds * SAMPLE_RATE)];
+        int half = sound.length / 2;
+        double phase = 0;
+
+        for (int i = 0; i < sound.length; i++)
+        {
+            double t = (i % half) / SAMPLE_RATE;
+            double envelope = Math.min(1, t / 0.005) * Math.exp(-t / (seconds / 3));
+
+            phase += 2 * Math.PI * (i < half ? first : second) / SAMPLE_RATE;
+            sound[i] = (short) (Math.sin(phase) * envelope * volume * Short.MAX_VALUE);
+        }
+
+        return sound;
+    }
+}
@@ -0,0 +1,59 @@
+package edu.asu.FourRowSolitaire;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.BorderFactory;
+import javax.swing.ImageIcon;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JWindow;
+import javax.swing.Timer;
+
+/**
+ * A small window shown while the {@link ImagePreloader} decodes the images
+ * the board needs, with a bar showing how far it has got.
+ */
+@SuppressWarnings("serial")
+public class StartupSplash extends JWindow
+{
+    private final JProgressBar progressBar;
+    private final Timer timer;
+
+    public StartupSplash(final ImagePreloader preloader)
+    {
+        progressBar = new JProgressBar(0, preloader.getTotal());
+        progressBar.setStringPainted(true);
+        progressBar.setString("Loading cards...");
+
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        panel.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+        panel.add(new JLabel("Four Row Solitaire",
+                             new ImageIcon(getClass().getClassLoader().getResource("images/logo.png")),
+                             JLabel.CENTER), BorderLayout.CENTER);
+        panel.add(progressBar, BorderLayout.SOUTH);
+
+        setContentPane(panel);
+        setSize(280, 140);
+        setLocationRelativeTo(null);
+
+        timer = new Timer(50, new ActionListener()
+        {
+            public void actionPerformed(ActionEvent e)
+            {
+                progressBar.setValue(preloader.getProgress());
+            }
+        });
+        timer.start();
+
+        setVisible(true);
+    }
+
+    public void dispose()
+    {
+        timer.stop();
+        super.dispose();
+    }
+}
@@ -21,11 +21,7 @@ package edu.asu.FourRowSolitaire;
 
 //import java.awt.Dialog;
 import java.awt.event.*;
-import java.io.File;
-import java.net.URL;
-import java.util.Random;
 
-import javax.sound.midi.*;
 import javax.swing.*;
 import javax.swing.event.MouseInputAdapter;
 
@@ -38,7 +34,7 @@ import javax.swing.event.MouseInputAdapter;
  */
 public class WinScreen extends JFrame
 {
-    SoundThread sound = null;
+    FireworksDisplay fireworks = null;
 
     public WinScreen(int animation, int sounds, SolitaireBoard board)
     {
@@ -54,17 +50,16 @@ public class WinScreen extends JFrame
         if(sounds == 1)
         {
             setSize(200,200);
-            sound = new SoundThread();
-            sound.run();
+            AudioService.getInstance().playWinSong();
         }
 
         if(animation == 1)
         {
             setSize(800,600);
 
-            FireworksDisplay fw = new FireworksDisplay(100,200);
-            add(fw);
-            fw.restartDisplay();
+            fireworks = new FireworksDisplay(100,200);
+            add(fireworks);
+            fireworks.restartDisplay();
             setLocationRelativeTo(null);
         }
         else
@@ -75,13 +70,13 @@ public class WinScreen extends JFrame
         
         setVisible(true);
 
-        addMouseListener(new MouseInputAdapter()
+        MouseInputAdapter close = new MouseInputAdapter()
         {
             public void mouseClicked(MouseEvent e)
             {
-                if(sound != null && sound.sequencer.isRunning())
+                if(sounds == 1)
                 {
-                    sound.sequencer.stop();
+                    AudioService.getInstance().stopSong();
                 }
 
                 WinScreen.this.dispose();
@@ -97,10 +92,19 @@ public class WinScreen extends JFrame
                 else//(playAgain == JOptionPane.NO_OPTION)
                 {
                     board.recordGame(SolitaireBoard.GAME_WON);
+                    PersistenceService.getInstance().flush();
                     System.exit(0);
                 }
             }
-        });
+        };
+
+        addMouseListener(close);
+
+        //The fireworks are drawn on a heavyweight canvas, which gets the clicks on it
+        if(fireworks != null)
+        {
+            fireworks.addMouseListener(close);
+        }
 
         addFocusListener(new FocusAdapter()
         {
@@ -110,70 +114,4 @@ public class WinScreen extends JFrame
             }
         });
     }
-
-    private class SoundThread extends Thread
-    {
-        public Sequencer sequencer;
-
-        public void run()
-        {
-            String song = ""; //To hold choice
-            Random gen = new Random();
-
-            try
-            {
-                //Doesn't work as a .jar
-                File songDir = new File(getClass().getClassLoader().getResource("sounds/win/").toURI());
-                String[] songs = songDir.list();
-                boolean retry = true;
-
-                do
-                {
-                    song = songs[gen.nextInt(songs.length)];
-
-                    if(song.toLowerCase().contains(".mid"))
-                    {
-                        retry = false;
-                    }
-                } while(retry);
-            }
-            catch(Exception ex)
-            {
-                int songInt = gen.nextInt(4);
-
-                if(songInt == 0)
-                {
-                    song = "celebration.mid";
-                }
-                else if(songInt == 1)
-                {
-                    song = "anotheronebitesthedust.mid";
-                }
-                else if(songInt == 2)
-                {
-                    song = "wearethechampions.mid";
-                }
-                else if(songInt == 3)
-                {
-                    song = "bluedabadee.mid";
-                }
-            }
-
-            URL filelocation = getClass().getClassLoader().getResource("sounds/win/" + song);
-
-            try
-            {
-                Sequence sequence = MidiSystem.getSequence(filelocation);
-                sequencer = MidiSystem.getSequencer();
-                sequencer.open();
-                sequencer.setSequence(sequence);
-                sequencer.setLoopCount(0);
-                sequencer.start();
-            }
-            catch(Exception ex)
-            {
-                System.err.println("Error opening win sound file.");
-            }
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,596 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Searches a range of numbered deals (see {@link Deals}) for every
+ * combination of draw count and difficulty requested, and streams one result
+ * row per deal and combination to a file.
+ * <p>
+ * Each thread runs its own {@link Solver}, so whole deals are searched in
+ * parallel. Alternatively each deal can be searched in turn by a {@link
+ * ParallelSolver} (see {@link #setParallelism(int)}). Rows are written in deal order (then draw count, then
+ * difficulty) whatever order the searches finish in.
+ * <p>
+ * Every few seconds, at a deal boundary, the output file is flushed to disk
+ * and a checkpoint is written next to it recording the next deal, the length
+ * of the output file and the win counts so far. A run started again with the
+ * same settings and checkpoint file cuts the output file back to the
+ * checkpointed length and carries on from the next deal.
+ * <p>
+ * The CSV format has the header
+ * {@code deal,draw_count,difficulty,result,nodes,solution_length,time_ms},
+ * with the result written as {@code winnable}, {@code unwinnable} or
+ * {@code unknown}. The binary format is the 4 bytes {@code FRSB} and an
+ * {@code int} format version, followed by fixed {@link #RECORD_SIZE} byte
+ * big-endian records: {@code long} deal, {@code long} nodes, {@code int}
+ * time in ms, {@code short} solution length, then {@code byte}s draw count,
+ * difficulty and result ({@link Solver} codes), padded with zeros.
+ * <p>
+ * Results can also be recorded in a {@link DealIndex}, a deal at a time once
+ * it has been searched in every mode, so the index never holds a deal that
+ * is only part analysed or a gap before its last deal.
+ */
+public class BatchAnalysis
+{
+    public static final int CSV    = 0;
+    public static final int BINARY = 1;
+
+    public static final int RECORD_SIZE = 32;
+    public static final int BINARY_VERSION = 1;
+
+    private static final String CSV_HEADER = "deal,draw_count,difficulty,result,nodes,solution_length,time_ms\n";
+    private static final String[] RESULT_NAMES = { "winnable", "unwinnable", "unknown" };
+
+    /*
+     * Minimum time between checkpoints.
+     */
+    private static final long CHECKPOINT_MILLIS = 5000;
+
+    private final long firstDeal;
+    private final long lastDeal;
+    private final File output;
+
+    private File checkpoint;
+    private int format = CSV;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int parallelism = 1;
+    private long maxNodes = 1000000;
+    private int[] drawCounts = { 1, 3 };
+    private int[] difficulties = { 1, 2, 3 };
+    private PrintStream progress;
+    private DealIndex index;
+
+    /*
+     * Result counts indexed by [draw count index][difficulty - 1][result].
+     */
+    private final long[][][] counts = new long[2][3][3];
+
+    private long nextDeal;
+    private long outputBytes;
+
+    /*
+     * Each pool thread keeps its own Solver and scratch deck.
+     */
+    private final ThreadLocal<Solver> solvers = new ThreadLocal<Solver>();
+    private final ThreadLocal<int[]> decks = new ThreadLocal<int[]>();
+
+    /*
+     * Searches each deal with several threads, if the parallelism is above 1.
+     */
+    private ParallelSolver parallelSolver;
+
+    /**
+     * Constructs a new BatchAnalysis of the deals {@code firstDeal} through
+     * {@code lastDeal}, writing to {@code output} with a checkpoint file of
+     * the same name plus {@code .checkpoint}.
+     *
+     * @param firstDeal first deal number to search
+     * @param lastDeal last deal number to search
+     * @param output file to write results to
+     */
+    public BatchAnalysis(long firstDeal, long lastDeal, File output)
+    {
+        if (firstDeal < Deals.FIRST_DEAL || lastDeal < firstDeal)
+            throw new IllegalArgumentException("Invalid deal range " + firstDeal + " - " + lastDeal);
+
+        this.firstDeal = firstDeal;
+        this.lastDeal = lastDeal;
+        this.output = output;
+        this.checkpoint = new File(output.getPath() + ".checkpoint");
+        this.nextDeal = firstDeal;
+    }
+
+    public void setFormat(int format)
+    {
+        this.format = format;
+    }
+
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Sets the number of threads each deal is searched with. Above 1, deals
+     * are searched one at a time by a {@link ParallelSolver} instead of one
+     * deal per thread, and the thread count is not used.
+     *
+     * @param parallelism threads per deal, 1 for a {@link Solver} per thread
+     */
+    public void setParallelism(int parallelism)
+    {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public void setMaxNodes(long maxNodes)
+    {
+        this.maxNodes = maxNodes;
+    }
+
+    public void setDrawCounts(int[] drawCounts)
+    {
+        this.drawCounts = drawCounts.clone();
+    }
+
+    public void setDifficulties(int[] difficulties)
+    {
+        this.difficulties = difficulties.clone();
+    }
+
+    public void setCheckpoint(File checkpoint)
+    {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Sets a DealIndex, open for writing, to record every result in as well,
+     * or null for none. The run must search every draw count and difficulty
+     * and start no later than the deal after the index's last deal.
+     *
+     * @param index the index to record results in
+     */
+    public void setIndex(DealIndex index)
+    {
+        this.index = index;
+    }
+
+    /**
+     * Sets where a line is printed at every checkpoint, or null for no
+     * progress output.
+     *
+     * @param progress stream for progress lines
+     */
+    public void setProgress(PrintStream progress)
+    {
+        this.progress = progress;
+    }
+
+    /**
+     * Searches every deal not already covered by the checkpoint.
+     *
+     * @throws IOException if the output or checkpoint cannot be written
+     * @throws InterruptedException if the calling thread is interrupted
+     * @throws IllegalStateException if there is an index and the run does not
+     *         search every mode, or would leave a gap after the index's last
+     *         deal
+     */
+    public void run() throws IOException, InterruptedException
+    {
+        boolean resumed = readCheckpoint();
+
+        if (index != null)
+            checkIndex();
+
+        if (resumed)
+        {
+            RandomAccessFile file = new RandomAccessFile(output, "rw");
+            file.setLength(outputBytes);
+            file.close();
+        }
+
+        FileOutputStream file = new FileOutputStream(output, resumed);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism > 1 ? 1 : threads);
+
+        if (parallelism > 1)
+            parallelSolver = new ParallelSolver(parallelism, maxNodes);
+
+        try
+        {
+            if (!resumed)
+            {
+                outputBytes = 0;
+                writeHeader(out);
+            }
+
+            search(pool, file, out);
+            saveCheckpoint(file, out);
+        }
+        finally
+        {
+            pool.shutdownNow();
+            out.close();
+
+            if (parallelSolver != null)
+            {
+                parallelSolver.shutdown();
+                parallelSolver = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of deals with a result for a draw count and
+     * difficulty, counting this run and any run it resumed.
+     *
+     * @param drawCount 1 or 3
+     * @param difficulty 1 - 3
+     * @param result {@link Solver#WINNABLE}, {@link Solver#UNWINNABLE} or
+     * {@link Solver#UNKNOWN}
+     * @return the number of deals
+     */
+    public long getCount(int drawCount, int difficulty, int result)
+    {
+        return counts[drawIndex(drawCount)][difficulty - 1][result];
+    }
+
+    /**
+     * Returns the next deal number that has not been searched.
+     *
+     * @return the next deal number
+     */
+    public long getNextDeal()
+    {
+        return nextDeal;
+    }
+
+    private void search(ExecutorService pool, FileOutputStream file, DataOutputStream out)
+        throws IOException, InterruptedException
+    {
+        int combinations = drawCounts.length * difficulties.length;
+        int window = threads * 64;
+        ArrayDeque<Future<Row>> pending = new ArrayDeque<Future<Row>>();
+
+        long submitDeal = nextDeal;
+        int submitCombination = 0;
+        int written = 0;
+        long lastCheckpoint = System.currentTimeMillis();
+
+        // each deal's results, by index mode, until the deal is complete
+        int[] results = new int[DealIndex.MODES];
+        long[] nodes = new long[DealIndex.MODES];
+        int[] solutionLengths = new int[DealIndex.MODES];
+
+        while (true)
+        {
+            while (pending.size() < window && submitDeal <= lastDeal)
+            {
+                int drawCount = drawCounts[submitCombination / difficulties.length];
+                int difficulty = difficulties[submitCombination % difficulties.length];
+                pending.add(pool.submit(new Search(submitDeal, drawCount, difficulty)));
+
+                if (++submitCombination == combinations)
+                {
+                    submitCombination = 0;
+                    submitDeal++;
+                }
+            }
+
+            if (pending.isEmpty())
+                return;
+
+            Row row;
+            try
+            {
+                row = pending.removeFirst().get();
+            }
+            catch (ExecutionException ex)
+            {
+                throw new IOException("Search failed", ex.getCause());
+            }
+
+            writeRow(out, row);
+
+            counts[drawIndex(row.drawCount)][row.difficulty - 1][row.result]++;
+
+            int mode = indexMode(row.drawCount, row.difficulty);
+            results[mode] = row.result;
+            nodes[mode] = row.nodes;
+            solutionLengths[mode] = row.solutionLength;
+
+            if (++written == combinations)
+            {
+                written = 0;
+                nextDeal = row.deal + 1;
+
+                if (index != null)
+                    index.putAll(row.deal, results, nodes, solutionLengths);
+
+                if (System.currentTimeMillis() - lastCheckpoint >= CHECKPOINT_MILLIS)
+                {
+                    saveCheckpoint(file, out);
+                    lastCheckpoint = System.currentTimeMillis();
+                }
+            }
+        }
+    }
+
+    private void writeHeader(DataOutputStream out) throws IOException
+    {
+        if (format == BINARY)
+        {
+            out.writeBytes("FRSB");
+            out.writeInt(BINARY_VERSION);
+            outputBytes += 8;
+        }
+        else
+        {
+            out.writeBytes(CSV_HEADER);
+            outputBytes += CSV_HEADER.length();
+        }
+    }
+
+    private void writeRow(DataOutputStream out, Row row) throws IOException
+    {
+        if (format == BINARY)
+        {
+            out.writeLong(row.deal);
+            out.writeLong(row.nodes);
+            out.writeInt(row.millis);
+            out.writeShort(row.solutionLength);
+            out.writeByte(row.drawCount);
+            out.writeByte(row.difficulty);
+            out.writeByte(row.result);
+
+            for (int i = 25; i < RECORD_SIZE; i++)
+                out.writeByte(0);
+
+            outputBytes += RECORD_SIZE;
+        }
+        else
+        {
+            String line = row.deal + "," + row.drawCount + "," + row.difficulty + "," + RESULT_NAMES[row.result]
+                        + "," + row.nodes + "," + row.solutionLength + "," + row.millis + "\n";
+
+            out.write(line.getBytes(StandardCharsets.US_ASCII));
+            outputBytes += line.length();
+        }
+    }
+
+    /**
+     * Makes the output written so far durable, then atomically replaces the
+     * checkpoint file.
+     */
+    private void saveCheckpoint(FileOutputStream file, OutputStream out) throws IOException
+    {
+        out.flush();
+        file.getChannel().force(false);
+
+        if (index != null)
+            index.force();
+
+        Properties properties = new Properties();
+        properties.setProperty("settings", settings());
+        properties.setProperty("nextDeal", Long.toString(nextDeal));
+        properties.setProperty("outputBytes", Long.toString(outputBytes));
+
+        for (int draw = 0; draw < 2; draw++)
+            for (int difficulty = 0; difficulty < 3; difficulty++)
+                properties.setProperty("counts." + (draw * 2 + 1) + "." + (difficulty + 1),
+                        counts[draw][difficulty][0] + "," + counts[draw][difficulty][1] + ","
+                        + counts[draw][difficulty][2]);
+
+        File temp = new File(checkpoint.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(temp);
+
+        try
+        {
+            properties.store(stream, "Four Row Solitaire deal analysis checkpoint");
+            stream.getFD().sync();
+        }
+        finally
+        {
+            stream.close();
+        }
+
+        Files.move(temp.toPath(), checkpoint.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (progress != null)
+            progress.println("Searched deals " + firstDeal + " - " + (nextDeal - 1) + " of " + lastDeal);
+    }
+
+    /**
+     * Restores the progress of an earlier run with the same settings.
+     *
+     * @return true if there was a checkpoint to resume from; false otherwise
+     */
+    private boolean readCheckpoint() throws IOException
+    {
+        if (!checkpoint.exists() || !output.exists())
+            return false;
+
+        Properties properties = new Properties();
+        InputStream stream = new FileInputStream(checkpoint);
+
+        try
+        {
+            properties.load(stream);
+        }
+        finally
+        {
+            stream.close();
+        }
+
+        if (!settings().equals(properties.getProperty("settings")))
+            throw new IOException("Checkpoint " + checkpoint + " was written by a run with different settings: "
+                    + properties.getProperty("settings"));
+
+        nextDeal = Long.parseLong(properties.getProperty("nextDeal"));
+        outputBytes = Long.parseLong(properties.getProperty("outputBytes"));
+
+        if (outputBytes > output.length())
+            throw new IOException("Output file " + output + " is shorter than its checkpoint");
+
+        for (int draw = 0; draw < 2; draw++)
+        {
+            for (int difficulty = 0; difficulty < 3; difficulty++)
+            {
+                String[] values = properties.getProperty("counts." + (draw * 2 + 1) + "." + (difficulty + 1))
+                        .split(",");
+
+                for (int result = 0; result < 3; result++)
+                    counts[draw][difficulty][result] = Long.parseLong(values[result]);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Describes the settings a checkpoint is only valid for.
+     */
+    private String settings()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("deals=").append(firstDeal).append('-').append(lastDeal);
+        builder.append(" format=").append(format == BINARY ? "binary" : "csv");
+        builder.append(" maxNodes=").append(maxNodes);
+        builder.append(" draw=");
+        for (int drawCount : drawCounts)
+            builder.append(drawCount);
+        builder.append(" difficulty=");
+        for (int difficulty : difficulties)
+            builder.append(difficulty);
+
+        return builder.toString();
+    }
+
+    /**
+     * Refuses an index the run would leave with part analysed deals, or with
+     * deals that were never analysed below its last deal.
+     */
+    private void checkIndex()
+    {
+        int modes = 0;
+
+        for (int drawCount : drawCounts)
+            for (int difficulty : difficulties)
+                modes |= 1 << indexMode(drawCount, difficulty);
+
+        if (modes != (1 << DealIndex.MODES) - 1)
+            throw new IllegalStateException("A deal index needs every draw count and difficulty searched");
+
+        if (nextDeal <= lastDeal && nextDeal > index.getLastDeal() + 1)
+            throw new IllegalStateException("A deal index ending at deal " + index.getLastDeal()
+                    + " cannot be continued from deal " + nextDeal);
+    }
+
+    private static int drawIndex(int drawCount)
+    {
+        return drawCount == 3 ? 1 : 0;
+    }
+
+    /*
+     * The slot of a mode in a DealIndex record.
+     */
+    private static int indexMode(int drawCount, int difficulty)
+    {
+        return drawIndex(drawCount) * 3 + difficulty - 1;
+    }
+
+    /**
+     * The result of searching one deal with one draw count and difficulty.
+     */
+    private static class Row
+    {
+        long deal;
+        int drawCount;
+        int difficulty;
+        int result;
+        long nodes;
+        int solutionLength;
+        int millis;
+    }
+
+    private class Search implements Callable<Row>
+    {
+        private final long deal;
+        private final int drawCount;
+        private final int difficulty;
+
+        Search(long deal, int drawCount, int difficulty)
+        {
+            this.deal = deal;
+            this.drawCount = drawCount;
+            this.difficulty = difficulty;
+        }
+
+        public Row call()
+        {
+            int[] deck = decks.get();
+
+            if (deck == null)
+            {
+                deck = new int[GameState.DECK_SIZE];
+                decks.set(deck);
+            }
+
+            long start = System.nanoTime();
+
+            GameState state = new GameState(drawCount, difficulty);
+            Deals.deal(deal, state, deck);
+
+            Row row = new Row();
+            row.deal = deal;
+            row.drawCount = drawCount;
+            row.difficulty = difficulty;
+
+            if (parallelSolver != null)
+            {
+                // only one pool thread, so only one search at a time
+                row.result = parallelSolver.solve(state);
+                row.nodes = parallelSolver.getNodesSearched();
+                row.solutionLength = parallelSolver.getSolution().length;
+            }
+            else
+            {
+                Solver solver = solvers.get();
+
+                if (solver == null)
+                {
+                    solver = new Solver(maxNodes);
+                    solvers.set(solver);
+                }
+
+                row.result = solver.solve(state);
+                row.nodes = solver.getNodesSearched();
+                row.solutionLength = solver.getSolution().length;
+            }
+
+            row.millis = (int) ((System.nanoTime() - start) / 1000000);
+
+            return row;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free set of 64-bit position hashes shared by the threads
+ * of a {@link ParallelSolver}.
+ * <p>
+ * The table is split into independent stripes picked by the high bits of a
+ * hash, and each stripe is an open-addressing array of slots claimed with a
+ * single compare-and-set. Threads working in different stripes never touch
+ * the same memory, and no thread ever waits for another.
+ * <p>
+ * The table never grows. If a key cannot be placed within a short probe of
+ * its home slot, {@link #add(long)} reports it as new without storing it; the
+ * position may then be searched more than once, which costs time but does not
+ * change the result.
+ */
+class ConcurrentPositionTable implements PositionTable
+{
+    /*
+     * Zero marks an empty slot, so a zero key is stored as this value instead.
+     */
+    private static final long ZERO_KEY = 0x5DEECE66DL;
+
+    private static final int MAX_PROBES = 64;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeShift;
+    private final int slotMask;
+
+    /**
+     * Constructs a new ConcurrentPositionTable.
+     *
+     * @param expected number of keys expected to be added
+     * @param stripeCount number of stripes, rounded up to a power of two
+     */
+    ConcurrentPositionTable(long expected, int stripeCount)
+    {
+        int stripeBits = 0;
+        while ((1 << stripeBits) < stripeCount)
+            stripeBits++;
+
+        // keep the table at most half full
+        long perStripe = Math.max(16, (expected * 2) >> stripeBits);
+        int slotBits = 4;
+        while ((1L << slotBits) < perStripe && slotBits < 30)
+            slotBits++;
+
+        stripes = new AtomicLongArray[1 << stripeBits];
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new AtomicLongArray(1 << slotBits);
+
+        stripeShift = 64 - stripeBits;
+        slotMask = (1 << slotBits) - 1;
+    }
+
+    public boolean add(long key)
+    {
+        if (key == 0)
+            key = ZERO_KEY;
+
+        // a shift by 64 is a shift by 0 in Java, so one stripe needs a guard
+        AtomicLongArray stripe = stripes.length == 1 ? stripes[0] : stripes[(int) (key >>> stripeShift)];
+        int slot = (int) (key ^ (key >>> 29)) & slotMask;
+
+        for (int probe = 0; probe < MAX_PROBES; probe++)
+        {
+            long current = stripe.get(slot);
+
+            if (current == key)
+                return false;
+
+            if (current == 0)
+            {
+                if (stripe.compareAndSet(slot, 0, key))
+                    return true;
+
+                // another thread claimed the slot; look at what it stored
+                if (stripe.get(slot) == key)
+                    return false;
+            }
+
+            slot = (slot + 1) & slotMask;
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes every key. This must not be called while another thread is
+     * adding keys.
+     */
+    public void clear()
+    {
+        for (AtomicLongArray stripe : stripes)
+            for (int i = 0; i < stripe.length(); i++)
+                stripe.lazySet(i, 0);
+    }
+
+    /**
+     * Returns the total number of slots in this table.
+     *
+     * @return the capacity of this table
+     */
+    long capacity()
+    {
+        return (long) stripes.length * stripes[0].length();
+    }
+}
@@ -0,0 +1,393 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Random;
+
+/**
+ * A memory-mapped file recording what is known about each numbered deal
+ * (see {@link Deals}), so the game can tell whether a deal can be won
+ * without searching it and without holding the index on the heap.
+ * <p>
+ * The file is a 64 byte header followed by one {@link #RECORD_SIZE} byte
+ * record per deal, deal 1 first. A record holds one 4 byte slot for each of
+ * the six draw count and difficulty modes, in the order draw one easy,
+ * medium, hard, then draw three easy, medium, hard. A slot is a single
+ * big-endian {@code int}: the top byte is 0 if the deal has not been
+ * analysed in that mode or 1 plus the {@link Solver} result, the next byte is
+ * the difficulty score (the number of bits in the number of positions
+ * searched, so each step up means roughly twice the work), and the low 16
+ * bits are the length of the winning line found. The solver does not look for
+ * the shortest win, so this is an upper bound on the minimal solution length.
+ * <p>
+ * The file is mapped in segments of {@link #SEGMENT_DEALS} deals. A writer
+ * extends the file a whole segment at a time and stores each slot with one
+ * aligned write, then raises the last deal number in the header once the
+ * deal's record is written, so readers in this or another process can keep
+ * reading while it appends. Only one writer may have the file open at a time;
+ * a writer holds a lock on the file until it is closed.
+ */
+public class DealIndex implements Closeable
+{
+    /**
+     * Returned by {@link #getResult(long, int, int)} for a deal that has not
+     * been analysed.
+     */
+    public static final int NOT_ANALYSED = -1;
+
+    public static final int HEADER_SIZE = 64;
+    public static final int MODES = 6;
+    public static final int RECORD_SIZE = MODES * 4;
+    public static final int SEGMENT_DEALS = 1 << 20;
+
+    private static final int MAGIC = 0x46525349; // "FRSI"
+    private static final int VERSION = 1;
+    private static final int LAST_DEAL_OFFSET = 8;
+
+    private static final long SEGMENT_SIZE = (long) SEGMENT_DEALS * RECORD_SIZE;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final boolean writable;
+    private final MappedByteBuffer header;
+
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile long lastDeal;
+
+    /**
+     * Opens an index file, creating it if it does not exist and
+     * {@code writable} is true.
+     *
+     * @param path the index file
+     * @param writable true to add results; false to only read them
+     * @throws IOException if the file cannot be opened, is not an index or is
+     * already open for writing
+     */
+    public DealIndex(File path, boolean writable) throws IOException
+    {
+        this.writable = writable;
+        this.file = new RandomAccessFile(path, writable ? "rw" : "r");
+        this.channel = file.getChannel();
+
+        boolean opened = false;
+
+        try
+        {
+            if (writable && !lock())
+                throw new IOException(path + " is already open for writing");
+
+            FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+
+            if (channel.size() == 0 && writable)
+            {
+                header = channel.map(mode, 0, HEADER_SIZE);
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(LAST_DEAL_OFFSET, 0);
+            }
+            else if (channel.size() >= HEADER_SIZE)
+            {
+                header = channel.map(mode, 0, HEADER_SIZE);
+            }
+            else
+            {
+                throw new IOException(path + " is not a deal index");
+            }
+
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IOException(path + " is not a deal index");
+
+            refresh();
+            opened = true;
+        }
+        finally
+        {
+            // closing the file also releases the lock, if it was taken
+            if (!opened)
+                file.close();
+        }
+    }
+
+    /**
+     * Returns the search result recorded for a deal.
+     *
+     * @param deal the deal number
+     * @param drawCount 1 or 3
+     * @param difficulty 1 - 3
+     * @return {@link Solver#WINNABLE}, {@link Solver#UNWINNABLE},
+     * {@link Solver#UNKNOWN} or {@link #NOT_ANALYSED}
+     */
+    public int getResult(long deal, int drawCount, int difficulty)
+    {
+        return (readSlot(deal, drawCount, difficulty) >>> 24) - 1;
+    }
+
+    /**
+     * Tests if a deal is known to be winnable.
+     *
+     * @param deal the deal number
+     * @param drawCount 1 or 3
+     * @param difficulty 1 - 3
+     * @return true if the deal has been found winnable; false otherwise
+     */
+    public boolean isWinnable(long deal, int drawCount, int difficulty)
+    {
+        return getResult(deal, drawCount, difficulty) == Solver.WINNABLE;
+    }
+
+    /**
+     * Returns the difficulty score recorded for a deal: the number of bits in
+     * the number of positions searched to decide it.
+     *
+     * @param deal the deal number
+     * @param drawCount 1 or 3
+     * @param difficulty 1 - 3
+     * @return the score from 0 - 63, or 0 if the deal has not been analysed
+     */
+    public int getScore(long deal, int drawCount, int difficulty)
+    {
+        return (readSlot(deal, drawCount, difficulty) >>> 16) & 0xFF;
+    }
+
+    /**
+     * Returns the length of the winning line found for a deal.
+     *
+     * @param deal the deal number
+     * @param drawCount 1 or 3
+     * @param difficulty 1 - 3
+     * @return the number of moves, or 0 if no win was found
+     */
+    public int getSolutionLength(long deal, int drawCount, int difficulty)
+    {
+        return readSlot(deal, drawCount, difficulty) & 0xFFFF;
+    }
+
+    /**
+     * Returns the highest deal number with a record. Deals below it may still
+     * be unanalysed in some or all modes.
+     *
+     * @return the highest deal number recorded, or 0 if there is none
+     */
+    public long getLastDeal()
+    {
+        return refresh();
+    }
+
+    /**
+     * Tests if results can be added to this index.
+     *
+     * @return true if the index is open for writing; false otherwise
+     */
+    public boolean isWritable()
+    {
+        return writable;
+    }
+
+    /**
+     * Records the result of searching a deal.
+     *
+     * @param deal the deal number
+     * @param drawCount 1 or 3
+     * @param difficulty 1 - 3
+     * @param result the {@link Solver} result
+     * @param nodes the number of positions searched
+     * @param solutionLength the length of the winning line found, or 0
+     * @throws IOException if the file cannot be extended
+     */
+    public synchronized void put(long deal, int drawCount, int difficulty, int result, long nodes,
+                                 int solutionLength) throws IOException
+    {
+        write(deal, mode(drawCount, difficulty), result, nodes, solutionLength);
+        publish(deal);
+    }
+
+    /**
+     * Records the results of searching a deal in every mode, raising the last
+     * deal number only once all of them are written, so a deal is never left
+     * part analysed.
+     *
+     * @param deal the deal number
+     * @param results the {@link Solver} result for each of the {@link #MODES}
+     *        modes, in record order
+     * @param nodes the number of positions searched in each mode
+     * @param solutionLengths the length of the winning line found in each
+     *        mode, or 0
+     * @throws IOException if the file cannot be extended
+     */
+    public synchronized void putAll(long deal, int[] results, long[] nodes, int[] solutionLengths)
+            throws IOException
+    {
+        for (int mode = 0; mode < MODES; mode++)
+            write(deal, mode, results[mode], nodes[mode], solutionLengths[mode]);
+
+        publish(deal);
+    }
+
+    /**
+     * Picks a random deal known to be winnable in a mode.
+     *
+     * @param random source of randomness
+     * @param drawCount 1 or 3
+     * @param difficulty 1 - 3
+     * @return a winnable deal number, or 0 if none was found
+     */
+    public long findWinnable(Random random, int drawCount, int difficulty)
+    {
+        long last = getLastDeal();
+
+        for (int attempt = 0; last > 0 && attempt < 4096; attempt++)
+        {
+            long deal = Deals.FIRST_DEAL + (long) (random.nextDouble() * last);
+
+            if (isWinnable(deal, drawCount, difficulty))
+                return deal;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Writes any changes to the storage device.
+     */
+    public void force()
+    {
+        header.force();
+
+        for (MappedByteBuffer segment : segments)
+            segment.force();
+    }
+
+    public void close() throws IOException
+    {
+        if (writable)
+            force();
+
+        file.close();
+    }
+
+    private void write(long deal, int mode, int result, long nodes, int solutionLength) throws IOException
+    {
+        if (!writable)
+            throw new IOException("Deal index is open for reading only");
+
+        if (deal < Deals.FIRST_DEAL)
+            throw new IllegalArgumentException("Invalid deal number " + deal);
+
+        int score = 64 - Long.numberOfLeadingZeros(Math.max(nodes, 0));
+        int slot = (result + 1) << 24 | score << 16 | Math.min(solutionLength, 0xFFFF);
+
+        long index = deal - Deals.FIRST_DEAL;
+        MappedByteBuffer segment = segment((int) (index / SEGMENT_DEALS), true);
+        segment.putInt(slotOffset(index, mode), slot);
+    }
+
+    private void publish(long deal)
+    {
+        if (deal > lastDeal)
+        {
+            // publish the record only after it has been written
+            lastDeal = deal;
+            header.putLong(LAST_DEAL_OFFSET, deal);
+        }
+    }
+
+    private int readSlot(long deal, int drawCount, int difficulty)
+    {
+        if (deal < Deals.FIRST_DEAL || (deal > lastDeal && deal > refresh()))
+            return 0;
+
+        long index = deal - Deals.FIRST_DEAL;
+
+        try
+        {
+            MappedByteBuffer segment = segment((int) (index / SEGMENT_DEALS), false);
+            return segment == null ? 0 : segment.getInt(slotOffset(index, mode(drawCount, difficulty)));
+        }
+        catch (IOException ex)
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * Locks the file for writing, whether another writer is in this process
+     * or another one.
+     */
+    private boolean lock() throws IOException
+    {
+        try
+        {
+            return channel.tryLock() != null;
+        }
+        catch (OverlappingFileLockException ex)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the last deal number published in the header, which another
+     * process may have raised.
+     */
+    private long refresh()
+    {
+        long published = header.getLong(LAST_DEAL_OFFSET);
+
+        if (published > lastDeal)
+            lastDeal = published;
+
+        return lastDeal;
+    }
+
+    /**
+     * Returns a mapped segment, mapping it first if needed. A writer extends
+     * the file to hold the whole segment; a reader gets null if the file does
+     * not reach it yet.
+     */
+    private MappedByteBuffer segment(int number, boolean extend) throws IOException
+    {
+        MappedByteBuffer[] mapped = segments;
+
+        if (number < mapped.length)
+            return mapped[number];
+
+        synchronized (this)
+        {
+            mapped = segments;
+
+            while (mapped.length <= number)
+            {
+                long start = HEADER_SIZE + mapped.length * SEGMENT_SIZE;
+
+                if (!extend && channel.size() < start + SEGMENT_SIZE)
+                    return null;
+
+                FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+
+                MappedByteBuffer[] grown = new MappedByteBuffer[mapped.length + 1];
+                System.arraycopy(mapped, 0, grown, 0, mapped.length);
+                grown[mapped.length] = channel.map(mode, start, SEGMENT_SIZE);
+
+                mapped = grown;
+                segments = grown;
+            }
+
+            return mapped[number];
+        }
+    }
+
+    private static int mode(int drawCount, int difficulty)
+    {
+        return (drawCount == 3 ? 3 : 0) + difficulty - 1;
+    }
+
+    private static int slotOffset(long index, int mode)
+    {
+        return (int) (index % SEGMENT_DEALS) * RECORD_SIZE + mode * 4;
+    }
+}
@@ -0,0 +1,91 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import java.io.IOException;
+
+/**
+ * Analyses deals in every mode, one after another from the first deal not
+ * yet in a {@link DealIndex}, and appends the results to it until the thread
+ * running it is interrupted. The index stays readable the whole time. A deal
+ * is added once it has been analysed in every mode, so a deal cut short by an
+ * interrupt is analysed again from the start by the next indexer.
+ */
+public class DealIndexer implements Runnable
+{
+    /**
+     * Node limit used for each search, keeping each deal to about a second
+     * per mode.
+     */
+    public static final long DEFAULT_MAX_NODES = 200000;
+
+    private final DealIndex index;
+    private final Solver solver;
+
+    /**
+     * Constructs a new DealIndexer.
+     *
+     * @param index the index to append to, open for writing
+     * @param maxNodes maximum number of positions searched per deal and mode
+     */
+    public DealIndexer(DealIndex index, long maxNodes)
+    {
+        this.index = index;
+        this.solver = new Solver(maxNodes);
+    }
+
+    /**
+     * Starts a low priority daemon thread running a DealIndexer.
+     *
+     * @param index the index to append to, open for writing
+     * @return the started thread; interrupt it to stop, and join it before
+     *         starting another on the same index
+     */
+    public static Thread start(DealIndex index)
+    {
+        Thread thread = new Thread(new DealIndexer(index, DEFAULT_MAX_NODES), "Deal indexer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+
+        return thread;
+    }
+
+    public void run()
+    {
+        int[] deck = new int[GameState.DECK_SIZE];
+        int[] results = new int[DealIndex.MODES];
+        long[] nodes = new long[DealIndex.MODES];
+        int[] solutionLengths = new int[DealIndex.MODES];
+
+        try
+        {
+            for (long deal = index.getLastDeal() + 1; !Thread.currentThread().isInterrupted(); deal++)
+            {
+                int mode = 0;
+
+                for (int drawCount = 1; drawCount <= 3; drawCount += 2)
+                {
+                    for (int difficulty = 1; difficulty <= 3; difficulty++, mode++)
+                    {
+                        GameState state = new GameState(drawCount, difficulty);
+                        Deals.deal(deal, state, deck);
+
+                        results[mode] = solver.solve(state);
+
+                        // an interrupted search gave up early; its result is not the deal's
+                        if (Thread.currentThread().isInterrupted())
+                            return;
+
+                        nodes[mode] = solver.getNodesSearched();
+                        solutionLengths[mode] = solver.getSolution().length;
+                    }
+                }
+
+                index.putAll(deal, results, nodes, solutionLengths);
+            }
+        }
+        catch (IOException ex)
+        {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import java.util.Random;
+
+/**
+ * Turns deal numbers into shuffled decks, so every deal can be reproduced
+ * from its number alone, the same way on every platform.
+ * <p>
+ * A deal number seeds the SplitMix64 generator (Steele, Lea and Flood, "Fast
+ * Splittable Pseudorandom Number Generators", OOPSLA 2014): the state starts
+ * at the deal number, each step adds the constant {@code 0x9E3779B97F4A7C15}
+ * and the output is the state passed through the mixing function below. The
+ * deck starts in ordinal order (1 - 52) and is shuffled with a Fisher-Yates
+ * shuffle from the last card down; for card {@code i} the swap index is the
+ * high 32 bits of a generator output, multiplied by {@code i + 1} and shifted
+ * right by 32.
+ * <p>
+ * The resulting deck is in the order of {@code Deck.getDeck()}, ready for
+ * {@link GameState#deal(int[])}. These rules must never change, or every
+ * recorded deal number would produce a different game.
+ */
+public final class Deals
+{
+    /**
+     * Lowest deal number.
+     */
+    public static final long FIRST_DEAL = 1;
+
+    /**
+     * Highest deal number offered for a random new game. Any positive number
+     * can be dealt.
+     */
+    public static final long LAST_RANDOM_DEAL = Integer.MAX_VALUE;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private Deals() { /* Intentionally Empty */ }
+
+    /**
+     * Fills {@code deck} with the shuffled card ordinals of a deal. This takes
+     * 52 steps and allocates nothing.
+     *
+     * @param dealNumber the deal number
+     * @param deck array of 52 elements to fill
+     */
+    public static void shuffle(long dealNumber, int[] deck)
+    {
+        for (int i = 0; i < GameState.DECK_SIZE; i++)
+            deck[i] = i + 1;
+
+        long state = dealNumber;
+
+        for (int i = GameState.DECK_SIZE - 1; i > 0; i--)
+        {
+            state += GOLDEN_GAMMA;
+            long bits = mix(state) >>> 32;
+            int j = (int) ((bits * (i + 1)) >>> 32);
+
+            int temp = deck[i];
+            deck[i] = deck[j];
+            deck[j] = temp;
+        }
+    }
+
+    /**
+     * Deals a numbered game into a GameState.
+     *
+     * @param dealNumber the deal number
+     * @param state the GameState to deal into
+     * @param deck scratch array of 52 elements
+     */
+    public static void deal(long dealNumber, GameState state, int[] deck)
+    {
+        shuffle(dealNumber, deck);
+        state.deal(deck);
+    }
+
+    /**
+     * Picks a deal number for a random new game.
+     *
+     * @param random source of randomness
+     * @return a deal number from {@link #FIRST_DEAL} to
+     * {@link #LAST_RANDOM_DEAL}
+     */
+    public static long randomDealNumber(Random random)
+    {
+        return FIRST_DEAL + random.nextInt((int) LAST_RANDOM_DEAL);
+    }
+
+    /**
+     * SplitMix64 output function.
+     */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
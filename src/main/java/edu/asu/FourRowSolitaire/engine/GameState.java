@@ -0,0 +1,756 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import java.util.List;
+
+/**
+ * This class represents a complete Four Row Solitaire position without any
+ * Swing components. It holds the same piles as the {@code SolitaireBoard}
+ * (four SingleCells, four Columns, four AcePiles, the DealDeck and the
+ * DiscardPile) together with the deck through counter, the draw count and
+ * the number of viewable cards in the DiscardPile.
+ * <p>
+ * Cards are stored as their ordinal numbers (1-52) in a single {@code byte}
+ * array holding one 52-card slot per pile. Piles are identified by the same
+ * numbers used by the saved game file:
+ * <ul>
+ * <li>0 - 3: SingleCells</li>
+ * <li>4 - 7: Columns</li>
+ * <li>8 - 11: AcePiles (spades, clubs, diamonds, hearts)</li>
+ * <li>12: DealDeck</li>
+ * <li>13: DiscardPile</li>
+ * </ul>
+ * Moves applied to a GameState are not validated; use
+ * {@link #isValidMove(int, int, int)} and {@link #canDraw()} first.
+ * <p>
+ * Every push and pop updates a Zobrist hash of the position, so the hashes
+ * returned by {@link #zobristHash()} and {@link #hash()} cost nothing to
+ * read. It also records which piles have changed, so a {@link MoveGenerator}
+ * only has to look at those.
+ */
+public class GameState
+{
+    public static final int FIRST_CELL     = 0;
+    public static final int FIRST_COLUMN   = 4;
+    public static final int FIRST_ACE_PILE = 8;
+    public static final int DEAL_DECK      = 12;
+    public static final int DISCARD_PILE   = 13;
+    public static final int NUM_PILES      = 14;
+
+    public static final int DECK_SIZE = 52;
+
+    /*
+     * Return values of {@link #draw()} other than the number of cards drawn.
+     */
+    public static final int NO_DRAW = 0;
+    public static final int REDEAL  = -1;
+
+    /*
+     * Pile {@code p} occupies cards[p * DECK_SIZE] through
+     * cards[p * DECK_SIZE + sizes[p] - 1], bottom card first.
+     */
+    private final byte[] cards = new byte[NUM_PILES * DECK_SIZE];
+    private final int[] sizes = new int[NUM_PILES];
+
+    /*
+     * Zobrist keys, one for each card at each depth of each pile, indexed by
+     * (pile * DECK_SIZE + depth) * DECK_SIZE + card - 1, and one for each
+     * deck through count and number of viewable DiscardPile cards. The keys
+     * come from a fixed seed, so hashes are the same in every run.
+     */
+    private static final long[] CARD_KEYS = new long[NUM_PILES * DECK_SIZE * DECK_SIZE];
+    private static final long[] THROUGH_KEYS = new long[8];
+    private static final long[] VIEW_KEYS = new long[DECK_SIZE + 1];
+
+    static
+    {
+        long seed = 0x4652534F4C495441L;
+
+        for (int i = 0; i < CARD_KEYS.length; i++)
+            CARD_KEYS[i] = mix(seed += 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < THROUGH_KEYS.length; i++)
+            THROUGH_KEYS[i] = mix(seed += 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < VIEW_KEYS.length; i++)
+            VIEW_KEYS[i] = mix(seed += 0x9E3779B97F4A7C15L);
+    }
+
+    /*
+     * XOR of the keys of every card in its own pile and depth.
+     */
+    private long zobrist;
+
+    /*
+     * XOR of the keys of the cards in each pile, where all SingleCells use
+     * the keys of the first SingleCell and all Columns those of the first
+     * Column, and the sum of the mixed pile hashes.
+     */
+    private final long[] pileHashes = new long[NUM_PILES];
+    private long pileHashSum;
+
+    /*
+     * Bit p is set when pile p has changed since the last call to
+     * takeChangedPiles(). A change to the deck through count sets the bit of
+     * the DealDeck.
+     */
+    private static final int ALL_PILES = (1 << NUM_PILES) - 1;
+    private int changedPiles = ALL_PILES;
+
+    private int drawCount;
+    private int difficulty;
+    private int deckThroughLimit;
+    private int numTimesThroughDeck;
+    private int discardView;
+
+    /**
+     * Constructs a new, empty GameState.
+     *
+     * @param drawCount how many cards are drawn at a time from the DealDeck
+     * @param difficulty game difficulty (1 - 3)
+     */
+    public GameState(int drawCount, int difficulty)
+    {
+        this.drawCount = drawCount;
+        this.difficulty = difficulty;
+        this.deckThroughLimit = Rules.deckThroughLimit(drawCount, difficulty);
+        this.numTimesThroughDeck = 1;
+    }
+
+    /**
+     * Constructs a copy of another GameState.
+     *
+     * @param other the GameState to copy
+     */
+    public GameState(GameState other)
+    {
+        this(other.drawCount, other.difficulty);
+        copyFrom(other);
+    }
+
+    /**
+     * Overwrites this GameState with the contents of another GameState.
+     *
+     * @param other the GameState to copy
+     */
+    public void copyFrom(GameState other)
+    {
+        System.arraycopy(other.cards, 0, cards, 0, cards.length);
+        System.arraycopy(other.sizes, 0, sizes, 0, sizes.length);
+        System.arraycopy(other.pileHashes, 0, pileHashes, 0, pileHashes.length);
+
+        zobrist = other.zobrist;
+        pileHashSum = other.pileHashSum;
+
+        drawCount = other.drawCount;
+        difficulty = other.difficulty;
+        deckThroughLimit = other.deckThroughLimit;
+        numTimesThroughDeck = other.numTimesThroughDeck;
+        discardView = other.discardView;
+        changedPiles = ALL_PILES;
+    }
+
+    /**
+     * Removes every card from every pile and resets the deck through counter.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < NUM_PILES; i++)
+        {
+            sizes[i] = 0;
+            pileHashes[i] = 0;
+        }
+
+        zobrist = 0;
+        pileHashSum = 0;
+        numTimesThroughDeck = 1;
+        discardView = 0;
+        changedPiles = ALL_PILES;
+    }
+
+    /**
+     * Deals out a shuffled deck the same way {@code SolitaireBoard} deals a
+     * new game: the last 20 cards go round-robin into the Columns, the next 4
+     * into the SingleCells, and the remainder make up the DealDeck.
+     *
+     * @param deck card ordinals in the order of {@code Deck.getDeck()}
+     */
+    public void deal(int[] deck)
+    {
+        clear();
+
+        int last = deck.length;
+
+        for (int i = 0; i < 6; i++)
+        {
+            for (int j = 0; j < 4; j++)
+            {
+                int card = deck[--last];
+
+                if (i < 5)
+                    push(FIRST_COLUMN + j, card);
+                else
+                    push(FIRST_CELL + j, card);
+            }
+        }
+
+        for (int i = 0; i < last; i++)
+            push(DEAL_DECK, deck[i]);
+    }
+
+    /**
+     * Loads a position from the saved game format: card ordinals for each pile
+     * (bottom card first) in pile order, each pile terminated by a value that
+     * is not greater than zero. This is the format accepted by
+     * {@code Deck.createCustomDeck}.
+     *
+     * @param ordinals card ordinals and pile separators
+     */
+    public void load(int[] ordinals)
+    {
+        clear();
+
+        int pile = 0;
+
+        for (int i = 0; i < ordinals.length && pile < NUM_PILES; i++)
+        {
+            if (ordinals[i] > 0)
+                loadCard(pile, ordinals[i]);
+            else
+                pile++;
+        }
+    }
+
+    /**
+     * Loads a position from the saved game format.
+     *
+     * @param ordinals card ordinals and pile separators
+     * @see #load(int[])
+     */
+    public void load(List<Integer> ordinals)
+    {
+        int[] values = new int[ordinals.size()];
+
+        for (int i = 0; i < values.length; i++)
+            values[i] = ordinals.get(i);
+
+        load(values);
+    }
+
+    /**
+     * Returns this position in the saved game format.
+     *
+     * @return card ordinals and pile separators
+     * @see #load(int[])
+     */
+    public int[] toOrdinals()
+    {
+        int[] ordinals = new int[DECK_SIZE + NUM_PILES];
+        int index = 0;
+
+        for (int pile = 0; pile < NUM_PILES; pile++)
+        {
+            for (int i = 0; i < sizes[pile]; i++)
+                ordinals[index++] = cardAt(pile, i);
+
+            ordinals[index++] = -1;
+        }
+
+        // fewer than 52 cards on the board; trim the unused slots
+        if (index < ordinals.length)
+        {
+            int[] trimmed = new int[index];
+            System.arraycopy(ordinals, 0, trimmed, 0, index);
+            return trimmed;
+        }
+
+        return ordinals;
+    }
+
+    /**
+     * Pushes a card onto a pile without any rule checks. This is used when
+     * setting up a position.
+     *
+     * @param pile pile id
+     * @param card card ordinal from 1-52
+     */
+    public void push(int pile, int card)
+    {
+        long before = pileHashes[pile];
+
+        toggle(pile, sizes[pile], card);
+        cards[pile * DECK_SIZE + sizes[pile]++] = (byte) card;
+
+        updateSum(pile, before);
+        changedPiles |= 1 << pile;
+    }
+
+    /**
+     * Removes the card at the top of a pile without any rule checks. This is
+     * used to follow a position that is changed elsewhere.
+     *
+     * @param pile pile id
+     * @return card ordinal from 1-52
+     */
+    public int pop(int pile)
+    {
+        long before = pileHashes[pile];
+        int card = cards[pile * DECK_SIZE + --sizes[pile]];
+
+        toggle(pile, sizes[pile], card);
+
+        updateSum(pile, before);
+        changedPiles |= 1 << pile;
+
+        return card;
+    }
+
+    /**
+     * Returns the number of cards in a pile.
+     *
+     * @param pile pile id
+     * @return the number of cards in the pile
+     */
+    public int size(int pile)
+    {
+        return sizes[pile];
+    }
+
+    /**
+     * Tests if a pile is empty.
+     *
+     * @param pile pile id
+     * @return true if the pile contains no cards; false otherwise
+     */
+    public boolean isEmpty(int pile)
+    {
+        return sizes[pile] == 0;
+    }
+
+    /**
+     * Returns the card at the specified index of a pile (0 is the bottom).
+     *
+     * @param pile pile id
+     * @param index index of the card in the pile
+     * @return card ordinal from 1-52
+     */
+    public int cardAt(int pile, int index)
+    {
+        return cards[pile * DECK_SIZE + index];
+    }
+
+    /**
+     * Returns the card at the top of a pile.
+     *
+     * @param pile pile id
+     * @return card ordinal from 1-52, or {@link Rules#NO_CARD} if the pile is
+     * empty
+     */
+    public int peek(int pile)
+    {
+        int size = sizes[pile];
+        return size == 0 ? Rules.NO_CARD : cards[pile * DECK_SIZE + size - 1];
+    }
+
+    /**
+     * Returns the number of cards that can be picked up from the top of a
+     * pile. For a Column this is the length of the alternating-color,
+     * descending run at its top; for the SingleCells, AcePiles and the
+     * DiscardPile it is the top card only. Cards can never be picked up from
+     * the DealDeck.
+     *
+     * @param pile pile id
+     * @return the number of cards that can be moved from the pile
+     */
+    public int movableCount(int pile)
+    {
+        int size = sizes[pile];
+
+        if (size == 0 || pile == DEAL_DECK)
+            return 0;
+
+        if (!isColumn(pile))
+            return 1;
+
+        int base = pile * DECK_SIZE;
+        int count = 1;
+
+        while (count < size && Rules.isSequence(cards[base + size - count - 1], cards[base + size - count]))
+            count++;
+
+        return count;
+    }
+
+    /**
+     * Tests if moving the top {@code count} cards of one pile to another pile
+     * is a valid move.
+     *
+     * @param from source pile id
+     * @param count number of cards to move
+     * @param to destination pile id
+     * @return true if move is valid; false otherwise
+     */
+    public boolean isValidMove(int from, int count, int to)
+    {
+        if (from == to || count < 1 || count > movableCount(from))
+            return false;
+
+        int card = cardAt(from, sizes[from] - count);
+
+        if (isColumn(to))
+            return Rules.isValidColumnMove(card, peek(to));
+        else if (count != 1)
+            return false;
+        else if (isAcePile(to))
+            return Rules.isValidAcePileMove(card, peek(to), Rules.acePileSuit(to - FIRST_ACE_PILE));
+        else if (isCell(to))
+            return Rules.isValidCellMove(peek(to));
+        else
+            return false;
+    }
+
+    /**
+     * Moves the top {@code count} cards of one pile onto another pile,
+     * keeping their order. Removing a card from the DiscardPile reduces the
+     * number of viewable cards the same way {@code DiscardPile.pop} does.
+     *
+     * @param from source pile id
+     * @param count number of cards to move
+     * @param to destination pile id
+     */
+    public void move(int from, int count, int to)
+    {
+        transfer(from, count, to);
+
+        if (from == DISCARD_PILE)
+            discardView = Math.max(discardView - count, 0);
+    }
+
+    /**
+     * Reverses {@link #move(int, int, int)}.
+     *
+     * @param from source pile id of the move being undone
+     * @param count number of cards that were moved
+     * @param to destination pile id of the move being undone
+     * @param previousView number of viewable DiscardPile cards before the move
+     */
+    public void undoMove(int from, int count, int to, int previousView)
+    {
+        transfer(to, count, from);
+        discardView = previousView;
+    }
+
+    /**
+     * Tests if clicking the DealDeck would change the position, i.e. the
+     * DealDeck has cards left or the DiscardPile can be turned back over.
+     *
+     * @return true if {@link #draw()} would move cards; false otherwise
+     */
+    public boolean canDraw()
+    {
+        return sizes[DEAL_DECK] > 0
+            || (sizes[DISCARD_PILE] > 0 && numTimesThroughDeck < deckThroughLimit);
+    }
+
+    /**
+     * Tests if the deck through limit has not been used up.
+     *
+     * @return true if the DealDeck has deck throughs left; false otherwise
+     */
+    public boolean hasDealsLeft()
+    {
+        return sizes[DEAL_DECK] > 0 || numTimesThroughDeck < deckThroughLimit;
+    }
+
+    /**
+     * Mirrors {@code DealDeck.pop}: deals {@code drawCount} cards (or as many
+     * as are left) from the DealDeck to the DiscardPile, or, if the DealDeck
+     * is empty and deck throughs remain, turns the DiscardPile back over onto
+     * the DealDeck.
+     *
+     * @return the number of cards dealt, {@link #REDEAL} if the DiscardPile
+     * was turned over, or {@link #NO_DRAW} if nothing happened
+     */
+    public int draw()
+    {
+        int deck = sizes[DEAL_DECK];
+
+        if (deck > 0)
+        {
+            int count = Math.min(drawCount, deck);
+
+            // cards arrive one at a time, so the third card dealt ends up on top
+            for (int i = 0; i < count; i++)
+                transfer(DEAL_DECK, 1, DISCARD_PILE);
+
+            discardView = count;
+            return count;
+        }
+        else if (sizes[DISCARD_PILE] > 0 && numTimesThroughDeck < deckThroughLimit)
+        {
+            for (int i = sizes[DISCARD_PILE]; i > 0; i--)
+                transfer(DISCARD_PILE, 1, DEAL_DECK);
+
+            discardView = 0;
+            numTimesThroughDeck++;
+            changedPiles |= 1 << DEAL_DECK;
+            return REDEAL;
+        }
+
+        return NO_DRAW;
+    }
+
+    /**
+     * Reverses {@link #draw()}.
+     *
+     * @param result the value returned by the draw being undone
+     * @param previousView number of viewable DiscardPile cards before the draw
+     */
+    public void undoDraw(int result, int previousView)
+    {
+        if (result == REDEAL)
+        {
+            for (int i = sizes[DEAL_DECK]; i > 0; i--)
+                transfer(DEAL_DECK, 1, DISCARD_PILE);
+
+            numTimesThroughDeck--;
+            changedPiles |= 1 << DEAL_DECK;
+        }
+        else
+        {
+            for (int i = 0; i < result; i++)
+                transfer(DISCARD_PILE, 1, DEAL_DECK);
+        }
+
+        discardView = previousView;
+    }
+
+    /**
+     * Applies an encoded {@link Move}, which is assumed to be valid.
+     *
+     * @param move the encoded move
+     * @return a token that must be passed to {@link #undo(int, int)} to
+     * reverse the move
+     */
+    public int apply(int move)
+    {
+        int view = discardView;
+
+        if (Move.isDraw(move))
+            return (draw() + 1) << 8 | view;
+
+        move(Move.from(move), Move.count(move), Move.to(move));
+        return view;
+    }
+
+    /**
+     * Reverses a move made with {@link #apply(int)}.
+     *
+     * @param move the encoded move
+     * @param token the value returned when the move was applied
+     */
+    public void undo(int move, int token)
+    {
+        int view = token & 0xFF;
+
+        if (Move.isDraw(move))
+            undoDraw((token >> 8) - 1, view);
+        else
+            undoMove(Move.from(move), Move.count(move), Move.to(move), view);
+    }
+
+    /**
+     * Returns the Zobrist hash of this position: the cards in every pile at
+     * every depth, the deck through count and the number of viewable
+     * DiscardPile cards. Equal positions always have equal hashes.
+     *
+     * @return hash of this position
+     */
+    public long zobristHash()
+    {
+        return zobrist ^ THROUGH_KEYS[numTimesThroughDeck] ^ VIEW_KEYS[discardView];
+    }
+
+    /**
+     * Returns a 64-bit hash of the cards in every pile and the deck through
+     * count, for finding positions already searched. SingleCells are
+     * interchangeable, as are Columns, so positions that differ only in
+     * which SingleCell or Column holds a pile hash to the same value. The
+     * number of viewable DiscardPile cards does not affect which moves are
+     * possible and is not included.
+     *
+     * @return hash of this position
+     */
+    public long hash()
+    {
+        return pileHashSum ^ THROUGH_KEYS[numTimesThroughDeck];
+    }
+
+    /**
+     * MurmurHash3 64-bit finalizer.
+     */
+    private static long mix(long h)
+    {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+
+    /**
+     * Tests if every card has been moved to the AcePiles.
+     *
+     * @return true if the game is won; false otherwise
+     */
+    public boolean isWon()
+    {
+        for (int i = 0; i < 4; i++)
+            if (sizes[FIRST_ACE_PILE + i] != 13)
+                return false;
+
+        return true;
+    }
+
+    public int getDrawCount()
+    {
+        return drawCount;
+    }
+
+    public int getDifficulty()
+    {
+        return difficulty;
+    }
+
+    public int getDeckThroughLimit()
+    {
+        return deckThroughLimit;
+    }
+
+    /**
+     * Returns the number of deck throughs so far.
+     *
+     * @return the number of deck throughs so far
+     */
+    public int getDeckThroughs()
+    {
+        return numTimesThroughDeck;
+    }
+
+    public void setDeckThroughs(int throughs)
+    {
+        if (throughs != numTimesThroughDeck)
+            changedPiles |= 1 << DEAL_DECK;
+
+        numTimesThroughDeck = throughs;
+    }
+
+    /**
+     * Returns the piles that have changed since the last call, as a bit mask
+     * indexed by pile id, and starts recording again. Only one caller, such
+     * as a {@link MoveGenerator}, should use this for a GameState.
+     *
+     * @return bit mask of the changed piles
+     */
+    public int takeChangedPiles()
+    {
+        int changed = changedPiles;
+        changedPiles = 0;
+
+        return changed;
+    }
+
+    /**
+     * Returns the number of viewable cards in the DiscardPile.
+     *
+     * @return number of viewable cards in the DiscardPile
+     */
+    public int getDiscardView()
+    {
+        return discardView;
+    }
+
+    public void setDiscardView(int numViewableCards)
+    {
+        discardView = numViewableCards;
+    }
+
+    public static boolean isCell(int pile)
+    {
+        return pile >= FIRST_CELL && pile < FIRST_CELL + 4;
+    }
+
+    public static boolean isColumn(int pile)
+    {
+        return pile >= FIRST_COLUMN && pile < FIRST_COLUMN + 4;
+    }
+
+    public static boolean isAcePile(int pile)
+    {
+        return pile >= FIRST_ACE_PILE && pile < FIRST_ACE_PILE + 4;
+    }
+
+    /**
+     * Adds a card while loading a saved position, applying the DiscardPile's
+     * view bookkeeping the same way {@code DiscardPile.push(Card)} does.
+     */
+    private void loadCard(int pile, int card)
+    {
+        push(pile, card);
+
+        if (pile == DISCARD_PILE)
+        {
+            if (drawCount == 1)
+                discardView = 0;
+
+            discardView++;
+        }
+    }
+
+    /**
+     * Moves the top {@code count} cards from one pile to another, keeping
+     * their order.
+     */
+    private void transfer(int from, int count, int to)
+    {
+        int fromStart = from * DECK_SIZE + sizes[from] - count;
+        int toStart = to * DECK_SIZE + sizes[to];
+        long fromBefore = pileHashes[from];
+        long toBefore = pileHashes[to];
+
+        for (int i = 0; i < count; i++)
+        {
+            int card = cards[fromStart + i];
+
+            toggle(from, sizes[from] - count + i, card);
+            toggle(to, sizes[to] + i, card);
+        }
+
+        System.arraycopy(cards, fromStart, cards, toStart, count);
+
+        sizes[from] -= count;
+        sizes[to] += count;
+
+        updateSum(from, fromBefore);
+        updateSum(to, toBefore);
+        changedPiles |= 1 << from | 1 << to;
+    }
+
+    /**
+     * Adds or removes the keys of a card at a depth of a pile.
+     */
+    private void toggle(int pile, int depth, int card)
+    {
+        zobrist ^= CARD_KEYS[(pile * DECK_SIZE + depth) * DECK_SIZE + card - 1];
+
+        int keyPile = isCell(pile) ? FIRST_CELL : isColumn(pile) ? FIRST_COLUMN : pile;
+        pileHashes[pile] ^= CARD_KEYS[(keyPile * DECK_SIZE + depth) * DECK_SIZE + card - 1];
+    }
+
+    /**
+     * Replaces a pile's old term in the sum of mixed pile hashes.
+     */
+    private void updateSum(int pile, long before)
+    {
+        pileHashSum += mix(pileHashes[pile]) - mix(before);
+    }
+}
@@ -0,0 +1,143 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing set of {@code long} position hashes. Keys are stored in
+ * a plain {@code long} array, so adding a key never allocates unless the
+ * table has to grow.
+ */
+class LongHashSet implements PositionTable
+{
+    /*
+     * Zero marks an empty slot, so a zero key is stored as this value instead.
+     */
+    private static final long ZERO_KEY = 0x5DEECE66DL;
+
+    private final int initialCapacity;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+
+    /**
+     * Constructs a new LongHashSet.
+     *
+     * @param expected number of keys expected to be added
+     */
+    LongHashSet(int expected)
+    {
+        int capacity = 16;
+
+        while (capacity < expected * 2)
+            capacity <<= 1;
+
+        initialCapacity = capacity;
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds a key to this set.
+     *
+     * @param key the key to add
+     * @return true if the key was not already in this set; false otherwise
+     */
+    public boolean add(long key)
+    {
+        if (key == 0)
+            key = ZERO_KEY;
+
+        int slot = index(key);
+
+        while (keys[slot] != 0)
+        {
+            if (keys[slot] == key)
+                return false;
+
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+
+        if (++size * 2 > keys.length)
+            grow();
+
+        return true;
+    }
+
+    /**
+     * Tests if a key is in this set.
+     *
+     * @param key the key to look for
+     * @return true if the key is in this set; false otherwise
+     */
+    boolean contains(long key)
+    {
+        if (key == 0)
+            key = ZERO_KEY;
+
+        int slot = index(key);
+
+        while (keys[slot] != 0)
+        {
+            if (keys[slot] == key)
+                return true;
+
+            slot = (slot + 1) & mask;
+        }
+
+        return false;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes every key. A table that has grown goes back to its initial
+     * size, so one large search does not make clearing slow for every
+     * search after it.
+     */
+    public void clear()
+    {
+        if (keys.length > initialCapacity)
+        {
+            keys = new long[initialCapacity];
+            mask = initialCapacity - 1;
+        }
+        else
+        {
+            Arrays.fill(keys, 0L);
+        }
+
+        size = 0;
+    }
+
+    private int index(long key)
+    {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private void grow()
+    {
+        long[] old = keys;
+
+        keys = new long[old.length * 2];
+        mask = keys.length - 1;
+
+        for (long key : old)
+        {
+            if (key == 0)
+                continue;
+
+            int slot = index(key);
+
+            while (keys[slot] != 0)
+                slot = (slot + 1) & mask;
+
+            keys[slot] = key;
+        }
+    }
+}
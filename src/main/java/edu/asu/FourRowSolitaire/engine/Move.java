@@ -0,0 +1,87 @@
+package edu.asu.FourRowSolitaire.engine;
+
+/**
+ * Packs a Four Row Solitaire move into a single {@code int}: the source pile
+ * id, the number of cards moved and the destination pile id (see
+ * {@link GameState} for the pile ids). A click on the DealDeck is encoded as
+ * a move of zero cards from the DealDeck to the DiscardPile.
+ */
+public final class Move
+{
+    /**
+     * The move made by clicking the DealDeck.
+     */
+    public static final int DRAW = encode(GameState.DEAL_DECK, 0, GameState.DISCARD_PILE);
+
+    private Move() { /* Intentionally Empty */ }
+
+    /**
+     * Creates a move.
+     *
+     * @param from source pile id
+     * @param count number of cards to move
+     * @param to destination pile id
+     * @return the encoded move
+     */
+    public static int encode(int from, int count, int to)
+    {
+        return from << 10 | count << 4 | to;
+    }
+
+    public static int from(int move)
+    {
+        return move >>> 10;
+    }
+
+    public static int count(int move)
+    {
+        return (move >>> 4) & 0x3F;
+    }
+
+    public static int to(int move)
+    {
+        return move & 0x0F;
+    }
+
+    public static boolean isDraw(int move)
+    {
+        return move == DRAW;
+    }
+
+    /**
+     * Returns the name of a pile as shown to the player.
+     *
+     * @param pile pile id
+     * @return the name of the pile
+     */
+    public static String pileName(int pile)
+    {
+        if (GameState.isCell(pile))
+            return "Cell " + (pile - GameState.FIRST_CELL + 1);
+        else if (GameState.isColumn(pile))
+            return "Column " + (pile - GameState.FIRST_COLUMN + 1);
+        else if (GameState.isAcePile(pile))
+            return "Ace Pile " + (pile - GameState.FIRST_ACE_PILE + 1);
+        else if (pile == GameState.DEAL_DECK)
+            return "the Deck";
+        else
+            return "the Discard Pile";
+    }
+
+    /**
+     * Returns a readable description of a move.
+     *
+     * @param move the encoded move
+     * @return a description of the move
+     */
+    public static String toString(int move)
+    {
+        if (isDraw(move))
+            return "Deal from the Deck";
+
+        int count = count(move);
+
+        return "Move " + (count == 1 ? "1 card" : count + " cards") + " from "
+             + pileName(from(move)) + " to " + pileName(to(move));
+    }
+}
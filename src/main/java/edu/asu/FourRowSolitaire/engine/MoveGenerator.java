@@ -0,0 +1,241 @@
+package edu.asu.FourRowSolitaire.engine;
+
+/**
+ * Keeps the set of legal moves in a {@link GameState} up to date as the
+ * position changes, for hints, automatic moves, dead end detection and
+ * computer players.
+ * <p>
+ * There is at most one legal move from any pile to any other pile: a Column
+ * can only take the part of a run that starts one below its top card (or
+ * with a King, if empty), and the other piles only take one card. The
+ * generator stores that move, if any, for every pair of piles. When the
+ * position changes, only the pairs involving the piles the GameState reports
+ * as changed are looked at again, so a query costs time in proportion to the
+ * number of piles changed since the last one rather than the size of the
+ * board, and allocates nothing.
+ * <p>
+ * Moves are {@link Move} encoded. A move from the DealDeck is
+ * {@link Move#DRAW}. Moves that change nothing but which SingleCell or
+ * Column holds a pile, such as a whole Column to an empty Column, are left
+ * out.
+ */
+public class MoveGenerator
+{
+    private static final int NUM_PAIRS = GameState.NUM_PILES * GameState.NUM_PILES;
+
+    private final GameState state;
+
+    /*
+     * The legal move from pile a to pile b, or 0 if there is none, at
+     * pairMoves[a * NUM_PILES + b], and the index of that move in the move
+     * list, or -1.
+     */
+    private final int[] pairMoves = new int[NUM_PAIRS];
+    private final int[] listIndex = new int[NUM_PAIRS];
+
+    /*
+     * The legal moves in no particular order, and the pair each came from.
+     */
+    private final int[] moves = new int[NUM_PAIRS];
+    private final int[] pairs = new int[NUM_PAIRS];
+    private int size;
+
+    /**
+     * Constructs a new MoveGenerator following a GameState. The GameState's
+     * changed pile record (see {@link GameState#takeChangedPiles()}) belongs
+     * to the generator from now on.
+     *
+     * @param state the position to follow
+     */
+    public MoveGenerator(GameState state)
+    {
+        this.state = state;
+
+        for (int i = 0; i < NUM_PAIRS; i++)
+            listIndex[i] = -1;
+
+        state.takeChangedPiles();
+        refresh((1 << GameState.NUM_PILES) - 1);
+    }
+
+    /**
+     * Returns the number of legal moves in the current position.
+     *
+     * @return the number of legal moves
+     */
+    public int size()
+    {
+        update();
+        return size;
+    }
+
+    /**
+     * Returns a legal move in the current position.
+     *
+     * @param index index of the move, from 0 to {@link #size()} - 1
+     * @return the encoded move
+     */
+    public int get(int index)
+    {
+        update();
+        return moves[index];
+    }
+
+    /**
+     * Returns the legal moves in the current position. The array is reused
+     * and changes with the position; only the first {@link #size()} entries
+     * are moves.
+     *
+     * @return the encoded moves
+     */
+    public int[] getMoves()
+    {
+        update();
+        return moves;
+    }
+
+    /**
+     * Returns the legal move from one pile to another.
+     *
+     * @param from source pile id
+     * @param to destination pile id
+     * @return the encoded move, or 0 if there is none
+     */
+    public int getMove(int from, int to)
+    {
+        update();
+        return pairMoves[from * GameState.NUM_PILES + to];
+    }
+
+    /**
+     * Tests if the DealDeck is the only place left to move from, which means
+     * the player is stuck once the deck throughs run out.
+     *
+     * @return true if every legal move is a draw; false otherwise
+     */
+    public boolean isDrawOnly()
+    {
+        update();
+        return size == 0 || (size == 1 && moves[0] == Move.DRAW);
+    }
+
+    /**
+     * Looks again at the piles that changed since the last query.
+     */
+    private void update()
+    {
+        int changed = state.takeChangedPiles();
+
+        if (changed != 0)
+            refresh(changed);
+    }
+
+    private void refresh(int changed)
+    {
+        for (int pile = 0; pile < GameState.NUM_PILES; pile++)
+        {
+            if ((changed & 1 << pile) == 0)
+                continue;
+
+            for (int other = 0; other < GameState.NUM_PILES; other++)
+            {
+                // a pair with two changed piles is only looked at once
+                if (other < pile && (changed & 1 << other) != 0)
+                    continue;
+
+                set(pile, other, findMove(pile, other));
+                set(other, pile, findMove(other, pile));
+            }
+        }
+    }
+
+    /**
+     * Records the move for a pair of piles, adding it to or removing it from
+     * the move list.
+     */
+    private void set(int from, int to, int move)
+    {
+        int pair = from * GameState.NUM_PILES + to;
+
+        if (pairMoves[pair] == move)
+            return;
+
+        pairMoves[pair] = move;
+        int index = listIndex[pair];
+
+        if (move == 0)
+        {
+            // fill the hole with the last move in the list
+            int last = --size;
+            moves[index] = moves[last];
+            pairs[index] = pairs[last];
+            listIndex[pairs[index]] = index;
+            listIndex[pair] = -1;
+        }
+        else if (index >= 0)
+        {
+            moves[index] = move;
+        }
+        else
+        {
+            moves[size] = move;
+            pairs[size] = pair;
+            listIndex[pair] = size++;
+        }
+    }
+
+    /**
+     * Returns the legal move from one pile to another, or 0 if there is none.
+     */
+    private int findMove(int from, int to)
+    {
+        if (from == GameState.DEAL_DECK)
+            return to == GameState.DISCARD_PILE && state.canDraw() ? Move.DRAW : 0;
+
+        if (from == to || to == GameState.DEAL_DECK || to == GameState.DISCARD_PILE || state.isEmpty(from))
+            return 0;
+
+        int count = 1;
+
+        if (GameState.isColumn(to))
+        {
+            count = columnMoveCount(from, state.peek(to));
+
+            if (count == 0)
+                return 0;
+
+            if (state.isEmpty(to) && GameState.isColumn(from) && count == state.size(from))
+                return 0;
+        }
+        else if (GameState.isCell(to) && GameState.isCell(from))
+        {
+            return 0;
+        }
+
+        return state.isValidMove(from, count, to) ? Move.encode(from, count, to) : 0;
+    }
+
+    /**
+     * Returns the number of cards a move from a pile to a Column would take,
+     * or 0 if no number of cards fits.
+     */
+    private int columnMoveCount(int from, int top)
+    {
+        int run = state.movableCount(from);
+        int size = state.size(from);
+
+        if (top == Rules.NO_CARD)
+        {
+            for (int count = run; count > 0; count--)
+                if (Rules.value(state.cardAt(from, size - count)) == Rules.KING)
+                    return count;
+
+            return 0;
+        }
+
+        // values increase by one going down a run
+        int count = Rules.value(top) - Rules.value(state.peek(from));
+
+        return count >= 1 && count <= run ? count : 0;
+    }
+}
@@ -0,0 +1,191 @@
+package edu.asu.FourRowSolitaire.engine;
+
+/**
+ * The moves made in a game, for undo and redo. Each move is packed into one
+ * {@code long}:
+ * <ul>
+ * <li>bits 0 - 15: the {@link Move} encoding of the source pile, card count
+ * and destination pile</li>
+ * <li>bits 16 - 23: the number of viewable DiscardPile cards before the
+ * move</li>
+ * <li>bits 24 - 31: the change in the deck through count, as a signed
+ * byte</li>
+ * </ul>
+ * A click on the DealDeck is recorded as a move from the DealDeck to the
+ * DiscardPile of the number of cards dealt, or of no cards with a deck
+ * through change of one when the DiscardPile was turned back over.
+ * <p>
+ * The entries are kept in a ring buffer that doubles in size when full, so
+ * adding a move costs O(1) and the journal holds no objects. Undone moves
+ * stay in the buffer until a new move is added, and can be redone any number
+ * of times. A journal with a size limit drops its oldest move when full.
+ */
+public class MoveJournal
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int limit;
+
+    private long[] entries = new long[INITIAL_CAPACITY];
+    private int head;     // index of the oldest entry
+    private int size;     // entries that can be undone
+    private int redoSize; // undone entries after them that can be redone
+
+    /**
+     * Constructs a new MoveJournal with no size limit.
+     */
+    public MoveJournal()
+    {
+        this(0);
+    }
+
+    /**
+     * Constructs a new MoveJournal.
+     *
+     * @param limit the most moves kept, or 0 for no limit
+     */
+    public MoveJournal(int limit)
+    {
+        this.limit = limit;
+    }
+
+    /**
+     * Packs a move into a journal entry.
+     *
+     * @param move the encoded move
+     * @param discardView number of viewable DiscardPile cards before the move
+     * @param deckThroughDelta change in the deck through count
+     * @return the journal entry
+     */
+    public static long entry(int move, int discardView, int deckThroughDelta)
+    {
+        return move & 0xFFFFL | (discardView & 0xFFL) << 16 | (deckThroughDelta & 0xFFL) << 24;
+    }
+
+    public static int getMove(long entry)
+    {
+        return (int) (entry & 0xFFFF);
+    }
+
+    public static int getDiscardView(long entry)
+    {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    public static int getDeckThroughDelta(long entry)
+    {
+        return (byte) (entry >>> 24);
+    }
+
+    /**
+     * Records a new move. Any undone moves can no longer be redone.
+     *
+     * @param entry the journal entry
+     */
+    public void add(long entry)
+    {
+        redoSize = 0;
+
+        if (limit > 0 && size == limit)
+        {
+            head = (head + 1) & (entries.length - 1);
+            size--;
+        }
+        else if (size == entries.length)
+        {
+            grow();
+        }
+
+        entries[(head + size) & (entries.length - 1)] = entry;
+        size++;
+    }
+
+    public boolean canUndo()
+    {
+        return size > 0;
+    }
+
+    public boolean canRedo()
+    {
+        return redoSize > 0;
+    }
+
+    /**
+     * Steps back over the last move made.
+     *
+     * @return the journal entry of the move to undo
+     * @throws IllegalStateException if there is no move to undo
+     */
+    public long undo()
+    {
+        if (size == 0)
+            throw new IllegalStateException("No move to undo");
+
+        size--;
+        redoSize++;
+
+        return entries[(head + size) & (entries.length - 1)];
+    }
+
+    /**
+     * Steps forward over the last move undone.
+     *
+     * @return the journal entry of the move to redo
+     * @throws IllegalStateException if there is no move to redo
+     */
+    public long redo()
+    {
+        if (redoSize == 0)
+            throw new IllegalStateException("No move to redo");
+
+        long entry = entries[(head + size) & (entries.length - 1)];
+
+        size++;
+        redoSize--;
+
+        return entry;
+    }
+
+    /**
+     * Returns the number of moves that can be undone.
+     *
+     * @return the number of moves that can be undone
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of moves that can be redone.
+     *
+     * @return the number of moves that can be redone
+     */
+    public int getRedoSize()
+    {
+        return redoSize;
+    }
+
+    /**
+     * Forgets every move, keeping the buffer for the next game.
+     */
+    public void clear()
+    {
+        head = 0;
+        size = 0;
+        redoSize = 0;
+    }
+
+    private void grow()
+    {
+        long[] grown = new long[entries.length * 2];
+
+        // unwrap the ring so the oldest entry comes first
+        int first = entries.length - head;
+        System.arraycopy(entries, head, grown, 0, first);
+        System.arraycopy(entries, 0, grown, first, head);
+
+        entries = grown;
+        head = 0;
+    }
+}
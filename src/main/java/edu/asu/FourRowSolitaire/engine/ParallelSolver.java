@@ -0,0 +1,299 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class decides whether a Four Row Solitaire position can still be won
+ * using every core, with the same search and results as {@link Solver}.
+ * <p>
+ * The search starts as a single {@link Solver} task in a {@link
+ * ForkJoinPool}. Whenever a pool thread is idle, a running task hands the
+ * moves it has not yet tried at its shallowest unfinished depth to new tasks
+ * (first the root moves, then the moves below them), so the work is split
+ * where the remaining subtrees are largest. Every task records the positions
+ * it reaches in one shared {@link ConcurrentPositionTable}, so no position is
+ * expanded by more than one thread.
+ * <p>
+ * The first task to find a win stops all the others. The node limit applies
+ * to the positions expanded by all threads together.
+ * <p>
+ * A ParallelSolver searches one position at a time and is not itself thread
+ * safe; it may be reused for any number of searches.
+ */
+public class ParallelSolver
+{
+    private final ForkJoinPool pool;
+    private final long maxNodes;
+    private final ConcurrentPositionTable visited;
+    private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>();
+
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile boolean stopped;
+    private volatile boolean incomplete;
+    private volatile int[] solution = new int[0];
+
+    /**
+     * Constructs a new ParallelSolver using every available processor and
+     * the default node limit.
+     */
+    public ParallelSolver()
+    {
+        this(Runtime.getRuntime().availableProcessors(), Solver.DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Constructs a new ParallelSolver. The shared position table is sized for
+     * {@code maxNodes} positions, at 16 to 32 bytes per position.
+     *
+     * @param parallelism number of threads to search with
+     * @param maxNodes maximum number of positions to search before giving up
+     */
+    public ParallelSolver(int parallelism, long maxNodes)
+    {
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxNodes = maxNodes;
+        this.visited = new ConcurrentPositionTable(maxNodes, parallelism * 4);
+    }
+
+    /**
+     * Searches a deal in the saved game format accepted by
+     * {@code Deck.createCustomDeck} (see {@link GameState#load(int[])}).
+     *
+     * @param ordinals card ordinals and pile separators
+     * @param drawCount how many cards are drawn at a time from the DealDeck
+     * @param difficulty game difficulty (1 - 3)
+     * @return {@link Solver#WINNABLE}, {@link Solver#UNWINNABLE} or
+     * {@link Solver#UNKNOWN}
+     */
+    public int solve(List<Integer> ordinals, int drawCount, int difficulty)
+    {
+        GameState state = new GameState(drawCount, difficulty);
+        state.load(ordinals);
+
+        return solve(state);
+    }
+
+    /**
+     * Searches a position. The position is left unchanged.
+     *
+     * @param state the position to search
+     * @return {@link Solver#WINNABLE}, {@link Solver#UNWINNABLE} or
+     * {@link Solver#UNKNOWN}
+     */
+    public int solve(GameState state)
+    {
+        visited.clear();
+        nodes.set(0);
+        stopped = false;
+        incomplete = false;
+        solution = new int[0];
+
+        if (state.isWon())
+            return Solver.WINNABLE;
+
+        visited.add(state.hash());
+        pool.invoke(new SearchTask(new GameState(state), new int[0]));
+
+        if (solution.length > 0)
+            return Solver.WINNABLE;
+
+        return incomplete ? Solver.UNKNOWN : Solver.UNWINNABLE;
+    }
+
+    /**
+     * Returns the winning moves found by the last search, or an empty array
+     * if the last search did not find a win.
+     *
+     * @return encoded {@link Move}s, first move first
+     */
+    public int[] getSolution()
+    {
+        return solution;
+    }
+
+    /**
+     * Returns the number of positions expanded by all threads in the last
+     * search.
+     *
+     * @return the number of positions searched
+     */
+    public long getNodesSearched()
+    {
+        return nodes.get();
+    }
+
+    /**
+     * Returns the number of threads this ParallelSolver searches with.
+     *
+     * @return the number of search threads
+     */
+    public int getParallelism()
+    {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Stops the search threads. This ParallelSolver cannot be used
+     * afterwards.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    private synchronized void foundWin(int[] moves)
+    {
+        if (solution.length == 0)
+            solution = moves;
+
+        stopped = true;
+    }
+
+    private boolean isIdleThread()
+    {
+        return pool.getQueuedTaskCount() == 0 && pool.getActiveThreadCount() < pool.getParallelism();
+    }
+
+    private static int[] concat(int[] first, int[] second, int secondLength)
+    {
+        int[] result = new int[first.length + secondLength];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, secondLength);
+
+        return result;
+    }
+
+    /**
+     * Searches everything reachable from one position, then waits for the
+     * tasks it handed work to.
+     */
+    private class SearchTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final GameState start;
+        private final int[] prefix; //moves from the root position to start
+        private final List<SearchTask> children = new ArrayList<SearchTask>();
+
+        SearchTask(GameState start, int[] prefix)
+        {
+            this.start = start;
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (!stopped)
+            {
+                Worker worker = workers.get();
+                if (worker == null)
+                {
+                    worker = new Worker();
+                    workers.set(worker);
+                }
+
+                worker.run(this);
+            }
+
+            for (SearchTask child : children)
+                child.join();
+        }
+    }
+
+    /**
+     * A Solver owned by one pool thread that searches SearchTasks and splits
+     * them when another thread is idle.
+     */
+    private class Worker extends Solver
+    {
+        private SearchTask task;
+        private long reported;
+        private GameState state; //searched in place; task.start is kept intact
+
+        Worker()
+        {
+            super(visited, Long.MAX_VALUE);
+        }
+
+        void run(SearchTask task)
+        {
+            this.task = task;
+            this.reported = 0;
+
+            if (state == null)
+                state = new GameState(task.start);
+            else
+                state.copyFrom(task.start);
+
+            int result = search(state);
+            nodes.addAndGet(getNodesSearched() - reported);
+
+            if (result == WINNABLE)
+            {
+                int[] moves = getSolution();
+                foundWin(concat(task.prefix, moves, moves.length));
+            }
+            else if (result == UNKNOWN)
+            {
+                incomplete = true;
+            }
+
+            this.task = null;
+        }
+
+        @Override
+        boolean poll(int depth)
+        {
+            reported += POLL_INTERVAL;
+
+            if (nodes.addAndGet(POLL_INTERVAL) > maxNodes)
+                stopped = true;
+
+            if (stopped)
+                return true;
+
+            if (isIdleThread())
+                splitShallowest(depth);
+
+            return false;
+        }
+
+        @Override
+        void split(int[] path, int depth, int[] moves, int first, int last)
+        {
+            GameState base = new GameState(task.start);
+            for (int d = 0; d < depth; d++)
+                base.apply(path[d]);
+
+            int[] basePrefix = concat(task.prefix, path, depth);
+
+            for (int i = first; i < last; i++)
+            {
+                GameState child = new GameState(base);
+                child.apply(moves[i]);
+
+                int[] childPrefix = Arrays.copyOf(basePrefix, basePrefix.length + 1);
+                childPrefix[basePrefix.length] = moves[i];
+
+                if (child.isWon())
+                {
+                    foundWin(childPrefix);
+                    return;
+                }
+
+                if (!visited.add(child.hash()))
+                    continue;
+
+                SearchTask subtask = new SearchTask(child, childPrefix);
+                task.children.add(subtask);
+                subtask.fork();
+            }
+        }
+    }
+}
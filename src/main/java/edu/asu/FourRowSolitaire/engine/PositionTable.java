@@ -0,0 +1,22 @@
+package edu.asu.FourRowSolitaire.engine;
+
+/**
+ * A set of 64-bit position hashes recording which positions a search has
+ * already reached.
+ */
+interface PositionTable
+{
+    /**
+     * Records a position.
+     *
+     * @param key the position hash
+     * @return true if the position had not been recorded before; false
+     * otherwise
+     */
+    boolean add(long key);
+
+    /**
+     * Forgets every recorded position.
+     */
+    void clear();
+}
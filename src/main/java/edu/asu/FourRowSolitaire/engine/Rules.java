@@ -0,0 +1,209 @@
+package edu.asu.FourRowSolitaire.engine;
+
+/**
+ * Primitive versions of the Four Row Solitaire move rules. Cards are
+ * represented by their ordinal number from 1-52 (see
+ * {@link edu.asu.FourRowSolitaire.Card#getFullNumber()}), and an empty pile is
+ * represented by {@link #NO_CARD}.
+ * <p>
+ * Every method in this class mirrors the rule implemented by the Swing
+ * {@code CardStack} subclasses ({@code Column}, {@code AcePile}, {@code
+ * SingleCell}, {@code DealDeck}) so that moves can be evaluated without
+ * creating any Swing components.
+ */
+public final class Rules
+{
+    /**
+     * Value used in place of a card ordinal for an empty pile.
+     */
+    public static final int NO_CARD = 0;
+
+    public static final int ACE  = 1;
+    public static final int KING = 13;
+
+    /*
+     * Suit indices, derived from the {@code CardSuit} ordinal offsets
+     * (offset / 13).
+     */
+    public static final int SPADES   = 0;
+    public static final int CLUBS    = 1;
+    public static final int HEARTS   = 2;
+    public static final int DIAMONDS = 3;
+
+    /*
+     * The number of deck throughs for each draw count and difficulty. Three
+     * card drawing adds one more through to each difficulty level.
+     */
+    public static final int DRAW_ONE_THROUGH_LIMIT   = 2;
+    public static final int DRAW_THREE_THROUGH_LIMIT = 3;
+
+    public static final int EASY_THROUGH_LIMIT   = 3;
+    public static final int MEDIUM_THROUGH_LIMIT = 2;
+    public static final int HARD_THROUGH_LIMIT   = 1;
+
+    /*
+     * The suit index held by each AcePile, in the order the SolitaireBoard
+     * lays them out (spades, clubs, diamonds, hearts).
+     */
+    private static final int[] ACE_PILE_SUITS = { SPADES, CLUBS, DIAMONDS, HEARTS };
+
+    private Rules() { /* Intentionally Empty */ }
+
+    /**
+     * Returns the suit index (0-3) of a card ordinal.
+     *
+     * @param card card ordinal from 1-52
+     * @return the suit index of the card
+     */
+    public static int suit(int card)
+    {
+        return (card - 1) / 13;
+    }
+
+    /**
+     * Returns the face value (1-13) of a card ordinal.
+     *
+     * @param card card ordinal from 1-52
+     * @return the face value of the card
+     */
+    public static int value(int card)
+    {
+        return (card - 1) % 13 + 1;
+    }
+
+    /**
+     * Tests whether a card ordinal is a heart or a diamond.
+     *
+     * @param card card ordinal from 1-52
+     * @return true if the card is red; false otherwise
+     */
+    public static boolean isRed(int card)
+    {
+        return card > 26;
+    }
+
+    /**
+     * Returns the ordinal of a card from its suit index and face value.
+     *
+     * @param suit suit index (0-3)
+     * @param value face value (1-13)
+     * @return card ordinal from 1-52
+     */
+    public static int card(int suit, int value)
+    {
+        return suit * 13 + value;
+    }
+
+    /**
+     * Returns the suit index accepted by the AcePile at the specified position
+     * (0-3) on the board.
+     *
+     * @param acePile position of the AcePile
+     * @return suit index accepted by the AcePile
+     */
+    public static int acePileSuit(int acePile)
+    {
+        return ACE_PILE_SUITS[acePile];
+    }
+
+    /**
+     * Returns the position (0-3) of the AcePile that accepts the specified
+     * suit index.
+     *
+     * @param suit suit index (0-3)
+     * @return position of the AcePile for the suit
+     */
+    public static int acePileFor(int suit)
+    {
+        // the layout only swaps hearts and diamonds, so the table is its own inverse
+        return ACE_PILE_SUITS[suit];
+    }
+
+    /**
+     * Tests if {@code upper} may sit directly on {@code lower} in a Column,
+     * i.e. the cards are different colors and {@code upper} is one value less
+     * than {@code lower}.
+     *
+     * @param lower the card underneath
+     * @param upper the card on top
+     * @return true if the two cards form a valid sequence; false otherwise
+     */
+    public static boolean isSequence(int lower, int upper)
+    {
+        return isRed(lower) != isRed(upper) && value(upper) + 1 == value(lower);
+    }
+
+    /**
+     * Mirrors {@code Column.isValidMove(Card)}.
+     *
+     * @param card the card being added
+     * @param top the card currently at the top of the Column, or
+     *            {@link #NO_CARD} if the Column is empty
+     * @return true if move is valid; false otherwise
+     */
+    public static boolean isValidColumnMove(int card, int top)
+    {
+        if (top == NO_CARD)
+            return value(card) == KING;
+        else
+            return isSequence(top, card);
+    }
+
+    /**
+     * Mirrors {@code AcePile.isValidMove(Card)}.
+     *
+     * @param card the card being added
+     * @param top the card currently at the top of the AcePile, or
+     *            {@link #NO_CARD} if the AcePile is empty
+     * @param pileSuit the suit index accepted by the AcePile
+     * @return true if move is valid; false otherwise
+     */
+    public static boolean isValidAcePileMove(int card, int top, int pileSuit)
+    {
+        if (suit(card) != pileSuit)
+            return false;
+        else if (top == NO_CARD)
+            return value(card) == ACE;
+        else
+            return value(top) + 1 == value(card);
+    }
+
+    /**
+     * Mirrors {@code SingleCell.isValidMove(Card)}.
+     *
+     * @param top the card currently in the SingleCell, or {@link #NO_CARD} if
+     *            the SingleCell is empty
+     * @return true if move is valid; false otherwise
+     */
+    public static boolean isValidCellMove(int top)
+    {
+        return top == NO_CARD;
+    }
+
+    /**
+     * Returns the number of times the player may go through the DealDeck,
+     * mirroring {@code DealDeck.setDrawCount} followed by {@code
+     * DealDeck.setDifficulty}.
+     *
+     * @param drawCount number of cards dealt at a time (1 or 3)
+     * @param difficulty game difficulty (1 - 3)
+     * @return the deck through limit
+     */
+    public static int deckThroughLimit(int drawCount, int difficulty)
+    {
+        int limit;
+
+        if (difficulty == 1)
+            limit = EASY_THROUGH_LIMIT;
+        else if (difficulty == 2)
+            limit = MEDIUM_THROUGH_LIMIT;
+        else  // if (difficulty == 3)
+            limit = HARD_THROUGH_LIMIT;
+
+        // draw three has an extra deck through on top of the single card setting
+        if (drawCount == 3)
+            limit++;
+
+        return limit;
+    }
+}
@@ -0,0 +1,206 @@
+package edu.asu.FourRowSolitaire.engine;
+
+/**
+ * A game in progress packed into {@link #SIZE} bytes, for saved games and
+ * save slots.
+ * <p>
+ * The bytes are read as a stream of bits, most significant first:
+ * <ul>
+ * <li>8 bits: the format {@link #VERSION}</li>
+ * <li>1 bit: set for drawing three cards</li>
+ * <li>2 bits: the difficulty (1 - 3)</li>
+ * <li>3 bits: the deck throughs so far</li>
+ * <li>6 bits: the number of viewable DiscardPile cards</li>
+ * <li>24 bits: the seconds on the game timer</li>
+ * <li>6 bits for each of the 52 cards and 14 pile ends: the card ordinals
+ * of each pile, bottom card first, in pile id order, each pile ended by a
+ * 0</li>
+ * </ul>
+ * This is the saved game format of {@link GameState#load(int[])}, with each
+ * card in 6 bits instead of 32, and 0 ending a pile instead of -1.
+ */
+public final class Snapshot
+{
+    public static final int VERSION = 1;
+
+    /**
+     * The length of an encoded snapshot.
+     */
+    public static final int SIZE = (8 + 1 + 2 + 3 + 6 + 24
+                                    + 6 * (GameState.DECK_SIZE + GameState.NUM_PILES) + 7) / 8;
+
+    private static final int MAX_SECONDS = (1 << 24) - 1;
+    private static final int MAX_VIEW = 3;
+
+    private final GameState position;
+    private final int seconds;
+
+    /**
+     * Constructs a snapshot of a position.
+     *
+     * @param position the position, with all 52 cards; it is not copied
+     * @param seconds the seconds on the game timer
+     */
+    public Snapshot(GameState position, int seconds)
+    {
+        this.position = position;
+        this.seconds = Math.max(0, Math.min(MAX_SECONDS, seconds));
+    }
+
+    public GameState getPosition()
+    {
+        return position;
+    }
+
+    public int getSeconds()
+    {
+        return seconds;
+    }
+
+    /**
+     * Packs the snapshot into bytes.
+     *
+     * @return {@link #SIZE} bytes
+     * @throws IllegalArgumentException if the position does not hold all 52
+     *         cards, or its deck throughs or view do not fit
+     */
+    public byte[] encode()
+    {
+        int[] ordinals = position.toOrdinals();
+
+        if (ordinals.length != GameState.DECK_SIZE + GameState.NUM_PILES)
+            throw new IllegalArgumentException("A snapshot holds all " + GameState.DECK_SIZE + " cards");
+
+        if (position.getDeckThroughs() > 7 || position.getDiscardView() > 63)
+            throw new IllegalArgumentException("Deck throughs or DiscardPile view out of range");
+
+        Bits bits = new Bits(new byte[SIZE]);
+
+        bits.write(VERSION, 8);
+        bits.write(position.getDrawCount() == 3 ? 1 : 0, 1);
+        bits.write(position.getDifficulty(), 2);
+        bits.write(position.getDeckThroughs(), 3);
+        bits.write(position.getDiscardView(), 6);
+        bits.write(seconds, 24);
+
+        for (int ordinal : ordinals)
+            bits.write(Math.max(0, ordinal), 6);
+
+        return bits.bytes;
+    }
+
+    /**
+     * Unpacks a snapshot.
+     *
+     * @param bytes a snapshot made by {@link #encode()}
+     * @return the snapshot
+     * @throws IllegalArgumentException if the bytes are not a whole snapshot
+     *         of this version, do not hold each card once, or hold deck
+     *         throughs or a DiscardPile view the game could not reach
+     */
+    public static Snapshot decode(byte[] bytes)
+    {
+        if (!isSnapshot(bytes))
+            throw new IllegalArgumentException("Not a version " + VERSION + " snapshot");
+
+        Bits bits = new Bits(bytes);
+        bits.read(8);
+
+        int drawCount = bits.read(1) == 1 ? 3 : 1;
+        int difficulty = bits.read(2);
+        int deckThroughs = bits.read(3);
+        int discardView = bits.read(6);
+        int seconds = bits.read(24);
+
+        if (difficulty < 1 || difficulty > 3)
+            throw new IllegalArgumentException("Difficulty " + difficulty);
+
+        if (deckThroughs < 1 || deckThroughs > Rules.deckThroughLimit(drawCount, difficulty))
+            throw new IllegalArgumentException("Deck throughs " + deckThroughs);
+
+        int[] ordinals = new int[GameState.DECK_SIZE + GameState.NUM_PILES];
+        boolean[] seen = new boolean[GameState.DECK_SIZE + 1];
+        int piles = 0;
+
+        for (int i = 0; i < ordinals.length; i++)
+        {
+            int ordinal = bits.read(6);
+
+            if (ordinal == 0)
+            {
+                ordinals[i] = -1;
+                piles++;
+            }
+            else if (ordinal > GameState.DECK_SIZE || seen[ordinal])
+            {
+                throw new IllegalArgumentException("Card " + ordinal + " missing or repeated");
+            }
+            else
+            {
+                ordinals[i] = ordinal;
+                seen[ordinal] = true;
+            }
+        }
+
+        if (piles != GameState.NUM_PILES || ordinals[ordinals.length - 1] != -1)
+            throw new IllegalArgumentException("Expected " + GameState.NUM_PILES + " piles");
+
+        GameState position = new GameState(drawCount, difficulty);
+        position.load(ordinals);
+
+        // a draw shows at most three cards, and only cards that are there
+        if (discardView > Math.min(MAX_VIEW, position.size(GameState.DISCARD_PILE)))
+            throw new IllegalArgumentException("DiscardPile view " + discardView);
+
+        position.setDeckThroughs(deckThroughs);
+        position.setDiscardView(discardView);
+
+        return new Snapshot(position, seconds);
+    }
+
+    /**
+     * Tests if bytes are a snapshot of this version, by their length and
+     * first byte. A saved game in the old format of 4-byte card ordinals
+     * starts with 0 or -1.
+     *
+     * @param bytes the bytes
+     * @return true if they can be decoded
+     */
+    public static boolean isSnapshot(byte[] bytes)
+    {
+        return bytes != null && bytes.length == SIZE && bytes[0] == VERSION;
+    }
+
+    /*
+     * Reads and writes bits, most significant first.
+     */
+    private static final class Bits
+    {
+        private final byte[] bytes;
+        private int position;
+
+        Bits(byte[] bytes)
+        {
+            this.bytes = bytes;
+        }
+
+        void write(int value, int length)
+        {
+            for (int bit = length - 1; bit >= 0; bit--, position++)
+            {
+                if ((value >>> bit & 1) != 0)
+                    bytes[position >>> 3] |= 0x80 >>> (position & 7);
+            }
+        }
+
+        int read(int length)
+        {
+            int value = 0;
+
+            for (int i = 0; i < length; i++, position++)
+                value = value << 1 | (bytes[position >>> 3] >>> (7 - (position & 7)) & 1);
+
+            return value;
+        }
+    }
+}
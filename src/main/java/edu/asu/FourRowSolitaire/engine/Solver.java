@@ -0,0 +1,503 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import java.util.List;
+
+/**
+ * This class decides whether a Four Row Solitaire position can still be won
+ * and, if it can, finds a sequence of moves that wins it.
+ * <p>
+ * The search is an exhaustive depth-first search over {@link GameState}
+ * positions. Every position reached is recorded by its 64-bit hash, so no
+ * position is expanded twice and the search always terminates: the deck
+ * through limit makes the number of reachable positions finite. The only
+ * moves left out are ones that can never matter:
+ * <ul>
+ * <li>Aces, and Twos whose opposite-color Aces are already home, are always
+ * moved straight to their AcePile (nothing can ever be placed on an Ace). In
+ * three card draw this is not done from the DiscardPile, because taking a
+ * card out of the DiscardPile changes the groups of three dealt on the next
+ * pass.</li>
+ * <li>Only the first empty SingleCell and the first empty Column are tried,
+ * since the piles of each kind are interchangeable.</li>
+ * <li>A whole Column is never moved to an empty Column, a card is never
+ * moved from one SingleCell to another, and a card is never taken off an
+ * AcePile just to be put in a SingleCell.</li>
+ * </ul>
+ * A search gives up with {@link #UNKNOWN} once it has expanded more than its
+ * maximum number of positions, if any line had to be cut off at {@link
+ * #MAX_DEPTH} moves without being decided, or if the thread running it is
+ * interrupted. Distinct positions with the same 64-bit
+ * hash are treated as the same position; the chance of this affecting a
+ * result is negligible.
+ * <p>
+ * A Solver is not thread safe, but may be reused for any number of searches.
+ * {@link ParallelSolver} searches one position with several threads.
+ */
+public class Solver
+{
+    public static final int WINNABLE   = 0;
+    public static final int UNWINNABLE = 1;
+    public static final int UNKNOWN    = 2;
+
+    /**
+     * Default maximum number of positions searched before giving up.
+     */
+    public static final long DEFAULT_MAX_NODES = 5000000;
+
+    /**
+     * Maximum length of a line of play the search will follow.
+     */
+    public static final int MAX_DEPTH = 500;
+
+    /*
+     * Upper bound on the number of moves generated for one position.
+     */
+    private static final int MAX_MOVES = 128;
+
+    /*
+     * Number of positions expanded between calls to poll(int).
+     */
+    static final int POLL_INTERVAL = 1024;
+
+    private final long maxNodes;
+
+    private final PositionTable visited;
+    private long nodes;
+    private boolean truncated;
+
+    /*
+     * Search stack, indexed by depth.
+     */
+    private final int[] moves = new int[MAX_DEPTH * MAX_MOVES];
+    private final int[] moveCount = new int[MAX_DEPTH];
+    private final int[] moveIndex = new int[MAX_DEPTH];
+    private final int[] path = new int[MAX_DEPTH];
+    private final int[] tokens = new int[MAX_DEPTH];
+
+    /*
+     * Length of the movable run on top of each Column, filled in once per
+     * generated position.
+     */
+    private final int[] runs = new int[4];
+
+    private int[] solution = new int[0];
+
+    /**
+     * Constructs a new Solver with the default node limit.
+     */
+    public Solver()
+    {
+        this(DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Constructs a new Solver.
+     *
+     * @param maxNodes maximum number of positions to search before giving up
+     */
+    public Solver(long maxNodes)
+    {
+        this(new LongHashSet(1 << 16), maxNodes);
+    }
+
+    /**
+     * Constructs a new Solver that records positions in the given table,
+     * which may be shared with other Solvers.
+     *
+     * @param visited table of positions already reached
+     * @param maxNodes maximum number of positions to search before giving up
+     */
+    Solver(PositionTable visited, long maxNodes)
+    {
+        this.visited = visited;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Searches a deal in the saved game format accepted by
+     * {@code Deck.createCustomDeck} (see {@link GameState#load(int[])}).
+     *
+     * @param ordinals card ordinals and pile separators
+     * @param drawCount how many cards are drawn at a time from the DealDeck
+     * @param difficulty game difficulty (1 - 3)
+     * @return {@link #WINNABLE}, {@link #UNWINNABLE} or {@link #UNKNOWN}
+     */
+    public int solve(List<Integer> ordinals, int drawCount, int difficulty)
+    {
+        GameState state = new GameState(drawCount, difficulty);
+        state.load(ordinals);
+
+        return solve(state);
+    }
+
+    /**
+     * Searches a position. The position is left unchanged.
+     *
+     * @param state the position to search
+     * @return {@link #WINNABLE}, {@link #UNWINNABLE} or {@link #UNKNOWN}
+     */
+    public int solve(GameState state)
+    {
+        visited.clear();
+        solution = new int[0];
+
+        if (state.isWon())
+        {
+            nodes = 0;
+            return WINNABLE;
+        }
+
+        visited.add(state.hash());
+
+        return search(state);
+    }
+
+    /**
+     * Searches every position reachable from a position that has already
+     * been recorded in the table of reached positions. The position is left
+     * unchanged, and a winning line found is relative to it.
+     *
+     * @param state the position to search from
+     * @return {@link #WINNABLE}, {@link #UNWINNABLE} or {@link #UNKNOWN}
+     */
+    int search(GameState state)
+    {
+        nodes = 0;
+        truncated = false;
+        solution = new int[0];
+
+        int depth = 0;
+        moveCount[0] = generateMoves(state, 0);
+        moveIndex[0] = 0;
+
+        while (true)
+        {
+            if (moveIndex[depth] == moveCount[depth])
+            {
+                if (depth == 0)
+                    return truncated ? UNKNOWN : UNWINNABLE;
+
+                depth--;
+                state.undo(path[depth], tokens[depth]);
+                continue;
+            }
+
+            int move = moves[depth * MAX_MOVES + moveIndex[depth]++];
+            int token = state.apply(move);
+
+            if (state.isWon())
+            {
+                path[depth] = move;
+                solution = new int[depth + 1];
+                System.arraycopy(path, 0, solution, 0, depth + 1);
+
+                state.undo(move, token);
+                unwind(state, depth);
+                return WINNABLE;
+            }
+
+            if (depth + 1 >= MAX_DEPTH)
+            {
+                truncated = true;
+                state.undo(move, token);
+                continue;
+            }
+
+            if (!visited.add(state.hash()))
+            {
+                state.undo(move, token);
+                continue;
+            }
+
+            if (++nodes > maxNodes)
+            {
+                state.undo(move, token);
+                unwind(state, depth);
+                return UNKNOWN;
+            }
+
+            path[depth] = move;
+            tokens[depth] = token;
+            depth++;
+
+            moveCount[depth] = generateMoves(state, depth);
+            moveIndex[depth] = 0;
+
+            if (nodes % POLL_INTERVAL == 0 && poll(depth))
+            {
+                unwind(state, depth);
+                return UNKNOWN;
+            }
+        }
+    }
+
+    /**
+     * Called every {@link #POLL_INTERVAL} positions while searching, with the
+     * depth of the position just expanded. Returning true abandons the
+     * search, which by default happens once the thread is interrupted.
+     *
+     * @param depth current search depth
+     * @return true to stop searching; false to continue
+     */
+    boolean poll(int depth)
+    {
+        return Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Takes the moves not yet tried at the shallowest unfinished depth of the
+     * running search out of this search and passes them to {@link
+     * #split(int[], int, int[], int, int)}, so they can be searched elsewhere.
+     * Only to be called from {@link #poll(int)}.
+     *
+     * @param depth current search depth
+     * @return true if any moves were handed off; false otherwise
+     */
+    boolean splitShallowest(int depth)
+    {
+        for (int d = 0; d <= depth; d++)
+        {
+            if (moveIndex[d] < moveCount[d])
+            {
+                split(path, d, moves, d * MAX_MOVES + moveIndex[d], d * MAX_MOVES + moveCount[d]);
+                moveIndex[d] = moveCount[d];
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Receives moves handed off by {@link #splitShallowest(int)}: the moves
+     * {@code moves[first]} through {@code moves[last - 1]} are to be tried
+     * from the position reached by playing {@code path[0]} through {@code
+     * path[depth - 1]} from the starting position. The arrays must not be
+     * kept.
+     */
+    void split(int[] path, int depth, int[] moves, int first, int last)
+    {
+        // nothing else to search with
+    }
+
+    /**
+     * Returns the winning moves found by the last search, or an empty array
+     * if the last search did not find a win.
+     *
+     * @return encoded {@link Move}s, first move first
+     */
+    public int[] getSolution()
+    {
+        return solution;
+    }
+
+    /**
+     * Returns the number of positions expanded by the last search.
+     *
+     * @return the number of positions searched
+     */
+    public long getNodesSearched()
+    {
+        return nodes;
+    }
+
+    /**
+     * Undoes the moves on the search path below {@code depth}, restoring the
+     * root position.
+     */
+    private void unwind(GameState state, int depth)
+    {
+        for (int d = depth - 1; d >= 0; d--)
+            state.undo(path[d], tokens[d]);
+    }
+
+    /**
+     * Writes the moves worth trying from a position into the move buffer for
+     * the specified depth, most promising first.
+     *
+     * @return the number of moves generated
+     */
+    private int generateMoves(GameState state, int depth)
+    {
+        int base = depth * MAX_MOVES;
+        int n = 0;
+
+        // a safe move to an AcePile is the only move that needs to be tried
+        int safe = findSafeMove(state);
+        if (safe != 0)
+        {
+            moves[base] = safe;
+            return 1;
+        }
+
+        for (int i = 0; i < 4; i++)
+            runs[i] = state.movableCount(GameState.FIRST_COLUMN + i);
+
+        // single cards to the AcePiles
+        for (int from = 0; from < GameState.NUM_PILES; from++)
+        {
+            if (from == GameState.DEAL_DECK || GameState.isAcePile(from) || state.isEmpty(from))
+                continue;
+
+            int to = GameState.FIRST_ACE_PILE + Rules.acePileFor(Rules.suit(state.peek(from)));
+
+            if (state.isValidMove(from, 1, to))
+                moves[base + n++] = Move.encode(from, 1, to);
+        }
+
+        // SingleCell cards and whole Column runs to the Columns, which free a
+        // cell or uncover a card
+        n = addColumnMoves(state, base, n, GameState.FIRST_CELL, GameState.FIRST_COLUMN + 4, true);
+
+        // the DiscardPile to the Columns, then the DealDeck
+        n = addColumnMoves(state, base, n, GameState.DISCARD_PILE, GameState.DISCARD_PILE + 1, true);
+
+        if (state.canDraw())
+            moves[base + n++] = Move.DRAW;
+
+        // parts of Column runs to other Columns
+        n = addColumnMoves(state, base, n, GameState.FIRST_COLUMN, GameState.FIRST_COLUMN + 4, false);
+
+        // single cards to the first empty SingleCell; taking a card off an
+        // AcePile only to park it in a SingleCell never helps
+        for (int i = 0; i < 4; i++)
+        {
+            int to = GameState.FIRST_CELL + i;
+
+            if (!state.isEmpty(to))
+                continue;
+
+            for (int from = GameState.FIRST_COLUMN; from < GameState.FIRST_COLUMN + 4; from++)
+                if (!state.isEmpty(from))
+                    moves[base + n++] = Move.encode(from, 1, to);
+
+            if (!state.isEmpty(GameState.DISCARD_PILE))
+                moves[base + n++] = Move.encode(GameState.DISCARD_PILE, 1, to);
+
+            break;
+        }
+
+        // cards taken back off the AcePiles to the Columns
+        n = addColumnMoves(state, base, n, GameState.FIRST_ACE_PILE, GameState.FIRST_ACE_PILE + 4, true);
+
+        return n;
+    }
+
+    /**
+     * Adds the valid moves from the piles {@code firstFrom} through {@code
+     * lastFrom - 1} to the Columns. Column sources contribute either moves of
+     * their whole top run ({@code wholeRuns}) or moves of part of it.
+     *
+     * @return the new number of moves in the buffer
+     */
+    private int addColumnMoves(GameState state, int base, int n, int firstFrom, int lastFrom, boolean wholeRuns)
+    {
+        boolean triedEmptyColumn = false;
+
+        for (int i = 0; i < 4; i++)
+        {
+            int to = GameState.FIRST_COLUMN + i;
+            int top = state.peek(to);
+
+            if (top == Rules.NO_CARD)
+            {
+                if (triedEmptyColumn)
+                    continue;
+
+                triedEmptyColumn = true;
+            }
+
+            for (int from = firstFrom; from < lastFrom; from++)
+            {
+                if (from == to || state.isEmpty(from))
+                    continue;
+
+                int count = 1;
+
+                if (GameState.isColumn(from))
+                {
+                    int run = runs[from - GameState.FIRST_COLUMN];
+                    count = columnMoveCount(state, from, run, top);
+
+                    if (count == 0 || (count == run) != wholeRuns)
+                        continue;
+
+                    // moving a whole column to an empty column changes nothing
+                    if (top == Rules.NO_CARD && count == state.size(from))
+                        continue;
+                }
+
+                int card = state.cardAt(from, state.size(from) - count);
+
+                if (Rules.isValidColumnMove(card, top))
+                    moves[base + n++] = Move.encode(from, count, to);
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * Returns the number of cards from the top of a Column that would have to
+     * move so the bottom moved card lands on {@code top}, or 0 if no part of
+     * the Column's top run fits.
+     */
+    private int columnMoveCount(GameState state, int from, int run, int top)
+    {
+        int size = state.size(from);
+
+        if (top == Rules.NO_CARD)
+        {
+            for (int count = run; count > 0; count--)
+                if (Rules.value(state.cardAt(from, size - count)) == Rules.KING)
+                    return count;
+
+            return 0;
+        }
+
+        // values increase by one going down a run
+        int count = Rules.value(top) - Rules.value(state.peek(from));
+
+        return count >= 1 && count <= run ? count : 0;
+    }
+
+    /**
+     * Returns a move of an Ace, or of a Two whose opposite-color Aces are
+     * home, to its AcePile, or 0 if there is none.
+     */
+    private int findSafeMove(GameState state)
+    {
+        int lastSource = state.getDrawCount() == 1 ? GameState.DISCARD_PILE : GameState.FIRST_ACE_PILE - 1;
+
+        for (int from = 0; from <= lastSource; from++)
+        {
+            if (GameState.isAcePile(from) || from == GameState.DEAL_DECK)
+                continue;
+
+            int card = state.peek(from);
+            if (card == Rules.NO_CARD)
+                continue;
+
+            int suit = Rules.suit(card);
+            int value = Rules.value(card);
+            int to = GameState.FIRST_ACE_PILE + Rules.acePileFor(suit);
+
+            if (value > 2 || state.size(to) != value - 1)
+                continue;
+
+            if (value == 1 || oppositeAcesHome(state, suit))
+                return Move.encode(from, 1, to);
+        }
+
+        return 0;
+    }
+
+    private boolean oppositeAcesHome(GameState state, int suit)
+    {
+        // black suits are 0 and 1, red suits are 2 and 3
+        int first = suit < 2 ? Rules.HEARTS : Rules.SPADES;
+
+        return state.size(GameState.FIRST_ACE_PILE + Rules.acePileFor(first)) > 0
+            && state.size(GameState.FIRST_ACE_PILE + Rules.acePileFor(first + 1)) > 0;
+    }
+}
@@ -0,0 +1,144 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class AtomicFileTest
+{
+    private File file;
+    private AtomicFile atomic;
+
+    @BeforeMethod
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("frs-options", ".dat");
+        file.delete();
+        atomic = new AtomicFile(file);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        atomic.delete();
+    }
+
+    /**
+     * Test passes if what was written last is read back, from a new object,
+     * and a file that was never written reads as null.
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        assertNull(atomic.read());
+
+        atomic.write(bytes(1, 40));
+        atomic.write(bytes(2, 60));
+
+        assertTrue(Arrays.equals(bytes(2, 60), new AtomicFile(file).read()));
+    }
+
+    /**
+     * Test passes if a damaged file is passed over for the generation before
+     * it.
+     */
+    @Test
+    public void testRollsBackDamagedGeneration() throws IOException
+    {
+        atomic.write(bytes(1, 40));
+        atomic.write(bytes(2, 40));
+
+        RandomAccessFile raw = new RandomAccessFile(file, "rw");
+        raw.seek(30);
+        raw.write(0xff);
+        raw.close();
+
+        assertTrue(Arrays.equals(bytes(1, 40), new AtomicFile(file).read()));
+    }
+
+    /**
+     * Test passes if a file written before generations were kept is read as
+     * it is, and can be written over.
+     */
+    @Test
+    public void testReadsOldFile() throws IOException
+    {
+        FileOutputStream output = new FileOutputStream(file);
+        output.write(bytes(3, 264));
+        output.close();
+
+        assertTrue(Arrays.equals(bytes(3, 264), atomic.read()));
+
+        atomic.write(bytes(4, 10));
+        assertTrue(Arrays.equals(bytes(4, 10), new AtomicFile(file).read()));
+    }
+
+    /**
+     * Test passes if, whichever byte a write is killed at, the file reads
+     * as either the old contents or the new ones, and the next write after
+     * the crash is read back.
+     */
+    @Test
+    public void testSurvivesCrashAtAnyByte() throws IOException
+    {
+        Random random = new Random(23);
+        byte[] before = bytes(5, 264);
+        byte[] after = bytes(6, 264);
+
+        // the bytes of a write, a rename to the backup and a rename into place
+        int writeLength = 16 + after.length + 4 + 2;
+
+        for (int trial = 0; trial < 300; trial++)
+        {
+            atomic.delete();
+
+            AtomicFile writer = new AtomicFile(file);
+            writer.write(bytes(0, 264));
+            writer.write(before);
+
+            int crashAt = trial < writeLength ? trial : random.nextInt(writeLength);
+            writer.setCrashPoint(new CrashPoint(crashAt));
+
+            try
+            {
+                writer.write(after);
+                fail("the write did not crash at byte " + crashAt);
+            }
+            catch (IOException ex)
+            {
+                // killed
+            }
+
+            byte[] read = new AtomicFile(file).read();
+
+            assertTrue("crash at byte " + crashAt,
+                       Arrays.equals(before, read) || Arrays.equals(after, read));
+
+            // whole only once it has all been written
+            if (crashAt < 16 + after.length + 4)
+                assertTrue("crash at byte " + crashAt, Arrays.equals(before, read));
+
+            AtomicFile next = new AtomicFile(file);
+            next.read();
+            next.write(bytes(7, 100));
+
+            assertTrue("crash at byte " + crashAt, Arrays.equals(bytes(7, 100), new AtomicFile(file).read()));
+        }
+    }
+
+    private static byte[] bytes(int seed, int length)
+    {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,67 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+public class AudioServiceTest
+{
+    /**
+     * Test passes if the manifest lists every win song, and comments and
+     * blank lines are skipped.
+     */
+    @Test
+    public void testReadManifest() throws IOException
+    {
+        assertEquals(Arrays.asList("anotheronebitesthedust.mid", "bluedabadee.mid",
+                                   "celebration.mid", "wearethechampions.mid"),
+                     AudioService.readManifest(getClass().getClassLoader().getResourceAsStream(AudioService.MANIFEST)));
+
+        byte[] manifest = "# songs\n\n  one.mid \n#two.mid\nthree.mid".getBytes("UTF-8");
+        assertEquals(Arrays.asList("one.mid", "three.mid"),
+                     AudioService.readManifest(new ByteArrayInputStream(manifest)));
+    }
+
+    /**
+     * Test passes if every song is parsed in the background, and playing and
+     * stopping a song return without waiting for the sequencer.
+     */
+    @Test
+    public void testPlaysWithoutBlocking() throws InterruptedException
+    {
+        // not connected to a synthesizer, so it opens without a sound device
+        AudioService audio = new AudioService(false);
+
+        try
+        {
+            assertEquals(4, audio.getSongs().size());
+
+            long start = System.nanoTime();
+            audio.playWinSong();
+            long call = System.nanoTime() - start;
+
+            assertTrue("took " + call + " ns", call < 20000000);
+
+            for (int i = 0; i < 200 && audio.getStartLatencyNanos() < 0; i++)
+                Thread.sleep(10);
+
+            assertTrue(audio.getStartLatencyNanos() > 0);
+            assertTrue(audio.isPlaying());
+
+            audio.stopSong();
+
+            for (int i = 0; i < 200 && audio.isPlaying(); i++)
+                Thread.sleep(10);
+
+            assertFalse(audio.isPlaying());
+        }
+        finally
+        {
+            audio.shutdown();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import edu.asu.FourRowSolitaire.engine.Deals;
+import edu.asu.FourRowSolitaire.engine.GameState;
+import edu.asu.FourRowSolitaire.engine.Move;
+import edu.asu.FourRowSolitaire.engine.MoveJournal;
+import edu.asu.FourRowSolitaire.engine.Snapshot;
+
+public class AutosaveJournalTest
+{
+    private File file;
+
+    @BeforeMethod
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("frs-autosave", ".dat");
+        file.delete();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    /**
+     * Test passes if a new file has no game to recover.
+     */
+    @Test
+    public void testNothingToRecover() throws IOException
+    {
+        assertNull(new AutosaveJournal(file).recover());
+        assertEquals(AutosaveJournal.FILE_SIZE, file.length());
+    }
+
+    /**
+     * Test passes if a game begun from its deal comes back dealt, with its
+     * moves in order and the time on the timer.
+     */
+    @Test
+    public void testRecoversDealAndMoves() throws IOException
+    {
+        AutosaveJournal journal = new AutosaveJournal(file);
+        journal.begin(12345L, 3, 1);
+
+        int first = entry(GameState.FIRST_COLUMN, 1, GameState.FIRST_ACE_PILE);
+        int draw = entry(GameState.DEAL_DECK, 3, GameState.DISCARD_PILE);
+
+        assertTrue(journal.append(first, 4));
+        assertTrue(journal.append(AutosaveJournal.UNDO, 5));
+        assertTrue(journal.append(AutosaveJournal.REDO, 6));
+        assertTrue(journal.append(draw, 7));
+        journal.setSeconds(9);
+
+        AutosaveJournal.Recovery game = new AutosaveJournal(file).recover();
+
+        GameState dealt = new GameState(3, 1);
+        Deals.deal(12345L, dealt, new int[GameState.DECK_SIZE]);
+
+        assertTrue(game.isDealt());
+        assertEquals(12345L, game.getDealNumber());
+        assertEquals(3, game.getStart().getPosition().getDrawCount());
+        assertEquals(1, game.getStart().getPosition().getDifficulty());
+        assertTrue(Arrays.equals(dealt.toOrdinals(), game.getStart().getPosition().toOrdinals()));
+        assertEquals(9, game.getStart().getSeconds());
+        assertTrue(Arrays.equals(new int[] { first, AutosaveJournal.UNDO, AutosaveJournal.REDO, draw },
+                                 game.getEntries()));
+    }
+
+    /**
+     * Test passes if a game begun from a position comes back with every
+     * card where it was, and the deck throughs and DiscardPile view.
+     */
+    @Test
+    public void testRecoversSnapshot() throws IOException
+    {
+        GameState position = new GameState(1, 2);
+        Deals.deal(99L, position, new int[GameState.DECK_SIZE]);
+        position.move(GameState.FIRST_COLUMN, 1, GameState.FIRST_CELL + 1);
+        position.draw();
+        position.setDeckThroughs(2);
+        position.setDiscardView(1);
+
+        AutosaveJournal journal = new AutosaveJournal(file);
+        journal.begin(new Snapshot(position, 30), 99L);
+
+        GameState recovered = new AutosaveJournal(file).recover().getStart().getPosition();
+
+        assertFalse(new AutosaveJournal(file).recover().isDealt());
+        assertTrue(Arrays.equals(position.toOrdinals(), recovered.toOrdinals()));
+        assertEquals(2, recovered.getDeckThroughs());
+        assertEquals(1, recovered.getDiscardView());
+        assertEquals(30, new AutosaveJournal(file).recover().getStart().getSeconds());
+    }
+
+    /**
+     * Test passes if a full slot, and an undo of a move from before the slot
+     * was begun, are refused, and beginning again from a snapshot takes over
+     * from the slot before it.
+     */
+    @Test
+    public void testCompacts() throws IOException
+    {
+        AutosaveJournal journal = new AutosaveJournal(file);
+        journal.begin(7L, 1, 2);
+
+        int move = entry(GameState.FIRST_COLUMN, 1, GameState.FIRST_CELL);
+
+        for (int i = 0; i < AutosaveJournal.CAPACITY; i++)
+            assertTrue(journal.append(move, i));
+
+        assertFalse(journal.append(move, 0));
+
+        GameState position = new GameState(1, 2);
+        Deals.deal(7L, position, new int[GameState.DECK_SIZE]);
+        journal.begin(new Snapshot(position, 100), 7L);
+
+        assertFalse(journal.append(AutosaveJournal.UNDO, 100));
+        assertTrue(journal.append(move, 101));
+        assertTrue(journal.append(AutosaveJournal.UNDO, 102));
+        assertFalse(journal.append(AutosaveJournal.UNDO, 103));
+
+        AutosaveJournal.Recovery game = new AutosaveJournal(file).recover();
+        assertFalse(game.isDealt());
+        assertEquals(2, game.getEntries().length);
+
+        // and begun again from a deal
+        journal.begin(8L, 1, 2);
+        assertEquals(8L, new AutosaveJournal(file).recover().getDealNumber());
+    }
+
+    /**
+     * Test passes if a slot that was not written whole is passed over for
+     * the one before it.
+     */
+    @Test
+    public void testPassesOverDamagedSlot() throws IOException
+    {
+        AutosaveJournal journal = new AutosaveJournal(file);
+        journal.begin(1L, 1, 2);
+        journal.append(entry(GameState.FIRST_COLUMN, 1, GameState.FIRST_CELL), 1);
+        journal.begin(2L, 1, 2);
+
+        RandomAccessFile raw = new RandomAccessFile(file, "rw");
+        raw.seek(AutosaveJournal.SLOT_SIZE + 20);
+        raw.write(0x7f);
+        raw.close();
+
+        AutosaveJournal.Recovery game = new AutosaveJournal(file).recover();
+        assertEquals(1L, game.getDealNumber());
+        assertEquals(1, game.getEntries().length);
+    }
+
+    /**
+     * Test passes if nothing is recovered once the game has ended.
+     */
+    @Test
+    public void testEnd() throws IOException
+    {
+        AutosaveJournal journal = new AutosaveJournal(file);
+        journal.begin(3L, 1, 1);
+        journal.append(entry(GameState.FIRST_COLUMN, 1, GameState.FIRST_CELL), 1);
+        journal.end();
+
+        assertNull(new AutosaveJournal(file).recover());
+        assertFalse(journal.append(entry(GameState.FIRST_COLUMN, 1, GameState.FIRST_CELL), 1));
+    }
+
+    private static int entry(int from, int count, int to)
+    {
+        return (int) MoveJournal.entry(Move.encode(from, count, to), 0, 0);
+    }
+}
@@ -0,0 +1,161 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import edu.asu.FourRowSolitaire.engine.GameState;
+
+public class BoardRendererTest
+{
+    private CardStack[] piles;
+    private BoardRenderer renderer;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        piles = new CardStack[GameState.NUM_PILES];
+
+        DiscardPile discardPile = new DiscardPile(1);
+
+        for (int i = 0; i < 4; i++)
+        {
+            piles[GameState.FIRST_CELL + i] = new SingleCell();
+            piles[GameState.FIRST_COLUMN + i] = new Column();
+            piles[GameState.FIRST_ACE_PILE + i] = new AcePile(CardSuit.values()[i]);
+        }
+
+        piles[GameState.DEAL_DECK] = new DealDeck(discardPile, 1);
+        piles[GameState.DISCARD_PILE] = discardPile;
+
+        // a column of king of spades down to ten of spades, and a card in a cell
+        for (int value = 13; value >= 10; value--)
+            piles[GameState.FIRST_COLUMN + 1].push(card(CardSuit.SPADES, value));
+
+        piles[GameState.FIRST_CELL + 2].push(card(CardSuit.HEARTS, 1));
+
+        renderer = new BoardRenderer(piles);
+        renderer.setSize(800, 650);
+    }
+
+    /**
+     * Test passes if points find the pile and card drawn under them.
+     */
+    @Test
+    public void testHitTesting()
+    {
+        Rectangle column = SolitaireLayout.getPileBounds(GameState.FIRST_COLUMN + 1);
+        Rectangle cell = SolitaireLayout.getPileBounds(GameState.FIRST_CELL + 2);
+
+        assertEquals(GameState.FIRST_COLUMN + 1, renderer.getPileAt(new Point(column.x + 5, column.y + 5)));
+        assertEquals(-1, renderer.getPileAt(new Point(2, 2)));
+
+        // cards are 25 pixels apart, and the last one is drawn in full
+        assertSame(piles[GameState.FIRST_COLUMN + 1].getCardAtLocation(3),
+                   renderer.getCardAt(new Point(column.x + 5, column.y + 3 * 25 + 60)));
+        assertSame(piles[GameState.FIRST_CELL + 2].peek(), renderer.getCardAt(new Point(cell.x + 1, cell.y + 1)));
+        assertNull(renderer.getCardAt(new Point(2, 2)));
+    }
+
+    /**
+     * Test passes if the piles scale and center with the renderer, and points
+     * still find the cards drawn under them.
+     */
+    @Test
+    public void testScalesWithSize()
+    {
+        assertEquals(1.0, SolitaireLayout.getScale(800, 650));
+        assertEquals(2.0, SolitaireLayout.getScale(1700, 1250));
+        assertEquals(0.5, SolitaireLayout.getScale(100, 100));
+
+        renderer.setSize(1700, 1250);
+        renderer.doLayout();
+
+        // the board is 1600 wide at twice the size, with 50 to spare on each side
+        Rectangle column = SolitaireLayout.getPileBounds(GameState.FIRST_COLUMN + 1, 2, 50);
+        assertEquals(column, piles[GameState.FIRST_COLUMN + 1].getBounds());
+        assertEquals(new Rectangle(50 + 2 * 164, 2 * 115, 144, 1600), column);
+        assertEquals(2.0, piles[GameState.FIRST_COLUMN + 1].getScale());
+
+        // cards are 50 pixels apart, and the last one is 192 high
+        assertSame(piles[GameState.FIRST_COLUMN + 1].getCardAtLocation(3),
+                   renderer.getCardAt(new Point(column.x + 100, column.y + 3 * 50 + 10)));
+        assertSame(piles[GameState.FIRST_COLUMN + 1].getCardAtLocation(3),
+                   renderer.getCardAt(new Point(column.x + 100, column.y + 3 * 50 + 180)));
+        assertNull(renderer.getCardAt(new Point(column.x + 100, column.y + 3 * 50 + 200)));
+    }
+
+    /**
+     * Test passes if a click on the renderer reaches the listener as a click
+     * on the pile, at the point in the pile.
+     */
+    @Test
+    public void testMouseEventsComeFromPiles()
+    {
+        final MouseEvent[] received = new MouseEvent[1];
+
+        renderer.addPileMouseListener(new MouseAdapter()
+        {
+            public void mouseClicked(MouseEvent e)
+            {
+                received[0] = e;
+            }
+        });
+
+        Rectangle deck = SolitaireLayout.getPileBounds(GameState.DEAL_DECK);
+        renderer.dispatchEvent(new MouseEvent(renderer, MouseEvent.MOUSE_CLICKED, 0, 0,
+                                              deck.x + 10, deck.y + 20, 1, false, MouseEvent.BUTTON1));
+
+        assertSame(piles[GameState.DEAL_DECK], received[0].getSource());
+        assertEquals(new Point(10, 20), received[0].getPoint());
+        assertEquals(1, received[0].getClickCount());
+
+        received[0] = null;
+        renderer.dispatchEvent(new MouseEvent(renderer, MouseEvent.MOUSE_CLICKED, 0, 0,
+                                              2, 2, 1, false, MouseEvent.BUTTON1));
+        assertNull(received[0]);
+    }
+
+    /**
+     * Test passes if the renderer draws a pile exactly as the pile draws
+     * itself as a component.
+     */
+    @Test
+    public void testDrawsLikePiles()
+    {
+        BufferedImage board = new BufferedImage(800, 650, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = board.getGraphics();
+        renderer.paint(g);
+        g.dispose();
+
+        for (int pile : new int[] {GameState.FIRST_COLUMN + 1, GameState.FIRST_CELL + 2})
+        {
+            Rectangle r = SolitaireLayout.getPileBounds(pile);
+            BufferedImage alone = new BufferedImage(r.width, r.height, BufferedImage.TYPE_INT_ARGB);
+
+            piles[pile].setBoardRenderer(null, pile);
+            piles[pile].setSize(r.width, r.height);
+            g = alone.getGraphics();
+            piles[pile].paint(g);
+            g.dispose();
+
+            for (int y = 0; y < Math.min(r.height, 650 - r.y); y++)
+                for (int x = 0; x < r.width; x++)
+                    assertEquals("pile " + pile + " at " + x + "," + y,
+                                 alone.getRGB(x, y), board.getRGB(r.x + x, r.y + y));
+        }
+    }
+
+    private static Card card(CardSuit suit, int value)
+    {
+        return new Card(suit, CardNumber.values()[value - 1], 1, suit.getOffset() + value);
+    }
+}
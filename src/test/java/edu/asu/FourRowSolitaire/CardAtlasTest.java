@@ -0,0 +1,82 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.testng.annotations.Test;
+
+public class CardAtlasTest
+{
+    /**
+     * Test passes if drawing a card from the atlas gives the same pixels as
+     * drawing its own image, and the packed atlas was saved for the next run.
+     */
+    @Test
+    public void testDrawMatchesCardImages() throws IOException
+    {
+        String home = System.getProperty("user.home");
+        File dir = Files.createTempDirectory("frs-home").toFile();
+        System.setProperty("user.home", dir.getPath());
+
+        // another test may have loaded the atlas from the real home already
+        CardAtlas.reset();
+
+        try
+        {
+            CardAtlas atlas = CardAtlas.getInstance();
+            assertTrue(CardAtlas.getFile().isFile());
+
+            int[] slots = {
+                CardImageCache.faceSlot(CardSuit.SPADES, CardNumber.ACE),
+                CardImageCache.highlightedSlot(CardSuit.DIAMONDS, CardNumber.KING),
+                CardImageCache.backSlot(1),
+                CardImageCache.faceSlot(CardSuit.INVALID, CardNumber.INVALID)
+            };
+
+            for (int slot : slots)
+            {
+                BufferedImage expected = new BufferedImage(CardAtlas.CELL_WIDTH, CardAtlas.CELL_HEIGHT,
+                                                           BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = expected.createGraphics();
+                g.drawImage(CardImageCache.getImage(slot), 0, 0, null);
+                g.dispose();
+
+                BufferedImage actual = new BufferedImage(CardAtlas.CELL_WIDTH, CardAtlas.CELL_HEIGHT,
+                                                         BufferedImage.TYPE_INT_ARGB);
+                g = actual.createGraphics();
+                atlas.draw(g, slot, 0, 0);
+                g.dispose();
+
+                for (int y = 0; y < CardAtlas.CELL_HEIGHT; y++)
+                    for (int x = 0; x < CardAtlas.CELL_WIDTH; x++)
+                        assertEquals("slot " + slot + " at " + x + "," + y,
+                                     expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+        finally
+        {
+            CardAtlas.reset();
+            CardAtlas.getFile().delete();
+            dir.delete();
+            System.setProperty("user.home", home);
+        }
+    }
+
+    /**
+     * Test passes if every slot has a cell in the packed image.
+     */
+    @Test
+    public void testPackedSize()
+    {
+        BufferedImage packed = CardAtlas.pack();
+        int cells = (packed.getWidth() / CardAtlas.CELL_WIDTH) * (packed.getHeight() / CardAtlas.CELL_HEIGHT);
+
+        assertEquals(CardAtlas.COLUMNS * CardAtlas.CELL_WIDTH, packed.getWidth());
+        assertTrue(cells >= CardImageCache.NUM_SLOTS);
+    }
+}
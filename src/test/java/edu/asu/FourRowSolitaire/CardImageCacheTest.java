@@ -0,0 +1,72 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import org.testng.annotations.Test;
+
+public class CardImageCacheTest
+{
+    /**
+     * Test passes if cards share one decoded image per face, highlight and
+     * back, and turning a card over decodes nothing.
+     */
+    @Test
+    public void testCardsShareImages()
+    {
+        Card first = new Card(CardSuit.HEARTS, CardNumber.QUEEN, 1, 38);
+        Card second = first.clone();
+
+        assertNotNull(first.getImage());
+        assertSame(first.getImage(), second.getImage());
+        assertSame(CardImageCache.getFace(CardSuit.HEARTS, CardNumber.QUEEN), first.getImage());
+
+        long misses = CardImageCache.getMisses();
+        long hits = CardImageCache.getHits();
+
+        first.setFaceDown();
+        first.setFaceUp();
+        first.setFaceDown();
+        second.setFaceDown();
+
+        assertSame(CardImageCache.getBack(1), first.getImage());
+        assertSame(first.getImage(), second.getImage());
+        assertNotSame(CardImageCache.getBack(2), first.getImage());
+
+        first.highlight();
+        assertSame(CardImageCache.getHighlighted(CardSuit.HEARTS, CardNumber.QUEEN), first.getImage());
+        assertNotSame(CardImageCache.getFace(CardSuit.HEARTS, CardNumber.QUEEN), first.getImage());
+
+        // at most the back and highlight were decoded for the first time
+        assertTrue(CardImageCache.getMisses() - misses <= 3);
+        assertTrue(CardImageCache.getHits() - hits >= 5);
+        assertTrue(CardImageCache.getHitRate() > 0);
+    }
+
+    /**
+     * Test passes if invalid cards and back styles fall back to the invalid
+     * card image and the default back.
+     */
+    @Test
+    public void testInvalidFallbacks()
+    {
+        assertSame(CardImageCache.getInvalid(), CardImageCache.getFace(CardSuit.INVALID, CardNumber.ACE));
+        assertSame(CardImageCache.getBack(3), CardImageCache.getBack(-1));
+    }
+
+    /**
+     * Test passes if preloading fills the cache, so later requests only hit.
+     */
+    @Test
+    public void testPreload()
+    {
+        CardImageCache.preload(2);
+        long misses = CardImageCache.getMisses();
+
+        for (CardNumber number : CardNumber.values())
+            if (Card.isValidNumber(number))
+                new Card(CardSuit.CLUBS, number, 2, CardSuit.CLUBS.getOffset() + number.getValue()).setFaceDown();
+
+        assertEquals(misses, CardImageCache.getMisses());
+        assertTrue(CardImageCache.getDecodeNanos() > 0);
+    }
+}
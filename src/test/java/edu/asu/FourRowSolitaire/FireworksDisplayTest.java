@@ -0,0 +1,58 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import org.testng.annotations.Test;
+
+public class FireworksDisplayTest
+{
+    /**
+     * Test passes if the show fires all of its sets and finishes once the
+     * last sparks burn out, a little after 26 sets of 3 seconds.
+     */
+    @Test
+    public void testShowFinishes()
+    {
+        FireworksDisplay display = new FireworksDisplay(100, 200);
+        display.setSize(800, 600);
+        display.restartDisplay();
+
+        int steps = 0;
+
+        while (!display.isFinished() && steps < 100 * 60)
+        {
+            display.step();
+            steps++;
+        }
+
+        assertTrue(display.isFinished());
+        assertTrue("took " + steps + " steps", steps > 26 * 3 * 60 - 60);
+        assertTrue("took " + steps + " steps", steps < 26 * 3 * 60 + 5 * 60);
+    }
+
+    /**
+     * Test passes if frames that take too long lower the quality, and fast
+     * ones bring it back.
+     */
+    @Test
+    public void testQualityFollowsFrameTime()
+    {
+        FireworksDisplay display = new FireworksDisplay(100, 200);
+        long frame = 1000000000L / 60;
+        long now = 0;
+
+        assertEquals(4, display.getQualityLevel());
+
+        for (int i = 0; i < 60; i++)
+            display.frameDone(frame * 2, now += frame * 2);
+
+        assertEquals(0, display.getQualityLevel());
+        assertEquals(30, display.getFps());
+
+        for (int i = 0; i < 5 * 60; i++)
+            display.frameDone(frame / 10, now += frame);
+
+        assertEquals(4, display.getQualityLevel());
+        assertEquals(60, display.getFps());
+    }
+}
@@ -0,0 +1,82 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import org.testng.annotations.Test;
+
+public class FrameGovernorTest
+{
+    private static final long FRAME = 1000000000L / 60;
+
+    /**
+     * Test passes if slow frames step the level down, a few frames apart,
+     * until the lowest level.
+     */
+    @Test
+    public void testSlowFramesLowerLevel()
+    {
+        FrameGovernor governor = new FrameGovernor(60, 5);
+        assertEquals(4, governor.getLevel());
+
+        int changes = 0;
+
+        for (int i = 0; i < 7; i++)
+            assertFalse(governor.frameRendered(FRAME));
+
+        for (int i = 0; i < 100; i++)
+            if (governor.frameRendered(FRAME))
+                changes++;
+
+        assertEquals(4, changes);
+        assertEquals(0, governor.getLevel());
+    }
+
+    /**
+     * Test passes if frames in the band between the limits keep the level,
+     * and only a second of fast frames raises it again.
+     */
+    @Test
+    public void testLevelHoldsThenRises()
+    {
+        FrameGovernor governor = new FrameGovernor(60, 5);
+
+        for (int i = 0; i < 8; i++)
+            governor.frameRendered(FRAME);
+
+        assertEquals(3, governor.getLevel());
+
+        for (int i = 0; i < 200; i++)
+            governor.frameRendered(FRAME / 2);
+
+        assertEquals(3, governor.getLevel());
+
+        int frames = 1;
+
+        while (!governor.frameRendered(FRAME / 10))
+            frames++;
+
+        // a few frames for the smoothed time to fall, then a second of them
+        assertTrue("rose after " + frames + " frames", frames >= 60 && frames < 70);
+        assertEquals(4, governor.getLevel());
+    }
+
+    /**
+     * Test passes if the frame rate counts the frames shown over a second.
+     */
+    @Test
+    public void testFps()
+    {
+        FrameGovernor governor = new FrameGovernor(60, 5);
+        assertEquals(0, governor.getFps());
+
+        for (int i = 0; i <= 30; i++)
+            governor.frameShown(i * 1000000000L / 30);
+
+        assertEquals(31, governor.getFps());
+
+        for (int i = 1; i <= 45; i++)
+            governor.frameShown(1000000000L + i * 1000000000L / 45);
+
+        assertEquals(45, governor.getFps());
+    }
+}
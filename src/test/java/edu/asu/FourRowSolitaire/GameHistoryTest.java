@@ -0,0 +1,337 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class GameHistoryTest
+{
+    private File file;
+
+    @BeforeMethod
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("frs-statistics", ".dat");
+        file.delete();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        file.delete();
+        new File(file.getPath() + ".new").delete();
+    }
+
+    /**
+     * Test passes if the streaks and best time follow the games won and lost,
+     * and each mode keeps its own totals.
+     */
+    @Test
+    public void testTotalsFollowGames() throws IOException
+    {
+        GameHistory history = new GameHistory(file);
+
+        history.record(game(1, 2, true, 300));
+        history.record(game(1, 2, true, 200));
+        history.record(game(1, 2, true, 0));
+        history.record(game(1, 2, false, 50));
+        history.record(game(1, 2, false, 60));
+        history.record(game(1, 2, true, 250));
+        history.record(game(3, 3, false, 10));
+
+        GameStatistics medium = history.getStatistics(1, 2);
+        assertEquals(6, medium.getGamesPlayed());
+        assertEquals(4, medium.getGamesWon());
+        assertEquals(66, medium.getWinPercentage());
+        assertEquals(3, medium.getBestStreak());
+        assertEquals(-2, medium.getWorstStreak());
+        assertEquals(1, medium.getCurrentStreak());
+        assertEquals(200, medium.getBestTime());
+
+        GameStatistics hard = history.getStatistics(3, 3);
+        assertEquals(1, hard.getGamesPlayed());
+        assertEquals(-1, hard.getCurrentStreak());
+        assertEquals(0, history.getStatistics(1, 1).getGamesPlayed());
+
+        history.close();
+    }
+
+    /**
+     * Test passes if every game comes back in order with all of its fields
+     * after the file is reopened, and the file holds one record per game.
+     */
+    @Test
+    public void testReopen() throws IOException
+    {
+        GameHistory history = new GameHistory(file);
+        history.record(new GameRecord(123456789L, 3, 1, true, 95, 141, 1000L));
+        history.record(new GameRecord(42, 1, 3, false, 600, 12, 2000L));
+        history.close();
+
+        assertEquals(GameHistory.HEADER_SIZE + 2 * GameRecord.SIZE, file.length());
+
+        history = new GameHistory(file);
+        List<GameRecord> games = history.getGames();
+
+        assertEquals(2, history.getGameCount());
+        assertEquals(2, games.size());
+
+        GameRecord first = games.get(0);
+        assertEquals(123456789L, first.getDealNumber());
+        assertEquals(3, first.getDrawCount());
+        assertEquals(1, first.getDifficulty());
+        assertTrue(first.isWon());
+        assertEquals(95, first.getSeconds());
+        assertEquals(141, first.getMoves());
+        assertEquals(1000L, first.getTimestamp());
+
+        assertFalse(games.get(1).isWon());
+        assertEquals(42, games.get(1).getDealNumber());
+        assertEquals(1, history.getStatistics(1, 3).getGamesPlayed());
+        assertEquals(95, history.getStatistics(3, 1).getBestTime());
+
+        history.close();
+    }
+
+    /**
+     * Test passes if a game appended without its header being written is
+     * added to the totals on opening, and a record cut short is dropped.
+     */
+    @Test
+    public void testRecoversInterruptedWrite() throws IOException
+    {
+        GameHistory history = new GameHistory(file);
+        history.record(game(1, 1, true, 100));
+        history.close();
+
+        byte[] header = new byte[GameHistory.HEADER_SIZE];
+        RandomAccessFile raw = new RandomAccessFile(file, "rw");
+        raw.readFully(header);
+        raw.close();
+
+        history = new GameHistory(file);
+        history.record(game(1, 1, false, 100));
+        history.record(game(1, 1, false, 100));
+        history.close();
+
+        // put back the header from before the losses and cut the last one short
+        raw = new RandomAccessFile(file, "rw");
+        raw.write(header);
+        raw.setLength(raw.length() - 5);
+        raw.close();
+
+        history = new GameHistory(file);
+
+        assertEquals(2, history.getGameCount());
+        assertEquals(GameHistory.HEADER_SIZE + 2 * GameRecord.SIZE, file.length());
+
+        GameStatistics easy = history.getStatistics(1, 1);
+        assertEquals(2, easy.getGamesPlayed());
+        assertEquals(-1, easy.getCurrentStreak());
+
+        history.close();
+    }
+
+    /**
+     * Test passes if reset forgets every game.
+     */
+    @Test
+    public void testReset() throws IOException
+    {
+        GameHistory history = new GameHistory(file);
+        history.record(game(3, 2, true, 100));
+        history.reset();
+
+        assertEquals(0, history.getGameCount());
+        assertEquals(0, history.getStatistics(3, 2).getGamesPlayed());
+        assertEquals(GameHistory.HEADER_SIZE, file.length());
+
+        history.close();
+    }
+
+    /**
+     * Test passes if a file in the old format keeps its totals, which the
+     * next games add to.
+     */
+    @Test
+    public void testConvertsOldFormat() throws IOException
+    {
+        DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+        output.writeInt(-1);
+
+        for (int mode = 0; mode < GameHistory.MODES; mode++)
+        {
+            output.writeInt(10 + mode); // played
+            output.writeInt(5);         // won
+            output.writeInt(3);         // best streak
+            output.writeInt(-4);        // worst streak
+            output.writeInt(2);         // current streak
+            output.writeInt(120);       // best time
+        }
+
+        // the options, which are no longer kept here
+        for (int i = 0; i < 11; i++)
+            output.writeInt(1);
+
+        output.close();
+
+        GameHistory history = new GameHistory(file);
+        GameStatistics hard = history.getStatistics(3, 3);
+
+        assertEquals(15, hard.getGamesPlayed());
+        assertEquals(5, hard.getGamesWon());
+        assertEquals(3, hard.getBestStreak());
+        assertEquals(-4, hard.getWorstStreak());
+        assertEquals(2, hard.getCurrentStreak());
+        assertEquals(120, hard.getBestTime());
+
+        history.record(game(3, 3, true, 90));
+        history.record(game(3, 3, true, 90));
+        history.close();
+
+        history = new GameHistory(file);
+        hard = history.getStatistics(3, 3);
+
+        assertEquals(17, hard.getGamesPlayed());
+        assertEquals(4, hard.getCurrentStreak());
+        assertEquals(4, hard.getBestStreak());
+        assertEquals(90, hard.getBestTime());
+        assertEquals(10, history.getStatistics(1, 1).getGamesPlayed());
+        assertEquals(2, history.getGameCount());
+
+        history.close();
+    }
+
+    /**
+     * Test passes if, whichever byte recording a game or resetting is
+     * killed at, the reopened history has either the old games or the new
+     * ones, its totals agree with its records, and it can be recorded to.
+     */
+    @Test
+    public void testSurvivesCrashAtAnyByte() throws IOException
+    {
+        Random random = new Random(29);
+
+        // a record then a header slot; a new file then a rename
+        int recordLength = GameRecord.SIZE + GameHistory.HEADER_SIZE / 2;
+        int resetLength = GameHistory.HEADER_SIZE + 1;
+
+        for (int trial = 0; trial < 200; trial++)
+        {
+            file.delete();
+
+            GameHistory history = new GameHistory(file);
+
+            for (int i = 0; i < 5; i++)
+                history.record(game(1 + 2 * (i % 2), 1 + i % 3, i % 3 != 0, 100 + i));
+
+            boolean reset = trial % 4 == 3;
+            int length = reset ? resetLength : recordLength;
+            int crashAt = trial < length ? trial : random.nextInt(length);
+
+            history.setCrashPoint(new CrashPoint(crashAt));
+
+            try
+            {
+                if (reset)
+                    history.reset();
+                else
+                    history.record(game(3, 2, true, 50));
+
+                fail("did not crash at byte " + crashAt);
+            }
+            catch (IOException ex)
+            {
+                // killed
+            }
+
+            history.close();
+            history = new GameHistory(file);
+
+            int games = history.getGameCount();
+
+            if (reset)
+                assertTrue("crash at byte " + crashAt, games == 5 || games == 0);
+            else
+                assertTrue("crash at byte " + crashAt, games == 5 || games == 6);
+
+            // a record is only counted once it was written whole
+            if (!reset && crashAt < GameRecord.SIZE)
+                assertEquals("crash at byte " + crashAt, 5, games);
+
+            assertTotalsMatch(history);
+
+            history.record(game(1, 1, false, 70));
+            history.close();
+
+            history = new GameHistory(file);
+            assertEquals(games + 1, history.getGameCount());
+            assertTotalsMatch(history);
+            history.close();
+        }
+    }
+
+    /**
+     * Test passes if a history whose header slots are both damaged adds its
+     * totals up again from the records.
+     */
+    @Test
+    public void testRebuildsDamagedHeader() throws IOException
+    {
+        GameHistory history = new GameHistory(file);
+        history.record(game(1, 2, true, 100));
+        history.record(game(1, 2, false, 100));
+        history.close();
+
+        RandomAccessFile raw = new RandomAccessFile(file, "rw");
+        raw.seek(20);
+        raw.write(0xff);
+        raw.seek(GameHistory.HEADER_SIZE / 2 + 20);
+        raw.write(0xff);
+        raw.close();
+
+        history = new GameHistory(file);
+        assertEquals(2, history.getGameCount());
+        assertEquals(1, history.getStatistics(1, 2).getGamesWon());
+        assertEquals(-1, history.getStatistics(1, 2).getCurrentStreak());
+        history.close();
+    }
+
+    private static void assertTotalsMatch(GameHistory history) throws IOException
+    {
+        GameStatistics[] replayed = new GameStatistics[GameHistory.MODES];
+
+        for (int mode = 0; mode < GameHistory.MODES; mode++)
+            replayed[mode] = new GameStatistics();
+
+        for (GameRecord game : history.getGames())
+            replayed[game.getMode()].add(game);
+
+        for (int mode = 0; mode < GameHistory.MODES; mode++)
+        {
+            GameStatistics totals = history.getStatistics(mode < 3 ? 1 : 3, mode % 3 + 1);
+
+            assertEquals(replayed[mode].getGamesPlayed(), totals.getGamesPlayed());
+            assertEquals(replayed[mode].getGamesWon(), totals.getGamesWon());
+            assertEquals(replayed[mode].getCurrentStreak(), totals.getCurrentStreak());
+            assertEquals(replayed[mode].getBestStreak(), totals.getBestStreak());
+            assertEquals(replayed[mode].getWorstStreak(), totals.getWorstStreak());
+            assertEquals(replayed[mode].getBestTime(), totals.getBestTime());
+        }
+    }
+
+    private static GameRecord game(int drawCount, int difficulty, boolean won, int seconds)
+    {
+        return new GameRecord(1, drawCount, difficulty, won, seconds, 100, System.currentTimeMillis());
+    }
+}
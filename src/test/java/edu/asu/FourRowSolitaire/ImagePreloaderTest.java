@@ -0,0 +1,61 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.testng.annotations.Test;
+
+public class ImagePreloaderTest
+{
+    /**
+     * Test passes if waiting for the preloader leaves every step done, the
+     * card images cached and the selected background ready to draw.
+     */
+    @Test
+    public void testPreload() throws IOException
+    {
+        String home = System.getProperty("user.home");
+        File dir = Files.createTempDirectory("frs-home").toFile();
+        System.setProperty("user.home", dir.getPath());
+
+        try
+        {
+            ImagePreloader preloader = ImagePreloader.start();
+            assertSame(preloader, ImagePreloader.start());
+
+            ImagePreloader.preloadBackground(1);
+            ImagePreloader.awaitImages();
+
+            assertEquals(preloader.getTotal(), preloader.getProgress());
+            assertNotNull(ImagePreloader.getBackground(1));
+            assertSame(ImagePreloader.getBackground(1), ImagePreloader.getBackground(1));
+
+            long misses = CardImageCache.getMisses();
+            CardImageCache.preload(3);
+            assertEquals(misses, CardImageCache.getMisses());
+
+            assertEquals(-1, preloader.getTimeToFirstFrame());
+            ImagePreloader.frameShown();
+            assertTrue(preloader.getTimeToFirstFrame() >= 0);
+        }
+        finally
+        {
+            CardAtlas.reset();
+            CardAtlas.getFile().delete();
+            dir.delete();
+            System.setProperty("user.home", home);
+        }
+    }
+
+    /**
+     * Test passes if a background that does not exist comes back as null.
+     */
+    @Test
+    public void testMissingBackground()
+    {
+        assertNull(ImagePreloader.getBackground(99));
+    }
+}
@@ -0,0 +1,124 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class ParticleSystemTest
+{
+    private static final float STEP = 1f / 60;
+
+    /**
+     * Test passes if a rocket flies to where it was aimed, then bursts into
+     * its sparks, which all burn out.
+     */
+    @Test
+    public void testRocketBurstsIntoSparks()
+    {
+        ParticleSystem particles = new ParticleSystem(101, 100, new Random(1));
+
+        assertTrue(particles.launch(0, 600, 300, 200, 1, 3));
+        assertEquals(1, particles.getCount());
+
+        for (int i = 0; i < 59; i++)
+            particles.update(STEP);
+
+        assertEquals(1, particles.getCount());
+
+        particles.update(STEP);
+        particles.update(STEP);
+        assertEquals(100, particles.getCount());
+
+        for (int i = 0; i < 2 * 60; i++)
+            particles.update(STEP);
+
+        assertEquals(0, particles.getCount());
+    }
+
+    /**
+     * Test passes if lowering the spark share bursts later rockets into
+     * fewer sparks.
+     */
+    @Test
+    public void testSparkShare()
+    {
+        ParticleSystem particles = new ParticleSystem(1000, 200, new Random(4));
+        particles.setSparkShare(0.25f);
+        particles.setTrail(0);
+        particles.setFade(false);
+
+        particles.launch(0, 0, 10, 10, STEP / 2, 0);
+        particles.update(STEP);
+
+        assertEquals(50, particles.getCount());
+    }
+
+    /**
+     * Test passes if the pool never grows: launches fail when it is full, and
+     * bursts fill only the room that is left.
+     */
+    @Test
+    public void testPoolIsFixed()
+    {
+        ParticleSystem particles = new ParticleSystem(50, 100, new Random(2));
+
+        for (int i = 0; i < 50; i++)
+            assertTrue(particles.launch(0, 0, 10, 10, 0.5f, i % ParticleSystem.PALETTE.length));
+
+        assertFalse(particles.launch(0, 0, 10, 10, 0.5f, 0));
+
+        for (int i = 0; i < 31; i++)
+            particles.update(STEP);
+
+        // the last rocket's slot is freed only after its burst
+        assertEquals(49, particles.getCount());
+        assertEquals(50, particles.getCapacity());
+    }
+
+    /**
+     * Test passes if moving and drawing thousands of particles allocates
+     * nothing.
+     */
+    @Test
+    public void testNoAllocationWhilePlaying()
+    {
+        ParticleSystem particles = new ParticleSystem(100 * 201, 200, new Random(3));
+
+        for (int i = 0; i < 100; i++)
+            particles.launch(i % 2 == 0 ? 0 : 800, 600, 400, 200, 0.1f, i % ParticleSystem.PALETTE.length);
+
+        BufferedImage frame = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        Graphics g = frame.getGraphics();
+
+        // burst, and warm up the code that is timed
+        for (int i = 0; i < 60; i++)
+        {
+            particles.update(STEP);
+            particles.draw(g);
+        }
+
+        assertTrue(particles.getCount() > 10000);
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+
+        for (int i = 0; i < 10; i++)
+        {
+            particles.update(STEP);
+            particles.draw(g);
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        g.dispose();
+
+        // a little slack for the bean's own bookkeeping
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+}
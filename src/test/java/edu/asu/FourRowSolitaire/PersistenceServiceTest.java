@@ -0,0 +1,185 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+import org.testng.annotations.Test;
+
+public class PersistenceServiceTest
+{
+    /**
+     * Test passes if writes with the same key handed in while the thread is
+     * busy are written once, with the last of them, and everyone waiting on
+     * them is told they are done.
+     */
+    @Test
+    public void testCoalescesWrites() throws Exception
+    {
+        PersistenceService service = new PersistenceService();
+        CountDownLatch release = block(service);
+        final List<String> written = new ArrayList<String>();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+
+        for (int i = 1; i <= 3; i++)
+            futures.add(service.write("options", record(written, "options " + i)));
+
+        futures.add(service.write("history", record(written, "history")));
+
+        release.countDown();
+
+        for (CompletableFuture<Void> future : futures)
+            future.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, written.size());
+        assertEquals("options 3", written.get(0));
+        assertEquals("history", written.get(1));
+        assertEquals(2, service.getCoalescedCount());
+
+        // once it has started, a write is not replaced
+        service.write("options", record(written, "options 4")).get(5, TimeUnit.SECONDS);
+        assertEquals("options 4", written.get(2));
+    }
+
+    /**
+     * Test passes if work runs in the order it was handed in, and what is
+     * chained onto its result runs on the event thread.
+     */
+    @Test
+    public void testCompletesOnEventThread() throws Exception
+    {
+        PersistenceService service = new PersistenceService();
+        CountDownLatch release = block(service);
+        final List<Integer> order = new ArrayList<Integer>();
+        final boolean[] onEventThread = new boolean[1];
+
+        CompletableFuture<Integer> first = service.submit(counter(order, 1));
+        CompletableFuture<Integer> second = service.submit(counter(order, 2));
+
+        CompletableFuture<Void> chained = second.thenAccept(new Consumer<Integer>()
+        {
+            public void accept(Integer value)
+            {
+                onEventThread[0] = SwingUtilities.isEventDispatchThread();
+            }
+        });
+
+        release.countDown();
+        chained.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, (int) first.get());
+        assertEquals(2, (int) second.get());
+        assertEquals(2, order.size());
+        assertEquals(1, (int) order.get(0));
+        assertTrue(onEventThread[0]);
+    }
+
+    /**
+     * Test passes if a write that fails completes its future with the
+     * failure, and the writes after it still run.
+     */
+    @Test
+    public void testFailedWrite() throws Exception
+    {
+        PersistenceService service = new PersistenceService();
+        final List<String> written = new ArrayList<String>();
+
+        CompletableFuture<Void> failed = service.write("options", new PersistenceService.Write()
+        {
+            public void run() throws IOException
+            {
+                throw new IOException("disk full");
+            }
+        });
+
+        service.write("history", record(written, "after")).get(5, TimeUnit.SECONDS);
+
+        try
+        {
+            failed.get(5, TimeUnit.SECONDS);
+            fail("the write did not fail");
+        }
+        catch (ExecutionException ex)
+        {
+            assertTrue(ex.getCause() instanceof IOException);
+        }
+
+        assertEquals(1, written.size());
+    }
+
+    /**
+     * Test passes if flush waits for the writes handed in before it.
+     */
+    @Test
+    public void testFlush()
+    {
+        PersistenceService service = new PersistenceService();
+        final List<String> written = new ArrayList<String>();
+
+        service.write("a", record(written, "a"));
+        service.write("b", record(written, "b"));
+        service.flush();
+
+        assertEquals(2, written.size());
+    }
+
+    /*
+     * Holds the service's thread until the latch is released.
+     */
+    private static CountDownLatch block(PersistenceService service)
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        service.submit(new Callable<Void>()
+        {
+            public Void call() throws InterruptedException
+            {
+                release.await();
+                return null;
+            }
+        });
+
+        return release;
+    }
+
+    private static PersistenceService.Write record(final List<String> written, final String name)
+    {
+        return new PersistenceService.Write()
+        {
+            public void run()
+            {
+                synchronized (written)
+                {
+                    written.add(name);
+                }
+            }
+        };
+    }
+
+    private static Callable<Integer> counter(final List<Integer> order, final int value)
+    {
+        return new Callable<Integer>()
+        {
+            public Integer call()
+            {
+                synchronized (order)
+                {
+                    order.add(value);
+                }
+
+                return value;
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package edu.asu.FourRowSolitaire;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.LinkedList;
+
+/**
+ * Measures how long the piles that show only their top cards take to paint
+ * as they fill up. The time should stay flat, because only the visible cards
+ * are drawn whatever the size of the pile. Run it with
+ * <pre>
+ * java edu.asu.FourRowSolitaire.PilePaintBenchmark [paints]
+ * </pre>
+ */
+public class PilePaintBenchmark
+{
+    public static void main(String[] args)
+    {
+        int paints = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        BufferedImage image = new BufferedImage(120, 120, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = image.getGraphics();
+
+        // load the atlas before timing
+        CardAtlas.getInstance();
+
+        System.out.println("cards  deal deck (us)  ace pile (us)  discard draw one (us)  discard draw three (us)");
+
+        for (int size : new int[] {1, 2, 4, 8, 13, 20, 28})
+        {
+            DiscardPile discard = new DiscardPile(1);
+            DealDeck deck = new DealDeck(discard, 1);
+            AcePile acePile = new AcePile(CardSuit.SPADES);
+            DiscardPile drawThree = new DiscardPile(3);
+
+            LinkedList<Card> cards = new LinkedList<Card>();
+
+            for (int i = 0; i < size; i++)
+            {
+                cards.add(card(i));
+                discard.push(card(i));
+                drawThree.push(card(i));
+
+                if (i < 13)
+                    acePile.push(new Card(CardSuit.SPADES, CardNumber.values()[i], 1, i + 1));
+            }
+
+            deck.setDeck(cards);
+            drawThree.setView(Math.min(3, size));
+
+            System.out.println(String.format("%5d %15.2f %14.2f %22.2f %24.2f", size,
+                    time(deck, g, paints), time(acePile, g, paints),
+                    time(discard, g, paints), time(drawThree, g, paints)));
+        }
+
+        g.dispose();
+    }
+
+    private static double time(CardStack pile, Graphics g, int paints)
+    {
+        // warm up
+        for (int i = 0; i < paints / 10; i++)
+            pile.paintCards(g);
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < paints; i++)
+            pile.paintCards(g);
+
+        return (System.nanoTime() - start) / 1000.0 / paints;
+    }
+
+    private static Card card(int i)
+    {
+        CardSuit suit = CardSuit.values()[i / 13 % 4];
+        int value = i % 13 + 1;
+
+        return new Card(suit, CardNumber.values()[value - 1], 1, suit.getOffset() + value);
+    }
+}
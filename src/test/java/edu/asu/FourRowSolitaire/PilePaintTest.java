@@ -0,0 +1,99 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.LinkedList;
+
+import org.testng.annotations.Test;
+
+public class PilePaintTest
+{
+    private int draws;
+
+    /**
+     * Test passes if a full deal deck draws only its top card.
+     */
+    @Test
+    public void testDealDeckDrawsTopCard()
+    {
+        DealDeck deck = new DealDeck(new DiscardPile(1), 1);
+        LinkedList<Card> cards = new LinkedList<Card>();
+
+        for (int i = 1; i <= 28; i++)
+            cards.add(new CountingCard(CardSuit.SPADES, (i - 1) % 13 + 1));
+
+        deck.setDeck(cards);
+        assertEquals(1, paint(deck));
+    }
+
+    /**
+     * Test passes if a full ace pile draws only its king.
+     */
+    @Test
+    public void testAcePileDrawsTopCard()
+    {
+        AcePile pile = new AcePile(CardSuit.HEARTS);
+
+        for (int value = 1; value <= 13; value++)
+            pile.push(new CountingCard(CardSuit.HEARTS, value));
+
+        assertEquals(13, pile.length());
+        assertEquals(1, paint(pile));
+    }
+
+    /**
+     * Test passes if the discard pile draws its top card for draw one, and
+     * the cards left from the last draw for draw three.
+     */
+    @Test
+    public void testDiscardPileDrawsVisibleCards()
+    {
+        DiscardPile drawOne = new DiscardPile(1);
+        DiscardPile drawThree = new DiscardPile(3);
+
+        for (int value = 1; value <= 12; value++)
+        {
+            drawOne.push(new CountingCard(CardSuit.CLUBS, value));
+            drawThree.push(new CountingCard(CardSuit.CLUBS, value));
+        }
+
+        assertEquals(1, paint(drawOne));
+
+        // the last draw of three, then one of them played
+        drawThree.setView(3);
+        assertEquals(3, paint(drawThree));
+
+        drawThree.pop();
+        assertEquals(2, paint(drawThree));
+    }
+
+    private int paint(CardStack pile)
+    {
+        BufferedImage image = new BufferedImage(120, 120, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = image.getGraphics();
+
+        draws = 0;
+        pile.paintCards(g);
+        g.dispose();
+
+        return draws;
+    }
+
+    @SuppressWarnings("serial")
+    private class CountingCard extends Card
+    {
+        CountingCard(CardSuit suit, int value)
+        {
+            super(suit, CardNumber.values()[value - 1], 1, suit.getOffset() + value);
+        }
+
+        @Override
+        public void draw(Graphics g, int x, int y, int width, int height)
+        {
+            draws++;
+            super.draw(g, x, y, width, height);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.awt.Rectangle;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import edu.asu.FourRowSolitaire.engine.GameState;
+
+public class RepaintCoordinatorTest
+{
+    private final List<Rectangle> repainted = new ArrayList<Rectangle>();
+
+    private CardStack[] piles;
+    private RepaintCoordinator repaints;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        repainted.clear();
+        piles = new CardStack[GameState.NUM_PILES];
+
+        DiscardPile discardPile = new DiscardPile(1);
+
+        for (int i = 0; i < 4; i++)
+        {
+            piles[GameState.FIRST_CELL + i] = new SingleCell();
+            piles[GameState.FIRST_COLUMN + i] = new Column();
+            piles[GameState.FIRST_ACE_PILE + i] = new AcePile(CardSuit.values()[i]);
+        }
+
+        piles[GameState.DEAL_DECK] = new DealDeck(discardPile, 1);
+        piles[GameState.DISCARD_PILE] = discardPile;
+
+        for (int value = 13; value >= 10; value--)
+            piles[GameState.FIRST_COLUMN].push(card(CardSuit.SPADES, value));
+
+        @SuppressWarnings("serial")
+        JPanel board = new JPanel()
+        {
+            public void repaint(long tm, int x, int y, int width, int height)
+            {
+                repainted.add(new Rectangle(x, y, width, height));
+            }
+        };
+
+        repaints = new RepaintCoordinator(board, piles);
+
+        for (int pile = 0; pile < GameState.NUM_PILES; pile++)
+        {
+            piles[pile].setBounds(SolitaireLayout.getPileBounds(pile));
+            piles[pile].setCardStackListener(repaints, pile);
+        }
+
+        repainted.clear();
+    }
+
+    /**
+     * Test passes if moving a card repaints only the card it left and the
+     * pile it went to, in one repaint.
+     */
+    @Test
+    public void testMoveRepaintsCardAreas() throws Throwable
+    {
+        onEventThread(new Runnable()
+        {
+            public void run()
+            {
+                moveRepaintsCardAreas();
+            }
+        });
+    }
+
+    private void moveRepaintsCardAreas()
+    {
+        Rectangle column = SolitaireLayout.getPileBounds(GameState.FIRST_COLUMN);
+        Rectangle cell = SolitaireLayout.getPileBounds(GameState.FIRST_CELL);
+
+        piles[GameState.FIRST_CELL].push(piles[GameState.FIRST_COLUMN].pop());
+
+        Rectangle expected = new Rectangle(column.x, column.y + 3 * 25, 72, 96);
+        expected.add(cell);
+        assertEquals(expected, repaints.getDirtyArea());
+
+        repaints.flush();
+
+        assertEquals(1, repainted.size());
+        assertEquals(expected, repainted.get(0));
+        assertNull(repaints.getDirtyArea());
+        assertEquals(1, repaints.getRepaintCount());
+        assertEquals((long) expected.width * expected.height, repaints.getRepaintedPixels());
+        assertTrue(repaints.getRepaintedPixels() < 800 * 700 / 4);
+
+        // nothing marked since, so nothing to repaint
+        repaints.flush();
+        assertEquals(1, repainted.size());
+    }
+
+    /**
+     * Test passes if highlighting cards marks just those cards.
+     */
+    @Test
+    public void testCardsChanged() throws Throwable
+    {
+        onEventThread(new Runnable()
+        {
+            public void run()
+            {
+                cardsChanged();
+            }
+        });
+    }
+
+    private void cardsChanged()
+    {
+        Rectangle column = SolitaireLayout.getPileBounds(GameState.FIRST_COLUMN);
+
+        repaints.cardsChanged(GameState.FIRST_COLUMN, 2);
+        assertEquals(new Rectangle(column.x, column.y + 2 * 25, 72, 25 + 96), repaints.getDirtyArea());
+
+        repaints.flush();
+        repaints.pileChanged(GameState.DEAL_DECK);
+        assertEquals(SolitaireLayout.getPileBounds(GameState.DEAL_DECK), repaints.getDirtyArea());
+    }
+
+    /**
+     * Runs a test on the event thread, so the flush it schedules cannot run
+     * before it checks the dirty area.
+     */
+    private static void onEventThread(Runnable test) throws Throwable
+    {
+        try
+        {
+            SwingUtilities.invokeAndWait(test);
+        }
+        catch (InvocationTargetException ex)
+        {
+            throw ex.getCause();
+        }
+    }
+
+    private static Card card(CardSuit suit, int value)
+    {
+        return new Card(suit, CardNumber.values()[value - 1], 1, suit.getOffset() + value);
+    }
+}
@@ -0,0 +1,127 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import edu.asu.FourRowSolitaire.engine.Deals;
+import edu.asu.FourRowSolitaire.engine.GameState;
+import edu.asu.FourRowSolitaire.engine.Snapshot;
+
+public class SaveSlotsTest
+{
+    private File file;
+
+    @BeforeMethod
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("frs-saves", ".dat");
+        file.delete();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        new AtomicFile(file).delete();
+    }
+
+    /**
+     * Test passes if a file that was never written has no slots.
+     */
+    @Test
+    public void testEmpty() throws IOException
+    {
+        SaveSlots saves = new SaveSlots(file);
+
+        assertTrue(saves.getSlots().isEmpty());
+        assertNull(saves.get("missing"));
+        assertFalse(saves.remove("missing"));
+    }
+
+    /**
+     * Test passes if saved slots are read back from the file in the order
+     * saved, each with its game.
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        SaveSlots saves = new SaveSlots(file);
+        saves.put(slot("first", 11L, 1000L));
+        saves.put(slot("second", 22L, 2000L));
+
+        List<SaveSlots.Slot> slots = new SaveSlots(file).getSlots();
+
+        assertEquals(2, slots.size());
+        assertEquals("first", slots.get(0).getName());
+        assertEquals("second", slots.get(1).getName());
+        assertEquals(22L, slots.get(1).getDealNumber());
+        assertEquals(2000L, slots.get(1).getTimestamp());
+        assertTrue(Arrays.equals(dealt(22L).toOrdinals(),
+                                 slots.get(1).getSnapshot().getPosition().toOrdinals()));
+        assertEquals("second (Game #22)", slots.get(1).toString());
+    }
+
+    /**
+     * Test passes if saving under a name already used replaces that slot,
+     * which moves to the end.
+     */
+    @Test
+    public void testReplace() throws IOException
+    {
+        SaveSlots saves = new SaveSlots(file);
+        saves.put(slot("a", 1L, 1L));
+        saves.put(slot("b", 2L, 2L));
+        saves.put(slot("a", 3L, 3L));
+
+        List<SaveSlots.Slot> slots = new SaveSlots(file).getSlots();
+
+        assertEquals(2, slots.size());
+        assertEquals("b", slots.get(0).getName());
+        assertEquals(3L, slots.get(1).getDealNumber());
+    }
+
+    /**
+     * Test passes if a deleted slot is gone from the file.
+     */
+    @Test
+    public void testRemove() throws IOException
+    {
+        SaveSlots saves = new SaveSlots(file);
+        saves.put(slot("a", 1L, 1L));
+        saves.put(slot("b", 2L, 2L));
+
+        assertTrue(saves.remove("a"));
+
+        SaveSlots reopened = new SaveSlots(file);
+        assertNull(reopened.get("a"));
+        assertEquals(2L, reopened.get("b").getDealNumber());
+    }
+
+    /**
+     * Test passes if a slot will not hold bytes that are not a snapshot.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRejectsNonSnapshot()
+    {
+        new SaveSlots.Slot("bad", 1L, 1L, new byte[Snapshot.SIZE]);
+    }
+
+    private static SaveSlots.Slot slot(String name, long dealNumber, long timestamp)
+    {
+        return new SaveSlots.Slot(name, dealNumber, timestamp, new Snapshot(dealt(dealNumber), 0).encode());
+    }
+
+    private static GameState dealt(long dealNumber)
+    {
+        GameState position = new GameState(1, 2);
+        Deals.deal(dealNumber, position, new int[GameState.DECK_SIZE]);
+        return position;
+    }
+}
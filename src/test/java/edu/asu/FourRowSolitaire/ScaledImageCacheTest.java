@@ -0,0 +1,175 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ScaledImageCacheTest
+{
+    private int produced;
+
+    private final ScaledImageCache.Producer producer = new ScaledImageCache.Producer()
+    {
+        public BufferedImage produce(int width, int height)
+        {
+            produced++;
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+    };
+
+    @BeforeMethod
+    public void setUp()
+    {
+        produced = 0;
+        ScaledImageCache.clear();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        ScaledImageCache.setMaxPixels(16L * 1024 * 1024);
+        ScaledImageCache.clear();
+    }
+
+    /**
+     * Test passes if an image being produced does not hold up looking up
+     * another, and a thread asking for the same size waits for it rather
+     * than producing it again.
+     */
+    @Test(timeOut = 10000)
+    public void testProducesOutsideLock() throws Exception
+    {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger slow = new AtomicInteger();
+
+        final ScaledImageCache.Producer blocking = new ScaledImageCache.Producer()
+        {
+            public BufferedImage produce(int width, int height)
+            {
+                slow.incrementAndGet();
+                started.countDown();
+
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            }
+        };
+
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+
+        try
+        {
+            Callable<BufferedImage> big = new Callable<BufferedImage>()
+            {
+                public BufferedImage call()
+                {
+                    return ScaledImageCache.get("atlas", 400, 300, blocking);
+                }
+            };
+
+            Future<BufferedImage> first = threads.submit(big);
+            started.await();
+            Future<BufferedImage> second = threads.submit(big);
+
+            assertEquals(10, ScaledImageCache.get("atlas", 10, 20, producer).getWidth());
+
+            release.countDown();
+
+            assertSame(first.get(), second.get());
+            assertEquals(1, slow.get());
+            assertEquals(2, ScaledImageCache.getSize());
+        }
+        finally
+        {
+            release.countDown();
+            threads.shutdown();
+        }
+    }
+
+    /**
+     * Test passes if an image is produced once for each name and size.
+     */
+    @Test
+    public void testProducesOncePerSize()
+    {
+        long hits = ScaledImageCache.getHits();
+
+        BufferedImage image = ScaledImageCache.get("a", 10, 20, producer);
+        assertEquals(10, image.getWidth());
+        assertEquals(20, image.getHeight());
+
+        assertSame(image, ScaledImageCache.get("a", 10, 20, producer));
+        ScaledImageCache.get("a", 20, 40, producer);
+        ScaledImageCache.get("b", 10, 20, producer);
+
+        assertEquals(3, produced);
+        assertEquals(hits + 1, ScaledImageCache.getHits());
+        assertEquals(3, ScaledImageCache.getSize());
+        assertEquals(200 + 800 + 200, ScaledImageCache.getPixels());
+    }
+
+    /**
+     * Test passes if the least recently used images are dropped to stay under
+     * the pixel budget, but the image just asked for is kept even if it is
+     * over the budget on its own.
+     */
+    @Test
+    public void testEvictsLeastRecentlyUsed()
+    {
+        ScaledImageCache.setMaxPixels(250);
+
+        BufferedImage a = ScaledImageCache.get("a", 10, 10, producer);
+        ScaledImageCache.get("b", 10, 10, producer);
+        assertSame(a, ScaledImageCache.get("a", 10, 10, producer));
+
+        // b is the least recently used now
+        ScaledImageCache.get("c", 10, 10, producer);
+        assertEquals(2, ScaledImageCache.getSize());
+        assertSame(a, ScaledImageCache.get("a", 10, 10, producer));
+        assertEquals(3, produced);
+
+        ScaledImageCache.get("b", 10, 10, producer);
+        assertEquals(4, produced);
+
+        ScaledImageCache.get("big", 20, 20, producer);
+        assertEquals(1, ScaledImageCache.getSize());
+        assertEquals(400, ScaledImageCache.getPixels());
+    }
+
+    /**
+     * Test passes if scaling gives an image of the size asked for, whether it
+     * is shrunk by a little, by a lot, or enlarged.
+     */
+    @Test
+    public void testScale()
+    {
+        BufferedImage source = new BufferedImage(72, 96, BufferedImage.TYPE_INT_ARGB);
+        source.setRGB(36, 48, 0xffff0000);
+
+        for (int[] size : new int[][] {{63, 84}, {9, 12}, {144, 192}, {99, 132}})
+        {
+            BufferedImage scaled = ScaledImageCache.scale(source, size[0], size[1]);
+
+            assertEquals(size[0], scaled.getWidth());
+            assertEquals(size[1], scaled.getHeight());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package edu.asu.FourRowSolitaire;
+
+import static org.testng.AssertJUnit.*;
+
+import org.testng.annotations.Test;
+
+public class SoundEffectsTest
+{
+    /**
+     * Test passes if a sound starts in the next chunk mixed, and its latency
+     * counts the sound already waiting in the line.
+     */
+    @Test
+    public void testSoundStartsInNextChunk()
+    {
+        SoundEffects effects = new SoundEffects();
+        byte[] chunk = new byte[SoundEffects.getChunkBytes()];
+
+        effects.mixChunk(chunk, 0);
+        assertTrue(isSilent(chunk));
+        assertEquals(-1, effects.getLastStartLatencyNanos());
+
+        effects.request(SoundEffects.MOVE);
+        effects.mixChunk(chunk, 441);
+
+        assertFalse(isSilent(chunk));
+        assertEquals(1, effects.getActiveVoices());
+
+        // 441 frames waiting is 10 ms of sound ahead of it
+        assertTrue(effects.getLastStartLatencyNanos() >= 10000000);
+        assertTrue(effects.getLastStartLatencyNanos() < 20000000);
+
+        // a 35 ms sound is over after 13 chunks of 128 frames
+        for (int i = 0; i < 12; i++)
+            effects.mixChunk(chunk, 0);
+
+        assertEquals(0, effects.getActiveVoices());
+        effects.mixChunk(chunk, 0);
+        assertTrue(isSilent(chunk));
+    }
+
+    /**
+     * Test passes if the mixer is idle with nothing asked for or playing, and
+     * waiting for a sound returns once one is asked for.
+     */
+    @Test(timeOut = 10000)
+    public void testIdle() throws InterruptedException
+    {
+        final SoundEffects effects = new SoundEffects();
+        byte[] chunk = new byte[SoundEffects.getChunkBytes()];
+
+        assertTrue(effects.isIdle());
+
+        Thread player = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                effects.request(SoundEffects.FLIP);
+            }
+        });
+        player.start();
+
+        effects.awaitRequest();
+        assertFalse(effects.isIdle());
+
+        // a 25 ms sound is over after 9 chunks of 128 frames
+        for (int i = 0; i < 9; i++)
+            effects.mixChunk(chunk, 0);
+
+        assertTrue(effects.isIdle());
+        player.join();
+    }
+
+    /**
+     * Test passes if sounds overlap, up to the number of voices, and more
+     * take over the voices nearest their end.
+     */
+    @Test
+    public void testSoundsOverlap()
+    {
+        SoundEffects effects = new SoundEffects();
+        byte[] chunk = new byte[SoundEffects.getChunkBytes()];
+
+        effects.request(SoundEffects.DEAL);
+        effects.request(SoundEffects.INVALID);
+        effects.mixChunk(chunk, 0);
+        assertEquals(2, effects.getActiveVoices());
+
+        for (int i = 0; i < 20; i++)
+            effects.request(SoundEffects.FLIP);
+
+        effects.mixChunk(chunk, 0);
+        assertEquals(16, effects.getActiveVoices());
+    }
+
+    private static boolean isSilent(byte[] chunk)
+    {
+        for (byte b : chunk)
+            if (b != 0)
+                return false;
+
+        return true;
+    }
+}
@@ -0,0 +1,244 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class BatchAnalysisTest
+{
+    private File output;
+
+    @BeforeMethod
+    public void setUp() throws IOException
+    {
+        output = File.createTempFile("frs-analysis", ".csv");
+        output.delete();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        output.delete();
+        new File(output.getPath() + ".checkpoint").delete();
+    }
+
+    /**
+     * Test passes if one row is written per deal, draw count and difficulty,
+     * in deal order, and the counts add up to the rows written.
+     */
+    @Test
+    public void testWritesEveryCombination() throws Exception
+    {
+        BatchAnalysis analysis = newAnalysis(3, 5);
+        analysis.run();
+
+        List<String> lines = Files.readAllLines(output.toPath());
+        assertEquals(1 + 3 * 6, lines.size());
+        assertTrue(lines.get(1).startsWith("3,1,1,"));
+        assertTrue(lines.get(18).startsWith("5,3,3,"));
+
+        long total = 0;
+        for (int drawCount = 1; drawCount <= 3; drawCount += 2)
+            for (int difficulty = 1; difficulty <= 3; difficulty++)
+                for (int result = 0; result < 3; result++)
+                    total += analysis.getCount(drawCount, difficulty, result);
+
+        assertEquals(18, total);
+        assertEquals(6, analysis.getNextDeal());
+    }
+
+    /**
+     * Test passes if a run searching each deal with a ParallelSolver writes
+     * the same rows as one with a Solver per thread, where both decided the
+     * deal.
+     */
+    @Test
+    public void testParallelMatchesSolver() throws Exception
+    {
+        newAnalysis(1, 3).run();
+        List<String> single = Files.readAllLines(output.toPath());
+        tearDown();
+
+        BatchAnalysis analysis = newAnalysis(1, 3);
+        analysis.setParallelism(2);
+        analysis.run();
+        List<String> parallel = Files.readAllLines(output.toPath());
+
+        assertEquals(single.size(), parallel.size());
+        assertEquals(4, analysis.getNextDeal());
+
+        for (int i = 1; i < single.size(); i++)
+        {
+            String[] expected = single.get(i).split(",");
+            String[] actual = parallel.get(i).split(",");
+
+            assertEquals(expected[0] + "," + expected[1] + "," + expected[2],
+                    actual[0] + "," + actual[1] + "," + actual[2]);
+
+            if (!expected[3].equals("unknown") && !actual[3].equals("unknown"))
+                assertEquals(single.get(i), expected[3], actual[3]);
+        }
+    }
+
+    /**
+     * Test passes if a run resumed from a checkpoint throws away output
+     * written after the checkpoint and keeps the earlier counts.
+     */
+    @Test
+    public void testResumeDiscardsUncheckpointedOutput() throws Exception
+    {
+        newAnalysis(1, 2).run();
+        byte[] complete = Files.readAllBytes(output.toPath());
+
+        // a row written after the last checkpoint by a run that was killed
+        FileOutputStream stream = new FileOutputStream(output, true);
+        stream.write("3,1,1,unkn".getBytes("US-ASCII"));
+        stream.close();
+
+        BatchAnalysis resumed = newAnalysis(1, 2);
+        resumed.run();
+
+        assertTrue(Arrays.equals(complete, Files.readAllBytes(output.toPath())));
+        assertEquals(3, resumed.getNextDeal());
+
+        long total = 0;
+        for (int result = 0; result < 3; result++)
+            total += resumed.getCount(1, 1, result);
+
+        assertEquals(2, total);
+    }
+
+    /**
+     * Test passes if a checkpoint from a run with other settings is refused.
+     */
+    @Test(expectedExceptions = IOException.class)
+    public void testRejectsOtherSettings() throws Exception
+    {
+        newAnalysis(1, 1).run();
+
+        BatchAnalysis other = newAnalysis(1, 1);
+        other.setMaxNodes(20);
+        other.run();
+    }
+
+    /**
+     * Test passes if each deal is recorded in the index once it has been
+     * searched in every mode, with the results written to the output.
+     */
+    @Test
+    public void testRecordsWholeDealsInIndex() throws Exception
+    {
+        File indexFile = File.createTempFile("frs-deals", ".idx");
+        indexFile.delete();
+        DealIndex index = new DealIndex(indexFile, true);
+
+        try
+        {
+            BatchAnalysis analysis = newAnalysis(1, 2);
+            analysis.setIndex(index);
+            analysis.run();
+
+            assertEquals(2, index.getLastDeal());
+
+            List<String> lines = Files.readAllLines(output.toPath());
+            String[] row = lines.get(6 + 6).split(",");
+            assertEquals("2,3,3", row[0] + "," + row[1] + "," + row[2]);
+            assertEquals(Arrays.asList("winnable", "unwinnable", "unknown").indexOf(row[3]),
+                    index.getResult(2, 3, 3));
+        }
+        finally
+        {
+            index.close();
+            indexFile.delete();
+        }
+    }
+
+    /**
+     * Test passes if a run that searches only some of the modes is refused
+     * an index, and leaves the index's last deal where it was.
+     */
+    @Test
+    public void testSingleModeLeavesIndex() throws Exception
+    {
+        File indexFile = File.createTempFile("frs-deals", ".idx");
+        indexFile.delete();
+        DealIndex index = new DealIndex(indexFile, true);
+
+        try
+        {
+            BatchAnalysis analysis = newAnalysis(1, 3);
+            analysis.setDrawCounts(new int[] { 1 });
+            analysis.setDifficulties(new int[] { 2 });
+            analysis.setIndex(index);
+
+            try
+            {
+                analysis.run();
+                fail("Ran a single mode batch into an index");
+            }
+            catch (IllegalStateException expected)
+            {
+            }
+
+            assertEquals(0, index.getLastDeal());
+            assertEquals(DealIndex.NOT_ANALYSED, index.getResult(1, 1, 2));
+        }
+        finally
+        {
+            index.close();
+            indexFile.delete();
+        }
+    }
+
+    /**
+     * Test passes if a run that would leave deals missing below the index's
+     * last deal is refused.
+     */
+    @Test
+    public void testRejectsGapInIndex() throws Exception
+    {
+        File indexFile = File.createTempFile("frs-deals", ".idx");
+        indexFile.delete();
+        DealIndex index = new DealIndex(indexFile, true);
+
+        try
+        {
+            BatchAnalysis analysis = newAnalysis(3, 4);
+            analysis.setIndex(index);
+
+            try
+            {
+                analysis.run();
+                fail("Left deals 1 - 2 out of the index");
+            }
+            catch (IllegalStateException expected)
+            {
+            }
+
+            assertEquals(0, index.getLastDeal());
+        }
+        finally
+        {
+            index.close();
+            indexFile.delete();
+        }
+    }
+
+    private BatchAnalysis newAnalysis(long first, long last)
+    {
+        BatchAnalysis analysis = new BatchAnalysis(first, last, output);
+        analysis.setMaxNodes(2000);
+        analysis.setThreads(2);
+
+        return analysis;
+    }
+}
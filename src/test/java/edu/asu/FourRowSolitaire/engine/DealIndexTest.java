@@ -0,0 +1,148 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DealIndexTest
+{
+    private File file;
+
+    @BeforeMethod
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("frs-deals", ".idx");
+        file.delete();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    /**
+     * Test passes if each mode of a deal keeps its own result, score and
+     * solution length, and deals never recorded read as not analysed.
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        DealIndex index = new DealIndex(file, true);
+        index.put(5, 1, 2, Solver.WINNABLE, 1000, 87);
+        index.put(5, 3, 3, Solver.UNWINNABLE, 1, 0);
+
+        assertEquals(Solver.WINNABLE, index.getResult(5, 1, 2));
+        assertTrue(index.isWinnable(5, 1, 2));
+        assertEquals(10, index.getScore(5, 1, 2));
+        assertEquals(87, index.getSolutionLength(5, 1, 2));
+
+        assertEquals(Solver.UNWINNABLE, index.getResult(5, 3, 3));
+        assertEquals(1, index.getScore(5, 3, 3));
+
+        assertEquals(DealIndex.NOT_ANALYSED, index.getResult(5, 1, 1));
+        assertEquals(DealIndex.NOT_ANALYSED, index.getResult(4, 1, 2));
+        assertEquals(DealIndex.NOT_ANALYSED, index.getResult(6, 1, 2));
+        assertEquals(DealIndex.NOT_ANALYSED, index.getResult(DealIndex.SEGMENT_DEALS + 7L, 1, 2));
+        assertEquals(5, index.getLastDeal());
+
+        index.close();
+    }
+
+    /**
+     * Test passes if every mode of a deal written together reads back, and
+     * the deal is published once they all are.
+     */
+    @Test
+    public void testPutAll() throws IOException
+    {
+        DealIndex index = new DealIndex(file, true);
+        index.putAll(3, new int[] { Solver.WINNABLE, Solver.WINNABLE, Solver.UNKNOWN,
+                                    Solver.UNWINNABLE, Solver.WINNABLE, Solver.UNWINNABLE },
+                     new long[] { 1, 2, 4, 8, 16, 32 }, new int[] { 90, 91, 0, 0, 94, 0 });
+
+        assertEquals(3, index.getLastDeal());
+        assertEquals(Solver.WINNABLE, index.getResult(3, 1, 2));
+        assertEquals(Solver.UNKNOWN, index.getResult(3, 1, 3));
+        assertEquals(Solver.UNWINNABLE, index.getResult(3, 3, 1));
+        assertEquals(94, index.getSolutionLength(3, 3, 2));
+        assertEquals(6, index.getScore(3, 3, 3));
+
+        index.close();
+    }
+
+    /**
+     * Test passes if a reader opened before a writer appends sees the new
+     * records, including ones in a segment that did not exist when it opened.
+     */
+    @Test
+    public void testReaderSeesAppends() throws IOException
+    {
+        DealIndex writer = new DealIndex(file, true);
+        writer.put(1, 1, 1, Solver.UNKNOWN, 200000, 0);
+
+        DealIndex reader = new DealIndex(file, false);
+        assertEquals(1, reader.getLastDeal());
+        assertEquals(Solver.UNKNOWN, reader.getResult(1, 1, 1));
+
+        long far = DealIndex.SEGMENT_DEALS + 3L;
+        writer.put(2, 3, 1, Solver.WINNABLE, 50, 120);
+        writer.put(far, 1, 3, Solver.WINNABLE, 50, 99);
+
+        assertEquals(Solver.WINNABLE, reader.getResult(2, 3, 1));
+        assertEquals(99, reader.getSolutionLength(far, 1, 3));
+        assertEquals(far, reader.getLastDeal());
+
+        reader.close();
+        writer.close();
+
+        DealIndex reopened = new DealIndex(file, false);
+        assertEquals(120, reopened.getSolutionLength(2, 3, 1));
+        reopened.close();
+    }
+
+    /**
+     * Test passes if a second writer is refused while the first is open.
+     */
+    @Test(expectedExceptions = IOException.class)
+    public void testSingleWriter() throws IOException
+    {
+        DealIndex writer = new DealIndex(file, true);
+
+        try
+        {
+            new DealIndex(file, true);
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Test passes if only winnable deals in the requested mode are picked.
+     */
+    @Test
+    public void testFindWinnable() throws IOException
+    {
+        DealIndex index = new DealIndex(file, true);
+        assertEquals(0, index.findWinnable(new Random(1), 1, 2));
+
+        for (long deal = 1; deal <= 100; deal++)
+            index.put(deal, 1, 2, deal % 10 == 0 ? Solver.WINNABLE : Solver.UNWINNABLE, 10, 0);
+
+        Random random = new Random(1);
+        for (int i = 0; i < 20; i++)
+            assertEquals(0, index.findWinnable(random, 1, 2) % 10);
+
+        assertEquals(0, index.findWinnable(random, 3, 2));
+
+        index.close();
+    }
+}
@@ -0,0 +1,76 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DealIndexerTest
+{
+    private File file;
+
+    @BeforeMethod
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("frs-deals", ".idx");
+        file.delete();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    /**
+     * Test passes if an indexer stops soon after it is interrupted, every
+     * deal it added is analysed in all six modes, and a second indexer
+     * carries on from the deal after.
+     */
+    @Test(timeOut = 60000)
+    public void testStopsWholeDeals() throws Exception
+    {
+        DealIndex index = new DealIndex(file, true);
+
+        Thread first = new Thread(new DealIndexer(index, 20000));
+        first.start();
+
+        while (index.getLastDeal() < 2)
+            Thread.sleep(10);
+
+        first.interrupt();
+        first.join(5000);
+        assertFalse(first.isAlive());
+
+        long last = index.getLastDeal();
+        assertComplete(index, last);
+
+        Thread second = new Thread(new DealIndexer(index, 20000));
+        second.start();
+
+        while (index.getLastDeal() == last)
+            Thread.sleep(10);
+
+        second.interrupt();
+        second.join(5000);
+
+        assertComplete(index, index.getLastDeal());
+        index.close();
+    }
+
+    private static void assertComplete(DealIndex index, long last)
+    {
+        for (long deal = Deals.FIRST_DEAL; deal <= last; deal++)
+        {
+            for (int drawCount = 1; drawCount <= 3; drawCount += 2)
+                for (int difficulty = 1; difficulty <= 3; difficulty++)
+                    assertTrue(index.getResult(deal, drawCount, difficulty) != DealIndex.NOT_ANALYSED);
+        }
+
+        assertEquals(DealIndex.NOT_ANALYSED, index.getResult(last + 1, 1, 1));
+    }
+}
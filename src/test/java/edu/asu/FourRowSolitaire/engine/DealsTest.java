@@ -0,0 +1,73 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import edu.asu.FourRowSolitaire.Card;
+import edu.asu.FourRowSolitaire.Deck;
+
+public class DealsTest
+{
+    private static final String EXPECTED_DEAL_1 = "[48, 46, 38, 43, 1, 34, 51, 37, 6, 31, 20, 11, 16, "
+            + "33, 12, 40, 10, 5, 28, 8, 44, 26, 23, 27, 18, 14, 2, 9, 4, 15, 32, 3, 52, 47, 29, 45, 7, "
+            + "42, 21, 19, 25, 17, 35, 13, 24, 41, 36, 50, 22, 49, 39, 30]";
+
+    /**
+     * Test passes if every deal is a permutation of the 52 cards and the
+     * same deal number always gives the same deck.
+     */
+    @Test
+    public void testShuffleIsRepeatablePermutation()
+    {
+        int[] deck = new int[52];
+        int[] again = new int[52];
+
+        for (long number = 1; number <= 1000; number++)
+        {
+            Deals.shuffle(number, deck);
+            Deals.shuffle(number, again);
+            assertTrue(Arrays.equals(deck, again));
+
+            boolean[] seen = new boolean[53];
+            for (int card : deck)
+            {
+                assertFalse(seen[card]);
+                seen[card] = true;
+            }
+        }
+    }
+
+    /**
+     * Test passes if the shuffle for a deal number never changes. A failure
+     * here means every recorded deal number now produces a different game.
+     */
+    @Test
+    public void testShuffleIsStable()
+    {
+        int[] deck = new int[52];
+        Deals.shuffle(1, deck);
+
+        assertEquals(EXPECTED_DEAL_1, Arrays.toString(deck));
+    }
+
+    /**
+     * Test passes if a numbered Deck holds the same cards in the same order
+     * as the primitive shuffle.
+     */
+    @Test
+    public void testDeckMatchesShuffle()
+    {
+        int[] deck = new int[52];
+        Deals.shuffle(617, deck);
+
+        Deck cards = new Deck(0, 617);
+        assertEquals(617, cards.getDealNumber());
+
+        int i = 0;
+        for (Card card : cards.getDeck())
+            assertEquals(deck[i++], card.getFullNumber());
+    }
+}
@@ -0,0 +1,333 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import edu.asu.FourRowSolitaire.AcePile;
+import edu.asu.FourRowSolitaire.Card;
+import edu.asu.FourRowSolitaire.CardStack;
+import edu.asu.FourRowSolitaire.CardSuit;
+import edu.asu.FourRowSolitaire.Column;
+import edu.asu.FourRowSolitaire.DealDeck;
+import edu.asu.FourRowSolitaire.Deck;
+import edu.asu.FourRowSolitaire.DiscardPile;
+import edu.asu.FourRowSolitaire.SingleCell;
+
+public class GameStateTest
+{
+    /*
+     * Swing cards indexed by ordinal (index 0 is unused).
+     */
+    private Card[] cards;
+
+    @BeforeClass
+    public void setUp()
+    {
+        LinkedList<Integer> ordinals = new LinkedList<Integer>();
+        for (int i = 1; i <= 52; i++)
+            ordinals.add(i);
+
+        cards = new Card[53];
+        LinkedList<Card> deck = new Deck(0).createCustomDeck(ordinals);
+        for (Card card : deck)
+            cards[card.getFullNumber()] = card;
+    }
+
+    /**
+     * Test passes if the primitive Column rule agrees with
+     * {@link Column#isValidMove(Card)} for every card and every top card.
+     */
+    @Test
+    public void testColumnRuleMatchesColumn()
+    {
+        for (int top = 0; top <= 52; top++)
+        {
+            Column column = new Column();
+            if (top != Rules.NO_CARD)
+                column.push(cards[top]);
+
+            for (int card = 1; card <= 52; card++)
+            {
+                if (card == top)
+                    continue;
+
+                assertEquals("card " + card + " on " + top,
+                             column.isValidMove(cards[card]),
+                             Rules.isValidColumnMove(card, top));
+            }
+        }
+    }
+
+    /**
+     * Test passes if the primitive AcePile rule agrees with
+     * {@link AcePile#isValidMove(Card)} for every pile, card and top card.
+     */
+    @Test
+    public void testAcePileRuleMatchesAcePile()
+    {
+        CardSuit[] suits = { CardSuit.SPADES, CardSuit.CLUBS, CardSuit.DIAMONDS, CardSuit.HEARTS };
+
+        for (int pile = 0; pile < 4; pile++)
+        {
+            AcePile acePile = new AcePile(suits[pile]);
+            int suit = Rules.acePileSuit(pile);
+
+            // build the pile up from empty to King, checking every card at each step
+            for (int value = 0; value <= 13; value++)
+            {
+                int top = value == 0 ? Rules.NO_CARD : Rules.card(suit, value);
+                if (top != Rules.NO_CARD)
+                    acePile.push(cards[top]);
+
+                for (int card = 1; card <= 52; card++)
+                {
+                    if (card == top)
+                        continue;
+
+                    assertEquals("card " + card + " on " + top + " in pile " + pile,
+                                 acePile.isValidMove(cards[card]),
+                                 Rules.isValidAcePileMove(card, top, suit));
+                }
+            }
+
+            assertEquals(13, acePile.length());
+        }
+    }
+
+    /**
+     * Test passes if the primitive SingleCell rule agrees with
+     * {@link SingleCell#isValidMove(Card)}.
+     */
+    @Test
+    public void testCellRuleMatchesSingleCell()
+    {
+        SingleCell cell = new SingleCell();
+        assertEquals(cell.isValidMove(cards[1]), Rules.isValidCellMove(Rules.NO_CARD));
+
+        cell.push(cards[2]);
+        assertEquals(cell.isValidMove(cards[1]), Rules.isValidCellMove(2));
+    }
+
+    @Test
+    public void testDeal()
+    {
+        GameState state = new GameState(1, 2);
+        state.deal(orderedDeck());
+
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(5, state.size(GameState.FIRST_COLUMN + i));
+            assertEquals(1, state.size(GameState.FIRST_CELL + i));
+            assertEquals(0, state.size(GameState.FIRST_ACE_PILE + i));
+        }
+
+        assertEquals(28, state.size(GameState.DEAL_DECK));
+        assertEquals(0, state.size(GameState.DISCARD_PILE));
+
+        // the last card in the deck is dealt first, to the first column
+        assertEquals(52, state.cardAt(GameState.FIRST_COLUMN, 0));
+        assertEquals(28, state.peek(GameState.DEAL_DECK));
+    }
+
+    /**
+     * Test passes if drawing through the primitive DealDeck produces the same
+     * DiscardPile contents, view and deck throughs as the Swing DealDeck for
+     * both draw counts and all difficulties.
+     */
+    @Test
+    public void testDrawMatchesDealDeck()
+    {
+        for (int drawCount = 1; drawCount <= 3; drawCount += 2)
+        {
+            for (int difficulty = 1; difficulty <= 3; difficulty++)
+            {
+                DiscardPile discard = new DiscardPile(drawCount);
+                DealDeck deck = new DealDeck(discard, drawCount);
+                deck.setDifficulty(difficulty);
+
+                LinkedList<Card> deckCards = new LinkedList<Card>();
+                for (int i = 1; i <= 10; i++)
+                    deckCards.add(cards[i]);
+                deck.setDeck(deckCards);
+
+                GameState state = new GameState(drawCount, difficulty);
+                for (int i = 1; i <= 10; i++)
+                    state.push(GameState.DEAL_DECK, i);
+
+                while (state.canDraw())
+                {
+                    deck.pop();
+                    state.draw();
+
+                    assertSamePile(deck, state, GameState.DEAL_DECK);
+                    assertSamePile(discard, state, GameState.DISCARD_PILE);
+                    assertEquals(discard.getNumViewableCards(), state.getDiscardView());
+                    assertEquals(deck.getDeckThroughs(), state.getDeckThroughs());
+                }
+
+                assertEquals(Rules.deckThroughLimit(drawCount, difficulty), state.getDeckThroughs());
+                assertFalse(state.hasDealsLeft());
+            }
+        }
+    }
+
+    @Test
+    public void testUndoDraw()
+    {
+        GameState state = new GameState(3, 3);
+        for (int i = 1; i <= 4; i++)
+            state.push(GameState.DEAL_DECK, i);
+
+        int[] before = state.toOrdinals();
+
+        int first = state.draw();
+        int second = state.draw();
+        assertEquals(3, first);
+        assertEquals(1, second);
+
+        int view = state.getDiscardView();
+        int redeal = state.draw();
+        assertEquals(GameState.REDEAL, redeal);
+        assertEquals(2, state.getDeckThroughs());
+
+        state.undoDraw(redeal, view);
+        assertEquals(1, state.getDeckThroughs());
+        assertEquals(1, state.getDiscardView());
+
+        state.undoDraw(second, 3);
+        state.undoDraw(first, 0);
+        assertEquals(Arrays.toString(before), Arrays.toString(state.toOrdinals()));
+    }
+
+    @Test
+    public void testMovableCountAndStackMove()
+    {
+        GameState state = new GameState(1, 2);
+
+        // 9 of spades, 8 of hearts, 7 of clubs form a run of three
+        state.push(GameState.FIRST_COLUMN, Rules.card(Rules.SPADES, 9));
+        state.push(GameState.FIRST_COLUMN, Rules.card(Rules.HEARTS, 8));
+        state.push(GameState.FIRST_COLUMN, Rules.card(Rules.CLUBS, 7));
+        assertEquals(3, state.movableCount(GameState.FIRST_COLUMN));
+
+        // 10 of diamonds on 9 of diamonds is not a run
+        state.push(GameState.FIRST_COLUMN + 1, Rules.card(Rules.DIAMONDS, 9));
+        state.push(GameState.FIRST_COLUMN + 1, Rules.card(Rules.DIAMONDS, 10));
+        assertEquals(1, state.movableCount(GameState.FIRST_COLUMN + 1));
+
+        // the 9 of spades may go onto the 10 of diamonds, taking the whole run
+        assertTrue(state.isValidMove(GameState.FIRST_COLUMN, 3, GameState.FIRST_COLUMN + 1));
+        assertFalse(state.isValidMove(GameState.FIRST_COLUMN, 2, GameState.FIRST_COLUMN + 1));
+        assertFalse(state.isValidMove(GameState.FIRST_COLUMN, 2, GameState.FIRST_CELL));
+        assertTrue(state.isValidMove(GameState.FIRST_COLUMN, 1, GameState.FIRST_CELL));
+
+        state.move(GameState.FIRST_COLUMN, 3, GameState.FIRST_COLUMN + 1);
+        assertEquals(0, state.size(GameState.FIRST_COLUMN));
+        assertEquals(5, state.size(GameState.FIRST_COLUMN + 1));
+        assertEquals(Rules.card(Rules.CLUBS, 7), state.peek(GameState.FIRST_COLUMN + 1));
+
+        state.undoMove(GameState.FIRST_COLUMN, 3, GameState.FIRST_COLUMN + 1, 0);
+        assertEquals(3, state.size(GameState.FIRST_COLUMN));
+        assertEquals(Rules.card(Rules.SPADES, 9), state.cardAt(GameState.FIRST_COLUMN, 0));
+    }
+
+    @Test
+    public void testLoadRoundTrip()
+    {
+        GameState state = new GameState(1, 1);
+        state.deal(orderedDeck());
+        state.draw();
+
+        GameState loaded = new GameState(1, 1);
+        loaded.load(state.toOrdinals());
+
+        assertEquals(66, loaded.toOrdinals().length);
+        assertEquals(Arrays.toString(state.toOrdinals()),
+                     Arrays.toString(loaded.toOrdinals()));
+        assertEquals(1, loaded.getDiscardView());
+    }
+
+    /**
+     * Test passes if the incrementally updated hashes after a series of moves,
+     * draws and undos equal the hashes of the same position loaded from
+     * scratch.
+     */
+    @Test
+    public void testIncrementalHash()
+    {
+        GameState state = new GameState(3, 1);
+        state.deal(orderedDeck());
+
+        long start = state.zobristHash();
+        int[] tokens = new int[4];
+
+        tokens[0] = state.apply(Move.DRAW);
+        tokens[1] = state.apply(Move.encode(GameState.FIRST_CELL, 1, GameState.FIRST_COLUMN + 2));
+        tokens[2] = state.apply(Move.encode(GameState.DISCARD_PILE, 1, GameState.FIRST_CELL));
+        tokens[3] = state.apply(Move.encode(GameState.FIRST_COLUMN, 2, GameState.FIRST_COLUMN + 1));
+
+        GameState loaded = new GameState(3, 1);
+        loaded.load(state.toOrdinals());
+        loaded.setDiscardView(state.getDiscardView());
+
+        assertEquals(loaded.zobristHash(), state.zobristHash());
+        assertEquals(loaded.hash(), state.hash());
+
+        state.undo(Move.encode(GameState.FIRST_COLUMN, 2, GameState.FIRST_COLUMN + 1), tokens[3]);
+        state.undo(Move.encode(GameState.DISCARD_PILE, 1, GameState.FIRST_CELL), tokens[2]);
+        state.undo(Move.encode(GameState.FIRST_CELL, 1, GameState.FIRST_COLUMN + 2), tokens[1]);
+        state.undo(Move.DRAW, tokens[0]);
+
+        assertEquals(start, state.zobristHash());
+    }
+
+    /**
+     * Test passes if swapping two Columns keeps the search hash but changes
+     * the Zobrist hash, and the Zobrist hash includes the DiscardPile view.
+     */
+    @Test
+    public void testHashIdentity()
+    {
+        GameState state = new GameState(1, 1);
+        state.push(GameState.FIRST_COLUMN, 5);
+        state.push(GameState.FIRST_COLUMN, 30);
+        state.push(GameState.FIRST_COLUMN + 1, 12);
+        state.push(GameState.DISCARD_PILE, 40);
+
+        GameState swapped = new GameState(1, 1);
+        swapped.push(GameState.FIRST_COLUMN + 3, 5);
+        swapped.push(GameState.FIRST_COLUMN + 3, 30);
+        swapped.push(GameState.FIRST_COLUMN + 2, 12);
+        swapped.push(GameState.DISCARD_PILE, 40);
+
+        assertEquals(state.hash(), swapped.hash());
+        assertFalse(state.zobristHash() == swapped.zobristHash());
+
+        long hidden = state.zobristHash();
+        state.setDiscardView(1);
+        assertFalse(hidden == state.zobristHash());
+        assertEquals(swapped.hash(), state.hash());
+    }
+
+    private void assertSamePile(CardStack stack, GameState state, int pile)
+    {
+        assertEquals(stack.length(), state.size(pile));
+
+        for (int i = 0; i < stack.length(); i++)
+            assertEquals(stack.getCardAtLocation(i).getFullNumber(), state.cardAt(pile, i));
+    }
+
+    private int[] orderedDeck()
+    {
+        int[] deck = new int[52];
+        for (int i = 0; i < 52; i++)
+            deck[i] = i + 1;
+
+        return deck;
+    }
+}
@@ -0,0 +1,121 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class MoveGeneratorTest
+{
+    /**
+     * Test passes if the generator agrees with a full scan of the board after
+     * every move and undo in random games.
+     */
+    @Test
+    public void testMatchesFullScan()
+    {
+        Random random = new Random(42);
+        int[] deck = new int[GameState.DECK_SIZE];
+        int[] path = new int[200];
+        int[] tokens = new int[200];
+
+        for (int deal = 1; deal <= 20; deal++)
+        {
+            GameState state = new GameState(deal % 2 == 0 ? 3 : 1, 1 + deal % 3);
+            Deals.deal(deal, state, deck);
+            MoveGenerator generator = new MoveGenerator(state);
+
+            int depth = 0;
+
+            while (depth < path.length)
+            {
+                assertEquals(scan(state), sorted(generator));
+
+                if (generator.size() == 0)
+                    break;
+
+                path[depth] = generator.get(random.nextInt(generator.size()));
+                tokens[depth] = state.apply(path[depth]);
+                depth++;
+
+                // go back now and then so undone moves are covered too
+                if (depth > 1 && random.nextInt(4) == 0)
+                {
+                    depth--;
+                    state.undo(path[depth], tokens[depth]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test passes if a generator following a position changed card by card
+     * finds a King's move to an empty Column and the draw.
+     */
+    @Test
+    public void testFollowsPushAndPop()
+    {
+        GameState state = new GameState(1, 2);
+        MoveGenerator generator = new MoveGenerator(state);
+        assertEquals(0, generator.size());
+
+        int king = Rules.card(Rules.HEARTS, Rules.KING);
+        state.push(GameState.FIRST_CELL, king);
+        state.push(GameState.DEAL_DECK, 1);
+
+        assertEquals(Move.encode(GameState.FIRST_CELL, 1, GameState.FIRST_COLUMN),
+                     generator.getMove(GameState.FIRST_CELL, GameState.FIRST_COLUMN));
+        assertEquals(Move.DRAW, generator.getMove(GameState.DEAL_DECK, GameState.DISCARD_PILE));
+        assertFalse(generator.isDrawOnly());
+
+        state.pop(GameState.FIRST_CELL);
+
+        assertEquals(0, generator.getMove(GameState.FIRST_CELL, GameState.FIRST_COLUMN));
+        assertTrue(generator.isDrawOnly());
+    }
+
+    private static String sorted(MoveGenerator generator)
+    {
+        int[] moves = Arrays.copyOf(generator.getMoves(), generator.size());
+        Arrays.sort(moves);
+
+        return Arrays.toString(moves);
+    }
+
+    /**
+     * Lists the legal moves the slow way: every pile pair and card count.
+     */
+    private static String scan(GameState state)
+    {
+        int[] moves = new int[GameState.NUM_PILES * GameState.NUM_PILES];
+        int n = 0;
+
+        if (state.canDraw())
+            moves[n++] = Move.DRAW;
+
+        for (int from = 0; from < GameState.NUM_PILES; from++)
+        {
+            for (int to = 0; to < GameState.NUM_PILES; to++)
+            {
+                for (int count = 1; count <= state.movableCount(from); count++)
+                {
+                    if (!state.isValidMove(from, count, to))
+                        continue;
+
+                    boolean wholeColumn = GameState.isColumn(from) && GameState.isColumn(to)
+                            && state.isEmpty(to) && count == state.size(from);
+
+                    if (!wholeColumn && !(GameState.isCell(from) && GameState.isCell(to)))
+                        moves[n++] = Move.encode(from, count, to);
+                }
+            }
+        }
+
+        int[] legal = Arrays.copyOf(moves, n);
+        Arrays.sort(legal);
+
+        return Arrays.toString(legal);
+    }
+}
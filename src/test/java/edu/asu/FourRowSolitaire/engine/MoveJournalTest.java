@@ -0,0 +1,77 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import static org.testng.AssertJUnit.*;
+
+import org.testng.annotations.Test;
+
+public class MoveJournalTest
+{
+    /**
+     * Test passes if every field of an entry survives packing.
+     */
+    @Test
+    public void testEntryFields()
+    {
+        int move = Move.encode(GameState.FIRST_COLUMN + 3, 13, GameState.FIRST_COLUMN);
+        long entry = MoveJournal.entry(move, 3, 1);
+
+        assertEquals(move, MoveJournal.getMove(entry));
+        assertEquals(3, MoveJournal.getDiscardView(entry));
+        assertEquals(1, MoveJournal.getDeckThroughDelta(entry));
+
+        assertEquals(-1, MoveJournal.getDeckThroughDelta(MoveJournal.entry(Move.DRAW, 0, -1)));
+    }
+
+    /**
+     * Test passes if moves are undone last first, redone in the order they
+     * were made, and a new move drops the moves left to redo.
+     */
+    @Test
+    public void testUndoRedo()
+    {
+        MoveJournal journal = new MoveJournal();
+
+        // enough moves to grow the buffer a few times
+        for (int i = 0; i < 1000; i++)
+            journal.add(i);
+
+        for (int i = 999; i >= 500; i--)
+            assertEquals(i, journal.undo());
+
+        assertEquals(500, journal.size());
+        assertEquals(500, journal.getRedoSize());
+
+        for (int i = 500; i < 600; i++)
+            assertEquals(i, journal.redo());
+
+        journal.add(-1);
+        assertFalse(journal.canRedo());
+        assertEquals(-1, journal.undo());
+        assertEquals(599, journal.undo());
+    }
+
+    /**
+     * Test passes if a journal with a limit keeps only the newest moves.
+     */
+    @Test
+    public void testLimit()
+    {
+        MoveJournal journal = new MoveJournal(10);
+
+        for (int i = 0; i < 25; i++)
+            journal.add(i);
+
+        assertEquals(10, journal.size());
+
+        for (int i = 24; i >= 15; i--)
+            assertEquals(i, journal.undo());
+
+        assertFalse(journal.canUndo());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testUndoEmpty()
+    {
+        new MoveJournal().undo();
+    }
+}
@@ -0,0 +1,127 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class ParallelSolverTest
+{
+    private ParallelSolver solver;
+
+    @BeforeClass
+    public void setUp()
+    {
+        solver = new ParallelSolver(4, 200000);
+    }
+
+    @AfterClass
+    public void tearDown()
+    {
+        solver.shutdown();
+    }
+
+    /**
+     * Test passes if the parallel and single-threaded searches agree on every
+     * deal that both decide, every parallel solution wins its deal and the
+     * searched positions are left unchanged.
+     */
+    @Test
+    public void testAgreesWithSolver()
+    {
+        Random random = new Random(2008);
+        Solver single = new Solver(200000);
+
+        for (int i = 0; i < 10; i++)
+        {
+            GameState state = new GameState(3, 3);
+            state.deal(shuffledDeck(random));
+            String before = Arrays.toString(state.toOrdinals());
+
+            int expected = single.solve(state);
+            int actual = solver.solve(state);
+
+            assertEquals(before, Arrays.toString(state.toOrdinals()));
+
+            if (expected != Solver.UNKNOWN && actual != Solver.UNKNOWN)
+                assertEquals("deal " + i, expected, actual);
+
+            if (actual == Solver.WINNABLE)
+                assertWins(state, solver.getSolution());
+        }
+    }
+
+    /**
+     * Test passes if concurrent adds of the same keys report each key as new
+     * exactly once.
+     */
+    @Test
+    public void testTableAddsEachKeyOnce() throws InterruptedException
+    {
+        final ConcurrentPositionTable table = new ConcurrentPositionTable(100000, 8);
+        final int[] added = new int[4];
+        Thread[] threads = new Thread[added.length];
+
+        for (int t = 0; t < threads.length; t++)
+        {
+            final int index = t;
+            threads[t] = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    for (long key = 0; key < 100000; key++)
+                        if (table.add(key * 0x9E3779B97F4A7C15L))
+                            added[index]++;
+                }
+            });
+            threads[t].start();
+        }
+
+        int total = 0;
+        for (int t = 0; t < threads.length; t++)
+        {
+            threads[t].join();
+            total += added[t];
+        }
+
+        assertEquals(100000, total);
+    }
+
+    private void assertWins(GameState start, int[] moves)
+    {
+        GameState state = new GameState(start);
+
+        for (int move : moves)
+        {
+            if (Move.isDraw(move))
+                assertTrue(state.canDraw());
+            else
+                assertTrue(Move.toString(move), state.isValidMove(Move.from(move), Move.count(move), Move.to(move)));
+
+            state.apply(move);
+        }
+
+        assertTrue(state.isWon());
+    }
+
+    private int[] shuffledDeck(Random random)
+    {
+        int[] deck = new int[52];
+        for (int i = 0; i < 52; i++)
+            deck[i] = i + 1;
+
+        for (int i = deck.length - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int temp = deck[i];
+            deck[i] = deck[j];
+            deck[j] = temp;
+        }
+
+        return deck;
+    }
+}
@@ -0,0 +1,165 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+public class SnapshotTest
+{
+    /**
+     * Test passes if a snapshot fits in a cache line.
+     */
+    @Test
+    public void testSize()
+    {
+        assertEquals(55, Snapshot.SIZE);
+        assertTrue(Snapshot.SIZE <= 64);
+    }
+
+    /**
+     * Test passes if a dealt position comes back with every card where it
+     * was, and its draw count, difficulty and time.
+     */
+    @Test
+    public void testRoundTripDeal()
+    {
+        GameState position = new GameState(3, 1);
+        Deals.deal(2468L, position, new int[GameState.DECK_SIZE]);
+
+        byte[] bytes = new Snapshot(position, 75).encode();
+        Snapshot snapshot = Snapshot.decode(bytes);
+
+        assertEquals(Snapshot.SIZE, bytes.length);
+        assertTrue(Snapshot.isSnapshot(bytes));
+        assertTrue(Arrays.equals(position.toOrdinals(), snapshot.getPosition().toOrdinals()));
+        assertEquals(3, snapshot.getPosition().getDrawCount());
+        assertEquals(1, snapshot.getPosition().getDifficulty());
+        assertEquals(75, snapshot.getSeconds());
+    }
+
+    /**
+     * Test passes if a position part way through a game comes back with its
+     * deck throughs and DiscardPile view.
+     */
+    @Test
+    public void testRoundTripMoved()
+    {
+        GameState position = new GameState(1, 3);
+        Deals.deal(13L, position, new int[GameState.DECK_SIZE]);
+        position.move(GameState.FIRST_COLUMN, 1, GameState.FIRST_CELL + 2);
+        position.draw();
+        position.draw();
+        position.setDeckThroughs(1);
+        position.setDiscardView(2);
+
+        Snapshot snapshot = Snapshot.decode(new Snapshot(position, 3600).encode());
+
+        assertTrue(Arrays.equals(position.toOrdinals(), snapshot.getPosition().toOrdinals()));
+        assertEquals(1, snapshot.getPosition().getDrawCount());
+        assertEquals(3, snapshot.getPosition().getDifficulty());
+        assertEquals(1, snapshot.getPosition().getDeckThroughs());
+        assertEquals(2, snapshot.getPosition().getDiscardView());
+        assertEquals(3600, snapshot.getSeconds());
+    }
+
+    /**
+     * Test passes if bytes of another version or length, or that repeat a
+     * card, are refused.
+     */
+    @Test
+    public void testRejectsDamaged()
+    {
+        GameState position = new GameState(1, 2);
+        Deals.deal(5L, position, new int[GameState.DECK_SIZE]);
+        byte[] bytes = new Snapshot(position, 0).encode();
+
+        assertFalse(Snapshot.isSnapshot(Arrays.copyOf(bytes, Snapshot.SIZE - 1)));
+        assertFalse(Snapshot.isSnapshot(new byte[4 * 66]));
+
+        byte[] version = bytes.clone();
+        version[0] = 2;
+        assertRejected(version);
+
+        // one card in place of another
+        int[] ordinals = position.toOrdinals();
+        int card = 0;
+
+        while (ordinals[card] == -1 || ordinals[card + 1] == -1)
+            card++;
+
+        ordinals[card + 1] = ordinals[card];
+        GameState repeated = new GameState(1, 2);
+        repeated.load(ordinals);
+        assertRejected(new Snapshot(repeated, 0).encode());
+    }
+
+    /**
+     * Test passes if deck throughs past the limit for the mode, or a
+     * DiscardPile view of more than three cards or of more cards than the
+     * pile holds, are refused.
+     */
+    @Test
+    public void testRejectsOutOfRange()
+    {
+        GameState position = new GameState(1, 2);
+        Deals.deal(5L, position, new int[GameState.DECK_SIZE]);
+        position.draw();
+        position.draw();
+
+        position.setDeckThroughs(0);
+        assertRejected(new Snapshot(position, 0).encode());
+
+        position.setDeckThroughs(Rules.deckThroughLimit(1, 2) + 1);
+        assertRejected(new Snapshot(position, 0).encode());
+
+        position.setDeckThroughs(Rules.deckThroughLimit(1, 2));
+        position.setDiscardView(2);
+        Snapshot.decode(new Snapshot(position, 0).encode());
+
+        position.setDiscardView(3);
+        assertRejected(new Snapshot(position, 0).encode());
+
+        position.setDiscardView(4);
+        assertRejected(new Snapshot(position, 0).encode());
+
+        for (int view = GameState.DECK_SIZE + 1; view <= 63; view++)
+        {
+            position.setDiscardView(view);
+            assertRejected(new Snapshot(position, 0).encode());
+        }
+
+        GameState three = new GameState(3, 2);
+        Deals.deal(5L, three, new int[GameState.DECK_SIZE]);
+        three.draw();
+        three.draw();
+        three.setDeckThroughs(Rules.deckThroughLimit(3, 2));
+        three.setDiscardView(3);
+        Snapshot.decode(new Snapshot(three, 0).encode());
+
+        three.setDiscardView(4);
+        assertRejected(new Snapshot(three, 0).encode());
+    }
+
+    /**
+     * Test passes if a position without all 52 cards cannot be encoded.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRejectsIncomplete()
+    {
+        new Snapshot(new GameState(1, 2), 0).encode();
+    }
+
+    private static void assertRejected(byte[] bytes)
+    {
+        try
+        {
+            Snapshot.decode(bytes);
+            fail("Decoded a damaged snapshot");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+    }
+}
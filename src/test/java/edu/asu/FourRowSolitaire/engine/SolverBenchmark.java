@@ -0,0 +1,73 @@
+package edu.asu.FourRowSolitaire.engine;
+
+/**
+ * Measures how the {@link ParallelSolver} scales with the number of threads.
+ * <p>
+ * The same numbered deals are searched with 1, 2, 4, ... threads up to the
+ * number of available processors, and the wall time, positions per second
+ * and speedup over one thread are printed for each. Run it with
+ * <pre>
+ * java edu.asu.FourRowSolitaire.engine.SolverBenchmark [drawCount] [difficulty] [deals] [maxNodes] [firstDeal]
+ * </pre>
+ * The defaults are draw three on hard, the hardest deals to decide.
+ */
+public class SolverBenchmark
+{
+    public static void main(String[] args)
+    {
+        int drawCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int difficulty = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int deals = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        long maxNodes = args.length > 3 ? Long.parseLong(args[3]) : 2000000;
+        long firstDeal = args.length > 4 ? Long.parseLong(args[4]) : Deals.FIRST_DEAL;
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        double baseTime = 0;
+
+        System.out.println("draw " + drawCount + ", difficulty " + difficulty + ", "
+                + deals + " deals, " + maxNodes + " nodes per deal, " + processors + " processors");
+        System.out.println("threads  won  lost  unknown    seconds   nodes/sec  speedup");
+
+        for (int threads = 1; ; threads *= 2)
+        {
+            threads = Math.min(threads, processors);
+
+            ParallelSolver solver = new ParallelSolver(threads, maxNodes);
+            int[] results = new int[3];
+            long nodes = 0;
+
+            // warm up on one deal so the JIT does not count against one thread
+            if (threads == 1)
+                solver.solve(deal(firstDeal + deals, drawCount, difficulty));
+
+            long start = System.nanoTime();
+
+            for (int i = 0; i < deals; i++)
+            {
+                results[solver.solve(deal(firstDeal + i, drawCount, difficulty))]++;
+                nodes += solver.getNodesSearched();
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            solver.shutdown();
+
+            if (threads == 1)
+                baseTime = seconds;
+
+            System.out.println(String.format("%7d %4d %5d %8d %10.2f %11.0f %8.2f",
+                    threads, results[Solver.WINNABLE], results[Solver.UNWINNABLE],
+                    results[Solver.UNKNOWN], seconds, nodes / seconds, baseTime / seconds));
+
+            if (threads == processors)
+                break;
+        }
+    }
+
+    private static GameState deal(long dealNumber, int drawCount, int difficulty)
+    {
+        GameState state = new GameState(drawCount, difficulty);
+        Deals.deal(dealNumber, state, new int[GameState.DECK_SIZE]);
+
+        return state;
+    }
+}
@@ -0,0 +1,159 @@
+package edu.asu.FourRowSolitaire.engine;
+
+import static org.testng.AssertJUnit.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class SolverTest
+{
+    /**
+     * Test passes if a position with only the Kings left to play is found to
+     * be winnable, the solution plays the four Kings and the position is left
+     * unchanged.
+     */
+    @Test
+    public void testKingsLeft()
+    {
+        GameState state = new GameState(1, 2);
+
+        for (int pile = 0; pile < 4; pile++)
+        {
+            int suit = Rules.acePileSuit(pile);
+
+            for (int value = Rules.ACE; value < Rules.KING; value++)
+                state.push(GameState.FIRST_ACE_PILE + pile, Rules.card(suit, value));
+
+            state.push(GameState.FIRST_COLUMN + pile, Rules.card(suit, Rules.KING));
+        }
+
+        int[] before = state.toOrdinals();
+        Solver solver = new Solver();
+
+        assertEquals(Solver.WINNABLE, solver.solve(state));
+        assertEquals(4, solver.getSolution().length);
+        assertEquals(Arrays.toString(before), Arrays.toString(state.toOrdinals()));
+    }
+
+    /**
+     * Test passes if a search on an interrupted thread gives up at its first
+     * poll, leaving the position unchanged.
+     */
+    @Test
+    public void testInterrupted()
+    {
+        GameState state = new GameState(1, 2);
+        Deals.deal(4L, state, new int[GameState.DECK_SIZE]);
+
+        int[] before = state.toOrdinals();
+        Solver solver = new Solver();
+
+        Thread.currentThread().interrupt();
+
+        try
+        {
+            assertEquals(Solver.UNKNOWN, solver.solve(state));
+            assertTrue(solver.getNodesSearched() <= Solver.POLL_INTERVAL);
+            assertEquals(Arrays.toString(before), Arrays.toString(state.toOrdinals()));
+        }
+        finally
+        {
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Test passes if a position where the Two of Spades covers the Ace of
+     * Spades, with every SingleCell taken and nothing left to deal, is found
+     * to be unwinnable.
+     */
+    @Test
+    public void testBlockedAce()
+    {
+        GameState state = new GameState(1, 3);
+
+        for (int suit = Rules.CLUBS; suit <= Rules.DIAMONDS; suit++)
+        {
+            int pile = GameState.FIRST_ACE_PILE + Rules.acePileFor(suit);
+
+            for (int value = Rules.ACE; value <= Rules.KING; value++)
+                state.push(pile, Rules.card(suit, value));
+        }
+
+        for (int i = 0; i < 4; i++)
+            state.push(GameState.FIRST_CELL + i, Rules.card(Rules.SPADES, 5 + i));
+
+        state.push(GameState.FIRST_COLUMN, Rules.card(Rules.SPADES, 1));
+        state.push(GameState.FIRST_COLUMN, Rules.card(Rules.SPADES, 2));
+
+        for (int value = 9; value <= Rules.KING; value++)
+            state.push(GameState.FIRST_COLUMN + 1, Rules.card(Rules.SPADES, value));
+
+        state.push(GameState.FIRST_COLUMN + 2, Rules.card(Rules.SPADES, 3));
+        state.push(GameState.FIRST_COLUMN + 3, Rules.card(Rules.SPADES, 4));
+
+        Solver solver = new Solver();
+
+        assertEquals(Solver.UNWINNABLE, solver.solve(state));
+        assertEquals(0, solver.getSolution().length);
+    }
+
+    /**
+     * Test passes if the solution found for a shuffled deal is a sequence of
+     * legal moves that wins the game.
+     */
+    @Test
+    public void testSolutionWinsDeal()
+    {
+        Random random = new Random(2008);
+        Solver solver = new Solver(200000);
+
+        for (int attempt = 0; attempt < 20; attempt++)
+        {
+            GameState state = new GameState(1, 1);
+            state.deal(shuffledDeck(random));
+
+            if (solver.solve(state) != Solver.WINNABLE)
+                continue;
+
+            for (int move : solver.getSolution())
+            {
+                if (Move.isDraw(move))
+                {
+                    assertTrue(state.canDraw());
+                }
+                else
+                {
+                    assertTrue(Move.toString(move),
+                               state.isValidMove(Move.from(move), Move.count(move), Move.to(move)));
+                }
+
+                state.apply(move);
+            }
+
+            assertTrue(state.isWon());
+            return;
+        }
+
+        fail("no winnable deal found");
+    }
+
+    private int[] shuffledDeck(Random random)
+    {
+        int[] deck = new int[52];
+        for (int i = 0; i < 52; i++)
+            deck[i] = i + 1;
+
+        for (int i = deck.length - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int temp = deck[i];
+            deck[i] = deck[j];
+            deck[j] = temp;
+        }
+
+        return deck;
+    }
+}